@@ -0,0 +1,128 @@
+package de.beuth.knabe.spring_ddd_bank;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Regression gate for the JMH benchmarks. Compares a JMH result file in JSON
+ * format with a baseline result file of the same benchmarks, which were run
+ * with the GC profiler (<code>-prof gc</code>). A benchmark fails, if its
+ * average time grew by more than the time tolerance, or its allocated bytes per
+ * operation grew by more than the allocation tolerance. The times are noisy, the
+ * allocations are nearly deterministic, so the time tolerance is larger. The
+ * tolerances are fractions given by the system properties
+ * <code>gate.timeTolerance</code> (default 0.15) and
+ * <code>gate.allocationTolerance</code> (default 0.05). A benchmark also fails,
+ * if the baseline has its allocated bytes, but the result has not, because it
+ * was run without the GC profiler. A benchmark missing in the baseline is only
+ * reported. Exits with status 1, if a benchmark failed, and with status 2, if
+ * there is no baseline yet.
+ */
+public class BenchmarkGate {
+
+	private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+	/** Allowed growth in bytes per operation besides the tolerance, as small values vary by an object header. */
+	private static final double ALLOCATION_SLACK_BYTES = 16;
+
+	/** A measured benchmark. */
+	private static class Result {
+		final double score;
+		final String unit;
+		final double allocatedBytes;
+
+		Result(final double score, final String unit, final double allocatedBytes) {
+			this.score = score;
+			this.unit = unit;
+			this.allocatedBytes = allocatedBytes;
+		}
+	}
+
+	/**
+	 * Compares the result file with the baseline file.
+	 * 
+	 * @param args the path of the baseline file and the path of the result file
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: BenchmarkGate baseline.json result.json");
+			System.exit(2);
+		}
+		final File baselineFile = new File(args[0]);
+		if (!baselineFile.isFile()) {
+			System.err.println("No baseline " + baselineFile
+					+ ". Run the benchmarks on the reference version and copy their result there.");
+			System.exit(2);
+		}
+		final double timeTolerance = Double.parseDouble(System.getProperty("gate.timeTolerance", "0.15"));
+		final double allocationTolerance = Double
+				.parseDouble(System.getProperty("gate.allocationTolerance", "0.05"));
+		final Map<String, Result> baseline = _read(baselineFile);
+		final Map<String, Result> current = _read(new File(args[1]));
+		int failures = 0;
+		for (final Map.Entry<String, Result> entry : current.entrySet()) {
+			final String benchmark = entry.getKey();
+			final Result now = entry.getValue();
+			final Result before = baseline.get(benchmark);
+			if (before == null) {
+				System.out.printf("NEW  %s: %.1f %s, %.0f B/op%n", benchmark, now.score, now.unit,
+						now.allocatedBytes);
+				continue;
+			}
+			final boolean slower = now.score > before.score * (1 + timeTolerance);
+			final boolean allocationUnmeasured = !Double.isNaN(before.allocatedBytes)
+					&& Double.isNaN(now.allocatedBytes);
+			final boolean allocatesMore = now.allocatedBytes > before.allocatedBytes * (1 + allocationTolerance)
+					+ ALLOCATION_SLACK_BYTES;
+			final boolean failed = slower || allocatesMore || allocationUnmeasured;
+			if (failed) {
+				failures++;
+			}
+			System.out.printf("%s %s: %.1f -> %.1f %s, %.0f -> %.0f B/op%s%n", failed ? "FAIL" : "OK  ", benchmark,
+					before.score, now.score, now.unit, before.allocatedBytes, now.allocatedBytes,
+					allocationUnmeasured ? " (no " + ALLOCATION_METRIC + " in the result, run with -prof gc)" : "");
+		}
+		if (failures > 0) {
+			System.out.printf("%d of %d benchmarks regressed.%n", failures, current.size());
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Reads a JMH result file.
+	 * 
+	 * @return the results by benchmark name and parameters. The allocated bytes
+	 *         are NaN, if the GC profiler was not used.
+	 */
+	private static Map<String, Result> _read(final File file) throws IOException {
+		final Map<String, Result> result = new LinkedHashMap<>();
+		for (final JsonNode run : new ObjectMapper().readTree(file)) {
+			final StringBuilder name = new StringBuilder(run.path("benchmark").asText());
+			final Iterator<Map.Entry<String, JsonNode>> params = run.path("params").fields();
+			while (params.hasNext()) {
+				final Map.Entry<String, JsonNode> param = params.next();
+				name.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+			}
+			final JsonNode primary = run.path("primaryMetric");
+			double allocatedBytes = Double.NaN;
+			final Iterator<Map.Entry<String, JsonNode>> secondaries = run.path("secondaryMetrics").fields();
+			while (secondaries.hasNext()) {
+				final Map.Entry<String, JsonNode> secondary = secondaries.next();
+				// Older JMH versions prefix the metric names by a middle dot:
+				if (secondary.getKey().endsWith(ALLOCATION_METRIC)) {
+					allocatedBytes = secondary.getValue().path("score").asDouble();
+				}
+			}
+			result.put(name.toString(), new Result(primary.path("score").asDouble(),
+					primary.path("scoreUnit").asText(), allocatedBytes));
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,146 @@
+package de.beuth.knabe.spring_ddd_bank.domain;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.beuth.knabe.spring_ddd_bank.domain.base.EntityBase;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountAccessRepository;
+
+/**
+ * Microbenchmark of the formatting by {@link Client#accountsReport()}. The
+ * account summaries are served from memory by a stub repository, so that only
+ * the formatting is measured.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AccountsReportBenchmark {
+
+	/** Number of accounts of the client. */
+	@Param({ "1", "10", "100" })
+	private int accountCount;
+
+	private Client client;
+
+	@Setup
+	public void setUp() throws ReflectiveOperationException {
+		client = new Client("jack", null);
+		final List<AccountAccess> accesses = new ArrayList<>(accountCount);
+		for (int i = 1; i <= accountCount; i++) {
+			final Account account = new Account("Account " + i);
+			_setId(account, i);
+			account.setBalance(new Amount(100 * i, i % 100));
+			accesses.add(new AccountAccess(client, i % 2 == 1, account));
+		}
+		client.provideWith(new StubAccountAccessRepository(accesses), null);
+	}
+
+	@Benchmark
+	public String accountsReport() {
+		return client.accountsReport();
+	}
+
+	private static void _setId(final EntityBase<?> entity, final long id) throws ReflectiveOperationException {
+		final Field idField = EntityBase.class.getDeclaredField("id");
+		idField.setAccessible(true);
+		idField.set(entity, id);
+	}
+
+	/** Finds always the same managed accounts. All other methods are not supported. */
+	private static class StubAccountAccessRepository implements AccountAccessRepository {
+
+		private final List<AccountAccess> managedAccounts;
+		private final List<ManagedAccountSummary> summaries;
+
+		@SuppressWarnings("deprecation")
+		StubAccountAccessRepository(final List<AccountAccess> managedAccounts) {
+			this.managedAccounts = managedAccounts;
+			this.summaries = managedAccounts.stream()
+					.map(access -> new ManagedAccountSummary(access.getAccount().getId(), access.isOwner(),
+							access.getAccount().getBalance().getCents(), access.getAccount().getName()))
+					.collect(Collectors.toList());
+		}
+
+		@Override
+		public List<AccountAccess> findManagedAccountsOf(final Client client, final boolean asOwner) {
+			return managedAccounts;
+		}
+
+		@Override
+		public List<AccountNo> findManagedAccountNosOf(final Client client) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<AccountAccess> findManagedAccountsOf(final Client client, final Collection<AccountNo> accountNos) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Stream<ManagedAccountSummary> streamManagedAccountSummariesOf(final Client client) {
+			return summaries.stream();
+		}
+
+		@Override
+		public void deleteAll() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public AccountAccess save(final AccountAccess accountAccess) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void delete(final AccountAccess accountAccess) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<AccountAccess> findFullAccounts(final Amount minBalance) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public List<Client> findRichClients(final Amount minBalance, final int limit) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Stream<ClientSummary> streamRichClientSummaries(final Amount minBalance, final int limit) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Optional<AccountAccess> find(final Client client, final Account account) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Optional<AccountAccess> find(final Client client, final AccountNo accountNo) {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+}
@@ -0,0 +1,52 @@
+package de.beuth.knabe.spring_ddd_bank.domain;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the {@link Scanners} with the regular expressions, which were used
+ * before, for checking a username and parsing an account number. The regular
+ * expressions are compiled on each call, as they were.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValidationBenchmark {
+
+	private String username = "jack_the_client";
+	private String accountNumber = "1234567";
+
+	@Benchmark
+	public boolean usernameByRegex() {
+		return Pattern.compile("[a-z_A-Z][a-z_A-Z0-9]{0,30}").matcher(username).matches();
+	}
+
+	@Benchmark
+	public boolean usernameByScanner() {
+		return Scanners.isUsername(username);
+	}
+
+	@Benchmark
+	public long accountNumberByRegex() {
+		return accountNumber.matches("\\d+") ? Long.parseLong(accountNumber) : Scanners.ILLEGAL;
+	}
+
+	@Benchmark
+	public long accountNumberByScanner() {
+		return Scanners.accountNumber(accountNumber);
+	}
+
+}
@@ -0,0 +1,71 @@
+package de.beuth.knabe.spring_ddd_bank.domain;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Microbenchmarks of the value objects {@link Amount} and {@link AccountNo}.
+ * The inputs are held in non-final fields, so that the JIT compiler cannot fold
+ * them into constants.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ValueObjectBenchmark {
+
+	private int euros = 1234;
+	private int cents = 56;
+	private double eurosWithCents = 1234.56;
+	private double factor = 1.05;
+	private Amount amount = new Amount(1234, 56);
+	private Amount other = new Amount(78, 9);
+	private String accountNumber = "4711";
+
+	@Benchmark
+	public Amount amountOfEurosAndCents() {
+		return new Amount(euros, cents);
+	}
+
+	@Benchmark
+	public Amount amountOfDouble() {
+		return new Amount(eurosWithCents);
+	}
+
+	@Benchmark
+	public Amount amountPlus() {
+		return amount.plus(other);
+	}
+
+	@Benchmark
+	public Amount amountMinus() {
+		return amount.minus(other);
+	}
+
+	@Benchmark
+	public Amount amountTimes() {
+		return amount.times(factor);
+	}
+
+	@Benchmark
+	public String amountToString() {
+		return amount.toString();
+	}
+
+	@Benchmark
+	public AccountNo accountNoOfString() {
+		return new AccountNo(accountNumber);
+	}
+
+}
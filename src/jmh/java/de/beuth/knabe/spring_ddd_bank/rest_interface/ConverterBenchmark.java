@@ -0,0 +1,39 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Microbenchmarks of the date conversions of the {@link Converter}. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ConverterBenchmark {
+
+	private final Converter converter = new Converter();
+	private String isoDate = "1999-12-31";
+	private LocalDate localDate = LocalDate.of(1999, 12, 31);
+
+	@Benchmark
+	public LocalDate toLocaldate() {
+		return converter.toLocaldate(isoDate);
+	}
+
+	@Benchmark
+	public String localDateToString() {
+		return converter.toString(localDate);
+	}
+
+}
@@ -1,6 +1,5 @@
 package de.beuth.knabe.spring_ddd_bank;
 
-import java.io.PrintWriter;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 
@@ -13,6 +12,7 @@ import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Profiles;
 import org.springframework.context.annotation.aspectj.EnableSpringConfigured;
 import org.springframework.util.SocketUtils;
 import org.springframework.util.StringUtils;
@@ -26,6 +26,10 @@ public class Application {
 	public static void main(final String[] args) throws UnknownHostException, Exception {
 		setDerbySystemHome();
 		final ApplicationContext applicationContext = SpringApplication.run(Application.class, args);
+		if (applicationContext.getEnvironment().acceptsProfiles(Profiles.of("journal"))) {
+			// The journal adapters do not use Derby:
+			return;
+		}
 		final String derbyPortString = applicationContext.getEnvironment().getProperty("derby.port");
 		startDerbyNetworkServer(derbyPortString);
 	}
@@ -87,9 +91,9 @@ public class Application {
 					: SocketUtils.findAvailableTcpPort(10000);
 			server = new NetworkServerControl(InetAddress.getByName("localhost"), derbyPortNumber);
 		}
-		final PrintWriter printWriter = new PrintWriter(System.out);
-		// Starts the Derby network server in a separate thread:
-		server.start(printWriter);
+		// Starts the Derby network server in a separate thread. Its console output is disabled, as it would
+		// be written synchronously to System.out. Derby still writes its messages to the file derby.log:
+		server.start(null);
 		// System.out.println(server.getCurrentProperties());
 	}
 
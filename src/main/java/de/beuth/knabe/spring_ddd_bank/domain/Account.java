@@ -5,16 +5,31 @@ import multex.Exc;
 import static multex.MultexUtil.create;
 
 import javax.persistence.Entity;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Version;
 
 /**
  * An account, which a client of a bank can manage. This entity is an Anemic
  * Domain Object, as it only has stupid setters.
+ * <p>
+ * The balance is indexed, so that the accounts with a minimum balance are found
+ * without scanning all accounts.
  */
 @Entity
+@Table(indexes = @Index(name = "account_balance_cents", columnList = "cents"))
 public class Account extends EntityBase<Account> {
 
 	private String name;
-	private Amount balance = new Amount(0);
+	private Amount balance = Amount.ZERO;
+
+	/**
+	 * Version for optimistic locking. A concurrent update of the same account,
+	 * e.g. by two parallel transfers, is detected when saving, instead of
+	 * silently overwriting the balance computed by the other transaction.
+	 */
+	@Version
+	private Long version;
 
 	/** Necessary for JPA entities internally. */
 	@SuppressWarnings("unused")
@@ -61,13 +76,16 @@ public class Account extends EntityBase<Account> {
 		this.balance = amount;
 	}
 
+	/** The minimum balance, which must stay on each account. */
+	private static final Amount MINIMUM_BALANCE = new Amount(-1000, 0);
+
 	/**
 	 * Returns the minimum balance for the application.
 	 * 
 	 * @return The minimum balance, which must stay on each account.
 	 */
 	public static final Amount getMinimumBalance() {
-		return new Amount(-1000, 0);
+		return MINIMUM_BALANCE;
 	}
 
 }
@@ -1,6 +1,6 @@
 package de.beuth.knabe.spring_ddd_bank.domain;
 
-import multex.Exc;
+import de.beuth.knabe.spring_ddd_bank.domain.base.RejectionExc;
 import static multex.MultexUtil.create;
 
 import java.util.Objects;
@@ -36,21 +36,22 @@ public final class AccountNo {
 	 * @param number
 	 *            An account number as String. It must not be null or empty and
 	 *            contain only decimal digits.
-	 * @throws IllegalExc The number String is null or contains non-digit characters.
+	 * @throws IllegalExc The number String is null, contains non-digit characters,
+	 *            or is greater than {@link Long#MAX_VALUE}.
 	 */
 	public AccountNo(final String number) {
 		if (number == null) {
 			throw create(IllegalExc.class, "null");
 		}
-		if (!number.matches("\\d+")) {
+		this.number = Scanners.accountNumber(number);
+		if (this.number == Scanners.ILLEGAL) {
 			throw create(IllegalExc.class, number);
 		}
-		this.number = Long.parseLong(number);
 	}
 
 	/** Illegal account number \"{0}\". Must consist only of digits. */
 	@SuppressWarnings("serial")
-	public static class IllegalExc extends Exc {
+	public static class IllegalExc extends RejectionExc {
 	}
 
 	/**
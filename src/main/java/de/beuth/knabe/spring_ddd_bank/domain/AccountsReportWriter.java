@@ -0,0 +1,100 @@
+package de.beuth.knabe.spring_ddd_bank.domain;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Writes the accounts report of a {@link Client} line by line to a
+ * {@link Writer}. The lines are the same as formatted by
+ * <code>String.format("%s\t%s\t%5.2f\t%s\n", ...)</code> with the balance in
+ * Euros, but without parsing the format and without converting the balance to
+ * a double. The balance is written with the decimal separator and the digits of
+ * the default format Locale, as {@link String#format(String, Object...)} does.
+ * Not thread-safe.
+ */
+final class AccountsReportWriter {
+
+	/** Minimum width of the balance column, padded by leading spaces. */
+	private static final int BALANCE_WIDTH = 5;
+
+	/**
+	 * Balances of at least this number of cents in magnitude are formatted by
+	 * {@link String#format(String, Object...)}, as the conversion to double may
+	 * then round them to another cent.
+	 */
+	private static final long EXACT_CENTS_LIMIT = 1L << 46;
+
+	private final Writer out;
+	private final char decimalSeparator;
+	private final char zeroDigit;
+
+	/** Digits of the balance, filled from the end. Long enough for any long value. */
+	private final char[] balance = new char[24];
+
+	/**
+	 * Constructs a writer of an accounts report with the number format of the
+	 * default format Locale.
+	 *
+	 * @param out where to write the report
+	 */
+	AccountsReportWriter(final Writer out) {
+		this.out = out;
+		final DecimalFormatSymbols symbols = DecimalFormatSymbols
+				.getInstance(Locale.getDefault(Locale.Category.FORMAT));
+		this.decimalSeparator = symbols.getDecimalSeparator();
+		this.zeroDigit = symbols.getZeroDigit();
+	}
+
+	/**
+	 * Writes the header line of the report.
+	 *
+	 * @param username the username of the reported client
+	 */
+	void writeHeader(final String username) throws IOException {
+		out.write("Accounts of client: ");
+		out.write(String.valueOf(username));
+		out.write('\n');
+	}
+
+	/**
+	 * Writes the line for one managed account.
+	 *
+	 * @param account the managed account
+	 */
+	void writeLine(final ManagedAccountSummary account) throws IOException {
+		out.write(Long.toString(account.getAccountNo()));
+		out.write(account.isOwner() ? "\tisOwner\t" : "\tmanages\t");
+		_writeBalance(account.getBalanceCents());
+		out.write('\t');
+		out.write(String.valueOf(account.getAccountName()));
+		out.write('\n');
+	}
+
+	private void _writeBalance(final long cents) throws IOException {
+		if (cents <= -EXACT_CENTS_LIMIT || cents >= EXACT_CENTS_LIMIT) {
+			out.write(String.format("%5.2f", cents / 100.0));
+			return;
+		}
+		long magnitude = Math.abs(cents);
+		int start = balance.length;
+		balance[--start] = (char) (zeroDigit + magnitude % 10);
+		magnitude /= 10;
+		balance[--start] = (char) (zeroDigit + magnitude % 10);
+		magnitude /= 10;
+		balance[--start] = decimalSeparator;
+		do {
+			balance[--start] = (char) (zeroDigit + magnitude % 10);
+			magnitude /= 10;
+		} while (magnitude > 0);
+		if (cents < 0) {
+			balance[--start] = '-';
+		}
+		for (int length = balance.length - start; length < BALANCE_WIDTH; length++) {
+			balance[--start] = ' ';
+		}
+		out.write(balance, start, balance.length - start);
+	}
+
+}
@@ -1,11 +1,16 @@
 package de.beuth.knabe.spring_ddd_bank.domain;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
 import javax.persistence.Embeddable;
+
+import de.beuth.knabe.spring_ddd_bank.domain.base.RejectionExc;
 import static multex.MultexUtil.create;
 
 /**
  * Value Object representing a Euro money amount with two decimal fraction
- * digits.
+ * digits. All arithmetic is done exactly on the whole number of Euro cents.
  */
 @Embeddable
 public class Amount {
@@ -28,6 +33,18 @@ public class Amount {
 		return -maxValue();
 	}
 
+	/** The {@link #maxValue()} in Euro cents. */
+	private static final long MAX_CENTS = 9_000_000_000_000_000L;
+
+	/** The {@link #minValue()} in Euro cents. */
+	private static final long MIN_CENTS = -MAX_CENTS;
+
+	/**
+	 * The rounding mode used by {@link #times(double)} for products, which are
+	 * not a whole number of cents.
+	 */
+	public static final RoundingMode ROUNDING_MODE = RoundingMode.HALF_UP;
+
 	public static final Amount ZERO = new Amount(0, 0);
 
 	/** The money amount in Euro Cents */
@@ -48,10 +65,7 @@ public class Amount {
 	 *            number of EUR cents
 	 */
 	public Amount(final int euros, final int cents) {
-		final double centsAsDouble = 100.0 * euros + cents;
-		this.cents = Math.round(centsAsDouble);
-		// System.out.printf("Amount of %d euros and %d cents results in %d cents.\n",
-		// euros, cents, this.cents);
+		this.cents = 100L * euros + cents;
 	}
 
 	/**
@@ -74,9 +88,40 @@ public class Amount {
 		//as the range minValue() ... maxValue() is much smaller.
 	}
 
+	/**
+	 * Constructs an amount of exactly the given cents. The range must have been
+	 * checked by the caller.
+	 * 
+	 * @param cents
+	 *            number of EUR cents
+	 */
+	private Amount(final long cents) {
+		this.cents = cents;
+	}
+
+	/**
+	 * Returns an amount of the given cents. The frequently used value zero is not
+	 * allocated again.
+	 * 
+	 * @param cents
+	 *            number of EUR cents
+	 * @return the {@link Amount} of the given cents
+	 * @throws RangeExc
+	 *             the given cents are out of range
+	 */
+	public static Amount ofCents(final long cents) {
+		if (cents < MIN_CENTS || cents > MAX_CENTS) {
+			throw create(RangeExc.class, cents / 100.0, minValue(), maxValue());
+		}
+		if (cents == 0) {
+			return ZERO;
+		}
+		return new Amount(cents);
+	}
+
 	/** The amount of {0} euros is out of range. It must be between {1} and {2}. */
 	@SuppressWarnings("serial")
-	public static class RangeExc extends multex.Exc {
+	public static class RangeExc extends RejectionExc {
 	}
 
 	public long getCents() {
@@ -89,15 +134,14 @@ public class Amount {
 	 * @param other
 	 *            the other {@link Amount} to be added to this one
 	 * @return the sum of this and the other {@link Amount}
-	 * @throws IllegalArgumentException
+	 * @throws RangeExc
 	 *             the resulting value is out of range
 	 */
 	public Amount plus(final Amount other) {
-		final double doubleResult = this.toDouble() + other.toDouble();
-		final Amount result = new Amount(doubleResult);
-		// System.out.printf("Sum of %s euros and %s euros results in %s euros.\n",
-		// this, other, result);
-		return result;
+		if (other.cents == 0) {
+			return this;
+		}
+		return ofCents(Math.addExact(cents, other.cents));
 	}
 
 	@Override
@@ -125,27 +169,41 @@ public class Amount {
 	 * @param other
 	 *            the other {@link Amount} which will be subtracted from this one
 	 * @return the difference
-	 * @throws IllegalArgumentException
+	 * @throws RangeExc
 	 *             the resulting value is out of range
 	 */
 	public Amount minus(final Amount other) {
-		final double result = this.toDouble() - other.toDouble();
-		return new Amount(result);
+		if (other.cents == 0) {
+			return this;
+		}
+		return ofCents(Math.subtractExact(cents, other.cents));
 	}
 
 	/**
-	 * Returns the product of this Amount and the factor.
+	 * Returns the product of this Amount and the factor. The factor is taken by
+	 * its decimal representation as by {@link Double#toString(double)}. The
+	 * product is rounded to whole cents by the {@link #ROUNDING_MODE}.
 	 * 
 	 * @param factor
 	 *            the factor by which this {@link Amount} has to be multiplied
 	 * 
 	 * @return the product
-	 * @throws IllegalArgumentException
+	 * @throws RangeExc
 	 *             the resulting value is out of range
 	 */
 	public Amount times(final double factor) {
-		final double result = this.toDouble() * factor;
-		return new Amount(result);
+		if (Double.isNaN(factor) || Double.isInfinite(factor)) {
+			throw create(RangeExc.class, toDouble() * factor, minValue(), maxValue());
+		}
+		if (factor == 1.0) {
+			return this;
+		}
+		final BigDecimal product = BigDecimal.valueOf(cents).multiply(BigDecimal.valueOf(factor))
+				.setScale(0, ROUNDING_MODE);
+		if (product.compareTo(BigDecimal.valueOf(MIN_CENTS)) < 0 || product.compareTo(BigDecimal.valueOf(MAX_CENTS)) > 0) {
+			throw create(RangeExc.class, toDouble() * factor, minValue(), maxValue());
+		}
+		return ofCents(product.longValue());
 	}
 
 	/**
@@ -3,17 +3,20 @@ package de.beuth.knabe.spring_ddd_bank.domain;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
-import java.util.regex.Pattern;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import de.beuth.knabe.spring_ddd_bank.domain.base.RejectionExc;
 import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountAccessRepository;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountLockManager;
 import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountRepository;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.ClientDiagnostics;
 import de.beuth.knabe.spring_ddd_bank.domain.imports.ClientRepository;
-import multex.Exc;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.LedgerRepository;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.OperationMetrics;
 
 import static multex.MultexUtil.create;
 
@@ -32,13 +35,34 @@ public class BankService {
 	private final ClientRepository clientRepository;
 	private final AccountAccessRepository accountAccessRepository;
 	private final AccountRepository accountRepository;
+	private final LedgerRepository ledgerRepository;
+
+	/** Serializes deposits and transfers on the same accounts inside of this JVM. */
+	private final AccountLockManager accountLockManager;
+
+	/** How transfers of the clients protect the involved accounts against concurrent transfers. */
+	private final LockingMode lockingMode;
+
+	/** Measures the domain operations. */
+	private final OperationMetrics operationMetrics;
+
+	/** Diagnoses the in-memory structures of the client repository. */
+	private final ClientDiagnostics clientDiagnostics;
 
 	@Autowired
 	public BankService(final ClientRepository clientRepository, final AccountAccessRepository accountAccessRepository,
-			final AccountRepository accountRepository) {
+			final AccountRepository accountRepository, final LedgerRepository ledgerRepository,
+			final AccountLockManager accountLockManager,
+			@Value("${bank.transfer.locking:OPTIMISTIC}") final LockingMode lockingMode,
+			final OperationMetrics operationMetrics, final Optional<ClientDiagnostics> clientDiagnostics) {
 		this.clientRepository = clientRepository;
 		this.accountAccessRepository = accountAccessRepository;
 		this.accountRepository = accountRepository;
+		this.ledgerRepository = ledgerRepository;
+		this.accountLockManager = accountLockManager;
+		this.lockingMode = lockingMode;
+		this.operationMetrics = operationMetrics;
+		this.clientDiagnostics = clientDiagnostics.orElse(ClientDiagnostics.NONE);
 	}
 
 	/**
@@ -53,11 +77,14 @@ public class BankService {
 	 * 
 	 */
 	public Client createClient(final String username, final LocalDate birthDate) {
-		final Pattern pattern = Pattern.compile("[a-z_A-Z][a-z_A-Z0-9]{0,30}");
+		return operationMetrics.measure("createClient", () -> _createClient(username, birthDate));
+	}
+
+	private Client _createClient(final String username, final LocalDate birthDate) {
 		if (username==null) {
 			throw create(UsernameExc.class, username);
 		}
-		if (!pattern.matcher(username).matches()) {
+		if (!Scanners.isUsername(username)) {
 			throw create(UsernameExc.class, username);
 		}
 		final Optional<Client> optionalClient = clientRepository.find(username);
@@ -65,7 +92,8 @@ public class BankService {
 			throw create(DuplicateUsernameExc.class, username, client.getId());
 			});
 		final Client client = clientRepository.save(new Client(username, birthDate));
-		client.provideWith(accountAccessRepository, accountRepository);
+		client.provideWith(accountAccessRepository, accountRepository, ledgerRepository, accountLockManager,
+				lockingMode, operationMetrics);
 		return client;
 	}
 
@@ -74,14 +102,14 @@ public class BankService {
 	 * contain only english letters, underscores, and decimal digits.
 	 */
 	@SuppressWarnings("serial")
-	public static class UsernameExc extends multex.Exc {
+	public static class UsernameExc extends RejectionExc {
 	}
 
 	/**
 	 * The requested username "{0}" is already in use with ID {1}, but usernames must be unique in the system.
 	 */
 	@SuppressWarnings("serial")
-	public static class DuplicateUsernameExc extends multex.Exc {
+	public static class DuplicateUsernameExc extends RejectionExc {
 	}
 
 	/**
@@ -107,7 +135,7 @@ public class BankService {
 
 	/** Cannot delete client {0}, Still owns account {1}. */
 	@SuppressWarnings("serial")
-	public static class DeleteExc extends multex.Exc {
+	public static class DeleteExc extends RejectionExc {
 	}
 
 	/**
@@ -125,13 +153,14 @@ public class BankService {
 			throw create(ClientNotFoundExc.class, username);
 		}
 		final Client client = optional.get();
-		client.provideWith(accountAccessRepository, accountRepository);
+		client.provideWith(accountAccessRepository, accountRepository, ledgerRepository, accountLockManager,
+				lockingMode, operationMetrics);
 		return client;
 	}
 
 	/** There is no Client object for the username {0}. */
 	@SuppressWarnings("serial")
-	public static class ClientNotFoundExc extends Exc {
+	public static class ClientNotFoundExc extends RejectionExc {
 	}
 
 	/**
@@ -144,6 +173,55 @@ public class BankService {
 		return clientRepository.findAll();
 	}
 
+	/** The maximum number of clients on one page of {@link #findClients(Long, int)}. */
+	public static final int MAX_PAGE_LIMIT = 10_000;
+
+	/**
+	 * Query: Finds one page of all clients of the bank. The pages are ordered like
+	 * by {@link #findAllClients()}. The next page is found by passing the ID of the
+	 * last client of the current page.
+	 * 
+	 * @param afterId the ID of the last client of the previous page, or null for
+	 *                the first page
+	 * @param limit   the maximum number of clients on the page
+	 * @return at most limit {@link Client}s with IDs lower than afterId, ordered by
+	 *         their descending IDs. Less than limit clients mean the last page.
+	 * @throws PageLimitExc the limit is lower than 1 or greater than
+	 *                      {@link #MAX_PAGE_LIMIT}.
+	 */
+	public List<Client> findClients(final Long afterId, final int limit) {
+		checkPageLimit(limit, MAX_PAGE_LIMIT);
+		return clientRepository.findPage(afterId, limit);
+	}
+
+	/** Illegal page limit {0}. Must be between 1 and {1}. */
+	@SuppressWarnings("serial")
+	public static class PageLimitExc extends RejectionExc {
+	}
+
+	/**
+	 * Checks the limit of a query for one page of results.
+	 * 
+	 * @param limit the maximum number of results on the page
+	 * @param max   the greatest allowed limit
+	 * @throws PageLimitExc the limit is lower than 1 or greater than max.
+	 */
+	static void checkPageLimit(final int limit, final int max) {
+		if (limit < 1 || limit > max) {
+			throw create(PageLimitExc.class, limit, max);
+		}
+	}
+
+	/**
+	 * Query: Streams all clients of the bank without holding them all in memory.
+	 * Must be consumed within a transaction, and closed after use.
+	 * 
+	 * @return all {@link Client}s of the bank ordered by their descending IDs
+	 */
+	public Stream<Client> streamAllClients() {
+		return clientRepository.streamAll();
+	}
+
 	/**
 	 * Query: Finds all clients of the bank, who are born at the given date or
 	 * later.
@@ -157,6 +235,77 @@ public class BankService {
 		return clientRepository.findAllBornFrom(fromBirth);
 	}
 
+	/**
+	 * Query: Finds the summaries of all clients of the bank like
+	 * {@link #findAllClients()}, but without loading the {@link Client} entities.
+	 * 
+	 * @return the {@link ClientSummary}s of all clients ordered by their
+	 *         descending IDs
+	 */
+	public List<ClientSummary> findAllClientSummaries() {
+		return clientRepository.findAllSummaries();
+	}
+
+	/**
+	 * Query: Finds one page of the summaries of all clients of the bank like
+	 * {@link #findClients(Long, int)}, but without loading the {@link Client}
+	 * entities.
+	 * 
+	 * @param afterId the ID of the last client of the previous page, or null for
+	 *                the first page
+	 * @param limit   the maximum number of clients on the page
+	 * @return at most limit {@link ClientSummary}s with IDs lower than afterId,
+	 *         ordered by their descending IDs
+	 * @throws PageLimitExc the limit is lower than 1 or greater than
+	 *                      {@link #MAX_PAGE_LIMIT}.
+	 */
+	public List<ClientSummary> findClientSummaries(final Long afterId, final int limit) {
+		checkPageLimit(limit, MAX_PAGE_LIMIT);
+		return clientRepository.findSummaryPage(afterId, limit);
+	}
+
+	/**
+	 * Query: Finds the summaries of all clients of the bank, who are born at the
+	 * given date or later, like {@link #findYoungClients(LocalDate)}, but without
+	 * loading the {@link Client} entities.
+	 * 
+	 * @param fromBirth the earliest birth date from which clients are considered
+	 * @return the {@link ClientSummary}s ordered by the ascending age of the
+	 *         clients and secondly by their descending IDs.
+	 */
+	public List<ClientSummary> findYoungClientSummaries(final LocalDate fromBirth) {
+		return clientRepository.findSummariesBornFrom(fromBirth);
+	}
+
+	/**
+	 * Query: Finds the summaries of all clients of the bank, who are born in the
+	 * given range of dates.
+	 * 
+	 * @param fromBirth the earliest birth date from which clients are considered
+	 * @param toBirth   the latest birth date until which clients are considered
+	 * @return the {@link ClientSummary}s ordered by the ascending age of the
+	 *         clients and secondly by their descending IDs.
+	 */
+	public List<ClientSummary> findClientSummariesBornBetween(final LocalDate fromBirth, final LocalDate toBirth) {
+		return clientRepository.findSummariesBornBetween(fromBirth, toBirth);
+	}
+
+	/**
+	 * Query: Finds the summaries of the clients of the bank, whose usernames start
+	 * with the given prefix, e.g. for a type-ahead search.
+	 * 
+	 * @param prefix the start of the usernames, case-sensitive. Empty for all.
+	 * @param limit  the maximum number of clients to be found
+	 * @return at most limit {@link ClientSummary}s ordered by their ascending
+	 *         usernames
+	 * @throws PageLimitExc the limit is lower than 1 or greater than
+	 *                      {@link #MAX_PAGE_LIMIT}.
+	 */
+	public List<ClientSummary> findClientSummariesByUsernamePrefix(final String prefix, final int limit) {
+		checkPageLimit(limit, MAX_PAGE_LIMIT);
+		return clientRepository.findByUsernamePrefix(prefix, limit);
+	}
+
 	/**
 	 * Query: Finds all clients of the bank, who own or manage an account with the
 	 * given mimimum balance.
@@ -167,10 +316,111 @@ public class BankService {
 	 * @param minBalance the minimum balance of considered {@link Account}s
 	 */
 	public List<Client> findRichClients(final Amount minBalance) {
-		final List<AccountAccess> fullAccounts = accountAccessRepository.findFullAccounts(minBalance);
-		final Stream<Client> richClients = fullAccounts.stream().map(accountAccess -> accountAccess.getClient())
-				.distinct();
-		return richClients.collect(Collectors.toList());
+		return findRichClients(minBalance, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Query: Finds the top clients of the bank, who own or manage an account with
+	 * the given mimimum balance. Each client is found once. The clients are
+	 * selected, made distinct, and ordered by the database.
+	 * 
+	 * @param minBalance the minimum balance of considered {@link Account}s
+	 * @param limit      the maximum number of clients to be found,
+	 *                   Integer.MAX_VALUE for all
+	 * @return at most limit {@link Client}s ordered by the descending highest
+	 *         balance of their considered accounts, and secondly by their
+	 *         descending IDs.
+	 * @throws PageLimitExc the limit is lower than 1.
+	 */
+	public List<Client> findRichClients(final Amount minBalance, final int limit) {
+		checkPageLimit(limit, Integer.MAX_VALUE);
+		return operationMetrics.measure("findRichClients",
+				() -> accountAccessRepository.findRichClients(minBalance, limit));
+	}
+
+	/**
+	 * Query: Streams the summaries of the clients found like by
+	 * {@link #findRichClients(Amount, int)} without loading the {@link Client}
+	 * entities. Within a transaction they are read while the stream is consumed.
+	 * It must be closed after use.
+	 * 
+	 * @param minBalance the minimum balance of considered {@link Account}s
+	 * @param limit      the maximum number of clients to be found,
+	 *                   Integer.MAX_VALUE for all
+	 * @return the {@link ClientSummary}s of at most limit clients in the order of
+	 *         {@link #findRichClients(Amount, int)}
+	 * @throws PageLimitExc the limit is lower than 1.
+	 */
+	public Stream<ClientSummary> streamRichClientSummaries(final Amount minBalance, final int limit) {
+		checkPageLimit(limit, Integer.MAX_VALUE);
+		// Measures the execution of the query, not the consumption of the stream:
+		return operationMetrics.measure("findRichClients",
+				() -> accountAccessRepository.streamRichClientSummaries(minBalance, limit));
+	}
+
+	/**
+	 * Command: Runs the given action while the given accounts are locked against
+	 * concurrent deposits and transfers inside of this JVM. Several deposits can be
+	 * done by the action in one transaction without risking a deadlock with
+	 * concurrent transfers, as all their accounts are locked at once in the global
+	 * order of the {@link AccountLockManager}. Locking an account again by a
+	 * deposit inside of the action does not wait.
+	 *
+	 * @param action     the work to be done on the given accounts
+	 * @param accountNos the numbers of the accounts to be locked
+	 */
+	public void runLocked(final Runnable action, final AccountNo... accountNos) {
+		accountLockManager.runLocked(action, accountNos);
+	}
+
+	/**
+	 * Query: Reports the durations and failures of the domain operations.
+	 * 
+	 * @return the report as by {@link OperationMetrics#report()}
+	 */
+	public String reportOperationMetrics() {
+		return operationMetrics.report();
+	}
+
+	/**
+	 * Query: Reports the contention on the account locks inside of this JVM.
+	 * 
+	 * @return the report as by {@link AccountLockManager#contentionReport()}
+	 */
+	public String reportAccountLockContention() {
+		return accountLockManager.contentionReport();
+	}
+
+	/**
+	 * Query: Reports the usage of the cache for finding clients.
+	 * 
+	 * @return the report as by {@link ClientDiagnostics#cacheReport()}, empty if
+	 *         the client repository has no cache
+	 */
+	public String reportClientCache() {
+		return clientDiagnostics.cacheReport();
+	}
+
+	/**
+	 * Command: Checks the in-memory index of the clients by birth date against the
+	 * stored clients. An inconsistent index is rebuilt by the next query.
+	 * 
+	 * @return the report as by {@link ClientDiagnostics#checkBirthDateIndex()},
+	 *         empty if the client repository has no such index
+	 */
+	public String checkClientBirthDateIndex() {
+		return clientDiagnostics.checkBirthDateIndex();
+	}
+
+	/**
+	 * Command: Checks the in-memory index of the clients by username against the
+	 * stored clients. An inconsistent index is rebuilt by the next search.
+	 * 
+	 * @return the report as by {@link ClientDiagnostics#checkUsernameIndex()},
+	 *         empty if the client repository has no such index
+	 */
+	public String checkClientUsernameIndex() {
+		return clientDiagnostics.checkUsernameIndex();
 	}
 
 }
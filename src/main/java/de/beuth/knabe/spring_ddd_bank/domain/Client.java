@@ -1,9 +1,12 @@
 package de.beuth.knabe.spring_ddd_bank.domain;
 
 import de.beuth.knabe.spring_ddd_bank.domain.base.EntityBase;
+import de.beuth.knabe.spring_ddd_bank.domain.base.RejectionExc;
 import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountAccessRepository;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountLockManager;
 import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountRepository;
-import multex.Exc;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.LedgerRepository;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.OperationMetrics;
 import multex.Failure;
 
 import javax.persistence.Column;
@@ -11,9 +14,20 @@ import javax.persistence.Entity;
 
 import static multex.MultexUtil.create;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * A client of a bank along with some methods he can do. This entity is a Rich
@@ -70,9 +84,14 @@ public class Client extends EntityBase<Client> {
 
 	private transient AccountAccessRepository accountAccessRepository;
 	private transient AccountRepository accountRepository;
+	private transient LedgerRepository ledgerRepository;
+	private transient AccountLockManager accountLockManager = AccountLockManager.NONE;
+	private transient LockingMode lockingMode = LockingMode.OPTIMISTIC;
+	private transient OperationMetrics operationMetrics = OperationMetrics.NONE;
 
 	/**
-	 * Provides this Client entity with its required repositories. Avoids AspectJ.
+	 * Replaces the repositories for accounts and their accesses of this Client entity, e.g. by mocks.
+	 * The other required services and the configuration are kept. Avoids AspectJ.
 	 * @param accountAccessRepository needed for methods checking access rights to an account
 	 * @param accountRepository needed for methods reading, searching, or updating an account
 	 */
@@ -82,6 +101,27 @@ public class Client extends EntityBase<Client> {
 		this.accountRepository = accountRepository;
 	}
 
+	/**
+	 * Provides this Client entity with its required repositories and configuration. Avoids AspectJ.
+	 * @param accountAccessRepository needed for methods checking access rights to an account
+	 * @param accountRepository needed for methods reading, searching, or updating an account
+	 * @param ledgerRepository needed for methods booking money on an account
+	 * @param accountLockManager serializes deposits and transfers on the same accounts inside of the JVM
+	 * @param lockingMode how transfers protect the involved accounts against concurrent transfers
+	 * @param operationMetrics measures the commands of the Client
+	 */
+	/* package */ void provideWith(final AccountAccessRepository accountAccessRepository,
+			final AccountRepository accountRepository, final LedgerRepository ledgerRepository,
+			final AccountLockManager accountLockManager, final LockingMode lockingMode,
+			final OperationMetrics operationMetrics) {
+		this.accountAccessRepository = accountAccessRepository;
+		this.accountRepository = accountRepository;
+		this.ledgerRepository = ledgerRepository;
+		this.accountLockManager = accountLockManager;
+		this.lockingMode = lockingMode;
+		this.operationMetrics = operationMetrics;
+	}
+
 	/**
 	 * Command: Creates a bank account with the given accountName and a zero
 	 * balance.
@@ -109,18 +149,25 @@ public class Client extends EntityBase<Client> {
 	 */
 	public void deposit(final AccountNo destination, final Amount amount)
 			throws AmountExc, DestinationAccountNotFoundExc, DepositFailure {
+		operationMetrics.measure("deposit", () -> _deposit(destination, amount));
+	}
+
+	private void _deposit(final AccountNo destination, final Amount amount) {
 		// 1. Error checking:
 		if (amount.compareTo(Amount.ZERO) <= 0) {
 			throw create(Client.AmountExc.class, amount);
 		}
-		final Account destinationAccount = _findDestinationAccount(destination);
-		try {
-			// 2. Do modifications:
-			destinationAccount.setBalance(destinationAccount.getBalance().plus(amount));
-			accountRepository.save(destinationAccount);
-		} catch (final Exception ex) {
-			throw create(DepositFailure.class, ex, amount, destination);
-		}
+		accountLockManager.runLocked(() -> {
+			final Account destinationAccount = _findDestinationAccount(destination);
+			try {
+				// 2. Do modifications:
+				destinationAccount.setBalance(destinationAccount.getBalance().plus(amount));
+				accountRepository.save(destinationAccount);
+				ledgerRepository.append(LedgerEntry.deposit(destination, amount));
+			} catch (final Exception ex) {
+				throw create(DepositFailure.class, ex, amount, destination);
+			}
+		}, destination);
 	}
 
 	/** Amount of {0} EUR could not be deposited to account No. {1}. */
@@ -130,7 +177,12 @@ public class Client extends EntityBase<Client> {
 
 	/**
 	 * Command: Transfers the given amount from the source account to the
-	 * destination account.
+	 * destination account. Concurrent transfers and deposits on the same accounts
+	 * are serialized by the {@link AccountLockManager} before the balance is
+	 * checked, and the source account is re-read under its lock. In
+	 * {@link LockingMode#PESSIMISTIC} both accounts are additionally locked in the
+	 * database in ascending order of their account numbers. This requires a
+	 * running transaction.
 	 * 
 	 * @param source      the {@link Account} from which the {@link Amount} will be
 	 *                    taken
@@ -148,25 +200,273 @@ public class Client extends EntityBase<Client> {
 	 */
 	public void transfer(final Account source, final AccountNo destination, final Amount amount)
 			throws AmountExc, WithoutRightExc, MinimumBalanceExc, DestinationAccountNotFoundExc {
+		operationMetrics.measure("transfer", () -> {
+			// 1. Error checking:
+			if (amount.compareTo(Amount.ZERO) <= 0) {
+				throw create(Client.AmountExc.class, amount);
+			}
+			_transfer(_findAccess(source), destination, amount);
+		});
+	}
+
+	/**
+	 * Command: Transfers the given amount from the source account to the
+	 * destination account like {@link #transfer(Account, AccountNo, Amount)}, but
+	 * with the access right to the source account already found by
+	 * {@link #findMyAccess(AccountNo)}. So the access right is not queried again.
+	 * 
+	 * @param sourceAccess the access of this client to the {@link Account} from
+	 *                     which the {@link Amount} will be taken
+	 * @param destination  Number of the {@link Account} to which the
+	 *                     {@link Amount} will be transfered
+	 * @param amount       the {@link Amount} to be transfered
+	 * 
+	 * @throws WithoutRightExc               The sourceAccess is not a saved access
+	 *                                       of this client.
+	 * @throws AmountExc                     Illegal amount (negative or zero)
+	 * @throws MinimumBalanceExc             The source account's balance would fall
+	 *                                       under the minimum balance.
+	 * @throws DestinationAccountNotFoundExc No account with the given
+	 *                                       destinationAccountNo is found.
+	 */
+	public void transfer(final AccountAccess sourceAccess, final AccountNo destination, final Amount amount)
+			throws AmountExc, WithoutRightExc, MinimumBalanceExc, DestinationAccountNotFoundExc {
+		operationMetrics.measure("transfer", () -> _transfer(sourceAccess, destination, amount));
+	}
+
+	private void _transfer(final AccountAccess sourceAccess, final AccountNo destination, final Amount amount) {
 		// 1. Error checking:
-		if (amount.toDouble() <= 0) {
+		if (amount.compareTo(Amount.ZERO) <= 0) {
 			throw create(Client.AmountExc.class, amount);
 		}
-		final Optional<AccountAccess> accountAccessOptional = accountAccessRepository.find(this, source);
-		if (!accountAccessOptional.isPresent()) {
-			throw create(WithoutRightExc.class, username, source.accountNo());
+		final Account source = _checkMyAccess(sourceAccess);
+		accountLockManager.runLocked(() -> _transferLocked(source, destination, amount), source.accountNo(),
+				destination);
+	}
+
+	/**
+	 * Transfers the given amount from the source account to the destination
+	 * account, while both are locked by the {@link AccountLockManager}. See
+	 * {@link #transfer(Account, AccountNo, Amount)}.
+	 */
+	private void _transferLocked(final Account source, final AccountNo destination, final Amount amount) {
+		final Optional<Account> destinationOptional;
+		if (lockingMode == LockingMode.PESSIMISTIC) {
+			destinationOptional = _lockInAscendingOrder(source, destination);
+		} else {
+			accountRepository.refresh(source);
+			destinationOptional = accountRepository.find(destination);
 		}
 		final Amount newBalance = source.getBalance().minus(amount);
 		if (newBalance.compareTo(Account.getMinimumBalance()) < 0) {
 			throw create(MinimumBalanceExc.class, newBalance, Account.getMinimumBalance());
 		}
-		final Account destinationAccount = _findDestinationAccount(destination);
+		if (!destinationOptional.isPresent()) {
+			throw create(DestinationAccountNotFoundExc.class, destination);
+		}
+		final Account destinationAccount = destinationOptional.get();
 
 		// 2. Do modifications:
-		source.setBalance(source.getBalance().minus(amount));
+		source.setBalance(newBalance);
 		destinationAccount.setBalance(destinationAccount.getBalance().plus(amount));
 		accountRepository.save(source);
 		accountRepository.save(destinationAccount);
+		ledgerRepository.append(LedgerEntry.transfer(source.accountNo(), destination, amount));
+	}
+
+	/**
+	 * Command: Transfers the given amounts from the source account to the given
+	 * destination accounts, all or none. The access right to the source account is
+	 * checked once, and the minimum balance is checked against the sum of all
+	 * amounts. All involved accounts are locked by the {@link AccountLockManager}
+	 * at once. In {@link LockingMode#OPTIMISTIC} the destination accounts are read
+	 * by as few queries as possible. In {@link LockingMode#PESSIMISTIC} all
+	 * involved accounts are locked in the database in ascending order of their
+	 * account numbers. Requires a running transaction, which is to be rolled back,
+	 * if an exception is thrown.
+	 * 
+	 * @param source the {@link Account} from which all amounts will be taken
+	 * @param orders the destinations and amounts of the single transfers
+	 * 
+	 * @throws WithoutRightExc               The sender is not a manager of the
+	 *                                       source account.
+	 * @throws AmountExc                     An amount is illegal (negative or
+	 *                                       zero).
+	 * @throws MinimumBalanceExc             The source account's balance would fall
+	 *                                       under the minimum balance.
+	 * @throws DestinationAccountNotFoundExc No account with a destination account
+	 *                                       number is found.
+	 */
+	public void transferAll(final Account source, final List<TransferOrder> orders)
+			throws AmountExc, WithoutRightExc, MinimumBalanceExc, DestinationAccountNotFoundExc {
+		operationMetrics.measure("transferAll", () -> {
+			_checkAmounts(orders);
+			_transferAll(_findAccess(source), orders);
+		});
+	}
+
+	/**
+	 * Command: Transfers the given amounts from the source account to the given
+	 * destination accounts like {@link #transferAll(Account, List)}, but with the
+	 * access right to the source account already found by
+	 * {@link #findMyAccess(AccountNo)}. So the access right is not queried again.
+	 * 
+	 * @param sourceAccess the access of this client to the {@link Account} from
+	 *                     which all amounts will be taken
+	 * @param orders       the destinations and amounts of the single transfers
+	 * 
+	 * @throws WithoutRightExc               The sourceAccess is not a saved access
+	 *                                       of this client.
+	 * @throws AmountExc                     An amount is illegal (negative or
+	 *                                       zero).
+	 * @throws MinimumBalanceExc             The source account's balance would fall
+	 *                                       under the minimum balance.
+	 * @throws DestinationAccountNotFoundExc No account with a destination account
+	 *                                       number is found.
+	 */
+	public void transferAll(final AccountAccess sourceAccess, final List<TransferOrder> orders)
+			throws AmountExc, WithoutRightExc, MinimumBalanceExc, DestinationAccountNotFoundExc {
+		operationMetrics.measure("transferAll", () -> _transferAll(sourceAccess, orders));
+	}
+
+	private void _transferAll(final AccountAccess sourceAccess, final List<TransferOrder> orders) {
+		// 1. Error checking:
+		_checkAmounts(orders);
+		final Account source = _checkMyAccess(sourceAccess);
+		final Set<AccountNo> destinationNos = orders.stream().map(TransferOrder::getDestination)
+				.collect(Collectors.toCollection(LinkedHashSet::new));
+		final List<AccountNo> lockedNos = new ArrayList<>(destinationNos.size() + 1);
+		lockedNos.add(source.accountNo());
+		lockedNos.addAll(destinationNos);
+		accountLockManager.runLocked(() -> _transferAllLocked(source, destinationNos, orders),
+				lockedNos.toArray(new AccountNo[lockedNos.size()]));
+	}
+
+	/** Checks, that all amounts of the given orders are legal transfer amounts. */
+	private void _checkAmounts(final List<TransferOrder> orders) throws AmountExc {
+		for (final TransferOrder order : orders) {
+			if (order.getAmount().compareTo(Amount.ZERO) <= 0) {
+				throw create(Client.AmountExc.class, order.getAmount());
+			}
+		}
+	}
+
+	/**
+	 * Finds the access of this client to the given account.
+	 * 
+	 * @throws WithoutRightExc This client is neither owner nor manager of the
+	 *                         account.
+	 */
+	private AccountAccess _findAccess(final Account account) throws WithoutRightExc {
+		final Optional<AccountAccess> accountAccessOptional = accountAccessRepository.find(this, account);
+		if (!accountAccessOptional.isPresent()) {
+			throw create(WithoutRightExc.class, username, account.accountNo());
+		}
+		return accountAccessOptional.get();
+	}
+
+	/**
+	 * Checks without a query, that the given access was found in the repository as
+	 * an access of this client, e.g. by {@link #findMyAccess(AccountNo)}.
+	 * 
+	 * @return the accessible account
+	 * @throws WithoutRightExc The access is not a saved access of this client.
+	 */
+	private Account _checkMyAccess(final AccountAccess access) throws WithoutRightExc {
+		if (!_isMine(access)) {
+			throw create(WithoutRightExc.class, username, access.getAccount().accountNo());
+		}
+		return access.getAccount();
+	}
+
+	/** Informs, if the given access is a saved access of this client. */
+	@SuppressWarnings("deprecation") // Should be used only in domain model
+	private boolean _isMine(final AccountAccess access) {
+		final Client client = access.getClient();
+		return access.getId() != null && client != null && client.getId() != null && client.getId().equals(getId());
+	}
+
+	/**
+	 * Does the transfers of {@link #transferAll(Account, List)}, while all involved
+	 * accounts are locked by the {@link AccountLockManager}.
+	 */
+	private void _transferAllLocked(final Account source, final Set<AccountNo> destinationNos,
+			final List<TransferOrder> orders) {
+		final Map<AccountNo, Account> destinations = new HashMap<>();
+		if (lockingMode == LockingMode.PESSIMISTIC) {
+			final List<AccountNo> sortedNos = new ArrayList<>(destinationNos);
+			sortedNos.add(source.accountNo());
+			sortedNos.sort((a, b) -> Long.compare(a.toLong(), b.toLong()));
+			for (final AccountNo accountNo : sortedNos) {
+				if (accountNo.equals(source.accountNo())) {
+					accountRepository.lock(source);
+					if (destinationNos.contains(accountNo)) {
+						destinations.put(accountNo, source);
+					}
+				} else if (!destinations.containsKey(accountNo)) {
+					accountRepository.findAndLock(accountNo).ifPresent(account -> destinations.put(accountNo, account));
+				}
+			}
+		} else {
+			accountRepository.refresh(source);
+			for (final Account account : accountRepository.findAll(destinationNos)) {
+				destinations.put(account.accountNo(), account);
+			}
+			destinations.computeIfPresent(source.accountNo(), (accountNo, account) -> source);
+		}
+		final Amount total = orders.stream().map(TransferOrder::getAmount).reduce(Amount.ZERO, Amount::plus);
+		final Amount newBalance = source.getBalance().minus(total);
+		if (newBalance.compareTo(Account.getMinimumBalance()) < 0) {
+			throw create(MinimumBalanceExc.class, newBalance, Account.getMinimumBalance());
+		}
+		for (final AccountNo destination : destinationNos) {
+			if (!destinations.containsKey(destination)) {
+				throw create(DestinationAccountNotFoundExc.class, destination);
+			}
+		}
+
+		// 2. Do modifications:
+		source.setBalance(newBalance);
+		final List<LedgerEntry> entries = new ArrayList<>(2 * orders.size());
+		for (final TransferOrder order : orders) {
+			final Account destinationAccount = destinations.get(order.getDestination());
+			destinationAccount.setBalance(destinationAccount.getBalance().plus(order.getAmount()));
+			for (final LedgerEntry entry : LedgerEntry.transfer(source.accountNo(), order.getDestination(),
+					order.getAmount())) {
+				entries.add(entry);
+			}
+		}
+		accountRepository.save(source);
+		for (final Account destinationAccount : destinations.values()) {
+			if (destinationAccount != source) {
+				accountRepository.save(destinationAccount);
+			}
+		}
+		ledgerRepository.append(entries.toArray(new LedgerEntry[entries.size()]));
+	}
+
+	/**
+	 * Locks the source account and the destination account for writing in
+	 * ascending order of their account numbers, so that concurrent transfers
+	 * between the same accounts in opposite directions cannot deadlock. The state
+	 * of the source account is refreshed from the database.
+	 * 
+	 * @param source      the already read source account
+	 * @param destination Number of the destination account
+	 * @return the locked destination account, if existing
+	 */
+	private Optional<Account> _lockInAscendingOrder(final Account source, final AccountNo destination) {
+		final AccountNo sourceNo = source.accountNo();
+		if (sourceNo.equals(destination)) {
+			return Optional.of(accountRepository.lock(source));
+		}
+		if (sourceNo.toLong() < destination.toLong()) {
+			accountRepository.lock(source);
+			return accountRepository.findAndLock(destination);
+		}
+		final Optional<Account> result = accountRepository.findAndLock(destination);
+		accountRepository.lock(source);
+		return result;
 	}
 
 	/**
@@ -187,7 +487,7 @@ public class Client extends EntityBase<Client> {
 
 	/** The destination account with account number {0} does not exist. */
 	@SuppressWarnings("serial")
-	public static class DestinationAccountNotFoundExc extends Exc {
+	public static class DestinationAccountNotFoundExc extends RejectionExc {
 	}
 
 	/**
@@ -195,12 +495,12 @@ public class Client extends EntityBase<Client> {
 	 * number {1}.
 	 */
 	@SuppressWarnings("serial")
-	public static class WithoutRightExc extends multex.Exc {
+	public static class WithoutRightExc extends RejectionExc {
 	}
 
 	/** New balance {0} EUR would become lower than minimum balance {1} EUR. */
 	@SuppressWarnings("serial")
-	public static class MinimumBalanceExc extends multex.Exc {
+	public static class MinimumBalanceExc extends RejectionExc {
 	}
 
 	/**
@@ -217,12 +517,38 @@ public class Client extends EntityBase<Client> {
 	 *                          account.
 	 */
 	public AccountAccess addAccountManager(final Account account, Client manager) {
-		final Optional<AccountAccess> ownerAccessOptional = accountAccessRepository.find(this, account);
-		if (!ownerAccessOptional.isPresent()) {
-			throw create(NotOwnerExc.class, this.username, account.accountNo());
-		}
-		final AccountAccess ownerAccess = ownerAccessOptional.get();
-		if (!ownerAccess.isOwner()) {
+		return operationMetrics.measure("addAccountManager", () -> {
+			final Optional<AccountAccess> ownerAccessOptional = accountAccessRepository.find(this, account);
+			if (!ownerAccessOptional.isPresent()) {
+				throw create(NotOwnerExc.class, this.username, account.accountNo());
+			}
+			return _addAccountManager(ownerAccessOptional.get(), manager);
+		});
+	}
+
+	/**
+	 * Command: Adds the given manager Client to the account of the given access
+	 * like {@link #addAccountManager(Account, Client)}, but with the access right
+	 * of this client already found by {@link #findMyAccess(AccountNo)}. So the
+	 * access right of this client is not queried again.
+	 * 
+	 * @param ownerAccess the access of this client to the {@link Account} to be
+	 *                    managed
+	 * @param manager     the {@link Client} to be given manager rights for the
+	 *                    {@link Account}
+	 * @return the {@link AccountAccess} object created and saved
+	 * 
+	 * @throws NotOwnerExc      this Client is not owner of the account.
+	 * @throws DoubleManagerExc the given manager Client is already manager of the
+	 *                          account.
+	 */
+	public AccountAccess addAccountManager(final AccountAccess ownerAccess, Client manager) {
+		return operationMetrics.measure("addAccountManager", () -> _addAccountManager(ownerAccess, manager));
+	}
+
+	private AccountAccess _addAccountManager(final AccountAccess ownerAccess, final Client manager) {
+		final Account account = ownerAccess.getAccount();
+		if (!_isMine(ownerAccess) || !ownerAccess.isOwner()) {
 			throw create(NotOwnerExc.class, this.username, account.accountNo());
 		}
 		final Optional<AccountAccess> managerAccessOptional = accountAccessRepository.find(manager, account);
@@ -235,7 +561,7 @@ public class Client extends EntityBase<Client> {
 
 	/** Client with username {0} is not owner of the account with accountNo {1}. */
 	@SuppressWarnings("serial")
-	public static class NotOwnerExc extends multex.Exc {
+	public static class NotOwnerExc extends RejectionExc {
 	}
 
 	/**
@@ -243,12 +569,12 @@ public class Client extends EntityBase<Client> {
 	 * {1}.
 	 */
 	@SuppressWarnings("serial")
-	public static class DoubleManagerExc extends multex.Exc {
+	public static class DoubleManagerExc extends RejectionExc {
 	}
 
 	/** Transfer amount {0} EUR illegal. Must be greater than 0! */
 	@SuppressWarnings("serial")
-	public static class AmountExc extends multex.Exc {
+	public static class AmountExc extends RejectionExc {
 	}
 
 	/**
@@ -262,20 +588,79 @@ public class Client extends EntityBase<Client> {
 	 *                              owned nor managed by this {@link Client}.
 	 */
 	public Account findMyAccount(final AccountNo accountNo) throws NotManagedAccountExc {
-		final Optional<Account> accountOptional = accountRepository.find(accountNo);
-		if (!accountOptional.isPresent()) {
-			throw create(NotManagedAccountExc.class, accountNo, this.username);
-		}
-		final Optional<AccountAccess> accountAccessOptional = accountAccessRepository.find(this, accountOptional.get());
+		return findMyAccess(accountNo).getAccount();
+	}
+
+	/**
+	 * Query: Finds the access of this {@link Client} to the {@link Account} with
+	 * the given account number together with the account by one query. The result
+	 * can be passed to {@link #transfer(AccountAccess, AccountNo, Amount)},
+	 * {@link #transferAll(AccountAccess, List)}, and
+	 * {@link #addAccountManager(AccountAccess, Client)} as proof of the already
+	 * checked access right within the same transaction.
+	 * 
+	 * @param accountNo the unique account number of the account
+	 * @return the found {@link AccountAccess} including its {@link Account}
+	 * 
+	 * @throws NotManagedAccountExc Account with the given accountNo is neither
+	 *                              owned nor managed by this {@link Client}.
+	 */
+	public AccountAccess findMyAccess(final AccountNo accountNo) throws NotManagedAccountExc {
+		final Optional<AccountAccess> accountAccessOptional = accountAccessRepository.find(this, accountNo);
 		if (!accountAccessOptional.isPresent()) {
 			throw create(NotManagedAccountExc.class, accountNo, this.username);
 		}
-		return accountAccessOptional.get().getAccount();
+		return accountAccessOptional.get();
 	}
 
 	/** Account with number {0} is neither owned nor managed by client {1}. */
 	@SuppressWarnings("serial")
-	public static class NotManagedAccountExc extends Exc {
+	public static class NotManagedAccountExc extends RejectionExc {
+	}
+
+	/**
+	 * Query: Finds the accounts owned or managed by this {@link Client}, whose
+	 * names contain all words of the query. A word is a maximal run of letters and
+	 * digits, and is compared case-insensitively. Only the numbers of the managed
+	 * accounts are read to restrict the search, and only the found accounts are
+	 * loaded.
+	 * 
+	 * @param query the words to be searched in the account names
+	 * @param limit the maximum number of accounts to be found
+	 * @return the {@link AccountAccess} objects including their {@link Account}s
+	 *         to at most limit found accounts in ascending order of their account
+	 *         numbers. Empty, if the query has no words.
+	 * @throws BankService.PageLimitExc the limit is lower than 1 or greater than
+	 *                                  {@link BankService#MAX_PAGE_LIMIT}.
+	 */
+	public List<AccountAccess> searchMyAccounts(final String query, final int limit) {
+		BankService.checkPageLimit(limit, BankService.MAX_PAGE_LIMIT);
+		return operationMetrics.measure("searchMyAccounts", () -> {
+			final List<AccountNo> managed = accountAccessRepository.findManagedAccountNosOf(this);
+			final List<AccountNo> found = accountRepository.searchByName(query, managed, limit);
+			if (found.isEmpty()) {
+				return new ArrayList<AccountAccess>();
+			}
+			return accountAccessRepository.findManagedAccountsOf(this, found);
+		});
+	}
+
+	/**
+	 * Query: Finds the ledger entries of the {@link Account} with the given
+	 * account number, if it is owned or managed by this {@link Client}. Their sum
+	 * is the change of the balance of the account since the introduction of the
+	 * ledger, see {@link LedgerEntry}.
+	 * 
+	 * @param accountNo the unique account number of the account
+	 * @return the {@link LedgerEntry} objects of the account in the order of their
+	 *         booking
+	 * 
+	 * @throws NotManagedAccountExc Account with the given accountNo is neither
+	 *                              owned nor managed by this {@link Client}.
+	 */
+	public List<LedgerEntry> findLedgerEntries(final AccountNo accountNo) throws NotManagedAccountExc {
+		findMyAccount(accountNo);
+		return ledgerRepository.findAllOf(accountNo);
 	}
 
 	/**
@@ -287,16 +672,46 @@ public class Client extends EntityBase<Client> {
 	 *         The columns are separated by tab characters.
 	 */
 	public String accountsReport() {
-		final StringBuilder result = new StringBuilder();
-		final List<AccountAccess> accountAccesses = accountAccessRepository.findManagedAccountsOf(this, false);
-		result.append(String.format("Accounts of client: %s\n", getUsername()));
-		for (final AccountAccess accountAccess : accountAccesses) {
-			final String accessRight = accountAccess.isOwner() ? "isOwner" : "manages";
-			final Account account = accountAccess.getAccount();
-			result.append(String.format("%s\t%s\t%5.2f\t%s\n", account.accountNo(), accessRight,
-					account.getBalance().toDouble(), account.getName()));
+		final StringWriter result = new StringWriter();
+		try {
+			writeAccountsReport(result);
+		} catch (IOException ex) {
+			throw new UncheckedIOException("A StringWriter does not throw", ex);
 		}
 		return result.toString();
 	}
 
+	/**
+	 * Query: Writes the report of {@link #accountsReport()} line by line to the
+	 * given Writer. The managed accounts are read as summaries without loading
+	 * them as entities. Within a transaction they are streamed from the
+	 * repository, so the memory needed does not grow with their number.
+	 * 
+	 * @param out where to write the report
+	 * @throws IOException writing to out failed
+	 */
+	public void writeAccountsReport(final Writer out) throws IOException {
+		try {
+			operationMetrics.measure("accountsReport", () -> {
+				try {
+					_writeAccountsReport(out);
+				} catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			});
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+	}
+
+	private void _writeAccountsReport(final Writer out) throws IOException {
+		final AccountsReportWriter report = new AccountsReportWriter(out);
+		report.writeHeader(getUsername());
+		try (Stream<ManagedAccountSummary> accounts = accountAccessRepository.streamManagedAccountSummariesOf(this)) {
+			for (final ManagedAccountSummary account : (Iterable<ManagedAccountSummary>) accounts::iterator) {
+				report.writeLine(account);
+			}
+		}
+	}
+
 }
@@ -0,0 +1,68 @@
+package de.beuth.knabe.spring_ddd_bank.domain;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * Immutable data of a {@link Client} as found by a query for listing clients.
+ * A repository can fill it directly from the query result without creating,
+ * managing, and snapshotting a {@link Client} entity.
+ */
+public final class ClientSummary {
+
+	private final Long id;
+	private final String username;
+	private final LocalDate birthDate;
+
+	/**
+	 * Constructs the summary of a client.
+	 *
+	 * @param id        the unique ID of the client
+	 * @param username  the unique username of the client
+	 * @param birthDate the birth date of the client
+	 */
+	public ClientSummary(final Long id, final String username, final LocalDate birthDate) {
+		this.id = id;
+		this.username = username;
+		this.birthDate = birthDate;
+	}
+
+	/** @return the unique ID of the client */
+	public Long getId() {
+		return id;
+	}
+
+	/** @return the unique username of the client */
+	public String getUsername() {
+		return username;
+	}
+
+	/** @return the birth date of the client */
+	public LocalDate getBirthDate() {
+		return birthDate;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof ClientSummary)) {
+			return false;
+		}
+		final ClientSummary other = (ClientSummary) obj;
+		return Objects.equals(id, other.id) && Objects.equals(username, other.username)
+				&& Objects.equals(birthDate, other.birthDate);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(id, username, birthDate);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ClientSummary{id=%d, username='%s', birthDate='%s'}", id, username, birthDate);
+	}
+
+}
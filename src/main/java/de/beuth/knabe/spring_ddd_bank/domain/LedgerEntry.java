@@ -0,0 +1,141 @@
+package de.beuth.knabe.spring_ddd_bank.domain;
+
+import java.time.Instant;
+import java.util.Optional;
+
+import javax.persistence.AttributeOverride;
+import javax.persistence.Column;
+import javax.persistence.Embedded;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/**
+ * An immutable booking of an amount on an account. Each deposit and each
+ * transfer of a {@link Client} appends ledger entries, so that the balance of
+ * an {@link Account} is the sum of the amounts of its ledger entries. The
+ * balance, which an account had before the introduction of the ledger, is
+ * booked by an opening balance entry, when the database is upgraded. The
+ * balance stored in the {@link Account} stays the authoritative one.
+ * <p>
+ * A transfer is booked by double entry: a negative entry on the source account
+ * and a positive entry on the destination account, each referring to the other
+ * account as counter account. A deposit comes from outside of the bank, so it
+ * has no counter account, and neither has an opening balance.
+ * <p>
+ * Ledger entries are only inserted, never updated. Their columns are not
+ * updatable. Their identity is generated like that of the other entities by
+ * the generator named entity_id, which hands out identities allocated in
+ * blocks, so that many entries can be inserted in JDBC batches without a
+ * database round trip for each identity. The identity only distinguishes the
+ * entries. It does not tell the order of booking, as concurrent transactions
+ * or several application nodes book with identities from different blocks.
+ */
+@Entity
+@Table(indexes = @Index(name = "ledger_entry_account_no", columnList = "account_no"))
+public class LedgerEntry {
+
+	@Id
+	@GeneratedValue(generator = "entity_id")
+	private Long id;
+
+	@Column(name = "account_no", nullable = false, updatable = false)
+	private long accountNo;
+
+	@Column(name = "counter_account_no", updatable = false)
+	private Long counterAccountNo;
+
+	@Embedded
+	@AttributeOverride(name = "cents", column = @Column(name = "cents", nullable = false, updatable = false))
+	private Amount amount;
+
+	@Column(name = "booked_at", nullable = false, updatable = false)
+	private Instant bookedAt;
+
+	/** Necessary for JPA entities internally. */
+	@SuppressWarnings("unused")
+	private LedgerEntry() {
+	}
+
+	private LedgerEntry(final AccountNo accountNo, final AccountNo counterAccountNo, final Amount amount,
+			final Instant bookedAt) {
+		this.accountNo = accountNo.toLong();
+		this.counterAccountNo = counterAccountNo == null ? null : counterAccountNo.toLong();
+		this.amount = amount;
+		this.bookedAt = bookedAt;
+	}
+
+	/**
+	 * Creates the ledger entry for a deposit without saving it.
+	 * 
+	 * @param destination the number of the account, on which the amount is
+	 *                    deposited
+	 * @param amount      the deposited, positive amount
+	 * @return the ledger entry crediting the amount to the destination account
+	 */
+	static LedgerEntry deposit(final AccountNo destination, final Amount amount) {
+		return new LedgerEntry(destination, null, amount, Instant.now());
+	}
+
+	/**
+	 * Creates the two ledger entries for a transfer without saving them.
+	 * 
+	 * @param source      the number of the account, from which the amount is taken
+	 * @param destination the number of the account, to which the amount is
+	 *                    transferred
+	 * @param amount      the transferred, positive amount
+	 * @return the entry debiting the source account, and the entry crediting the
+	 *         destination account
+	 */
+	static LedgerEntry[] transfer(final AccountNo source, final AccountNo destination, final Amount amount) {
+		final Instant bookedAt = Instant.now();
+		return new LedgerEntry[] { new LedgerEntry(source, destination, Amount.ZERO.minus(amount), bookedAt),
+				new LedgerEntry(destination, source, amount, bookedAt) };
+	}
+
+	/**
+	 * Creates the ledger entry for the balance, which an account had before the
+	 * introduction of the ledger, without saving it. Only for upgrading a
+	 * database, whose accounts existed before.
+	 * 
+	 * @param account the number of the account
+	 * @param amount  the balance not yet booked in the ledger, which may be
+	 *                negative
+	 * @return the ledger entry booking the amount on the account
+	 */
+	public static LedgerEntry openingBalance(final AccountNo account, final Amount amount) {
+		return new LedgerEntry(account, null, amount, Instant.now());
+	}
+
+	/** @return the number of the account, on which the amount is booked */
+	public AccountNo accountNo() {
+		return new AccountNo(accountNo);
+	}
+
+	/**
+	 * @return the number of the other account of a transfer, or empty for a
+	 *         deposit or an opening balance
+	 */
+	public Optional<AccountNo> counterAccountNo() {
+		return Optional.ofNullable(counterAccountNo).map(AccountNo::new);
+	}
+
+	/** @return the booked amount, positive for a credit, negative for a debit */
+	public Amount getAmount() {
+		return amount;
+	}
+
+	/** @return the point in time, when the entry was booked */
+	public Instant getBookedAt() {
+		return bookedAt;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("LedgerEntry{id=%s, accountNo=%d, counterAccountNo=%s, amount='%s', bookedAt='%s'}", id,
+				accountNo, counterAccountNo, amount, bookedAt);
+	}
+
+}
@@ -0,0 +1,24 @@
+package de.beuth.knabe.spring_ddd_bank.domain;
+
+/**
+ * How a {@link Client#transfer(Account, AccountNo, Amount)} protects the
+ * balances of the involved accounts against concurrent transfers.
+ */
+public enum LockingMode {
+
+	/**
+	 * The accounts are read without locks. A concurrent modification is detected
+	 * by the version of the {@link Account} when saving, and the transaction has
+	 * to be retried. Best for rarely conflicting transfers.
+	 */
+	OPTIMISTIC,
+
+	/**
+	 * The source and destination accounts are locked for writing in ascending
+	 * order of their account numbers before their balances are checked. Concurrent
+	 * transfers on the same accounts wait for each other instead of failing, and
+	 * cannot deadlock. Best for hot accounts with many concurrent transfers.
+	 */
+	PESSIMISTIC
+
+}
@@ -0,0 +1,59 @@
+package de.beuth.knabe.spring_ddd_bank.domain;
+
+/**
+ * Immutable data of an {@link Account} managed by a {@link Client}, as shown in
+ * the accounts report of the client. A repository can fill it directly from
+ * the query result without creating the {@link AccountAccess}, {@link Account},
+ * and {@link Client} entities.
+ */
+public final class ManagedAccountSummary {
+
+	private final long accountNo;
+	private final boolean owner;
+	private final long balanceCents;
+	private final String accountName;
+
+	/**
+	 * Constructs the summary of a managed account.
+	 *
+	 * @param accountNo    the number of the account
+	 * @param owner        true, if the client owns the account, false if he only
+	 *                     manages it
+	 * @param balanceCents the balance of the account in Euro cents
+	 * @param accountName  the name of the account
+	 */
+	public ManagedAccountSummary(final long accountNo, final boolean owner, final long balanceCents,
+			final String accountName) {
+		this.accountNo = accountNo;
+		this.owner = owner;
+		this.balanceCents = balanceCents;
+		this.accountName = accountName;
+	}
+
+	/** @return the number of the account */
+	public long getAccountNo() {
+		return accountNo;
+	}
+
+	/** @return true, if the client owns the account, false if he only manages it */
+	public boolean isOwner() {
+		return owner;
+	}
+
+	/** @return the balance of the account in Euro cents */
+	public long getBalanceCents() {
+		return balanceCents;
+	}
+
+	/** @return the name of the account */
+	public String getAccountName() {
+		return accountName;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("ManagedAccountSummary{accountNo=%d, owner=%b, balanceCents=%d, accountName='%s'}",
+				accountNo, owner, balanceCents, accountName);
+	}
+
+}
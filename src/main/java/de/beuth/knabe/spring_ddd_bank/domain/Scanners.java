@@ -0,0 +1,75 @@
+package de.beuth.knabe.spring_ddd_bank.domain;
+
+/**
+ * Hand-written scanners for the syntax of domain values. Each checks and
+ * converts a string in one pass over its characters, without a regular
+ * expression and without allocating objects.
+ */
+final class Scanners {
+
+	/** Result of {@link #accountNumber(String)} for an illegal account number. */
+	static final long ILLEGAL = -1;
+
+	/** The maximum number of characters of a username. */
+	static final int MAX_USERNAME_LENGTH = 31;
+
+	private Scanners() {
+	}
+
+	/**
+	 * Checks, whether the given string is a legal username, as by the regular
+	 * expression <code>[a-z_A-Z][a-z_A-Z0-9]{0,30}</code>.
+	 * 
+	 * @param username the string to be checked, not null
+	 * @return true, if it is a legal username
+	 */
+	static boolean isUsername(final String username) {
+		final int length = username.length();
+		if (length == 0 || length > MAX_USERNAME_LENGTH) {
+			return false;
+		}
+		if (!_isLetterOrUnderscore(username.charAt(0))) {
+			return false;
+		}
+		for (int i = 1; i < length; i++) {
+			final char c = username.charAt(i);
+			if (!_isLetterOrUnderscore(c) && (c < '0' || c > '9')) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean _isLetterOrUnderscore(final char c) {
+		return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c == '_';
+	}
+
+	/**
+	 * Parses an account number consisting only of the decimal digits 0 to 9, as
+	 * by the regular expression <code>\d+</code>.
+	 * 
+	 * @param number the string to be parsed, not null
+	 * @return the parsed number, or {@link #ILLEGAL}, if the string is empty,
+	 *         contains another character than a digit, or its value exceeds
+	 *         {@link Long#MAX_VALUE}
+	 */
+	static long accountNumber(final String number) {
+		final int length = number.length();
+		if (length == 0) {
+			return ILLEGAL;
+		}
+		long result = 0;
+		for (int i = 0; i < length; i++) {
+			final int digit = number.charAt(i) - '0';
+			if (digit < 0 || digit > 9) {
+				return ILLEGAL;
+			}
+			if (result > (Long.MAX_VALUE - digit) / 10) {
+				return ILLEGAL;
+			}
+			result = result * 10 + digit;
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,39 @@
+package de.beuth.knabe.spring_ddd_bank.domain;
+
+/**
+ * Value Object for one item of a bulk transfer: the {@link Amount} to be
+ * transferred to the {@link Account} with the destination number. The source
+ * account is common to all items. See
+ * {@link Client#transferAll(Account, java.util.List)}.
+ */
+public final class TransferOrder {
+
+	private final AccountNo destination;
+	private final Amount amount;
+
+	/**
+	 * Constructs a TransferOrder.
+	 *
+	 * @param destination number of the account to which the amount will be
+	 *                    transferred
+	 * @param amount      the amount to be transferred
+	 */
+	public TransferOrder(final AccountNo destination, final Amount amount) {
+		this.destination = destination;
+		this.amount = amount;
+	}
+
+	public AccountNo getDestination() {
+		return destination;
+	}
+
+	public Amount getAmount() {
+		return amount;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("TransferOrder{destination=%s, amount=%s}", destination, amount);
+	}
+
+}
@@ -0,0 +1,219 @@
+package de.beuth.knabe.spring_ddd_bank.domain.base;
+
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * A cache with a bounded size and a time to live for each entry, which many
+ * threads can read at the same time. A read does not lock and writes nothing
+ * shared but the time of the last access into the entry found. When a put
+ * exceeds the maximum size, the least recently used entry of a small random
+ * sample of the entries is evicted. So the eviction approximates the least
+ * recently used one. An expired entry is evicted, when it is read.
+ *
+ * @param <K>
+ *            the type of the keys
+ * @param <V>
+ *            the type of the cached values, which should be immutable, as
+ *            concurrent readers share them
+ */
+public class BoundedCache<K, V> {
+
+	/** The number of entries, among which the least recently used one is evicted. */
+	static final int SAMPLE_SIZE = 8;
+
+	private final int maxSize;
+	private final long ttlNanos;
+	private final BiConsumer<K, V> evictionListener;
+	private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	private static final class Entry<V> {
+		final V value;
+		final long expiresAt;
+		/** By System.nanoTime(). Written without synchronization, so concurrent readers may lose an update. */
+		volatile long lastAccess;
+
+		Entry(final V value, final long now, final long ttlNanos) {
+			this.value = value;
+			this.expiresAt = now + ttlNanos;
+			this.lastAccess = now;
+		}
+	}
+
+	/**
+	 * Constructs an empty cache.
+	 *
+	 * @param maxSize
+	 *            the maximum number of entries
+	 * @param ttlSeconds
+	 *            how long an entry is kept after it was put
+	 */
+	public BoundedCache(final int maxSize, final long ttlSeconds) {
+		this(maxSize, ttlSeconds, (key, value) -> {
+		});
+	}
+
+	/**
+	 * Constructs an empty cache.
+	 *
+	 * @param maxSize
+	 *            the maximum number of entries
+	 * @param ttlSeconds
+	 *            how long an entry is kept after it was put
+	 * @param evictionListener
+	 *            is called with each entry evicted by the size or by its age,
+	 *            but not with removed entries
+	 */
+	public BoundedCache(final int maxSize, final long ttlSeconds, final BiConsumer<K, V> evictionListener) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be positive, but is " + maxSize);
+		}
+		this.maxSize = maxSize;
+		this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+		this.evictionListener = evictionListener;
+	}
+
+	/**
+	 * Returns the unexpired value for the given key, and counts a hit or a miss.
+	 *
+	 * @return null, if there is none
+	 */
+	public V get(final K key) {
+		final Entry<V> entry = entries.get(key);
+		if (entry != null) {
+			final long now = System.nanoTime();
+			if (entry.expiresAt - now > 0) {
+				entry.lastAccess = now;
+				hits.increment();
+				return entry.value;
+			}
+			_evict(key, entry);
+		}
+		misses.increment();
+		return null;
+	}
+
+	/**
+	 * Puts the given value for the given key, replacing a former one, and evicts
+	 * entries, while the maximum size is exceeded.
+	 */
+	public void put(final K key, final V value) {
+		entries.put(key, new Entry<>(value, System.nanoTime(), ttlNanos));
+		while (entries.size() > maxSize) {
+			if (!_evictOne()) {
+				break;
+			}
+		}
+	}
+
+	/**
+	 * Removes the value for the given key.
+	 *
+	 * @return the removed value, or null, if there was none
+	 */
+	public V remove(final K key) {
+		final Entry<V> removed = entries.remove(key);
+		return removed == null ? null : removed.value;
+	}
+
+	/** Removes all entries. */
+	public void clear() {
+		entries.clear();
+	}
+
+	/** @return the number of entries including the expired ones, which have not yet been evicted */
+	public int size() {
+		return entries.size();
+	}
+
+	/** @return the number of reads, which found an unexpired value */
+	public long hits() {
+		return hits.sum();
+	}
+
+	/** @return the number of reads, which found no unexpired value */
+	public long misses() {
+		return misses.sum();
+	}
+
+	/** @return the number of entries evicted by the size or by their age */
+	public long evictions() {
+		return evictions.sum();
+	}
+
+	/**
+	 * Evicts the least recently used entry of a random sample of at least
+	 * {@value #SAMPLE_SIZE} entries, or of all entries, if there are not many
+	 * more. The sample consists of the entries in randomly chosen small parts of
+	 * the hash table, each found by splitting in about log2(size) steps. So keys
+	 * with similar hash codes are not sampled together.
+	 *
+	 * @return false, if no entry was found to evict
+	 */
+	private boolean _evictOne() {
+		final Victim victim = new Victim();
+		if (entries.size() <= 2 * SAMPLE_SIZE) {
+			entries.entrySet().forEach(victim);
+		} else {
+			for (int attempt = 0; attempt < 4 * SAMPLE_SIZE && victim.sampled < SAMPLE_SIZE; attempt++) {
+				_randomPart().forEachRemaining(victim);
+			}
+		}
+		if (victim.entry == null) {
+			return false;
+		}
+		_evict(victim.key, victim.entry);
+		return true;
+	}
+
+	/** @return a randomly chosen part of the hash table, which has about one entry */
+	private Spliterator<Map.Entry<K, Entry<V>>> _randomPart() {
+		final ThreadLocalRandom random = ThreadLocalRandom.current();
+		Spliterator<Map.Entry<K, Entry<V>>> result = entries.entrySet().spliterator();
+		while (result.estimateSize() > 1) {
+			final Spliterator<Map.Entry<K, Entry<V>>> half = result.trySplit();
+			if (half == null) {
+				break;
+			}
+			if (random.nextBoolean()) {
+				result = half;
+			}
+		}
+		return result;
+	}
+
+	/** Keeps the least recently used one of the entries passed to it. */
+	private final class Victim implements Consumer<Map.Entry<K, Entry<V>>> {
+		K key;
+		Entry<V> entry;
+		int sampled;
+
+		@Override
+		public void accept(final Map.Entry<K, Entry<V>> candidate) {
+			sampled++;
+			if (entry == null || candidate.getValue().lastAccess - entry.lastAccess < 0) {
+				key = candidate.getKey();
+				entry = candidate.getValue();
+			}
+		}
+	}
+
+	/** Removes the given entry, if it is still cached for the key, and reports it as evicted. */
+	private void _evict(final K key, final Entry<V> entry) {
+		if (entries.remove(key, entry)) {
+			evictions.increment();
+			evictionListener.accept(key, entry.value);
+		}
+	}
+
+}
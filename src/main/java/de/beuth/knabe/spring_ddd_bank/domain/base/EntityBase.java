@@ -1,7 +1,6 @@
 package de.beuth.knabe.spring_ddd_bank.domain.base;
 
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.MappedSuperclass;
 
@@ -21,10 +20,12 @@ public abstract class EntityBase<T extends EntityBase<T>> {
 
 	/**
 	 * This identity field has the wrapper class type Long so that an entity which
-	 * has not been saved is recognizable by a null identity.
+	 * has not been saved is recognizable by a null identity. It is generated by
+	 * the generator named entity_id, which the infrastructure defines, e.g. from a
+	 * sequence per entity table with identities allocated in blocks.
 	 */
 	@Id
-	@GeneratedValue(strategy = GenerationType.AUTO)
+	@GeneratedValue(generator = "entity_id")
 	private Long id;
 
 	/**
@@ -0,0 +1,46 @@
+package de.beuth.knabe.spring_ddd_bank.domain.base;
+
+/**
+ * Base class for the exceptions, by which the domain rejects a request
+ * violating a business rule, e.g. a transfer exceeding the minimum balance.
+ * They are expected and reported to the REST client by their message, so their
+ * stack trace is of little use. In the stackless mode they do not capture one,
+ * which makes a rejected request about as cheap as a successful one. Failures
+ * of the system are not rejections and always keep their stack trace.
+ *
+ * @see #setStackless(boolean)
+ */
+@SuppressWarnings("serial")
+public abstract class RejectionExc extends multex.Exc {
+
+	private static volatile boolean stackless = false;
+
+	/**
+	 * Sets the mode for all rejections created afterwards.
+	 *
+	 * @param stackless
+	 *            true, if rejections shall not capture their stack trace, false
+	 *            (default) if they capture it like other exceptions.
+	 */
+	public static void setStackless(final boolean stackless) {
+		RejectionExc.stackless = stackless;
+	}
+
+	/** @return whether rejections are created without their stack trace */
+	public static boolean isStackless() {
+		return stackless;
+	}
+
+	/**
+	 * Captures the stack trace unless in the stackless mode. Called by the
+	 * constructor of {@link Throwable}.
+	 */
+	@Override
+	public synchronized Throwable fillInStackTrace() {
+		if (stackless) {
+			return this;
+		}
+		return super.fillInStackTrace();
+	}
+
+}
@@ -2,11 +2,16 @@ package de.beuth.knabe.spring_ddd_bank.domain.imports;
 
 import de.beuth.knabe.spring_ddd_bank.domain.Account;
 import de.beuth.knabe.spring_ddd_bank.domain.AccountAccess;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
 import de.beuth.knabe.spring_ddd_bank.domain.Amount;
 import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
+import de.beuth.knabe.spring_ddd_bank.domain.ManagedAccountSummary;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Required repository for
@@ -53,6 +58,45 @@ public interface AccountAccessRepository {
 	 */
 	List<AccountAccess> findManagedAccountsOf(Client client, boolean asOwner);
 
+	/**
+	 * Finds the numbers of all accounts, which the given client may manage,
+	 * without loading the {@link AccountAccess} and {@link Account} entities.
+	 * 
+	 * @param client
+	 *            the Client, whose managed accounts are searched.
+	 * @return the account numbers in ascending order
+	 */
+	List<AccountNo> findManagedAccountNosOf(Client client);
+
+	/**
+	 * Finds the {@link AccountAccess} objects of the given client to the accounts
+	 * with the given numbers together with the accounts, as far as possible by one
+	 * query.
+	 * 
+	 * @param client
+	 *            the Client, whose managed accounts are searched.
+	 * @param accountNos
+	 *            the numbers of the searched accounts
+	 * @return access objects including their {@link Account}s in ascending order
+	 *         of the account numbers. Accounts not managed by the client are left
+	 *         out.
+	 */
+	List<AccountAccess> findManagedAccountsOf(Client client, Collection<AccountNo> accountNos);
+
+	/**
+	 * Streams the summaries of all accounts, which the given client may manage,
+	 * without loading the {@link AccountAccess}, {@link Account}, and
+	 * {@link Client} entities. Within a transaction the summaries are read while
+	 * the stream is consumed, so it must be closed after use. Outside of one an
+	 * implementation may read them all at once.
+	 * 
+	 * @param client
+	 *            the Client, whose managed accounts are searched.
+	 * @return the summaries ordered like by
+	 *         {@link #findManagedAccountsOf(Client, boolean)}
+	 */
+	Stream<ManagedAccountSummary> streamManagedAccountSummariesOf(Client client);
+
 	/**
 	 * Finds accounts with a minimum balance.
 	 * 
@@ -64,6 +108,38 @@ public interface AccountAccessRepository {
 	 */
 	List<AccountAccess> findFullAccounts(final Amount minBalance);
 
+	/**
+	 * Finds the clients, who own or manage an account with a minimum balance.
+	 * Each client is found once, even if he has several such accounts.
+	 * 
+	 * @param minBalance
+	 *            accounts with a balance equal or greater than the given minBalance
+	 *            will be considered.
+	 * @param limit
+	 *            the maximum number of clients to be found, Integer.MAX_VALUE for
+	 *            all
+	 * @return the clients ordered by the descending highest balance of their
+	 *         considered accounts, secondly by descending IDs.
+	 */
+	List<Client> findRichClients(Amount minBalance, int limit);
+
+	/**
+	 * Streams the {@link ClientSummary}s of the clients found like by
+	 * {@link #findRichClients(Amount, int)} without loading the {@link Client}
+	 * entities. Within a transaction the summaries are read while the stream is
+	 * consumed, so it must be closed after use. Outside of one an implementation
+	 * may read them all at once.
+	 * 
+	 * @param minBalance
+	 *            accounts with a balance equal or greater than the given minBalance
+	 *            will be considered.
+	 * @param limit
+	 *            the maximum number of clients to be found, Integer.MAX_VALUE for
+	 *            all
+	 * @return the summaries in the order of {@link #findRichClients(Amount, int)}
+	 */
+	Stream<ClientSummary> streamRichClientSummaries(Amount minBalance, int limit);
+
 	/**
 	 * Finds the access rights of the client for the account.
 	 * 
@@ -76,4 +152,18 @@ public interface AccountAccessRepository {
 	 */
 	Optional<AccountAccess> find(Client client, Account account);
 
+	/**
+	 * Finds the access rights of the client for the account with the given number
+	 * together with the account by one query, so that access checked account
+	 * lookups need a single database round trip.
+	 * 
+	 * @param client
+	 *            a Client of the bank
+	 * @param accountNo
+	 *            the number of an account, which the client wants to use
+	 * @return {@link AccountAccess} object for the given client and account
+	 *         including the {@link Account}, if existing.
+	 */
+	Optional<AccountAccess> find(Client client, AccountNo accountNo);
+
 }
@@ -0,0 +1,53 @@
+package de.beuth.knabe.spring_ddd_bank.domain.imports;
+
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+
+/**
+ * Required service for serializing work on the same accounts inside of this
+ * JVM, before it reaches the database. So concurrent transfers and deposits on
+ * a hot account wait for each other in the JVM instead of conflicting or
+ * waiting for locks in the database.
+ */
+public interface AccountLockManager {
+
+	/**
+	 * Runs the given action while holding the locks for all given accounts. The
+	 * locks are acquired in a fixed global order, so that two actions locking the
+	 * same accounts in a different order cannot deadlock. If a transaction is
+	 * active, the locks are held until its end, so that the next action on the same
+	 * accounts sees the committed result. Otherwise they are released after the
+	 * action. A thread already holding the lock of an account acquires it again
+	 * without waiting.
+	 * 
+	 * @param action
+	 *            the work to be done on the given accounts
+	 * @param accountNos
+	 *            the numbers of the accounts to be locked
+	 */
+	void runLocked(Runnable action, AccountNo... accountNos);
+
+	/**
+	 * Returns a report about the contention on the account locks.
+	 * 
+	 * @return Report with a line for each lock, which was contended, most contended
+	 *         first. The columns are the lock number, the number of acquisitions,
+	 *         the number of acquisitions, which had to wait, and the total wait time
+	 *         in milliseconds. The columns are separated by tab characters.
+	 */
+	String contentionReport();
+
+	/** An {@link AccountLockManager}, which runs actions without any locking. */
+	AccountLockManager NONE = new AccountLockManager() {
+
+		@Override
+		public void runLocked(final Runnable action, final AccountNo... accountNos) {
+			action.run();
+		}
+
+		@Override
+		public String contentionReport() {
+			return "";
+		}
+	};
+
+}
@@ -1,5 +1,7 @@
 package de.beuth.knabe.spring_ddd_bank.domain.imports;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import de.beuth.knabe.spring_ddd_bank.domain.Account;
@@ -24,6 +26,69 @@ public interface AccountRepository {
 	 */
 	Optional<Account> find(AccountNo acccountNo);
 
+	/**
+	 * Searches the {@link Account} objects with the given account numbers, as far
+	 * as possible by one query.
+	 * 
+	 * @param accountNos
+	 *            unique account numbers of the searched accounts
+	 * @return the existing {@link Account} objects with the given account numbers
+	 *         in no specific order. Not existing accounts are left out.
+	 */
+	List<Account> findAll(Collection<AccountNo> accountNos);
+
+	/**
+	 * Searches among the given accounts those, whose names contain all words of
+	 * the query. A word is a maximal run of letters and digits, and is compared
+	 * case-insensitively.
+	 * 
+	 * @param query
+	 *            the words to be searched
+	 * @param among
+	 *            the numbers of the accounts, which may be found, in ascending
+	 *            order
+	 * @param limit
+	 *            the maximum number of accounts to be found
+	 * @return the numbers of at most limit found accounts in ascending order.
+	 *         Empty, if the query has no words.
+	 */
+	List<AccountNo> searchByName(String query, List<AccountNo> among, int limit);
+
+	/**
+	 * Searches the {@link Account} object with the given account number and locks
+	 * it for writing until the end of the current transaction (SELECT ... FOR
+	 * UPDATE). Must be called within a transaction.
+	 * 
+	 * @param acccountNo
+	 *            unique account number of the searched account
+	 * @return the locked {@link Account} object with the given account number, if
+	 *         existing.
+	 */
+	Optional<Account> findAndLock(AccountNo acccountNo);
+
+	/**
+	 * Locks the given, already read account for writing until the end of the
+	 * current transaction, and refreshes its state from the database, as another
+	 * transaction could have modified it before the lock was obtained. Must be
+	 * called within the transaction, in which the account was read.
+	 * 
+	 * @param account
+	 *            the {@link Account} to be locked
+	 * @return the same, refreshed {@link Account}
+	 */
+	Account lock(Account account);
+
+	/**
+	 * Re-reads the state of the given, already read account from the database, as
+	 * another transaction could have modified it in the meantime. Does nothing, if
+	 * the account is not managed by the current transaction.
+	 * 
+	 * @param account
+	 *            the {@link Account} to be refreshed
+	 * @return the same {@link Account}
+	 */
+	Account refresh(Account account);
+
 	/**
 	 * Deletes all Accounts. Useful for test scenarios in order to start with an
 	 * empty account set.
@@ -32,6 +97,10 @@ public interface AccountRepository {
 
 	/**
 	 * Saves the account giving it a unique, higher account number (accountNo).
+	 * The account is versioned. If it has been modified by another transaction
+	 * since it was read, the save or the commit of the enclosing transaction
+	 * fails with a concurrency exception of the implementing technology, so
+	 * that the transaction can be retried.
 	 * 
 	 * @param account
 	 *            the {@link Account} to be saved
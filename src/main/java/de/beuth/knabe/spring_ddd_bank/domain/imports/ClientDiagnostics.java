@@ -0,0 +1,59 @@
+package de.beuth.knabe.spring_ddd_bank.domain.imports;
+
+/**
+ * Required service for diagnosing the in-memory structures, by which a client
+ * repository speeds up its queries. They are for the operators only, so they
+ * are not part of the {@link ClientRepository}. A repository without such
+ * structures does not offer this service.
+ */
+public interface ClientDiagnostics {
+
+	/**
+	 * Returns a report about the usage of the cache for finding clients by
+	 * username or ID.
+	 * 
+	 * @return Report with one line with the number of hits, misses, evictions, and
+	 *         cached clients, separated by tab characters.
+	 */
+	String cacheReport();
+
+	/**
+	 * Checks the in-memory index for the queries by birth date against the stored
+	 * clients. An inconsistent index is rebuilt by the next query.
+	 * 
+	 * @return Report with one line with the number of indexed clients, of stored
+	 *         clients with a birth date, of clients missing in the index, of
+	 *         superfluous clients in the index, and of clients indexed with other
+	 *         data, separated by tab characters. Empty, if the index is disabled.
+	 */
+	String checkBirthDateIndex();
+
+	/**
+	 * Checks the in-memory index for the search by username prefix against the
+	 * stored clients like {@link #checkBirthDateIndex()}.
+	 * 
+	 * @return Report with one line like by {@link #checkBirthDateIndex()}. Empty,
+	 *         if the index is disabled.
+	 */
+	String checkUsernameIndex();
+
+	/** {@link ClientDiagnostics} of a repository without in-memory structures, which report nothing. */
+	ClientDiagnostics NONE = new ClientDiagnostics() {
+
+		@Override
+		public String cacheReport() {
+			return "";
+		}
+
+		@Override
+		public String checkBirthDateIndex() {
+			return "";
+		}
+
+		@Override
+		public String checkUsernameIndex() {
+			return "";
+		}
+	};
+
+}
@@ -3,8 +3,10 @@ package de.beuth.knabe.spring_ddd_bank.domain.imports;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
 
 /**
  * Required repository for {@link Client} objects.
@@ -54,6 +56,28 @@ public interface ClientRepository {
 	 * @return all clients ordered by descending IDs*/
 	List<Client> findAll();
 
+	/**
+	 * Finds one page of all {@link Client}s by keyset pagination. Each page
+	 * continues after the last client of the previous page, so a page is found
+	 * by an index range scan, however far it is from the start.
+	 * 
+	 * @param afterId the ID of the last client of the previous page, or null for
+	 *                the first page
+	 * @param limit   the maximum number of clients on the page
+	 * @return at most limit clients with IDs lower than afterId, ordered by
+	 *         descending IDs
+	 */
+	List<Client> findPage(Long afterId, int limit);
+
+	/**
+	 * Streams all {@link Client}s without holding them all in memory. The clients
+	 * are read from the database in bounded portions while the stream is
+	 * consumed. Must be consumed within a transaction, and closed after use.
+	 * 
+	 * @return all clients ordered by descending IDs
+	 */
+	Stream<Client> streamAll();
+
 	/**
 	 * Finds all {@link Client}s born at the given date or later.
 	 * @param minDate the oldest birth date of clients
@@ -62,4 +86,57 @@ public interface ClientRepository {
 	 */
 	List<Client> findAllBornFrom(LocalDate minDate);
 
+	/**
+	 * Finds one page of the {@link ClientSummary}s of all clients like
+	 * {@link #findPage(Long, int)}, but without loading the {@link Client}
+	 * entities.
+	 * 
+	 * @param afterId the ID of the last client of the previous page, or null for
+	 *                the first page
+	 * @param limit   the maximum number of clients on the page
+	 * @return at most limit summaries with IDs lower than afterId, ordered by
+	 *         descending IDs
+	 */
+	List<ClientSummary> findSummaryPage(Long afterId, int limit);
+
+	/**
+	 * Finds the {@link ClientSummary}s of all clients like {@link #findAll()}, but
+	 * without loading the {@link Client} entities.
+	 * 
+	 * @return the summaries of all clients ordered by descending IDs
+	 */
+	List<ClientSummary> findAllSummaries();
+
+	/**
+	 * Finds the {@link ClientSummary}s of all clients born at the given date or
+	 * later like {@link #findAllBornFrom(LocalDate)}, but without loading the
+	 * {@link Client} entities.
+	 * 
+	 * @param minDate the oldest birth date of clients
+	 * @return the summaries ordered firstly by descending birth date, and secondly
+	 *         by descending IDs.
+	 */
+	List<ClientSummary> findSummariesBornFrom(LocalDate minDate);
+
+	/**
+	 * Finds the {@link ClientSummary}s of all clients born in the given range of
+	 * dates.
+	 * 
+	 * @param minDate the oldest birth date of clients
+	 * @param maxDate the youngest birth date of clients
+	 * @return the summaries ordered firstly by descending birth date, and secondly
+	 *         by descending IDs.
+	 */
+	List<ClientSummary> findSummariesBornBetween(LocalDate minDate, LocalDate maxDate);
+
+	/**
+	 * Finds the {@link ClientSummary}s of the clients, whose usernames start with
+	 * the given prefix, e.g. for a type-ahead search.
+	 * 
+	 * @param prefix the start of the usernames, case-sensitive. Empty for all.
+	 * @param limit  the maximum number of clients to be found
+	 * @return at most limit summaries ordered by ascending usernames
+	 */
+	List<ClientSummary> findByUsernamePrefix(String prefix, int limit);
+
 }
@@ -0,0 +1,53 @@
+package de.beuth.knabe.spring_ddd_bank.domain.imports;
+
+import java.util.List;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Account;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.LedgerEntry;
+
+/**
+ * Required repository for the append-only ledger of {@link LedgerEntry}
+ * objects.
+ */
+public interface LedgerRepository {
+
+	/**
+	 * Deletes all {@link LedgerEntry} objects. Useful for test scenarios in order
+	 * to start with an empty ledger. Otherwise the ledger is never modified.
+	 */
+	void deleteAll();
+
+	/**
+	 * Appends the given new entries to the ledger in the given order. They are
+	 * inserted in the current transaction.
+	 * 
+	 * @param entries
+	 *            the {@link LedgerEntry} objects to be appended
+	 */
+	void append(LedgerEntry... entries);
+
+	/**
+	 * Finds all entries booked on the given account.
+	 * 
+	 * @param accountNo
+	 *            the number of the {@link Account}
+	 * @return the {@link LedgerEntry} objects of the account in the order of their
+	 *         booking times, entries with the same booking time in ascending
+	 *         order of their identities
+	 */
+	List<LedgerEntry> findAllOf(AccountNo accountNo);
+
+	/**
+	 * Computes the balance of the given account from its ledger entries. For an
+	 * account opened before the introduction of the ledger this includes the
+	 * opening balance booked, when the database was upgraded.
+	 * 
+	 * @param accountNo
+	 *            the number of the {@link Account}
+	 * @return the sum of the amounts of all entries booked on the account
+	 */
+	Amount balanceOf(AccountNo accountNo);
+
+}
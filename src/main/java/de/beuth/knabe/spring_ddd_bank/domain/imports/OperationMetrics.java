@@ -0,0 +1,66 @@
+package de.beuth.knabe.spring_ddd_bank.domain.imports;
+
+import java.util.function.Supplier;
+
+/**
+ * Required service for measuring the domain operations. Each execution of an
+ * operation is timed and counted, and a failed execution is counted by the
+ * class of the exception it threw.
+ */
+public interface OperationMetrics {
+
+	/**
+	 * Executes the given action as an execution of the named operation and
+	 * measures its duration. An exception thrown by the action is counted as
+	 * failure of the operation, and is passed on.
+	 * 
+	 * @param operation
+	 *            the name of the domain operation, e.g. "transfer"
+	 * @param action
+	 *            the work of the operation
+	 * @param <T>
+	 *            the type of the result of the action
+	 * @return the result of the action
+	 */
+	<T> T measure(String operation, Supplier<T> action);
+
+	/**
+	 * Executes the given action without a result like
+	 * {@link #measure(String, Supplier)}.
+	 * 
+	 * @param operation
+	 *            the name of the domain operation, e.g. "deposit"
+	 * @param action
+	 *            the work of the operation
+	 */
+	default void measure(final String operation, final Runnable action) {
+		measure(operation, () -> {
+			action.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Returns a report of all measured operations.
+	 * 
+	 * @return Report in the text format of Prometheus with the latency quantiles
+	 *         0.5, 0.99, and 0.999, the number of executions, and the number of
+	 *         failures by exception class for each measured operation.
+	 */
+	String report();
+
+	/** {@link OperationMetrics}, which only execute the actions. */
+	OperationMetrics NONE = new OperationMetrics() {
+
+		@Override
+		public <T> T measure(final String operation, final Supplier<T> action) {
+			return action.get();
+		}
+
+		@Override
+		public String report() {
+			return "";
+		}
+	};
+
+}
@@ -2,28 +2,51 @@ package de.beuth.knabe.spring_ddd_bank.infrastructure;
 
 import de.beuth.knabe.spring_ddd_bank.domain.Account;
 import de.beuth.knabe.spring_ddd_bank.domain.AccountAccess;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
 import de.beuth.knabe.spring_ddd_bank.domain.Amount;
 import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
+import de.beuth.knabe.spring_ddd_bank.domain.ManagedAccountSummary;
 import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountAccessRepository;
 import de.beuth.knabe.spring_ddd_bank.infrastructure.imports.ImportedAccountAccessJpaRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**A Repository for {@link de.beuth.knabe.spring_ddd_bank.domain.AccountAccess} link objects implemented with Spring Data JPA.
  * @author Christoph Knabe
  * @since 2017-03-06
  */
 @Service
+@Profile("!journal")
 public class AccountAccessJpaRepository implements AccountAccessRepository {
 
+    /** Maximum number of account numbers in the IN list of one query, as Derby compiles each list into code. */
+    private static final int MAX_IN_LIST = 1000;
+
     private final ImportedAccountAccessJpaRepository impl;
 
+    /** For reading a stream, which is requested outside of a transaction. */
+    private final TransactionTemplate readOnlyTransaction;
+
     @Autowired
-    public AccountAccessJpaRepository(final ImportedAccountAccessJpaRepository impl) {
+    public AccountAccessJpaRepository(final ImportedAccountAccessJpaRepository impl,
+            final PlatformTransactionManager transactionManager) {
         this.impl = impl;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
     }
 
     public void deleteAll(){impl.deleteAll();}
@@ -42,14 +65,69 @@ public class AccountAccessJpaRepository implements AccountAccessRepository {
         return impl.findAllByClientAndIsOwnerGreaterThanEqualOrderByIdDesc(client, asOwner);
     }
 
+    @Override
+    public List<AccountNo> findManagedAccountNosOf(final Client client) {
+        return impl.findManagedAccountIds(client).stream().map(AccountNo::new).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<AccountAccess> findManagedAccountsOf(final Client client, final Collection<AccountNo> accountNos) {
+        final List<Long> ids = accountNos.stream().map(AccountNo::toLong).distinct().sorted().collect(Collectors.toList());
+        final List<AccountAccess> result = new ArrayList<>(ids.size());
+        for (int from = 0; from < ids.size(); from += MAX_IN_LIST) {
+            result.addAll(impl.findAllByClientAndAccountIdIn(client, ids.subList(from, Math.min(from + MAX_IN_LIST, ids.size()))));
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<ManagedAccountSummary> streamManagedAccountSummariesOf(final Client client) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return impl.streamManagedAccountSummaries(client);
+        }
+        // A streaming query needs the connection of a transaction until the stream is closed:
+        return readOnlyTransaction.execute(status -> {
+            try (Stream<ManagedAccountSummary> summaries = impl.streamManagedAccountSummaries(client)) {
+                return summaries.collect(Collectors.toList());
+            }
+        }).stream();
+    }
+
     @Override
     public List<AccountAccess> findFullAccounts(final Amount minBalance) {
         return impl.findAllByAccountBalanceCentsGreaterThanEqualOrderByAccountBalanceCentsDescClientIdDesc(minBalance.getCents());
     }
 
+    @Override
+    public List<Client> findRichClients(final Amount minBalance, final int limit) {
+        return impl.findRichClients(minBalance.getCents(), _firstPage(limit));
+    }
+
+    @Override
+    public Stream<ClientSummary> streamRichClientSummaries(final Amount minBalance, final int limit) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return impl.streamRichClientSummaries(minBalance.getCents(), _firstPage(limit));
+        }
+        return readOnlyTransaction.execute(status -> {
+            try (Stream<ClientSummary> summaries = impl.streamRichClientSummaries(minBalance.getCents(),
+                    _firstPage(limit))) {
+                return summaries.collect(Collectors.toList());
+            }
+        }).stream();
+    }
+
+    private static Pageable _firstPage(final int limit) {
+        return limit == Integer.MAX_VALUE ? Pageable.unpaged() : PageRequest.of(0, limit);
+    }
+
     @Override
     public Optional<AccountAccess> find(final Client client, final Account account) {
         return impl.findOneByClientAndAccount(client, account);
     }
 
+    @Override
+    public Optional<AccountAccess> find(final Client client, final AccountNo accountNo) {
+        return impl.findOneByClientAndAccountId(client, accountNo.toLong());
+    }
+
 }
@@ -5,23 +5,71 @@ import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
 import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountRepository;
 import de.beuth.knabe.spring_ddd_bank.infrastructure.imports.ImportedAccountJpaRepository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceContext;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 
 /**A Repository for Account entities implemented with Spring Data JPA.
  * @author Christoph Knabe
  * @since 2017-03-06
  */
 @Service
+@Profile("!journal")
 public class AccountJpaRepository implements AccountRepository {
 
+    /** Maximum number of account numbers in the IN list of one query, as Derby compiles each list into code. */
+    private static final int MAX_IN_LIST = 1000;
+
+    /** Number of accounts read by one query when loading the name index. */
+    private static final int NAME_PAGE_SIZE = 10_000;
+
     private final ImportedAccountJpaRepository impl;
 
+    private final AccountNameIndex names;
+
+    /** For locking accounts, which cannot be expressed by Spring Data query methods. */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * Constructs the repository.
+     *
+     * @param impl
+     *            the Spring Data repository
+     * @param nameIndexEnabled
+     *            if true, the search by account name is answered by an
+     *            in-memory inverted index instead of by reading the accounts.
+     *            Only consistent, if no other JVM creates accounts.
+     * @param transactionManager
+     *            for loading the name index from the primary database in a
+     *            transaction of its own
+     */
     @Autowired
-    public AccountJpaRepository(final ImportedAccountJpaRepository impl) {
+    public AccountJpaRepository(final ImportedAccountJpaRepository impl,
+            @Value("${bank.accountSearch.index:false}") final boolean nameIndexEnabled,
+            final PlatformTransactionManager transactionManager) {
         this.impl = impl;
+        final PrimaryTransaction primary = new PrimaryTransaction(transactionManager);
+        this.names = new AccountNameIndex(nameIndexEnabled, consumer -> primary.execute(() -> {
+            _loadNames(consumer);
+            return null;
+        }));
     }
     
 	@Override
@@ -29,10 +77,84 @@ public class AccountJpaRepository implements AccountRepository {
 		return impl.findOneById(acccountNo.toLong());
 	}
 
-    public void deleteAll(){impl.deleteAll();}
+	@Override
+	public List<Account> findAll(final Collection<AccountNo> accountNos) {
+		final List<Long> ids = accountNos.stream().map(AccountNo::toLong).distinct().collect(Collectors.toList());
+		final List<Account> result = new ArrayList<>(ids.size());
+		for (int from = 0; from < ids.size(); from += MAX_IN_LIST) {
+			result.addAll(impl.findAllByIdIn(ids.subList(from, Math.min(from + MAX_IN_LIST, ids.size()))));
+		}
+		return result;
+	}
 
+	@Override
+	public List<AccountNo> searchByName(final String query, final List<AccountNo> among, final int limit) {
+		if (names.isEnabled()) {
+			final long[] ids = among.stream().mapToLong(AccountNo::toLong).toArray();
+			return names.search(query, ids, limit, () -> _searchByReading(query, among, limit).stream()
+					.map(AccountNo::toLong).collect(Collectors.toList())).stream().map(AccountNo::new)
+					.collect(Collectors.toList());
+		}
+		return _searchByReading(query, among, limit);
+	}
+
+	/** Searches the names of the given accounts by reading the accounts. */
+	private List<AccountNo> _searchByReading(final String query, final List<AccountNo> among, final int limit) {
+		final Set<String> words = AccountNameIndex.words(query);
+		if (words.isEmpty()) {
+			return new ArrayList<>();
+		}
+		return findAll(among).stream()
+				.filter(account -> AccountNameIndex.words(account.getName()).containsAll(words))
+				.map(Account::accountNo).sorted(Comparator.comparingLong(AccountNo::toLong)).limit(limit)
+				.collect(Collectors.toList());
+	}
+
+	@Override
+	public Optional<Account> findAndLock(final AccountNo acccountNo) {
+		return Optional.ofNullable(entityManager.find(Account.class, acccountNo.toLong(), LockModeType.PESSIMISTIC_WRITE));
+	}
+
+	@Override
+	public Account lock(final Account account) {
+		entityManager.refresh(account, LockModeType.PESSIMISTIC_WRITE);
+		return account;
+	}
+
+	@Override
+	public Account refresh(final Account account) {
+		if (entityManager.contains(account)) {
+			entityManager.refresh(account);
+		}
+		return account;
+	}
+
+    public void deleteAll(){
+        impl.deleteAll();
+        names.clear();
+    }
+
+    @SuppressWarnings("deprecation")
     public Account save(final Account account){
-        return impl.save(account);
+        // The name of an account cannot be changed, so only a new account changes the name index:
+        final boolean isNew = account.getId() == null;
+        final Account result = impl.save(account);
+        if (isNew) {
+            names.add(result);
+        }
+        return result;
+    }
+
+    private void _loadNames(final BiConsumer<Long, String> consumer) {
+        long afterId = Long.MIN_VALUE;
+        List<Object[]> page;
+        do {
+            page = impl.findNamesAfter(afterId, PageRequest.of(0, NAME_PAGE_SIZE));
+            for (final Object[] row : page) {
+                afterId = (Long) row[0];
+                consumer.accept(afterId, (String) row[1]);
+            }
+        } while (page.size() == NAME_PAGE_SIZE);
     }
 
 }
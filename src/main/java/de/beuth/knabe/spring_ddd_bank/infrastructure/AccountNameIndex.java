@@ -0,0 +1,367 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Account;
+
+/**
+ * An in-memory inverted index of the {@link Account}s by the words of their
+ * names for a full-text search. A word is a maximal run of letters and digits,
+ * compared case-insensitively. The posting list of each word holds the
+ * ascending account numbers in blocks of {@value #BLOCK_SIZE}. Each block
+ * keeps its first number uncompressed in a skip array, and the following ones
+ * as variable-length encoded gaps in a byte array. So a list needs about one
+ * or two bytes per account, and a posting list can be advanced to a given
+ * account number by a binary search over its blocks and the decoding of one
+ * block.
+ * <p>
+ * A search intersects the posting lists of the words of the query with the
+ * ascending numbers of the accounts, among which it searches, by leapfrogging:
+ * each list is advanced to the current candidate, and a list behind it makes
+ * its next number the new candidate. The work thus depends on the shortest of
+ * the lists, not on the number of all accounts.
+ * <p>
+ * The index is loaded on the first search, and kept in sync with the database
+ * as described for the {@link InMemoryIndex}. As the name of an account cannot
+ * be changed, only new accounts are added. Accounts are only deleted all at
+ * once, which discards the index. An account created by another JVM is never
+ * found, as the index neither expires nor can be checked against the
+ * database. So it requires, that this JVM is the only one writing accounts.
+ */
+public class AccountNameIndex extends InMemoryIndex<Map<String, AccountNameIndex.Postings>> {
+
+    private static final int BLOCK_SIZE = 128;
+
+    /** Returned by a cursor, which is exhausted. */
+    private static final long END = Long.MAX_VALUE;
+
+    private final Consumer<BiConsumer<Long, String>> loader;
+
+    private Map<String, Postings> postingsByWord = new HashMap<>();
+
+    /**
+     * Constructs the index.
+     *
+     * @param enabled
+     *            if false, the index is not used, and the repository searches
+     *            the names of the accounts one by one.
+     * @param loader
+     *            passes the number and name of each account in the database to
+     *            the given consumer, preferably in ascending order of the
+     *            numbers, in a transaction of its own.
+     */
+    public AccountNameIndex(final boolean enabled, final Consumer<BiConsumer<Long, String>> loader) {
+        super(enabled);
+        this.loader = loader;
+    }
+
+    /**
+     * Splits the given text into the words, by which accounts are found.
+     *
+     * @param text
+     *            an account name or a query. May be null.
+     * @return the distinct words of the text in lower case, in the order of their
+     *         first occurrence
+     */
+    public static Set<String> words(final String text) {
+        final Set<String> result = new LinkedHashSet<>();
+        if (text == null) {
+            return result;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            final boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                result.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds among the given accounts those, whose names contain all words of the
+     * query.
+     *
+     * @param query
+     *            the words to be searched
+     * @param among
+     *            the numbers of the accounts, which may be found, in ascending
+     *            order
+     * @param limit
+     *            the maximum number of accounts to be found
+     * @return the numbers of at most limit found accounts in ascending order.
+     *         Empty, if the query has no words.
+     */
+    public List<Long> search(final String query, final long[] among, final int limit) {
+        return search(query, among, limit, null);
+    }
+
+    /**
+     * Finds among the given accounts those, whose names contain all words of the
+     * query, like {@link #search(String, long[], int)}, but by the given search in
+     * the database, if the index is not loaded and cannot be loaded in the running
+     * transaction, see {@link InMemoryIndex#query(Supplier, Supplier)}.
+     */
+    public List<Long> search(final String query, final long[] among, final int limit,
+            final Supplier<List<Long>> unloaded) {
+        final Set<String> words = words(query);
+        if (words.isEmpty() || among.length == 0) {
+            return new ArrayList<>();
+        }
+        return query(() -> {
+            final List<Postings> lists = new ArrayList<>(words.size());
+            for (final String word : words) {
+                final Postings postings = postingsByWord.get(word);
+                if (postings == null) {
+                    return new ArrayList<>();
+                }
+                lists.add(postings);
+            }
+            lists.sort(Comparator.comparingInt(postings -> postings.size));
+            final Cursor[] cursors = new Cursor[lists.size() + 1];
+            for (int i = 0; i < lists.size(); i++) {
+                cursors[i] = new PostingsCursor(lists.get(i));
+            }
+            cursors[lists.size()] = new ArrayCursor(among);
+            return _intersect(cursors, limit);
+        }, unloaded);
+    }
+
+    /**
+     * Adds the given new account to the index after the commit of the current
+     * transaction, or at once, if there is none.
+     */
+    public void add(final Account account) {
+        if (!isEnabled()) {
+            return;
+        }
+        final long accountNo = account.accountNo().toLong();
+        final String name = account.getName();
+        afterCommit(() -> _put(accountNo, name));
+    }
+
+    @Override
+    protected Map<String, Postings> fetchAll() {
+        final Map<String, Postings> result = new HashMap<>();
+        loader.accept((accountNo, name) -> _put(result, accountNo, name));
+        return result;
+    }
+
+    @Override
+    protected void install(final Map<String, Postings> content) {
+        postingsByWord = content;
+    }
+
+    @Override
+    protected void removeAll() {
+        postingsByWord.clear();
+    }
+
+    private static List<Long> _intersect(final Cursor[] cursors, final int limit) {
+        final List<Long> result = new ArrayList<>();
+        long candidate = cursors[0].advanceTo(Long.MIN_VALUE);
+        int agreeing = 1;
+        int next = 1;
+        while (candidate != END && result.size() < limit) {
+            if (agreeing == cursors.length) {
+                result.add(candidate);
+                candidate = cursors[0].advanceTo(candidate + 1);
+                agreeing = 1;
+                next = 1;
+                continue;
+            }
+            final long found = cursors[next].advanceTo(candidate);
+            if (found == candidate) {
+                agreeing++;
+            } else {
+                candidate = found;
+                agreeing = 1;
+            }
+            next = (next + 1) % cursors.length;
+        }
+        return result;
+    }
+
+    private void _put(final long accountNo, final String name) {
+        _put(postingsByWord, accountNo, name);
+    }
+
+    private static void _put(final Map<String, Postings> postingsByWord, final long accountNo, final String name) {
+        for (final String word : words(name)) {
+            postingsByWord.computeIfAbsent(word, key -> new Postings()).add(accountNo);
+        }
+    }
+
+    /** The ascending account numbers of the accounts with the same word. Not thread-safe. */
+    static final class Postings {
+
+        int size;
+        int blocks;
+        /** The first account number of each block. */
+        long[] firsts = new long[1];
+        /** The offset of the gaps of each block in bytes. */
+        int[] offsets = new int[1];
+        /** The gaps to the previous account number in each block, variable-length encoded. */
+        byte[] bytes = new byte[8];
+        int length;
+        long last = Long.MIN_VALUE;
+
+        void add(final long accountNo) {
+            if (accountNo > last) {
+                _append(accountNo);
+                return;
+            }
+            // An account committed after an account with a higher number, rare:
+            final long[] all = _decodeAll();
+            final int index = Arrays.binarySearch(all, accountNo);
+            if (index >= 0) {
+                return;
+            }
+            final int insertion = -index - 1;
+            size = 0;
+            blocks = 0;
+            length = 0;
+            last = Long.MIN_VALUE;
+            for (int i = 0; i < all.length + 1; i++) {
+                _append(i < insertion ? all[i] : i == insertion ? accountNo : all[i - 1]);
+            }
+        }
+
+        private void _append(final long accountNo) {
+            if (size % BLOCK_SIZE == 0) {
+                if (blocks == firsts.length) {
+                    firsts = Arrays.copyOf(firsts, blocks * 2);
+                    offsets = Arrays.copyOf(offsets, blocks * 2);
+                }
+                firsts[blocks] = accountNo;
+                offsets[blocks] = length;
+                blocks++;
+            } else {
+                long gap = accountNo - last;
+                if (length + 10 > bytes.length) {
+                    bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 10));
+                }
+                while (gap >= 0x80) {
+                    bytes[length++] = (byte) (gap | 0x80);
+                    gap >>>= 7;
+                }
+                bytes[length++] = (byte) gap;
+            }
+            last = accountNo;
+            size++;
+        }
+
+        /** Decodes the given block into the given array. @return the number of decoded account numbers */
+        int decode(final int block, final long[] into) {
+            final int count = block == blocks - 1 ? size - block * BLOCK_SIZE : BLOCK_SIZE;
+            long accountNo = firsts[block];
+            into[0] = accountNo;
+            int offset = offsets[block];
+            for (int i = 1; i < count; i++) {
+                long gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = bytes[offset++];
+                    gap |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                accountNo += gap;
+                into[i] = accountNo;
+            }
+            return count;
+        }
+
+        private long[] _decodeAll() {
+            final long[] result = new long[size];
+            final long[] block = new long[BLOCK_SIZE];
+            for (int b = 0; b < blocks; b++) {
+                final int count = decode(b, block);
+                System.arraycopy(block, 0, result, b * BLOCK_SIZE, count);
+            }
+            return result;
+        }
+    }
+
+    /** Runs through ascending account numbers. */
+    private interface Cursor {
+
+        /** @return the lowest number not lower than the target, at or after the current position, or {@link #END} */
+        long advanceTo(long target);
+    }
+
+    private static final class ArrayCursor implements Cursor {
+
+        private final long[] values;
+        private int position;
+
+        ArrayCursor(final long[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public long advanceTo(final long target) {
+            if (position < values.length && values[position] < target) {
+                final int index = Arrays.binarySearch(values, position, values.length, target);
+                position = index >= 0 ? index : -index - 1;
+            }
+            return position < values.length ? values[position] : END;
+        }
+    }
+
+    private static final class PostingsCursor implements Cursor {
+
+        private final Postings postings;
+        private final long[] decoded = new long[BLOCK_SIZE];
+        private int block = -1;
+        private int count;
+        private int position;
+
+        PostingsCursor(final Postings postings) {
+            this.postings = postings;
+        }
+
+        @Override
+        public long advanceTo(final long target) {
+            if (block < 0 || position == count || decoded[count - 1] < target) {
+                // The last block with a first number not greater than the target holds it, if any:
+                int index = Arrays.binarySearch(postings.firsts, Math.max(block, 0), postings.blocks, target);
+                index = index >= 0 ? index : Math.max(-index - 2, Math.max(block, 0));
+                if (index != block) {
+                    block = index;
+                    count = postings.decode(block, decoded);
+                    position = 0;
+                }
+                while (position == count || decoded[count - 1] < target) {
+                    if (block + 1 >= postings.blocks) {
+                        position = count;
+                        return END;
+                    }
+                    block++;
+                    count = postings.decode(block, decoded);
+                    position = 0;
+                }
+            }
+            if (decoded[position] < target) {
+                final int index = Arrays.binarySearch(decoded, position, count, target);
+                position = index >= 0 ? index : -index - 1;
+            }
+            return decoded[position];
+        }
+    }
+
+}
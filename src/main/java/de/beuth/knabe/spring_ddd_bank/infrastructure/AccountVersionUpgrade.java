@@ -0,0 +1,45 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Initializes the optimistic locking version of the accounts in a database,
+ * whose account table existed before the version. The schema update by
+ * Hibernate adds the version column without a default, so the existing
+ * accounts have a null version, which Hibernate cannot increment when saving
+ * them. At startup, after the schema update, this gives the column the default
+ * 0 for accounts inserted without a version, e.g. by a node of the former
+ * release during a rolling upgrade, and sets each null version to 0. Both
+ * statements change nothing in an upgraded database.
+ */
+@Component
+@Profile("!journal")
+public class AccountVersionUpgrade {
+
+    private static final Logger log = LoggerFactory.getLogger(AccountVersionUpgrade.class);
+
+    /**
+     * Upgrades the account table.
+     *
+     * @param jdbcTemplate
+     *            for the primary database
+     * @param entityManagerFactory
+     *            only required, so that the schema has been updated before
+     */
+    @Autowired
+    public AccountVersionUpgrade(final JdbcTemplate jdbcTemplate, final EntityManagerFactory entityManagerFactory) {
+        jdbcTemplate.execute("alter table account alter column version default 0");
+        final int initialized = jdbcTemplate.update("update account set version = 0 where version is null");
+        if (initialized > 0) {
+            log.info("Initialized the version of {} accounts", initialized);
+        }
+    }
+
+}
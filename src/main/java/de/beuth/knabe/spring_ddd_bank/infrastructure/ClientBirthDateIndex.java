@@ -0,0 +1,171 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
+
+/**
+ * An in-memory secondary index of the {@link Client}s by their birth date. The
+ * postings are kept in parallel primitive arrays sorted by the epoch day of the
+ * birth date and secondly by the client ID, so a range of birth dates is found
+ * by a binary search in O(log n + k) without querying the database. Inserting
+ * or removing a posting moves the following ones, which is cheap compared to
+ * the database insert or delete it accompanies. Clients without a birth date
+ * are not indexed, as no birth date range contains them.
+ */
+public class ClientBirthDateIndex extends ClientIndex {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private int size;
+    /** The epoch days of the birth dates, ascending. */
+    private long[] epochDays = new long[INITIAL_CAPACITY];
+    /** The client IDs, ascending within the same epoch day. */
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private String[] usernames = new String[INITIAL_CAPACITY];
+
+    /**
+     * Constructs the index.
+     *
+     * @param enabled
+     *            if false, the index is not used, and the repository queries the
+     *            database.
+     * @param loader
+     *            finds the summaries of all clients in the database
+     */
+    public ClientBirthDateIndex(final boolean enabled, final Supplier<List<ClientSummary>> loader) {
+        super(enabled, loader);
+    }
+
+    /**
+     * Finds the clients born in the given range of dates.
+     *
+     * @param minDate
+     *            the oldest birth date of the found clients
+     * @param maxDate
+     *            the youngest birth date of the found clients
+     * @return the summaries ordered firstly by descending birth date, and secondly
+     *         by descending IDs, as by the database.
+     */
+    public List<ClientSummary> findBornBetween(final LocalDate minDate, final LocalDate maxDate) {
+        return findBornBetween(minDate, maxDate, null);
+    }
+
+    /**
+     * Finds the clients born in the given range of dates like
+     * {@link #findBornBetween(LocalDate, LocalDate)}, but by the given database
+     * query, if the index is not loaded and cannot be loaded in the running
+     * transaction, see {@link InMemoryIndex#query(Supplier, Supplier)}.
+     */
+    public List<ClientSummary> findBornBetween(final LocalDate minDate, final LocalDate maxDate,
+            final Supplier<List<ClientSummary>> unloaded) {
+        return query(() -> _entries(_lowerBound(minDate.toEpochDay(), Long.MIN_VALUE),
+                _lowerBound(maxDate.toEpochDay(), Long.MAX_VALUE)), unloaded);
+    }
+
+    @Override
+    protected boolean indexes(final ClientSummary client) {
+        return client.getBirthDate() != null;
+    }
+
+    @Override
+    protected void load(final List<ClientSummary> clients) {
+        final List<ClientSummary> sorted = new ArrayList<>(clients);
+        sorted.sort((a, b) -> {
+            final int byBirth = a.getBirthDate().compareTo(b.getBirthDate());
+            return byBirth != 0 ? byBirth : Long.compare(a.getId(), b.getId());
+        });
+        final int capacity = Math.max(INITIAL_CAPACITY, sorted.size() + sorted.size() / 4);
+        epochDays = new long[capacity];
+        ids = new long[capacity];
+        usernames = new String[capacity];
+        size = 0;
+        for (final ClientSummary client : sorted) {
+            epochDays[size] = client.getBirthDate().toEpochDay();
+            ids[size] = client.getId();
+            usernames[size] = client.getUsername();
+            size++;
+        }
+    }
+
+    @Override
+    protected void insert(final ClientSummary client) {
+        final long epochDay = client.getBirthDate().toEpochDay();
+        final long id = client.getId();
+        final int index = _lowerBound(epochDay, id);
+        if (index < size && epochDays[index] == epochDay && ids[index] == id) {
+            usernames[index] = client.getUsername();
+            return;
+        }
+        if (size == epochDays.length) {
+            final int capacity = size + (size >> 1) + 1;
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            usernames = Arrays.copyOf(usernames, capacity);
+        }
+        System.arraycopy(epochDays, index, epochDays, index + 1, size - index);
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        System.arraycopy(usernames, index, usernames, index + 1, size - index);
+        epochDays[index] = epochDay;
+        ids[index] = id;
+        usernames[index] = client.getUsername();
+        size++;
+    }
+
+    @Override
+    protected void delete(final ClientSummary client) {
+        final long epochDay = client.getBirthDate().toEpochDay();
+        final long id = client.getId();
+        final int index = _lowerBound(epochDay, id);
+        if (index == size || epochDays[index] != epochDay || ids[index] != id) {
+            return;
+        }
+        System.arraycopy(epochDays, index + 1, epochDays, index, size - index - 1);
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        System.arraycopy(usernames, index + 1, usernames, index, size - index - 1);
+        size--;
+        usernames[size] = null;
+    }
+
+    @Override
+    protected List<ClientSummary> entries() {
+        return _entries(0, size);
+    }
+
+    @Override
+    protected int count() {
+        return size;
+    }
+
+    /** @return the postings from the index from inclusive to the index to exclusive in descending order */
+    private List<ClientSummary> _entries(final int from, final int to) {
+        final List<ClientSummary> result = new ArrayList<>(Math.max(0, to - from));
+        for (int i = to - 1; i >= from; i--) {
+            result.add(new ClientSummary(ids[i], usernames[i], LocalDate.ofEpochDay(epochDays[i])));
+        }
+        return result;
+    }
+
+    /** @return the index of the first posting not less than (epochDay, id), or size if there is none */
+    private int _lowerBound(final long epochDay, final long id) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            final int comparison = epochDays[middle] != epochDay ? Long.compare(epochDays[middle], epochDay)
+                    : Long.compare(ids[middle], id);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+}
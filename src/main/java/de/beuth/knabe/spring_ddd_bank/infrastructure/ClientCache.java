@@ -0,0 +1,221 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
+import de.beuth.knabe.spring_ddd_bank.domain.base.BoundedCache;
+import de.beuth.knabe.spring_ddd_bank.domain.base.EntityBase;
+
+/**
+ * A read-through cache for {@link Client}s by their username and by their ID
+ * with a bounded size, approximately least recently used eviction, and a time
+ * to live for each entry, see {@link BoundedCache}. Only found clients are
+ * cached, so that a client created after a failed lookup is found at once.
+ * Only the immutable persistent state of a client is cached, and each hit
+ * returns a new {@link Client} built from it. So concurrent requests never
+ * share a {@link Client}, whose transient references to its required
+ * repositories are provided on each lookup by the domain service. Lookups do
+ * not lock, so concurrent requests do not wait for each other.
+ */
+public class ClientCache {
+
+    private final boolean enabled;
+
+    private final BoundedCache<String, ClientSummary> byUsername;
+    /** The usernames of the cached clients. An entry is removed along with the client. */
+    private final Map<Long, String> usernameById = new ConcurrentHashMap<>();
+
+    /** Lookups by an ID, which is not cached. The lookups by username are counted by byUsername. */
+    private final LongAdder idMisses = new LongAdder();
+
+    /**
+     * Counts the invalidations. A client loaded while an invalidation happened is
+     * not cached, as it may have been read before the invalidating commit.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private static final Constructor<Client> CLIENT_CONSTRUCTOR;
+    private static final Field ENTITY_ID;
+    private static final Field CLIENT_USERNAME;
+    private static final Field CLIENT_BIRTH_DATE;
+
+    static {
+        try {
+            CLIENT_CONSTRUCTOR = Client.class.getDeclaredConstructor();
+            ENTITY_ID = EntityBase.class.getDeclaredField("id");
+            CLIENT_USERNAME = Client.class.getDeclaredField("username");
+            CLIENT_BIRTH_DATE = Client.class.getDeclaredField("birthDate");
+        } catch (final ReflectiveOperationException ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+        CLIENT_CONSTRUCTOR.setAccessible(true);
+        ENTITY_ID.setAccessible(true);
+        CLIENT_USERNAME.setAccessible(true);
+        CLIENT_BIRTH_DATE.setAccessible(true);
+    }
+
+    /**
+     * Constructs the cache.
+     *
+     * @param enabled
+     *            if false, each lookup goes to the repository.
+     * @param maxSize
+     *            the maximum number of cached clients. If exceeded, about the
+     *            least recently used client is evicted.
+     * @param ttlSeconds
+     *            how long a client is kept after it was found in the repository
+     */
+    public ClientCache(final boolean enabled, final int maxSize, final long ttlSeconds) {
+        this.enabled = enabled;
+        this.byUsername = new BoundedCache<>(maxSize, ttlSeconds,
+                (username, state) -> usernameById.remove(state.getId(), username));
+    }
+
+    /**
+     * Returns a new client built from the cached one with the given username, or
+     * finds it by the given loader and caches its state.
+     */
+    public Optional<Client> find(final String username, final Supplier<Optional<Client>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        final long invalidationsBefore = invalidations.get();
+        final ClientSummary cached = byUsername.get(username);
+        if (cached != null) {
+            return Optional.of(_newClient(cached));
+        }
+        return _load(loader, invalidationsBefore);
+    }
+
+    /**
+     * Returns a new client built from the cached one with the given ID, or finds
+     * it by the given loader and caches its state.
+     */
+    public Optional<Client> find(final Long id, final Function<Long, Optional<Client>> loader) {
+        if (!enabled) {
+            return loader.apply(id);
+        }
+        final long invalidationsBefore = invalidations.get();
+        final String username = usernameById.get(id);
+        if (username == null) {
+            idMisses.increment();
+        } else {
+            final ClientSummary cached = byUsername.get(username);
+            if (cached != null && cached.getId().equals(id)) {
+                return Optional.of(_newClient(cached));
+            }
+        }
+        return _load(() -> loader.apply(id), invalidationsBefore);
+    }
+
+    /**
+     * Removes the given client from the cache now and again after the completion of
+     * the current transaction, if any. So a concurrent lookup cannot cache the
+     * state before the commit for longer than the transaction.
+     */
+    public void invalidate(final Client client) {
+        if (!enabled) {
+            return;
+        }
+        _remove(client);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(final int status) {
+                    _remove(client);
+                }
+            });
+        }
+    }
+
+    /** Removes all clients from the cache. */
+    public void clear() {
+        invalidations.incrementAndGet();
+        byUsername.clear();
+        usernameById.clear();
+    }
+
+    /** @return the number of cached clients */
+    public int size() {
+        return byUsername.size();
+    }
+
+    /**
+     * Returns a report about the usage of the cache. The figures are read one by
+     * one without stopping concurrent lookups.
+     *
+     * @return one line with the number of hits, misses, evictions, and cached
+     *         clients, separated by tab characters
+     */
+    public String report() {
+        return String.format("%d\t%d\t%d\t%d\n", byUsername.hits(), byUsername.misses() + idMisses.sum(),
+                byUsername.evictions(), byUsername.size());
+    }
+
+    /**
+     * Loads a client and caches its state. If an invalidation happened since the
+     * lookup started, the state may be outdated, and is not cached, or removed
+     * again, if the invalidation happened while caching it.
+     */
+    private Optional<Client> _load(final Supplier<Optional<Client>> loader, final long invalidationsBefore) {
+        final Optional<Client> result = loader.get();
+        result.ifPresent(client -> {
+            if (invalidations.get() != invalidationsBefore) {
+                return;
+            }
+            final ClientSummary state = new ClientSummary(_id(client), client.getUsername(), client.getBirthDate());
+            usernameById.put(state.getId(), state.getUsername());
+            byUsername.put(state.getUsername(), state);
+            if (invalidations.get() != invalidationsBefore) {
+                _remove(client);
+            }
+        });
+        return result;
+    }
+
+    private void _remove(final Client client) {
+        invalidations.incrementAndGet();
+        final ClientSummary removed = byUsername.remove(client.getUsername());
+        if (removed != null) {
+            usernameById.remove(removed.getId(), client.getUsername());
+        }
+        final Long id = _id(client);
+        if (id != null) {
+            final String username = usernameById.remove(id);
+            if (username != null) {
+                byUsername.remove(username);
+            }
+        }
+    }
+
+    /** Builds a detached client with the given persistent state, as JPA does by field access. */
+    private static Client _newClient(final ClientSummary state) {
+        try {
+            final Client result = CLIENT_CONSTRUCTOR.newInstance();
+            ENTITY_ID.set(result, state.getId());
+            CLIENT_USERNAME.set(result, state.getUsername());
+            CLIENT_BIRTH_DATE.set(result, state.getBirthDate());
+            return result;
+        } catch (final ReflectiveOperationException ex) {
+            throw new IllegalStateException("Cannot build a client from " + state, ex);
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Long _id(final Client client) {
+        return client.getId();
+    }
+
+}
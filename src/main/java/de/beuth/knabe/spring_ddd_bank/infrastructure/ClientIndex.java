@@ -0,0 +1,169 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
+
+/**
+ * Base of an in-memory secondary index of the {@link Client}s, which answers
+ * queries without the database. The subclass defines the data structure. The
+ * index is loaded by the given loader, and each saved or deleted client is
+ * applied to it, as described for the {@link InMemoryIndex}.
+ */
+public abstract class ClientIndex extends InMemoryIndex<List<ClientSummary>> {
+
+    private final Supplier<List<ClientSummary>> loader;
+
+    /**
+     * Constructs the index.
+     *
+     * @param enabled
+     *            if false, the index is not used, and the repository queries the
+     *            database.
+     * @param loader
+     *            finds the summaries of all clients in the database in a
+     *            transaction of its own
+     */
+    protected ClientIndex(final boolean enabled, final Supplier<List<ClientSummary>> loader) {
+        super(enabled);
+        this.loader = loader;
+    }
+
+    /**
+     * Puts the given client into the index after the commit of the current
+     * transaction, or at once, if there is none.
+     */
+    public void put(final Client client) {
+        _afterCommit(client, true);
+    }
+
+    /**
+     * Removes the given client from the index after the commit of the current
+     * transaction, or at once, if there is none.
+     */
+    public void remove(final Client client) {
+        _afterCommit(client, false);
+    }
+
+    /**
+     * Checks the index against the summaries of all clients in the database. If
+     * they differ, the index is discarded and loaded again by the next query. The
+     * database is read before the index is locked. So a change committed by a
+     * concurrent transaction meanwhile can be reported as a difference, and then
+     * only causes an unneeded reload.
+     *
+     * @param database
+     *            finds the summaries of all clients in the database
+     * @return one line with the number of indexed clients, of indexable clients
+     *         in the database, of clients missing in the index, of superfluous
+     *         clients in the index, and of clients indexed with other data,
+     *         separated by tab characters. Empty, if the index is disabled.
+     */
+    public String check(final Supplier<List<ClientSummary>> database) {
+        if (!isEnabled()) {
+            return "";
+        }
+        final List<ClientSummary> stored = database.get();
+        return inspect(() -> {
+            final List<ClientSummary> entries = entries();
+            final Map<Long, ClientSummary> indexed = new HashMap<>(entries.size() * 2);
+            for (final ClientSummary entry : entries) {
+                indexed.put(entry.getId(), entry);
+            }
+            // Fewer IDs than entries means, that a client is indexed twice:
+            final boolean duplicates = indexed.size() != entries.size();
+            int databaseCount = 0;
+            int missing = 0;
+            int differing = 0;
+            for (final ClientSummary summary : stored) {
+                if (!indexes(summary)) {
+                    continue;
+                }
+                databaseCount++;
+                final ClientSummary entry = indexed.remove(summary.getId());
+                if (entry == null) {
+                    missing++;
+                } else if (!entry.equals(summary)) {
+                    differing++;
+                }
+            }
+            final int superfluous = indexed.size();
+            if (duplicates || missing + superfluous + differing > 0) {
+                invalidate();
+            }
+            return String.format("%d\t%d\t%d\t%d\t%d\n", entries.size(), databaseCount, missing, superfluous,
+                    differing);
+        });
+    }
+
+    /** @return the number of indexed clients, 0 if the index is not loaded */
+    public int size() {
+        return queryIfLoaded(this::count, 0);
+    }
+
+    /** @return true, if the given client belongs into the index. By default each client does. */
+    protected boolean indexes(final ClientSummary client) {
+        return true;
+    }
+
+    /** Replaces the content of the index by the given clients, which all belong into it. Called under the write lock. */
+    protected abstract void load(List<ClientSummary> clients);
+
+    /** Puts the given client into the index, replacing its previous entry, if any. Called under the write lock. */
+    protected abstract void insert(ClientSummary client);
+
+    /** Removes the given client from the index, if it is there. Called under the write lock. */
+    protected abstract void delete(ClientSummary client);
+
+    /** @return all entries of the index. Called under the read or write lock. */
+    protected abstract List<ClientSummary> entries();
+
+    /** @return the number of entries of the index. Called under the read lock. */
+    protected abstract int count();
+
+    @Override
+    protected List<ClientSummary> fetchAll() {
+        final List<ClientSummary> result = new ArrayList<>(loader.get());
+        result.removeIf(summary -> !indexes(summary));
+        return result;
+    }
+
+    @Override
+    protected void install(final List<ClientSummary> clients) {
+        load(clients);
+    }
+
+    @Override
+    protected void removeAll() {
+        load(new ArrayList<>());
+    }
+
+    private void _afterCommit(final Client client, final boolean put) {
+        if (!isEnabled()) {
+            return;
+        }
+        final ClientSummary summary = new ClientSummary(_id(client), client.getUsername(), client.getBirthDate());
+        if (!indexes(summary)) {
+            return;
+        }
+        afterCommit(() -> {
+            if (put) {
+                insert(summary);
+            } else {
+                delete(summary);
+            }
+        });
+    }
+
+    @SuppressWarnings("deprecation")
+    private static long _id(final Client client) {
+        return Objects.requireNonNull(client.getId(), "client has no ID");
+    }
+
+}
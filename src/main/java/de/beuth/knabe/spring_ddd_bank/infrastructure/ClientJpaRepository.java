@@ -1,56 +1,226 @@
 package de.beuth.knabe.spring_ddd_bank.infrastructure;
 
 import java.time.LocalDate;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.ClientDiagnostics;
 import de.beuth.knabe.spring_ddd_bank.domain.imports.ClientRepository;
 import de.beuth.knabe.spring_ddd_bank.infrastructure.imports.ImportedClientJpaRepository;
 
 /**A Repository for Client entities implemented with Spring Data JPA.
+ * Clients found by username or ID are kept in a {@link ClientCache}, as each authenticated request looks up its client.
+ * The search by username prefix is answered by a {@link ClientUsernameTrie}.
+ * Optionally the queries by birth date are answered by a {@link ClientBirthDateIndex}.
+ * These in-memory structures are reported to the operators as {@link ClientDiagnostics}.
  * @author Christoph Knabe
  * @since 2017-03-06
  */
 @Service
-public class ClientJpaRepository implements ClientRepository {
+@Profile("!journal")
+public class ClientJpaRepository implements ClientRepository, ClientDiagnostics {
 	
     private final ImportedClientJpaRepository impl;
+
+    /** For detaching streamed clients, so that the persistence context does not grow with the stream. */
+    @PersistenceContext
+    private EntityManager entityManager;
     
+    private final ClientCache cache;
+
+    private final ClientBirthDateIndex birthDates;
+
+    private final ClientUsernameTrie usernames;
+
+    /** Finds the summaries of all clients committed in the primary database, for loading and checking the indexes. */
+    private final Supplier<List<ClientSummary>> storedSummaries;
+
+    /** Number of clients found by their IDs in one query, when the IDs are taken from the {@link ClientBirthDateIndex}. */
+    private static final int FIND_BY_IDS_CHUNK = 500;
+
+    /**
+     * Constructs the repository.
+     * 
+     * @param impl
+     *            the repository implemented by Spring Data JPA
+     * @param cacheEnabled
+     *            if false, each lookup by username or ID queries the database.
+     * @param cacheMaxSize
+     *            the maximum number of cached clients
+     * @param cacheTtlSeconds
+     *            how long a found client is cached
+     * @param birthDateIndexEnabled
+     *            if true, the queries by birth date are answered by an in-memory
+     *            index instead of by the database.
+     * @param usernameIndexEnabled
+     *            if true, the search by username prefix is answered by an
+     *            in-memory trie instead of by the database. Only consistent,
+     *            if no other JVM changes the clients.
+     * @param transactionManager
+     *            for loading the in-memory indexes from the primary database in
+     *            transactions of their own
+     */
     @Autowired
-    public ClientJpaRepository(final ImportedClientJpaRepository impl) {
+    public ClientJpaRepository(final ImportedClientJpaRepository impl,
+            @Value("${bank.clientCache.enabled:true}") final boolean cacheEnabled,
+            @Value("${bank.clientCache.maxSize:10000}") final int cacheMaxSize,
+            @Value("${bank.clientCache.ttlSeconds:60}") final long cacheTtlSeconds,
+            @Value("${bank.clientIndex.birthDate:false}") final boolean birthDateIndexEnabled,
+            @Value("${bank.clientIndex.username:false}") final boolean usernameIndexEnabled,
+            final PlatformTransactionManager transactionManager) {
         this.impl = impl;
+        this.cache = new ClientCache(cacheEnabled, cacheMaxSize, cacheTtlSeconds);
+        final PrimaryTransaction primary = new PrimaryTransaction(transactionManager);
+        this.storedSummaries = () -> primary.execute(impl::findAllSummaries);
+        this.birthDates = new ClientBirthDateIndex(birthDateIndexEnabled, storedSummaries);
+        this.usernames = new ClientUsernameTrie(usernameIndexEnabled, storedSummaries);
     }
 
-    public void deleteAll(){impl.deleteAll();}
+    public void deleteAll(){
+        impl.deleteAll();
+        cache.clear();
+        birthDates.clear();
+        usernames.clear();
+    }
 
     public Client save(final Client client){
-        return impl.save(client);
+        final Client result = impl.save(client);
+        cache.invalidate(result);
+        birthDates.put(result);
+        usernames.put(result);
+        return result;
     }
 
     public void delete(Client client){
+        cache.invalidate(client);
         impl.delete(client);
+        birthDates.remove(client);
+        usernames.remove(client);
     }
 
 	@Override
 	public Optional<Client> find(Long id) {
-		return impl.findOneById(id);
+		return cache.find(id, impl::findOneById);
 	}
 
 	@Override
 	public Optional<Client> find(String username) {
-		return impl.findOneByUsername(username);
+		return cache.find(username, () -> impl.findOneByUsername(username));
 	}
 
+    @Override
+    public String cacheReport() {
+        return cache.report();
+    }
+
     public List<Client> findAll(){
         return impl.findAllByOrderByIdDesc();
     }
 
+    @Override
+    public List<Client> findPage(final Long afterId, final int limit) {
+        final PageRequest firstPage = PageRequest.of(0, limit);
+        if (afterId == null) {
+            return impl.findAllByOrderByIdDesc(firstPage);
+        }
+        return impl.findAllByIdLessThanOrderByIdDesc(afterId, firstPage);
+    }
+
+    @Override
+    public Stream<Client> streamAll() {
+        return impl.streamAllByOrderByIdDesc().peek(entityManager::detach);
+    }
+
     public List<Client> findAllBornFrom(final LocalDate minDate){
-        return impl.findAllByBirthDateGreaterThanEqualOrderByBirthDateDescIdDesc(minDate);
+        if (!birthDates.isEnabled()) {
+            return impl.findAllByBirthDateGreaterThanEqualOrderByBirthDateDescIdDesc(minDate);
+        }
+        final List<Long> ids = birthDates.findBornBetween(minDate, LocalDate.MAX, () -> impl.findSummariesBornFrom(minDate))
+                .stream().map(ClientSummary::getId).collect(Collectors.toList());
+        final Map<Long, Client> byId = new HashMap<>(ids.size() * 2);
+        for (int from = 0; from < ids.size(); from += FIND_BY_IDS_CHUNK) {
+            for (final Client client : impl.findAllById(ids.subList(from, Math.min(ids.size(), from + FIND_BY_IDS_CHUNK)))) {
+                byId.put(_id(client), client);
+            }
+        }
+        // A client deleted after the lookup in the index is skipped:
+        return ids.stream().map(byId::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<ClientSummary> findSummaryPage(final Long afterId, final int limit) {
+        final PageRequest firstPage = PageRequest.of(0, limit);
+        if (afterId == null) {
+            return impl.findSummaries(firstPage);
+        }
+        return impl.findSummariesByIdLessThan(afterId, firstPage);
+    }
+
+    @Override
+    public List<ClientSummary> findAllSummaries() {
+        return impl.findAllSummaries();
+    }
+
+    @Override
+    public List<ClientSummary> findSummariesBornFrom(final LocalDate minDate) {
+        if (birthDates.isEnabled()) {
+            return birthDates.findBornBetween(minDate, LocalDate.MAX, () -> impl.findSummariesBornFrom(minDate));
+        }
+        return impl.findSummariesBornFrom(minDate);
+    }
+
+    @Override
+    public List<ClientSummary> findSummariesBornBetween(final LocalDate minDate, final LocalDate maxDate) {
+        if (birthDates.isEnabled()) {
+            return birthDates.findBornBetween(minDate, maxDate, () -> impl.findSummariesBornBetween(minDate, maxDate));
+        }
+        return impl.findSummariesBornBetween(minDate, maxDate);
+    }
+
+    @Override
+    public String checkBirthDateIndex() {
+        return birthDates.check(storedSummaries);
+    }
+
+    @Override
+    public List<ClientSummary> findByUsernamePrefix(final String prefix, final int limit) {
+        if (usernames.isEnabled()) {
+            return usernames.findByPrefix(prefix, limit, () -> _findByUsernameLike(prefix, limit));
+        }
+        return _findByUsernameLike(prefix, limit);
+    }
+
+    private List<ClientSummary> _findByUsernameLike(final String prefix, final int limit) {
+        final String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return impl.findSummariesByUsernameLike(pattern, PageRequest.of(0, limit));
+    }
+
+    @Override
+    public String checkUsernameIndex() {
+        return usernames.check(storedSummaries);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static Long _id(final Client client) {
+        return client.getId();
     }
 
 }
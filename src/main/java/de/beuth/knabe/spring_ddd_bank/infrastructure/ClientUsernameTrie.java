@@ -0,0 +1,274 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
+
+/**
+ * An in-memory index of the {@link Client}s by their username for a search by
+ * username prefix. It is a compressed trie (radix tree): each edge is labelled
+ * by the longest run of characters, which the usernames below it share, so the
+ * number of nodes is at most twice the number of usernames. The children of a
+ * node are kept in arrays sorted by the first character of their labels, which
+ * is unique among siblings. A prefix is found in O(length of the prefix), and
+ * the k following usernames by a depth-first walk in the character order of
+ * the database collation. The usernames are not stored, but rebuilt from the
+ * labels on the way from the root.
+ */
+public class ClientUsernameTrie extends ClientIndex {
+
+    private static final char[] NO_CHARS = {};
+
+    private static final class Node {
+
+        /** The characters on the edge from the parent to this node. Empty for the root. */
+        char[] label;
+        /** The first characters of the labels of the children, ascending. */
+        char[] firsts = NO_CHARS;
+        Node[] children = {};
+        int childCount;
+
+        /** True, if the username of a client ends at this node. */
+        boolean terminal;
+        long id;
+        LocalDate birthDate;
+
+        Node(final char[] label) {
+            this.label = label;
+        }
+
+        /** @return the slot of the child with the given first character, or (-(insertion point) - 1) */
+        int slot(final char first) {
+            return Arrays.binarySearch(firsts, 0, childCount, first);
+        }
+
+        void insertChild(final int slot, final Node child) {
+            if (childCount == children.length) {
+                final int capacity = childCount == 0 ? 2 : childCount * 2;
+                firsts = Arrays.copyOf(firsts, capacity);
+                children = Arrays.copyOf(children, capacity);
+            }
+            System.arraycopy(firsts, slot, firsts, slot + 1, childCount - slot);
+            System.arraycopy(children, slot, children, slot + 1, childCount - slot);
+            firsts[slot] = child.label[0];
+            children[slot] = child;
+            childCount++;
+        }
+
+        void removeChild(final int slot) {
+            System.arraycopy(firsts, slot + 1, firsts, slot, childCount - slot - 1);
+            System.arraycopy(children, slot + 1, children, slot, childCount - slot - 1);
+            childCount--;
+            children[childCount] = null;
+        }
+    }
+
+    private Node root = new Node(NO_CHARS);
+    private int size;
+
+    /**
+     * Constructs the index.
+     *
+     * @param enabled
+     *            if false, the index is not used, and the repository queries the
+     *            database.
+     * @param loader
+     *            finds the summaries of all clients in the database
+     */
+    public ClientUsernameTrie(final boolean enabled, final Supplier<List<ClientSummary>> loader) {
+        super(enabled, loader);
+    }
+
+    /**
+     * Finds the clients, whose usernames start with the given prefix.
+     *
+     * @param prefix
+     *            the start of the usernames. Empty for all.
+     * @param limit
+     *            the maximum number of clients to be found
+     * @return at most limit summaries ordered by their ascending usernames
+     */
+    public List<ClientSummary> findByPrefix(final String prefix, final int limit) {
+        return findByPrefix(prefix, limit, null);
+    }
+
+    /**
+     * Finds the clients, whose usernames start with the given prefix, like
+     * {@link #findByPrefix(String, int)}, but by the given database query, if the
+     * index is not loaded and cannot be loaded in the running transaction, see
+     * {@link InMemoryIndex#query(Supplier, Supplier)}.
+     */
+    public List<ClientSummary> findByPrefix(final String prefix, final int limit,
+            final Supplier<List<ClientSummary>> unloaded) {
+        return query(() -> {
+            final List<ClientSummary> result = new ArrayList<>(Math.min(limit, 64));
+            final StringBuilder path = new StringBuilder(32);
+            Node node = root;
+            int matched = 0;
+            while (matched < prefix.length()) {
+                final int slot = node.slot(prefix.charAt(matched));
+                if (slot < 0) {
+                    return result;
+                }
+                final Node child = node.children[slot];
+                final int common = _commonLength(child.label, prefix, matched);
+                if (common < child.label.length && matched + common < prefix.length()) {
+                    return result;
+                }
+                path.append(child.label);
+                matched += common;
+                node = child;
+            }
+            _collect(node, path, result, limit);
+            return result;
+        }, unloaded);
+    }
+
+    @Override
+    protected void load(final List<ClientSummary> clients) {
+        root = new Node(NO_CHARS);
+        size = 0;
+        for (final ClientSummary client : clients) {
+            insert(client);
+        }
+    }
+
+    @Override
+    protected void insert(final ClientSummary client) {
+        final String username = client.getUsername();
+        Node node = root;
+        int index = 0;
+        while (index < username.length()) {
+            final int slot = node.slot(username.charAt(index));
+            if (slot < 0) {
+                final Node leaf = new Node(username.substring(index).toCharArray());
+                _setClient(leaf, client);
+                node.insertChild(-slot - 1, leaf);
+                return;
+            }
+            Node child = node.children[slot];
+            final int common = _commonLength(child.label, username, index);
+            if (common < child.label.length) {
+                // Split the edge at the end of the common characters:
+                final Node middle = new Node(Arrays.copyOf(child.label, common));
+                child.label = Arrays.copyOfRange(child.label, common, child.label.length);
+                middle.insertChild(0, child);
+                node.children[slot] = middle;
+                child = middle;
+            }
+            node = child;
+            index += common;
+        }
+        _setClient(node, client);
+    }
+
+    @Override
+    protected void delete(final ClientSummary client) {
+        final String username = client.getUsername();
+        Node grandParent = null;
+        Node parent = null;
+        int parentSlot = -1;
+        int nodeSlot = -1;
+        Node node = root;
+        int index = 0;
+        while (index < username.length()) {
+            final int slot = node.slot(username.charAt(index));
+            if (slot < 0) {
+                return;
+            }
+            final Node child = node.children[slot];
+            if (_commonLength(child.label, username, index) < child.label.length) {
+                return;
+            }
+            grandParent = parent;
+            parentSlot = nodeSlot;
+            parent = node;
+            nodeSlot = slot;
+            node = child;
+            index += child.label.length;
+        }
+        // Another client with the same username may have replaced the deleted one:
+        if (!node.terminal || node.id != client.getId()) {
+            return;
+        }
+        node.terminal = false;
+        node.birthDate = null;
+        size--;
+        if (parent == null) {
+            return;
+        }
+        if (node.childCount == 0) {
+            parent.removeChild(nodeSlot);
+            if (grandParent != null && !parent.terminal && parent.childCount == 1) {
+                _mergeWithOnlyChild(grandParent, parentSlot);
+            }
+        } else if (node.childCount == 1) {
+            _mergeWithOnlyChild(parent, nodeSlot);
+        }
+    }
+
+    @Override
+    protected List<ClientSummary> entries() {
+        final List<ClientSummary> result = new ArrayList<>(size);
+        _collect(root, new StringBuilder(32), result, Integer.MAX_VALUE);
+        return result;
+    }
+
+    @Override
+    protected int count() {
+        return size;
+    }
+
+    private void _setClient(final Node node, final ClientSummary client) {
+        if (!node.terminal) {
+            size++;
+        }
+        node.terminal = true;
+        node.id = client.getId();
+        node.birthDate = client.getBirthDate();
+    }
+
+    /** Replaces the child at the given slot of the owner by its only child, which takes over its label. */
+    private static void _mergeWithOnlyChild(final Node owner, final int slot) {
+        final Node node = owner.children[slot];
+        final Node only = node.children[0];
+        final char[] label = Arrays.copyOf(node.label, node.label.length + only.label.length);
+        System.arraycopy(only.label, 0, label, node.label.length, only.label.length);
+        only.label = label;
+        owner.children[slot] = only;
+    }
+
+    /** Adds the clients at the given node and below it in the order of their usernames, until limit is reached. */
+    private static void _collect(final Node node, final StringBuilder path, final List<ClientSummary> result,
+            final int limit) {
+        if (result.size() >= limit) {
+            return;
+        }
+        if (node.terminal) {
+            result.add(new ClientSummary(node.id, path.toString(), node.birthDate));
+        }
+        final int length = path.length();
+        for (int i = 0; i < node.childCount && result.size() < limit; i++) {
+            final Node child = node.children[i];
+            path.append(child.label);
+            _collect(child, path, result, limit);
+            path.setLength(length);
+        }
+    }
+
+    /** @return the number of leading characters of the label, which are equal to those of the text from start */
+    private static int _commonLength(final char[] label, final String text, final int start) {
+        final int max = Math.min(label.length, text.length() - start);
+        int result = 0;
+        while (result < max && label[result] == text.charAt(start + result)) {
+            result++;
+        }
+        return result;
+    }
+
+}
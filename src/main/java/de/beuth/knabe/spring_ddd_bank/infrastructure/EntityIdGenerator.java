@@ -0,0 +1,246 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+
+import org.hibernate.MappingException;
+import org.hibernate.boot.model.relational.Database;
+import org.hibernate.boot.model.relational.ExportableProducer;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.jdbc.connections.spi.JdbcConnectionAccess;
+import org.hibernate.engine.jdbc.spi.JdbcCoordinator;
+import org.hibernate.engine.jdbc.spi.JdbcServices;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGenerationException;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+/**
+ * The Hibernate generator of the identities of the entities derived from
+ * {@link de.beuth.knabe.spring_ddd_bank.domain.base.EntityBase}, registered
+ * under the name {@value #NAME} in the package-info of this package. Each
+ * entity table gets its own generator, so that inserts of different entities
+ * do not contend for one sequence. It is configured by Hibernate settings, i.e.
+ * by properties <code>spring.jpa.properties.bank.id.*</code>:
+ * <dl>
+ * <dt>{@value #MODE_SETTING}={@value #SEQUENCE_MODE}</dt>
+ * <dd>Takes the identities from a database sequence named after the table with
+ * the suffix <code>_seq</code>. A pooled-lo optimizer reserves
+ * {@value #ALLOCATION_SIZE_SETTING} identities by one round trip to the
+ * sequence and hands them out in memory. This is the default. A missing
+ * sequence is created starting above the highest identity in its table, so
+ * that a database, whose identities came from the former shared
+ * <code>hibernate_sequence</code>, is upgraded without collisions. The
+ * allocation size is fixed by the increment of an existing sequence, so
+ * starting with another size fails.</dd>
+ * <dt>{@value #MODE_SETTING}={@value #NODE_MODE}</dt>
+ * <dd>Each application node inserting into the same database is configured
+ * with its own number {@value #NODE_SETTING}, and owns the range of
+ * {@value #NODE_RANGE_SIZE_SETTING} identities beginning at the product of
+ * both. On the first insert into a table the node reads the highest identity
+ * of its range, and afterwards counts up in memory without any coordination
+ * with other nodes.</dd>
+ * </dl>
+ * In both modes the identities are positive and ascending per node, so an
+ * {@link de.beuth.knabe.spring_ddd_bank.domain.AccountNo} can still be equal
+ * to the identity of its account. All nodes of one database must use the same
+ * mode.
+ */
+public class EntityIdGenerator implements IdentifierGenerator, Configurable, ExportableProducer {
+
+    /** The name of this generator as referenced by a {@link javax.persistence.GeneratedValue}. */
+    public static final String NAME = "entity_id";
+
+    public static final String MODE_SETTING = "bank.id.generator";
+    public static final String SEQUENCE_MODE = "sequence";
+    public static final String NODE_MODE = "node";
+    public static final String ALLOCATION_SIZE_SETTING = "bank.id.allocationSize";
+    public static final String NODE_SETTING = "bank.id.node";
+    public static final String NODE_RANGE_SIZE_SETTING = "bank.id.nodeRangeSize";
+
+    private static final int DEFAULT_ALLOCATION_SIZE = 1000;
+    private static final long DEFAULT_NODE_RANGE_SIZE = 1_000_000_000_000L;
+
+    /** The generator in sequence mode, null in node mode. */
+    private SequenceStyleGenerator sequence;
+
+    private String table;
+    private String column;
+    /** The lowest identity of the range of this node. */
+    private long rangeStart;
+    /** The identity after the range of this node. */
+    private long rangeEnd;
+    /** The next identity to be handed out in node mode, 0 before the first insert. */
+    private long next;
+
+    @Override
+    public void configure(final Type type, final Properties params, final ServiceRegistry serviceRegistry)
+            throws MappingException {
+        final Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+        table = params.getProperty(PersistentIdentifierGenerator.TABLE);
+        column = params.getProperty(PersistentIdentifierGenerator.PK);
+        final String mode = ConfigurationHelper.getString(MODE_SETTING, settings, SEQUENCE_MODE);
+        if (SEQUENCE_MODE.equals(mode)) {
+            final int allocationSize = ConfigurationHelper.getInt(ALLOCATION_SIZE_SETTING, settings,
+                    DEFAULT_ALLOCATION_SIZE);
+            if (allocationSize < 1) {
+                throw new MappingException(ALLOCATION_SIZE_SETTING + " must be positive, but is " + allocationSize);
+            }
+            final String sequenceName = table + "_seq";
+            final long increment = _sequenceIncrement(serviceRegistry, sequenceName);
+            final Properties sequenceParams = new Properties();
+            sequenceParams.putAll(params);
+            if (increment == 0) {
+                // The sequence will be created. It must start above the identities of an existing table:
+                final long highest = _highestId(serviceRegistry);
+                if (highest >= Integer.MAX_VALUE) {
+                    throw new MappingException("The sequence " + sequenceName + " cannot start above the highest identity "
+                            + highest + " of table " + table);
+                }
+                sequenceParams.setProperty(SequenceStyleGenerator.INITIAL_PARAM, Long.toString(highest + 1));
+            } else if (increment != allocationSize) {
+                // Hibernate does not alter an existing sequence, and pooled-lo would hand out identities twice:
+                throw new MappingException(ALLOCATION_SIZE_SETTING + " is " + allocationSize + ", but the sequence "
+                        + sequenceName + " increments by " + increment);
+            }
+            sequenceParams.setProperty(SequenceStyleGenerator.SEQUENCE_PARAM, sequenceName);
+            sequenceParams.setProperty(SequenceStyleGenerator.INCREMENT_PARAM, Integer.toString(allocationSize));
+            sequenceParams.setProperty(SequenceStyleGenerator.OPT_PARAM, "pooled-lo");
+            sequence = new SequenceStyleGenerator();
+            sequence.configure(type, sequenceParams, serviceRegistry);
+        } else if (NODE_MODE.equals(mode)) {
+            final long node = _getLong(NODE_SETTING, settings, 0);
+            final long rangeSize = _getLong(NODE_RANGE_SIZE_SETTING, settings, DEFAULT_NODE_RANGE_SIZE);
+            if (node < 0 || rangeSize < 2 || node >= Long.MAX_VALUE / rangeSize) {
+                throw new MappingException(
+                        "Illegal identity range " + rangeSize + " of node " + node + " for table " + table);
+            }
+            rangeStart = Math.max(1, node * rangeSize);
+            rangeEnd = (node + 1) * rangeSize;
+        } else {
+            throw new MappingException(MODE_SETTING + " must be " + SEQUENCE_MODE + " or " + NODE_MODE
+                    + ", but is " + mode);
+        }
+    }
+
+    @Override
+    public void registerExportables(final Database database) {
+        if (sequence != null) {
+            sequence.registerExportables(database);
+        }
+    }
+
+    @Override
+    public Serializable generate(final SharedSessionContractImplementor session, final Object object) {
+        if (sequence != null) {
+            return sequence.generate(session, object);
+        }
+        return _nextInRange(session);
+    }
+
+    private synchronized Long _nextInRange(final SharedSessionContractImplementor session) {
+        if (next == 0) {
+            next = _highestInRange(session) + 1;
+        }
+        if (next >= rangeEnd) {
+            throw new IdentifierGenerationException(
+                    "The identity range " + rangeStart + " to " + (rangeEnd - 1) + " of table " + table + " is exhausted");
+        }
+        return next++;
+    }
+
+    /** @return the highest identity of the range of this node in the table, or rangeStart - 1, if there is none */
+    private long _highestInRange(final SharedSessionContractImplementor session) {
+        final String sql = "select max(" + column + ") from " + table + " where " + column + " >= ? and " + column
+                + " < ?";
+        final JdbcCoordinator jdbc = session.getJdbcCoordinator();
+        try {
+            final PreparedStatement statement = jdbc.getStatementPreparer().prepareStatement(sql);
+            try {
+                statement.setLong(1, rangeStart);
+                statement.setLong(2, rangeEnd);
+                final ResultSet resultSet = jdbc.getResultSetReturn().extract(statement);
+                try {
+                    resultSet.next();
+                    final long highest = resultSet.getLong(1);
+                    return resultSet.wasNull() ? rangeStart - 1 : highest;
+                } finally {
+                    jdbc.getLogicalConnection().getResourceRegistry().release(resultSet, statement);
+                }
+            } finally {
+                jdbc.getLogicalConnection().getResourceRegistry().release(statement);
+                jdbc.afterStatementExecution();
+            }
+        } catch (final SQLException ex) {
+            throw session.getJdbcServices().getSqlExceptionHelper().convert(ex,
+                    "Cannot read the highest identity of table " + table, sql);
+        }
+    }
+
+    /** @return the increment of the given sequence in the database, 0 if it does not exist yet */
+    private long _sequenceIncrement(final ServiceRegistry serviceRegistry, final String sequenceName) {
+        // Derby keeps unquoted identifiers in upper case:
+        return _queryAtStartup(serviceRegistry, "select s.\"INCREMENT\" from sys.syssequences s"
+                + " join sys.sysschemas c on s.schemaid = c.schemaid"
+                + " where s.sequencename = ? and c.schemaname = current schema", sequenceName.toUpperCase(Locale.ROOT));
+    }
+
+    /** @return the highest identity in the table, 0 if it is empty or does not exist yet */
+    private long _highestId(final ServiceRegistry serviceRegistry) {
+        return _queryAtStartup(serviceRegistry, "select max(" + column + ") from " + table, null);
+    }
+
+    /**
+     * Runs the given query for one number by a connection of its own, as the
+     * generators are configured before any session exists.
+     *
+     * @return the number, or 0 if there is no row, the value is null, or the
+     *         queried table does not exist yet
+     */
+    private static long _queryAtStartup(final ServiceRegistry serviceRegistry, final String sql, final String parameter) {
+        final JdbcConnectionAccess access = serviceRegistry.getService(JdbcServices.class)
+                .getBootstrapJdbcConnectionAccess();
+        try {
+            final Connection connection = access.obtainConnection();
+            try (PreparedStatement statement = connection.prepareStatement(sql)) {
+                if (parameter != null) {
+                    statement.setString(1, parameter);
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    return resultSet.next() ? resultSet.getLong(1) : 0;
+                }
+            } catch (final SQLException ex) {
+                // The schema is created after the generators are configured:
+                return 0;
+            } finally {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                }
+                access.releaseConnection(connection);
+            }
+        } catch (final SQLException ex) {
+            throw new MappingException("Cannot inspect the database for " + sql, ex);
+        }
+    }
+
+    private static long _getLong(final String name, final Map<?, ?> settings, final long defaultValue) {
+        final String value = ConfigurationHelper.getString(name, settings, null);
+        try {
+            return value == null ? defaultValue : Long.parseLong(value.trim());
+        } catch (final NumberFormatException ex) {
+            throw new MappingException(name + " must be a number, but is " + value, ex);
+        }
+    }
+
+}
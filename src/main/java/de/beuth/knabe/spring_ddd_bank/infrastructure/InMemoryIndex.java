@@ -0,0 +1,267 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Base of an in-memory index of entities, which answers queries without the
+ * database. The subclass defines the data structure and how to load it, this
+ * class keeps it in sync with the database.
+ * <p>
+ * The index is loaded from the database on the first query. Each change is
+ * applied to it after the commit of the current transaction, if any, so a rolled
+ * back change never reaches it. The content is fetched from the database without
+ * holding the lock of the index, so that queries need not wait behind the
+ * database, and is then installed under the write lock. A change committed while
+ * fetching is kept and applied to the installed content afterwards. Applying a
+ * change must be idempotent, so that applying a change already seen by the
+ * fetch does no harm.
+ *
+ * @param <C>
+ *            the type of the content fetched from the database
+ */
+public abstract class InMemoryIndex<C> {
+
+    private final boolean enabled;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Signaled, when a fetch has ended. */
+    private final Condition fetchEnded = lock.writeLock().newCondition();
+
+    // The following fields are guarded by the lock:
+    private boolean loaded;
+    /** Counts the unloads, so that a content fetched before an unload is not installed. */
+    private long unloads;
+    /** The changes committed while a fetch is running. Null, if none is running. */
+    private List<Runnable> pendingChanges;
+    private boolean fetching;
+
+    /**
+     * Constructs the index.
+     *
+     * @param enabled
+     *            if false, the index is not used, and the repository queries the
+     *            database.
+     */
+    protected InMemoryIndex(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /** @return true, if the queries shall be answered by this index */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Discards the index now and again after the completion of the current
+     * transaction, if any, so that it is loaded again by the next query. Used
+     * when the entities are changed in bulk.
+     */
+    public void clear() {
+        if (!enabled) {
+            return;
+        }
+        _unload();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(final int status) {
+                    _unload();
+                }
+            });
+        }
+    }
+
+    /**
+     * Runs the given query on the loaded index under the read lock. Loads the
+     * index before, if necessary.
+     */
+    protected <T> T query(final Supplier<T> query) {
+        return query(query, null);
+    }
+
+    /**
+     * Runs the given query on the loaded index under the read lock. Loads the
+     * index before, if necessary, unless a read-write transaction is running. The
+     * database does not let the separate transaction of the loader read rows,
+     * which the running transaction has changed, before it ends. So then the
+     * query is answered by the database.
+     *
+     * @param unloaded
+     *            answers the query by the database in the running transaction.
+     *            If null, the index is loaded in any case.
+     */
+    protected <T> T query(final Supplier<T> query, final Supplier<T> unloaded) {
+        lock.readLock().lock();
+        while (!loaded) {
+            lock.readLock().unlock();
+            if (unloaded != null && _inReadWriteTransaction()) {
+                return unloaded.get();
+            }
+            _load();
+            lock.readLock().lock();
+        }
+        try {
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs the given query under the read lock, if the index is loaded, without
+     * loading it.
+     *
+     * @return the result of the query, or the given value, if the index is not
+     *         loaded
+     */
+    protected <T> T queryIfLoaded(final Supplier<T> query, final T notLoaded) {
+        lock.readLock().lock();
+        try {
+            return loaded ? query.get() : notLoaded;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs the given inspection on the loaded index under the write lock, so that
+     * no change is applied meanwhile. Loads the index before, if necessary.
+     */
+    protected <T> T inspect(final Supplier<T> inspection) {
+        lock.writeLock().lock();
+        while (!loaded) {
+            lock.writeLock().unlock();
+            _load();
+            lock.writeLock().lock();
+        }
+        try {
+            return inspection.get();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marks the index as outdated, so that it is loaded again by the next query.
+     * Called by an inspection under the write lock.
+     */
+    protected void invalidate() {
+        loaded = false;
+        unloads++;
+    }
+
+    /**
+     * Applies the given change to the index after the commit of the current
+     * transaction, or at once, if there is none. The change is not applied to an
+     * unloaded index, which will see it when loading.
+     */
+    protected void afterCommit(final Runnable change) {
+        if (!enabled) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    _apply(change);
+                }
+            });
+        } else {
+            _apply(change);
+        }
+    }
+
+    /**
+     * Fetches the content of the index from the database. Called without any lock
+     * of the index, possibly by several threads at the same time.
+     */
+    protected abstract C fetchAll();
+
+    /** Replaces the content of the index by the fetched one. Called under the write lock. */
+    protected abstract void install(C content);
+
+    /** Removes the whole content of the index. Called under the write lock. */
+    protected abstract void removeAll();
+
+    private static boolean _inReadWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private void _apply(final Runnable change) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                change.run();
+            } else if (pendingChanges != null) {
+                pendingChanges.add(change);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Fetches the content outside of the lock and installs it along with the
+     * changes committed meanwhile, unless the index has been unloaded meanwhile.
+     * If another thread is already fetching, waits for it instead. Either way the
+     * caller has to check afterwards, whether the index is loaded.
+     */
+    private void _load() {
+        final long unloadsBefore;
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return;
+            }
+            if (fetching) {
+                fetchEnded.awaitUninterruptibly();
+                return;
+            }
+            fetching = true;
+            pendingChanges = new ArrayList<>();
+            unloadsBefore = unloads;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        C content = null;
+        try {
+            content = fetchAll();
+        } finally {
+            lock.writeLock().lock();
+            try {
+                if (content != null && unloads == unloadsBefore) {
+                    install(content);
+                    pendingChanges.forEach(Runnable::run);
+                    loaded = true;
+                }
+                pendingChanges = null;
+                fetching = false;
+                fetchEnded.signalAll();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void _unload() {
+        lock.writeLock().lock();
+        try {
+            loaded = false;
+            unloads++;
+            if (pendingChanges != null) {
+                pendingChanges.clear();
+            }
+            removeAll();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+}
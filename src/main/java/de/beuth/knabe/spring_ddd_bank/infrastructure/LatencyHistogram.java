@@ -0,0 +1,91 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of durations in nanoseconds with a fixed relative precision in
+ * the manner of HdrHistogram. Each power of two is divided into
+ * {@value #SUB_BUCKETS} buckets of equal width, so a quantile is reported at
+ * most about 3 percent too high, whether it is a microsecond or a minute. The
+ * memory needed is fixed, and recording is lock-free, so it can be done by
+ * many threads at once.
+ */
+class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder sumNanos = new LongAdder();
+
+    /**
+     * Records one duration.
+     * 
+     * @param nanos
+     *            the duration in nanoseconds. A negative one is recorded as 0.
+     */
+    void record(final long nanos) {
+        final long value = Math.max(0, nanos);
+        counts.incrementAndGet(_bucketIndex(value));
+        sumNanos.add(value);
+    }
+
+    /** @return the sum of all recorded durations in nanoseconds */
+    long sumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * Returns the number of recorded durations and the durations at the given
+     * quantiles from one snapshot of the histogram.
+     * 
+     * @param quantiles
+     *            ascending quantiles between 0 and 1, e.g. 0.99
+     * @return an array with the number of recorded durations at index 0, followed
+     *         by the duration in nanoseconds at each quantile. The durations are
+     *         0, if nothing was recorded.
+     */
+    long[] snapshot(final double... quantiles) {
+        final long[] snapshot = new long[BUCKET_COUNT];
+        long total = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        final long[] result = new long[quantiles.length + 1];
+        result[0] = total;
+        if (total == 0) {
+            return result;
+        }
+        long seen = 0;
+        int bucket = -1;
+        for (int q = 0; q < quantiles.length; q++) {
+            final long rank = Math.max(1, (long) Math.ceil(quantiles[q] * total));
+            while (seen < rank) {
+                seen += snapshot[++bucket];
+            }
+            result[q + 1] = _highestValueIn(bucket);
+        }
+        return result;
+    }
+
+    private static int _bucketIndex(final long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long _highestValueIn(final int bucketIndex) {
+        if (bucketIndex < SUB_BUCKETS) {
+            return bucketIndex;
+        }
+        final int shift = bucketIndex / SUB_BUCKETS - 1;
+        final long lowest = (long) (bucketIndex % SUB_BUCKETS + SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+}
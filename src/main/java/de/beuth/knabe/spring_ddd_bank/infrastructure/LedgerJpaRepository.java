@@ -0,0 +1,47 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.LedgerEntry;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.LedgerRepository;
+import de.beuth.knabe.spring_ddd_bank.infrastructure.imports.ImportedLedgerJpaRepository;
+
+/**A Repository for the {@link LedgerEntry} objects implemented with Spring Data JPA.
+ * The entries are inserted in JDBC batches, as configured by <code>hibernate.jdbc.batch_size</code>.
+ */
+@Service
+@Profile("!journal")
+public class LedgerJpaRepository implements LedgerRepository {
+
+    private final ImportedLedgerJpaRepository impl;
+
+    @Autowired
+    public LedgerJpaRepository(final ImportedLedgerJpaRepository impl) {
+        this.impl = impl;
+    }
+
+    public void deleteAll(){impl.deleteAll();}
+
+    @Override
+    public void append(final LedgerEntry... entries) {
+        impl.saveAll(Arrays.asList(entries));
+    }
+
+    @Override
+    public List<LedgerEntry> findAllOf(final AccountNo accountNo) {
+        return impl.findAllByAccountNoOrderByBookedAtAscIdAsc(accountNo.toLong());
+    }
+
+    @Override
+    public Amount balanceOf(final AccountNo accountNo) {
+        return Amount.ofCents(impl.sumCentsByAccountNo(accountNo.toLong()));
+    }
+
+}
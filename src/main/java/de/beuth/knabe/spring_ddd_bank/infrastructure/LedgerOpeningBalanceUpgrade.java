@@ -0,0 +1,87 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.LedgerEntry;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.LedgerRepository;
+
+/**
+ * Books the opening balances of the accounts in a database, whose accounts
+ * existed before the ledger. Their balances before are not booked in the
+ * ledger, so the sum of their ledger entries differs from their balances. At
+ * startup this appends an {@link LedgerEntry#openingBalance opening balance}
+ * entry with the difference for each such account. Afterwards the sum of the
+ * ledger entries of each account equals its balance, which
+ * {@link #findUnbookedBalances()} checks. In an upgraded database it finds no
+ * difference and books nothing. Accounts changed by a node of the former
+ * release during a rolling upgrade are booked at the next startup.
+ */
+@Component
+@Profile("!journal")
+public class LedgerOpeningBalanceUpgrade {
+
+    private static final Logger log = LoggerFactory.getLogger(LedgerOpeningBalanceUpgrade.class);
+
+    private static final String UNBOOKED_BALANCES_SQL = "select id, cents - booked from ("
+            + " select a.id as id, a.cents as cents, coalesce(sum(e.cents), 0) as booked"
+            + " from account a left outer join ledger_entry e on e.account_no = a.id"
+            + " group by a.id, a.cents) balances"
+            + " where cents <> booked order by id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Books the opening balances.
+     *
+     * @param jdbcTemplate
+     *            for the primary database
+     * @param ledgerRepository
+     *            for appending the opening balance entries
+     * @param transactionManager
+     *            for the transaction, in which the opening balances are found
+     *            and booked
+     */
+    @Autowired
+    public LedgerOpeningBalanceUpgrade(final JdbcTemplate jdbcTemplate, final LedgerRepository ledgerRepository,
+            final PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        final int booked = new TransactionTemplate(transactionManager).execute(status -> {
+            final Map<AccountNo, Amount> unbooked = findUnbookedBalances();
+            for (final Map.Entry<AccountNo, Amount> balance : unbooked.entrySet()) {
+                ledgerRepository.append(LedgerEntry.openingBalance(balance.getKey(), balance.getValue()));
+            }
+            return unbooked.size();
+        });
+        if (booked > 0) {
+            log.info("Booked the opening balance of {} accounts", booked);
+        }
+    }
+
+    /**
+     * Finds the accounts, whose balances differ from the sums of their ledger
+     * entries. After this upgrade there should be none.
+     *
+     * @return the difference of the balance minus the ledger sum by the account
+     *         number, in ascending order of the account numbers
+     */
+    public Map<AccountNo, Amount> findUnbookedBalances() {
+        final Map<AccountNo, Amount> result = new LinkedHashMap<>();
+        jdbcTemplate.query(UNBOOKED_BALANCES_SQL, resultSet -> {
+            result.put(new AccountNo(resultSet.getLong(1)), Amount.ofCents(resultSet.getLong(2)));
+        });
+        return result;
+    }
+
+}
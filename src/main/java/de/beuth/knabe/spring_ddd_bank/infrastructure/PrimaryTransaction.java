@@ -0,0 +1,43 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import java.util.function.Supplier;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Runs reads, which must see the committed state of the primary database, in a
+ * new read-only transaction on it. The current transaction, if any, is
+ * suspended, so that the work neither sees its uncommitted changes nor keeps
+ * them after a rollback. Although read-only, the transaction is not routed to a
+ * lagging read replica by the {@link ReadRoutingDataSource}. Used for loading
+ * an {@link InMemoryIndex}, which would otherwise keep missing the changes,
+ * which the replica had not yet received.
+ */
+public class PrimaryTransaction {
+
+    private final TransactionTemplate separate;
+
+    /**
+     * Constructs the runner.
+     *
+     * @param transactionManager
+     *            the manager of the transactions on the primary data source
+     */
+    public PrimaryTransaction(final PlatformTransactionManager transactionManager) {
+        this.separate = new TransactionTemplate(transactionManager);
+        separate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        separate.setReadOnly(true);
+    }
+
+    /**
+     * Runs the given work in a new read-only transaction on the primary database.
+     *
+     * @return the result of the work
+     */
+    public <T> T execute(final Supplier<T> work) {
+        return ReadRoutingDataSource.onPrimary(() -> separate.execute(status -> work.get()));
+    }
+
+}
@@ -0,0 +1,103 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import de.beuth.knabe.spring_ddd_bank.domain.imports.OperationMetrics;
+
+/**
+ * {@link OperationMetrics} kept in memory and reported in the text format of
+ * Prometheus. For each operation there is a {@link LatencyHistogram} of the
+ * durations, exported as summary <code>bank_operation_duration_seconds</code>
+ * with quantiles. Its <code>_count</code> counts all executions, so its rate is
+ * the throughput. The failures are exported as counter
+ * <code>bank_operation_failures_total</code> by the simple name of the
+ * exception class. The values are never reset.
+ */
+@Service
+public class PrometheusOperationMetrics implements OperationMetrics {
+
+    private static final double[] QUANTILES = { 0.5, 0.99, 0.999 };
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    private final boolean enabled;
+    private final ConcurrentMap<String, OperationStats> stats = new ConcurrentHashMap<>();
+
+    private static class OperationStats {
+        final LatencyHistogram durations = new LatencyHistogram();
+        final ConcurrentMap<String, LongAdder> failures = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Constructs the metrics.
+     * 
+     * @param enabled
+     *            if false, the operations are executed without measuring them.
+     */
+    @Autowired
+    public PrometheusOperationMetrics(@Value("${bank.metrics.enabled:true}") final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public <T> T measure(final String operation, final Supplier<T> action) {
+        if (!enabled) {
+            return action.get();
+        }
+        final OperationStats operationStats = stats.computeIfAbsent(operation, key -> new OperationStats());
+        final long start = System.nanoTime();
+        try {
+            return action.get();
+        } catch (final RuntimeException | Error ex) {
+            final String exception = ex.getClass().getSimpleName().isEmpty() ? ex.getClass().getName()
+                    : ex.getClass().getSimpleName();
+            operationStats.failures.computeIfAbsent(exception, key -> new LongAdder()).increment();
+            throw ex;
+        } finally {
+            operationStats.durations.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String report() {
+        final Map<String, OperationStats> sorted = new TreeMap<>(stats);
+        final StringBuilder result = new StringBuilder();
+        result.append("# HELP bank_operation_duration_seconds Duration of the domain operations.\n");
+        result.append("# TYPE bank_operation_duration_seconds summary\n");
+        for (final Map.Entry<String, OperationStats> entry : sorted.entrySet()) {
+            final String operation = entry.getKey();
+            final LatencyHistogram durations = entry.getValue().durations;
+            final long sumNanos = durations.sumNanos();
+            final long[] snapshot = durations.snapshot(QUANTILES);
+            for (int q = 0; q < QUANTILES.length; q++) {
+                result.append(String.format(Locale.ROOT,
+                        "bank_operation_duration_seconds{operation=\"%s\",quantile=\"%s\"} %s\n", operation,
+                        QUANTILES[q], snapshot[q + 1] / NANOS_PER_SECOND));
+            }
+            result.append(String.format(Locale.ROOT, "bank_operation_duration_seconds_sum{operation=\"%s\"} %s\n",
+                    operation, sumNanos / NANOS_PER_SECOND));
+            result.append(String.format(Locale.ROOT, "bank_operation_duration_seconds_count{operation=\"%s\"} %d\n",
+                    operation, snapshot[0]));
+        }
+        result.append("# HELP bank_operation_failures_total Failed executions of the domain operations by exception.\n");
+        result.append("# TYPE bank_operation_failures_total counter\n");
+        for (final Map.Entry<String, OperationStats> entry : sorted.entrySet()) {
+            for (final Map.Entry<String, LongAdder> failure : new TreeMap<>(entry.getValue().failures).entrySet()) {
+                result.append(String.format(Locale.ROOT,
+                        "bank_operation_failures_total{operation=\"%s\",exception=\"%s\"} %d\n", entry.getKey(),
+                        failure.getKey(), failure.getValue().sum()));
+            }
+        }
+        return result.toString();
+    }
+
+}
@@ -0,0 +1,62 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * Replaces the data source configured by <code>spring.datasource.*</code> by a
+ * {@link ReadRoutingDataSource}, if <code>bank.readDataSource.url</code> is
+ * given. Then read-only transactions use a second connection pool for this URL.
+ * It may be the same database as the primary one, in order to separate the
+ * connections for queries from those for updates, or a read replica of it. The
+ * schema is only updated in the primary database. Under the profile
+ * <code>journal</code> there is no database, so no data source.
+ */
+@Configuration
+@Profile("!journal")
+@ConditionalOnExpression("!'${bank.readDataSource.url:}'.isEmpty()")
+public class ReadRoutingConfig {
+
+    /**
+     * Creates the data source for the application.
+     *
+     * @param primaryProperties
+     *            the configuration of the primary data source by
+     *            <code>spring.datasource.*</code>
+     * @param url
+     *            the JDBC URL of the read data source
+     * @param username
+     *            the user for the read data source. If empty, the user of the
+     *            primary data source, which in Derby also determines the schema.
+     * @param password
+     *            the password for the read data source. Ignored, if the username
+     *            is empty.
+     * @return a {@link ReadRoutingDataSource} fetching the real connection on the
+     *         first statement
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(final DataSourceProperties primaryProperties,
+            @Value("${bank.readDataSource.url}") final String url,
+            @Value("${bank.readDataSource.username:}") final String username,
+            @Value("${bank.readDataSource.password:}") final String password) {
+        final DataSource primary = primaryProperties.initializeDataSourceBuilder().build();
+        final DataSourceBuilder<?> readBuilder = DataSourceBuilder.create().url(url);
+        if (username.isEmpty()) {
+            readBuilder.username(primaryProperties.determineUsername())
+                    .password(primaryProperties.determinePassword());
+        } else {
+            readBuilder.username(username).password(password);
+        }
+        return ReadRoutingDataSource.lazy(primary, readBuilder.build());
+    }
+
+}
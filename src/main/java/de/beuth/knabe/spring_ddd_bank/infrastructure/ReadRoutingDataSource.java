@@ -0,0 +1,91 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends the work of read-only transactions to a read data source, e.g. a
+ * separate connection pool or a read replica, and all other work to the primary
+ * data source. A transaction is read-only, if it is declared by
+ * <code>@Transactional(readOnly = true)</code>, and not started inside of
+ * {@link #onPrimary(Supplier)}.
+ * <p>
+ * The transaction manager fetches a connection when the transaction begins, but
+ * marks the transaction as read-only only afterwards. So use this data source
+ * only wrapped by {@link #lazy(DataSource, DataSource)}, which postpones
+ * fetching the real connection to the first statement.
+ * </p>
+ */
+public class ReadRoutingDataSource extends AbstractRoutingDataSource {
+
+    private static final String PRIMARY = "primary";
+    private static final String READ = "read";
+
+    /** Set while the current thread runs work, which must read from the primary data source. */
+    private static final ThreadLocal<Boolean> primaryRequired = new ThreadLocal<>();
+
+    /**
+     * Constructs the data source.
+     *
+     * @param primary
+     *            for all work, which is not done in read-only transactions
+     * @param read
+     *            for the work of read-only transactions
+     */
+    public ReadRoutingDataSource(final DataSource primary, final DataSource read) {
+        final Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        targets.put(READ, read);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return TransactionSynchronizationManager.isCurrentTransactionReadOnly() && primaryRequired.get() == null
+                ? READ : PRIMARY;
+    }
+
+    /**
+     * Runs the given work, whose read-only transactions shall use the primary
+     * data source, as they must not miss changes, which a read replica has not
+     * yet received.
+     *
+     * @return the result of the work
+     */
+    static <T> T onPrimary(final Supplier<T> work) {
+        if (primaryRequired.get() != null) {
+            return work.get();
+        }
+        primaryRequired.set(Boolean.TRUE);
+        try {
+            return work.get();
+        } finally {
+            primaryRequired.remove();
+        }
+    }
+
+    /**
+     * Returns a data source routing like a {@link ReadRoutingDataSource}, which
+     * fetches a real connection only for the first statement.
+     *
+     * @param primary
+     *            for all work, which is not done in read-only transactions
+     * @param read
+     *            for the work of read-only transactions
+     * @return the routing data source wrapped by a
+     *         {@link LazyConnectionDataSourceProxy}
+     */
+    public static DataSource lazy(final DataSource primary, final DataSource read) {
+        return new LazyConnectionDataSourceProxy(new ReadRoutingDataSource(primary, read));
+    }
+
+}
@@ -0,0 +1,290 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountLockManager;
+
+/**
+ * An {@link AccountLockManager} with a fixed number of lock stripes. An account
+ * is mapped to a stripe by the hash of its account number, so different
+ * accounts can share a stripe, but the memory needed does not grow with the
+ * number of accounts. Stripes are acquired in ascending order of their
+ * numbers. Locks acquired within a Spring-managed transaction are released
+ * after its completion.
+ * <p>
+ * So a transaction doing several deposits or transfers can already hold a
+ * stripe with a higher number than the one it needs next. Such an acquisition
+ * against the global order could close a cycle of threads waiting for each
+ * other, which the database cannot see. So it waits at most for a timeout, and
+ * then fails by a {@link CannotAcquireLockException}, upon which the
+ * transaction is rolled back, releases its stripes, and can be retried. As each
+ * cycle of waiting threads contains such an acquisition, there is no deadlock.
+ * Acquisitions in ascending order and of stripes already held by the thread wait
+ * without a timeout.
+ */
+@Service
+public class StripedAccountLockManager implements AccountLockManager {
+
+    private final boolean enabled;
+    private final ReentrantLock[] stripes;
+    private final long outOfOrderTimeoutNanos;
+
+    /** The numbers of the stripes held by the current thread, once for each acquisition. */
+    private final ThreadLocal<HeldStripes> heldStripes = ThreadLocal.withInitial(HeldStripes::new);
+    private final AtomicLongArray acquisitions;
+    private final AtomicLongArray contentions;
+    private final AtomicLongArray waitNanos;
+
+    /**
+     * Constructs the lock manager.
+     * 
+     * @param enabled
+     *            if false, actions are run without locking.
+     * @param stripeCount
+     *            number of lock stripes. It is rounded up to a power of two.
+     * @param fair
+     *            if true, waiting threads get a stripe in the order of their
+     *            arrival, otherwise throughput is favored.
+     * @param outOfOrderTimeoutMillis
+     *            how long a thread waits at most for a stripe with a lower
+     *            number than a stripe it already holds
+     */
+    @Autowired
+    public StripedAccountLockManager(@Value("${bank.accountLocks.enabled:true}") final boolean enabled,
+            @Value("${bank.accountLocks.stripes:256}") final int stripeCount,
+            @Value("${bank.accountLocks.fair:false}") final boolean fair,
+            @Value("${bank.accountLocks.outOfOrderTimeoutMillis:100}") final long outOfOrderTimeoutMillis) {
+        if (stripeCount < 1 || stripeCount > 1 << 30) {
+            throw new IllegalArgumentException("stripeCount must be between 1 and 2^30, but is " + stripeCount);
+        }
+        if (outOfOrderTimeoutMillis < 0) {
+            throw new IllegalArgumentException(
+                    "outOfOrderTimeoutMillis must not be negative, but is " + outOfOrderTimeoutMillis);
+        }
+        this.enabled = enabled;
+        this.outOfOrderTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(outOfOrderTimeoutMillis);
+        final int size = stripeCount == 1 ? 1 : Integer.highestOneBit(stripeCount - 1) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock(fair);
+        }
+        acquisitions = new AtomicLongArray(size);
+        contentions = new AtomicLongArray(size);
+        waitNanos = new AtomicLongArray(size);
+    }
+
+    @Override
+    public void runLocked(final Runnable action, final AccountNo... accountNos) {
+        if (!enabled) {
+            action.run();
+            return;
+        }
+        final int[] stripeIndexes = _sortedDistinctStripes(accountNos);
+        int locked = 0;
+        try {
+            for (; locked < stripeIndexes.length; locked++) {
+                _lock(stripeIndexes[locked]);
+            }
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                    @Override
+                    public void afterCompletion(final int status) {
+                        _unlock(stripeIndexes, stripeIndexes.length);
+                    }
+                });
+                locked = -1; // released after the transaction
+            }
+            action.run();
+        } finally {
+            if (locked >= 0) {
+                _unlock(stripeIndexes, locked);
+            }
+        }
+    }
+
+    /**
+     * Acquires the given stripe and counts the acquisition. If the stripe is held
+     * by another thread, the contention and the wait time are counted, too.
+     * 
+     * @param stripeIndex
+     *            number of the stripe
+     * @throws CannotAcquireLockException
+     *             the current thread holds a stripe with a higher number, and
+     *             the given stripe was not released by another thread within the
+     *             timeout.
+     */
+    private void _lock(final int stripeIndex) {
+        final ReentrantLock stripe = stripes[stripeIndex];
+        final HeldStripes held = heldStripes.get();
+        acquisitions.incrementAndGet(stripeIndex);
+        if (!stripe.tryLock()) {
+            contentions.incrementAndGet(stripeIndex);
+            final long start = System.nanoTime();
+            try {
+                _await(stripe, stripeIndex, stripeIndex < held.highest());
+            } finally {
+                waitNanos.addAndGet(stripeIndex, System.nanoTime() - start);
+            }
+        }
+        held.add(stripeIndex);
+    }
+
+    /**
+     * Waits for the given stripe, which is held by another thread.
+     * 
+     * @param outOfOrder
+     *            true, if the current thread holds a stripe with a higher number.
+     *            Then it waits at most for the timeout.
+     */
+    private void _await(final ReentrantLock stripe, final int stripeIndex, final boolean outOfOrder) {
+        if (!outOfOrder) {
+            stripe.lock();
+            return;
+        }
+        try {
+            if (stripe.tryLock(outOfOrderTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                return;
+            }
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("Interrupted while waiting for account lock stripe " + stripeIndex,
+                    ex);
+        }
+        throw new CannotAcquireLockException("Account lock stripe " + stripeIndex + " is needed after stripe "
+                + heldStripes.get().highest() + ", and was not released within the timeout");
+    }
+
+    /**
+     * Releases the first count of the given stripes in reverse order.
+     * 
+     * @param stripeIndexes
+     *            numbers of the held stripes
+     * @param count
+     *            number of stripes to release
+     */
+    private void _unlock(final int[] stripeIndexes, final int count) {
+        final HeldStripes held = heldStripes.get();
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[stripeIndexes[i]].unlock();
+            held.remove(stripeIndexes[i]);
+        }
+    }
+
+    /** The numbers of the stripes held by one thread, once for each acquisition. */
+    private static final class HeldStripes {
+
+        private int[] indexes = new int[8];
+        private int size;
+
+        void add(final int stripeIndex) {
+            if (size == indexes.length) {
+                indexes = Arrays.copyOf(indexes, size * 2);
+            }
+            indexes[size++] = stripeIndex;
+        }
+
+        /** Removes the last acquisition of the given stripe. */
+        void remove(final int stripeIndex) {
+            for (int i = size - 1; i >= 0; i--) {
+                if (indexes[i] == stripeIndex) {
+                    System.arraycopy(indexes, i + 1, indexes, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+
+        /** @return the highest number of the held stripes, -1 if none is held */
+        int highest() {
+            int result = -1;
+            for (int i = 0; i < size; i++) {
+                result = Math.max(result, indexes[i]);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Computes the ascending, distinct stripe numbers for the given accounts.
+     * 
+     * @param accountNos
+     *            the account numbers
+     * @return the sorted stripe numbers without duplicates
+     */
+    private int[] _sortedDistinctStripes(final AccountNo... accountNos) {
+        final int[] result = new int[accountNos.length];
+        for (int i = 0; i < accountNos.length; i++) {
+            result[i] = stripeOf(accountNos[i]);
+        }
+        if (result.length == 2) { // the frequent case of a transfer
+            if (result[0] == result[1]) {
+                return new int[] { result[0] };
+            }
+            if (result[0] > result[1]) {
+                return new int[] { result[1], result[0] };
+            }
+            return result;
+        }
+        return Arrays.stream(result).sorted().distinct().toArray();
+    }
+
+    /**
+     * Returns the number of the stripe, by which the given account is locked.
+     * 
+     * @param accountNo
+     *            the account number
+     * @return number of the stripe, starting at 0
+     */
+    int stripeOf(final AccountNo accountNo) {
+        final int hash = Long.hashCode(accountNo.toLong());
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+
+    /** @return the number of lock stripes */
+    int stripeCount() {
+        return stripes.length;
+    }
+
+    /**
+     * @param stripeIndex
+     *            number of the stripe
+     * @return how often the stripe had to be awaited
+     */
+    long contentions(final int stripeIndex) {
+        return contentions.get(stripeIndex);
+    }
+
+    /**
+     * @param stripeIndex
+     *            number of the stripe
+     * @return how often the stripe was acquired
+     */
+    long acquisitions(final int stripeIndex) {
+        return acquisitions.get(stripeIndex);
+    }
+
+    @Override
+    public String contentionReport() {
+        final StringBuilder result = new StringBuilder();
+        IntStream.range(0, stripes.length).filter(i -> contentions.get(i) > 0).boxed()
+                .sorted(Comparator.comparingLong((Integer i) -> contentions.get(i)).reversed())
+                .forEach(i -> result.append(i).append('\t').append(acquisitions.get(i)).append('\t')
+                        .append(contentions.get(i)).append('\t').append(waitNanos.get(i) / 1_000_000).append('\n'));
+        return result.toString();
+    }
+
+}
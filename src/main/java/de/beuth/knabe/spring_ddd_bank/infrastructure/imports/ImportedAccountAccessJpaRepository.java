@@ -3,10 +3,20 @@ package de.beuth.knabe.spring_ddd_bank.infrastructure.imports;
 import de.beuth.knabe.spring_ddd_bank.domain.Account;
 import de.beuth.knabe.spring_ddd_bank.domain.AccountAccess;
 import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
+import de.beuth.knabe.spring_ddd_bank.domain.ManagedAccountSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 /**
  * Required repository for
@@ -31,11 +41,59 @@ public interface ImportedAccountAccessJpaRepository extends JpaRepository<Accoun
 
 	List<AccountAccess> findAllByClientAndIsOwnerGreaterThanEqualOrderByIdDesc(Client client, boolean asOwner);
 
+	/**
+	 * Streams the summaries of the accounts managed by the client, selected by a
+	 * constructor expression, so that no entities are loaded. The rows are
+	 * fetched in portions of 500.
+	 */
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+	@Query("select new de.beuth.knabe.spring_ddd_bank.domain.ManagedAccountSummary(a.id, aa.isOwner, a.balance.cents, a.name)"
+			+ " from AccountAccess aa join aa.account a where aa.client = :client order by aa.id desc")
+	Stream<ManagedAccountSummary> streamManagedAccountSummaries(@Param("client") Client client);
+
+	/**
+	 * The IDs of the accounts managed by the client, read from the foreign key
+	 * column of the access without joining the accounts.
+	 */
+	@Query("select aa.account.id from AccountAccess aa where aa.client = :client order by aa.account.id")
+	List<Long> findManagedAccountIds(@Param("client") Client client);
+
+	/** The accesses of the client to the accounts with the given IDs, with the accounts fetched by a join. */
+	@Query("select aa from AccountAccess aa join fetch aa.account a where aa.client = :client and a.id in :accountIds"
+			+ " order by a.id")
+	List<AccountAccess> findAllByClientAndAccountIdIn(@Param("client") Client client,
+			@Param("accountIds") Collection<Long> accountIds);
+
 	Optional<AccountAccess> findOneByClientAndAccount(Client client, Account account);
 
-	//Optional<AccountAccess> findOneByClientAndAccount(Client client, Long accountId);
+	/**
+	 * Finds the access of the client to the account with the given ID by one
+	 * query. The account and the client are fetched by joins instead of by extra
+	 * selects. The lookup uses the index on the foreign key to the client.
+	 */
+	@Query("select aa from AccountAccess aa join fetch aa.account a join fetch aa.client c"
+			+ " where c = :client and a.id = :accountId")
+	Optional<AccountAccess> findOneByClientAndAccountId(@Param("client") Client client,
+			@Param("accountId") Long accountId);
 
 	List<AccountAccess> findAllByAccountBalanceCentsGreaterThanEqualOrderByAccountBalanceCentsDescClientIdDesc(
 			long minCents);
 
+	/**
+	 * The clients with an account of at least minCents, grouped so that each
+	 * client is found once, and ordered by its highest such balance. The accounts
+	 * are found by the index on their balance. A client is grouped by all its
+	 * columns, as Derby requires each selected column to be grouped.
+	 */
+	String RICH_CLIENTS = " from AccountAccess aa join aa.client c join aa.account a where a.balance.cents >= :minCents"
+			+ " group by c.id, c.username, c.birthDate order by max(a.balance.cents) desc, c.id desc";
+
+	@Query("select c" + RICH_CLIENTS)
+	List<Client> findRichClients(@Param("minCents") long minCents, Pageable pageable);
+
+	@QueryHints(@QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"))
+	@Query("select new de.beuth.knabe.spring_ddd_bank.domain.ClientSummary(c.id, c.username, c.birthDate)"
+			+ RICH_CLIENTS)
+	Stream<ClientSummary> streamRichClientSummaries(@Param("minCents") long minCents, Pageable pageable);
+
 }
@@ -1,9 +1,13 @@
 package de.beuth.knabe.spring_ddd_bank.infrastructure.imports;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import de.beuth.knabe.spring_ddd_bank.domain.Account;
 
@@ -18,9 +22,15 @@ public interface ImportedAccountJpaRepository extends JpaRepository<Account, Lon
     void deleteAll();
 
     Optional<Account> findOneById(Long id);
+
+    List<Account> findAllByIdIn(Collection<Long> ids);
     
     <S extends Account> S save(S account);
 
     List<Account> findAllByOrderByIdAsc();
+
+    /** One page of the numbers and names of the accounts with IDs greater than afterId, for loading the name index. */
+    @Query("select a.id, a.name from Account a where a.id > :afterId order by a.id")
+    List<Object[]> findNamesAfter(@Param("afterId") long afterId, Pageable pageable);
     
 }
@@ -1,11 +1,19 @@
 package de.beuth.knabe.spring_ddd_bank.infrastructure.imports;
 
 import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.QueryHint;
 
 /**Required Spring JPA repository for clients. The methods are named according to the Spring Data JPA convention.
  * They can be implemented by Spring during bean creation, but can be implemented independently of Spring, too.
@@ -30,7 +38,38 @@ public interface ImportedClientJpaRepository extends JpaRepository<Client, Long>
 
     List<Client> findAllByOrderByIdDesc();
 
+    List<Client> findAllByOrderByIdDesc(Pageable pageable);
+
+    List<Client> findAllByIdLessThanOrderByIdDesc(Long id, Pageable pageable);
+
+    /**Streams all clients, fetching them in portions of 500 rows. The clients are read-only.*/
+    @QueryHints({ @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = org.hibernate.jpa.QueryHints.HINT_READONLY, value = "true") })
+    Stream<Client> streamAllByOrderByIdDesc();
+
     List<Client> findAllByBirthDateGreaterThanEqualOrderByBirthDateDescIdDesc(LocalDate minDate);
 
     Optional<Client> findFirstByOrderByIdAsc();
+
+    /**Selects the client summaries directly by a constructor expression, so that no Client entities are managed.*/
+    String SELECT_SUMMARY = "select new de.beuth.knabe.spring_ddd_bank.domain.ClientSummary(c.id, c.username, c.birthDate) from Client c ";
+
+    @Query(SELECT_SUMMARY + "order by c.id desc")
+    List<ClientSummary> findAllSummaries();
+
+    @Query(SELECT_SUMMARY + "order by c.id desc")
+    List<ClientSummary> findSummaries(Pageable pageable);
+
+    @Query(SELECT_SUMMARY + "where c.id < :id order by c.id desc")
+    List<ClientSummary> findSummariesByIdLessThan(@Param("id") Long id, Pageable pageable);
+
+    @Query(SELECT_SUMMARY + "where c.birthDate >= :minDate order by c.birthDate desc, c.id desc")
+    List<ClientSummary> findSummariesBornFrom(@Param("minDate") LocalDate minDate);
+
+    @Query(SELECT_SUMMARY + "where c.birthDate between :minDate and :maxDate order by c.birthDate desc, c.id desc")
+    List<ClientSummary> findSummariesBornBetween(@Param("minDate") LocalDate minDate, @Param("maxDate") LocalDate maxDate);
+
+    /**The pattern escapes the wildcards _ and % by a backslash.*/
+    @Query(SELECT_SUMMARY + "where c.username like :pattern escape '\\' order by c.username")
+    List<ClientSummary> findSummariesByUsernameLike(@Param("pattern") String pattern, Pageable pageable);
 }
@@ -0,0 +1,25 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure.imports;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import de.beuth.knabe.spring_ddd_bank.domain.LedgerEntry;
+
+/**Required repository for ledger entries. The methods are named according to the Spring Data JPA convention.
+ * They can be implemented by Spring during bean creation, but can be implemented independently of Spring, too.
+ * @see <a href="https://docs.spring.io/spring-data/jpa/docs/current/reference/html/#jpa.query-methods.query-creation">Spring Data Query Methods</a>
+ */
+public interface ImportedLedgerJpaRepository extends JpaRepository<LedgerEntry, Long> {
+
+    void deleteAll();
+
+    <S extends LedgerEntry> List<S> saveAll(Iterable<S> entries);
+
+    List<LedgerEntry> findAllByAccountNoOrderByBookedAtAscIdAsc(long accountNo);
+
+    @Query("select coalesce(sum(e.amount.cents), 0) from LedgerEntry e where e.accountNo = ?1")
+    long sumCentsByAccountNo(long accountNo);
+
+}
@@ -0,0 +1,140 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure.journal;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.time.LocalDate;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Account;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountAccess;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.LedgerEntry;
+import de.beuth.knabe.spring_ddd_bank.domain.base.EntityBase;
+
+/**Creates entity objects and accesses their persistent fields by reflection, as JPA does by field access.
+ * So the domain classes do not need to offer setters for the sake of the {@link JournalStore}.
+ */
+final class EntityFields {
+
+    private static final Field ENTITY_ID = _field(EntityBase.class, "id");
+    private static final Field CLIENT_USERNAME = _field(Client.class, "username");
+    private static final Field CLIENT_BIRTH_DATE = _field(Client.class, "birthDate");
+    private static final Field ACCOUNT_NAME = _field(Account.class, "name");
+    private static final Field ACCOUNT_BALANCE = _field(Account.class, "balance");
+    private static final Field ACCOUNT_VERSION = _field(Account.class, "version");
+    private static final Field ACCESS_CLIENT = _field(AccountAccess.class, "client");
+    private static final Field ACCESS_IS_OWNER = _field(AccountAccess.class, "isOwner");
+    private static final Field ACCESS_ACCOUNT = _field(AccountAccess.class, "account");
+    private static final Field LEDGER_ID = _field(LedgerEntry.class, "id");
+    private static final Field LEDGER_ACCOUNT_NO = _field(LedgerEntry.class, "accountNo");
+    private static final Field LEDGER_COUNTER_ACCOUNT_NO = _field(LedgerEntry.class, "counterAccountNo");
+    private static final Field LEDGER_AMOUNT = _field(LedgerEntry.class, "amount");
+    private static final Field LEDGER_BOOKED_AT = _field(LedgerEntry.class, "bookedAt");
+
+    private EntityFields() {
+    }
+
+    static Client newClient(final long id, final String username, final LocalDate birthDate) {
+        final Client result = _instantiate(Client.class);
+        _set(ENTITY_ID, result, id);
+        _set(CLIENT_USERNAME, result, username);
+        _set(CLIENT_BIRTH_DATE, result, birthDate);
+        return result;
+    }
+
+    static Account newAccount(final long id, final String name, final Amount balance, final long version) {
+        final Account result = _instantiate(Account.class);
+        _set(ENTITY_ID, result, id);
+        setState(result, name, balance, version);
+        return result;
+    }
+
+    /**Overwrites the persistent state of the given account.*/
+    static void setState(final Account account, final String name, final Amount balance, final long version) {
+        _set(ACCOUNT_NAME, account, name);
+        _set(ACCOUNT_BALANCE, account, balance);
+        _set(ACCOUNT_VERSION, account, version);
+    }
+
+    static AccountAccess newAccountAccess(final long id, final Client client, final boolean isOwner,
+            final Account account) {
+        final AccountAccess result = _instantiate(AccountAccess.class);
+        _set(ENTITY_ID, result, id);
+        _set(ACCESS_CLIENT, result, client);
+        _set(ACCESS_IS_OWNER, result, isOwner);
+        _set(ACCESS_ACCOUNT, result, account);
+        return result;
+    }
+
+    static LedgerEntry newLedgerEntry(final long id, final long accountNo, final Long counterAccountNo,
+            final Amount amount, final Instant bookedAt) {
+        final LedgerEntry result = _instantiate(LedgerEntry.class);
+        _set(LEDGER_ID, result, id);
+        _set(LEDGER_ACCOUNT_NO, result, accountNo);
+        _set(LEDGER_COUNTER_ACCOUNT_NO, result, counterAccountNo);
+        _set(LEDGER_AMOUNT, result, amount);
+        _set(LEDGER_BOOKED_AT, result, bookedAt);
+        return result;
+    }
+
+    /**Gives a new entity its identity.*/
+    static void setId(final EntityBase<?> entity, final long id) {
+        _set(ENTITY_ID, entity, id);
+    }
+
+    /**@return the version of the account, or null, if it has never been saved*/
+    static Long versionOf(final Account account) {
+        return (Long) _get(ACCOUNT_VERSION, account);
+    }
+
+    static void setVersion(final Account account, final long version) {
+        _set(ACCOUNT_VERSION, account, version);
+    }
+
+    /**@return the identity of the ledger entry, or null, if it has never been appended*/
+    static Long idOf(final LedgerEntry entry) {
+        return (Long) _get(LEDGER_ID, entry);
+    }
+
+    static void setId(final LedgerEntry entry, final long id) {
+        _set(LEDGER_ID, entry, id);
+    }
+
+    private static Field _field(final Class<?> type, final String name) {
+        try {
+            final Field result = type.getDeclaredField(name);
+            result.setAccessible(true);
+            return result;
+        } catch (final NoSuchFieldException ex) {
+            throw new IllegalStateException("Persistent field " + name + " missing in " + type, ex);
+        }
+    }
+
+    private static <T> T _instantiate(final Class<T> type) {
+        try {
+            final Constructor<T> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return constructor.newInstance();
+        } catch (final ReflectiveOperationException ex) {
+            throw new IllegalStateException("Cannot instantiate " + type, ex);
+        }
+    }
+
+    private static Object _get(final Field field, final Object object) {
+        try {
+            return field.get(object);
+        } catch (final IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void _set(final Field field, final Object object, final Object value) {
+        try {
+            field.set(object, value);
+        } catch (final IllegalAccessException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure.journal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Account;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountAccess;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
+import de.beuth.knabe.spring_ddd_bank.domain.ManagedAccountSummary;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountAccessRepository;
+import de.beuth.knabe.spring_ddd_bank.infrastructure.journal.JournalRecords.Table;
+
+/**A Repository for {@link AccountAccess} link objects implemented by the {@link JournalStore}.*/
+@Service
+@Profile("journal")
+public class JournalAccountAccessRepository implements AccountAccessRepository {
+
+    private final JournalStore store;
+
+    @Autowired
+    public JournalAccountAccessRepository(final JournalStore store) {
+        this.store = store;
+    }
+
+    public void deleteAll(){store.clear(Table.ACCESS);}
+
+    public AccountAccess save(final AccountAccess accountAccess){
+        return store.saveAccess(accountAccess);
+    }
+
+    @Override
+    public void delete(final AccountAccess accountAccess) {
+        store.deleteAccess(accountAccess);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public List<AccountAccess> findManagedAccountsOf(final Client client, final boolean asOwner) {
+        if (client.getId() == null) {
+            return List.of();
+        }
+        return store.findAccessesOf(client.getId()).stream()
+                .filter(access -> access.getAccount() != null && (access.isOwner() || !asOwner))
+                .sorted(Comparator.comparing(AccountAccess::getId).reversed())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<AccountNo> findManagedAccountNosOf(final Client client) {
+        return findManagedAccountsOf(client, false).stream().map(access -> access.getAccount().accountNo())
+                .sorted(Comparator.comparingLong(AccountNo::toLong)).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<AccountAccess> findManagedAccountsOf(final Client client, final Collection<AccountNo> accountNos) {
+        final Set<AccountNo> wanted = new HashSet<>(accountNos);
+        return findManagedAccountsOf(client, false).stream()
+                .filter(access -> wanted.contains(access.getAccount().accountNo()))
+                .sorted(Comparator.comparingLong(access -> access.getAccount().accountNo().toLong()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Stream<ManagedAccountSummary> streamManagedAccountSummariesOf(final Client client) {
+        return findManagedAccountsOf(client, false).stream().map(access -> {
+            final Account account = access.getAccount();
+            return new ManagedAccountSummary(account.accountNo().toLong(), access.isOwner(),
+                    account.getBalance().getCents(), account.getName());
+        });
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public List<AccountAccess> findFullAccounts(final Amount minBalance) {
+        final Comparator<AccountAccess> byBalance = Comparator
+                .comparingLong(access -> access.getAccount().getBalance().getCents());
+        final Comparator<AccountAccess> byClientId = Comparator.comparing(access -> access.getClient().getId());
+        return store.findAccesses().stream()
+                .filter(access -> access.getClient() != null && access.getAccount() != null
+                        && access.getAccount().getBalance().compareTo(minBalance) >= 0)
+                .sorted(byBalance.reversed().thenComparing(byClientId.reversed()))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public List<Client> findRichClients(final Amount minBalance, final int limit) {
+        final Map<Long, Client> result = new LinkedHashMap<>();
+        for (final AccountAccess access : findFullAccounts(minBalance)) {
+            if (result.size() == limit) {
+                break;
+            }
+            result.putIfAbsent(access.getClient().getId(), access.getClient());
+        }
+        return new ArrayList<>(result.values());
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public Stream<ClientSummary> streamRichClientSummaries(final Amount minBalance, final int limit) {
+        return findRichClients(minBalance, limit).stream()
+                .map(client -> new ClientSummary(client.getId(), client.getUsername(), client.getBirthDate()));
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public Optional<AccountAccess> find(final Client client, final Account account) {
+        if (client.getId() == null || account.getId() == null) {
+            return Optional.empty();
+        }
+        return store.findAccessesOf(client.getId()).stream()
+                .filter(access -> access.getAccount() != null && account.getId().equals(access.getAccount().getId()))
+                .findFirst();
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public Optional<AccountAccess> find(final Client client, final AccountNo accountNo) {
+        if (client.getId() == null) {
+            return Optional.empty();
+        }
+        return store.findAccessesOf(client.getId()).stream()
+                .filter(access -> access.getAccount() != null && accountNo.toLong() == access.getAccount().getId())
+                .findFirst();
+    }
+
+}
@@ -0,0 +1,78 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure.journal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Account;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountRepository;
+import de.beuth.knabe.spring_ddd_bank.infrastructure.AccountNameIndex;
+import de.beuth.knabe.spring_ddd_bank.infrastructure.journal.JournalRecords.Table;
+
+/**A Repository for Account entities implemented by the {@link JournalStore}.
+ * Locked accounts are locked in the JVM until the end of the transaction.
+ */
+@Service
+@Profile("journal")
+public class JournalAccountRepository implements AccountRepository {
+
+    private final JournalStore store;
+
+    @Autowired
+    public JournalAccountRepository(final JournalStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public Optional<Account> find(final AccountNo accountNo) {
+        return store.findAccount(accountNo.toLong());
+    }
+
+    @Override
+    public List<Account> findAll(final Collection<AccountNo> accountNos) {
+        return store.findAccounts(accountNos.stream().mapToLong(AccountNo::toLong).distinct().toArray());
+    }
+
+    @Override
+    public List<AccountNo> searchByName(final String query, final List<AccountNo> among, final int limit) {
+        final Set<String> words = AccountNameIndex.words(query);
+        if (words.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return findAll(among).stream()
+                .filter(account -> AccountNameIndex.words(account.getName()).containsAll(words))
+                .map(Account::accountNo).sorted(Comparator.comparingLong(AccountNo::toLong)).limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public Optional<Account> findAndLock(final AccountNo accountNo) {
+        return store.findAndLockAccount(accountNo.toLong());
+    }
+
+    @Override
+    public Account lock(final Account account) {
+        return store.lockAccount(account);
+    }
+
+    @Override
+    public Account refresh(final Account account) {
+        return store.refreshAccount(account);
+    }
+
+    public void deleteAll(){store.clear(Table.ACCOUNT);}
+
+    public Account save(final Account account){
+        return store.saveAccount(account);
+    }
+
+}
@@ -0,0 +1,121 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure.journal;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.ClientRepository;
+import de.beuth.knabe.spring_ddd_bank.infrastructure.journal.JournalRecords.Table;
+
+/**A Repository for Client entities implemented by the {@link JournalStore}.*/
+@Service
+@Profile("journal")
+public class JournalClientRepository implements ClientRepository {
+
+    /**Number of clients materialized at once while streaming.*/
+    private static final int STREAM_PAGE_SIZE = 500;
+
+    private final JournalStore store;
+
+    @Autowired
+    public JournalClientRepository(final JournalStore store) {
+        this.store = store;
+    }
+
+    public void deleteAll(){store.clear(Table.CLIENT);}
+
+    public Client save(final Client client){
+        return store.saveClient(client);
+    }
+
+    public void delete(final Client client){
+        store.deleteClient(client);
+    }
+
+    @Override
+    public Optional<Client> find(final Long id) {
+        if (id == null) {
+            throw new IllegalArgumentException("id is null");
+        }
+        return store.findClient(id);
+    }
+
+    @Override
+    public Optional<Client> find(final String username) {
+        if (username == null || username.isEmpty()) {
+            throw new IllegalArgumentException("username is null or empty");
+        }
+        return store.findClient(username);
+    }
+
+    public List<Client> findAll(){
+        final List<Client> result = store.findClients();
+        Collections.reverse(result);
+        return result;
+    }
+
+    @Override
+    public List<Client> findPage(final Long afterId, final int limit) {
+        return store.findClientsBefore(afterId == null ? Long.MAX_VALUE : afterId, limit);
+    }
+
+    @Override
+    @SuppressWarnings("deprecation")
+    public Stream<Client> streamAll() {
+        return Stream.iterate(findPage(null, STREAM_PAGE_SIZE), page -> !page.isEmpty(),
+                page -> findPage(page.get(page.size() - 1).getId(), STREAM_PAGE_SIZE)).flatMap(List::stream);
+    }
+
+    @SuppressWarnings("deprecation")
+    public List<Client> findAllBornFrom(final LocalDate minDate){
+        return store.findClients().stream()
+                .filter(client -> client.getBirthDate() != null && !client.getBirthDate().isBefore(minDate))
+                .sorted(Comparator.comparing(Client::getBirthDate).thenComparing(Client::getId).reversed())
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public List<ClientSummary> findSummaryPage(final Long afterId, final int limit) {
+        return _summaries(findPage(afterId, limit));
+    }
+
+    @Override
+    public List<ClientSummary> findAllSummaries() {
+        return _summaries(findAll());
+    }
+
+    @Override
+    public List<ClientSummary> findSummariesBornFrom(final LocalDate minDate) {
+        return _summaries(findAllBornFrom(minDate));
+    }
+
+    @Override
+    public List<ClientSummary> findSummariesBornBetween(final LocalDate minDate, final LocalDate maxDate) {
+        return _summaries(findAllBornFrom(minDate).stream().filter(client -> !client.getBirthDate().isAfter(maxDate))
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public List<ClientSummary> findByUsernamePrefix(final String prefix, final int limit) {
+        return _summaries(store.findClients().stream().filter(client -> client.getUsername().startsWith(prefix))
+                .sorted(Comparator.comparing(Client::getUsername)).limit(limit).collect(Collectors.toList()));
+    }
+
+    /**The clients are in memory anyway, so their summaries are made of them.*/
+    @SuppressWarnings("deprecation")
+    private static List<ClientSummary> _summaries(final List<Client> clients) {
+        return clients.stream().map(client -> new ClientSummary(client.getId(), client.getUsername(), client.getBirthDate()))
+                .collect(Collectors.toList());
+    }
+
+}
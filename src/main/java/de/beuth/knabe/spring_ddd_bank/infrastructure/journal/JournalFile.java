@@ -0,0 +1,269 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure.journal;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**An append-only file of checksummed frames, written through a memory-mapped region of the file.
+ * Each frame consists of the length of its payload, the CRC32 checksum of its payload, and the payload.
+ * On opening, all complete frames are replayed, and a torn frame at the end, e.g. after a crash, is cut off.
+ * <p>
+ * Appending only copies the frame into the mapped memory. Durability is achieved separately
+ * by {@link #awaitDurable(long)}, which forces the mapped memory to the disk. As one force covers all
+ * frames appended so far, threads committing at the same time share one force (group commit).
+ * <p>
+ * The positions returned by {@link #append(byte[])} are logical. They grow monotonically,
+ * and a journal file following another one continues with the positions of the former file.
+ * <p>
+ * A region, which is no longer written, is unmapped at once, instead of waiting for the garbage collector,
+ * which would keep the address space and the file pages of each abandoned region for an unknown time.
+ */
+final class JournalFile implements Closeable {
+
+    private static final int FRAME_HEADER_BYTES = 8;
+
+    /**Releases the memory mapping of a buffer by <code>sun.misc.Unsafe.invokeCleaner(ByteBuffer)</code>,
+     * the only way to unmap before the buffer is garbage collected. Null, if not available.*/
+    private static final MethodHandle UNMAPPER = _unmapper();
+
+    /**Receives the payload of each replayed frame.*/
+    interface FrameConsumer {
+        void accept(byte[] payload) throws IOException;
+    }
+
+    private final FileChannel channel;
+    private final int regionBytes;
+    private final boolean fsync;
+    private final CRC32 crc = new CRC32();
+    private final long logicalBase;
+
+    /**Serializes forcing the mapped memory. Must be acquired before the monitor of this object.*/
+    private final ReentrantLock forceLock = new ReentrantLock();
+
+    //The following fields are guarded by the monitor of this object:
+    private MappedByteBuffer region;
+    /**Abandoned regions, which have been forced, but can still be forced by {@link #awaitDurable(long)}.
+     * They are unmapped under the forceLock.*/
+    private final List<MappedByteBuffer> retiredRegions = new ArrayList<>();
+    private long regionStart;
+    private long fileOffset;
+
+    private volatile long durablePosition;
+
+    /**Opens the journal file, creating it if necessary, and replays all complete frames.
+     * @param path the journal file
+     * @param regionBytes the size of each memory-mapped region of the file
+     * @param fsync if false, {@link #awaitDurable(long)} does not wait, and it is left to the operating system
+     *     when the frames reach the disk
+     * @param logicalBase the logical position of the start of the file, i.e. the last position of the former
+     *     journal file, or 0
+     * @param consumer receives the payload of each replayed frame in the order of appending
+     * @throws IOException the file could not be opened or read, or the consumer failed
+     */
+    JournalFile(final Path path, final int regionBytes, final boolean fsync, final long logicalBase,
+            final FrameConsumer consumer) throws IOException {
+        this.regionBytes = regionBytes;
+        this.fsync = fsync;
+        this.logicalBase = logicalBase;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        fileOffset = _replay(channel, consumer);
+        //Cut off a torn frame and the rest behind it, so that it cannot be mistaken for frames later:
+        channel.truncate(fileOffset);
+        _mapRegion(0);
+        durablePosition = logicalBase + fileOffset;
+    }
+
+    /**Replays all complete frames of a journal file, which is no longer written, without changing the file.
+     * @param path the journal file
+     * @param consumer receives the payload of each frame in the order of appending
+     * @throws IOException the file could not be read, or the consumer failed
+     */
+    static void replay(final Path path, final FrameConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            _replay(channel, consumer);
+        }
+    }
+
+    /**Reads all complete frames from the start of the file.
+     * @return the file offset after the last complete frame
+     */
+    private static long _replay(final FileChannel channel, final FrameConsumer consumer) throws IOException {
+        final long size = channel.size();
+        final ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+        final CRC32 crc = new CRC32();
+        long offset = 0;
+        while (offset + FRAME_HEADER_BYTES <= size) {
+            header.clear();
+            _readFully(channel, header, offset);
+            final int length = header.getInt(0);
+            final int checksum = header.getInt(4);
+            if (length <= 0 || offset + FRAME_HEADER_BYTES + length > size) {
+                break;
+            }
+            final ByteBuffer payload = ByteBuffer.allocate(length);
+            _readFully(channel, payload, offset + FRAME_HEADER_BYTES);
+            crc.reset();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            consumer.accept(payload.array());
+            offset += FRAME_HEADER_BYTES + length;
+        }
+        return offset;
+    }
+
+    private static void _readFully(final FileChannel channel, final ByteBuffer buffer, final long offset)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    /**Maps the next region of the file starting at the current write offset.
+     * Before the current region is abandoned, it is forced to the disk, so that {@link #awaitDurable(long)}
+     * only has to force the current region. As a concurrent {@link #awaitDurable(long)} may still be forcing it,
+     * it is only retired here, and unmapped later under the forceLock. Without fsync nobody forces it,
+     * so it is unmapped at once.
+     * @param minBytes the minimum size of the region
+     */
+    private void _mapRegion(final int minBytes) throws IOException {
+        if (region != null) {
+            if (fsync) {
+                region.force();
+                retiredRegions.add(region);
+            } else {
+                _unmap(region);
+            }
+        }
+        region = channel.map(FileChannel.MapMode.READ_WRITE, fileOffset, Math.max(regionBytes, minBytes));
+        regionStart = fileOffset;
+    }
+
+    /**Appends a frame with the given payload.
+     * @param payload the content of the frame
+     * @return the logical position after the frame. Pass it to {@link #awaitDurable(long)}.
+     * @throws IOException a new region of the file could not be mapped
+     */
+    synchronized long append(final byte[] payload) throws IOException {
+        final int frameBytes = FRAME_HEADER_BYTES + payload.length;
+        if (region.capacity() - (fileOffset - regionStart) < frameBytes) {
+            _mapRegion(frameBytes);
+        }
+        crc.reset();
+        crc.update(payload);
+        region.position((int) (fileOffset - regionStart));
+        region.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+        fileOffset += frameBytes;
+        return logicalBase + fileOffset;
+    }
+
+    /**@return the logical position after the last appended frame*/
+    synchronized long position() {
+        return logicalBase + fileOffset;
+    }
+
+    /**Waits until all frames up to the given position are on the disk.
+     * If another thread is forcing at the moment, this thread waits for it, and then
+     * returns without a force of its own, if that force covered the given position.
+     * @param position a logical position as returned by {@link #append(byte[])}
+     * @throws IOException the mapped memory could not be forced to the disk
+     */
+    void awaitDurable(final long position) throws IOException {
+        if (!fsync || durablePosition >= position) {
+            return;
+        }
+        forceLock.lock();
+        try {
+            if (durablePosition >= position) {
+                return;
+            }
+            final MappedByteBuffer toForce;
+            final long target;
+            final List<MappedByteBuffer> retired;
+            synchronized (this) {
+                toForce = region;
+                target = logicalBase + fileOffset;
+                retired = _takeRetiredRegions();
+            }
+            toForce.force();
+            durablePosition = target;
+            //No other thread can force them, as this thread holds the forceLock:
+            retired.forEach(JournalFile::_unmap);
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        forceLock.lock();
+        try {
+            synchronized (this) {
+                if (fsync) {
+                    region.force();
+                }
+                _takeRetiredRegions().forEach(JournalFile::_unmap);
+                _unmap(region);
+                region = null;
+                channel.close();
+                durablePosition = logicalBase + fileOffset;
+            }
+        } finally {
+            forceLock.unlock();
+        }
+    }
+
+    /**Empties the list of retired regions. Must be called under the monitor of this object.
+     * @return the regions, which were retired*/
+    private List<MappedByteBuffer> _takeRetiredRegions() {
+        if (retiredRegions.isEmpty()) {
+            return List.of();
+        }
+        final List<MappedByteBuffer> result = new ArrayList<>(retiredRegions);
+        retiredRegions.clear();
+        return result;
+    }
+
+    /**Unmaps the given region, which must not be accessed afterwards. If unmapping is not supported by the JVM,
+     * the region is left to the garbage collector.*/
+    private static void _unmap(final MappedByteBuffer region) {
+        if (UNMAPPER == null) {
+            return;
+        }
+        try {
+            UNMAPPER.invokeExact((ByteBuffer) region);
+        } catch (final Throwable ex) {
+            //Left to the garbage collector
+        }
+    }
+
+    private static MethodHandle _unmapper() {
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(theUnsafe.get(null));
+        } catch (final ReflectiveOperationException | RuntimeException ex) {
+            return null;
+        }
+    }
+
+}
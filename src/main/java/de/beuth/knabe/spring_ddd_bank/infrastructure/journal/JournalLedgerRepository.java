@@ -0,0 +1,46 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure.journal;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.LedgerEntry;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.LedgerRepository;
+import de.beuth.knabe.spring_ddd_bank.infrastructure.journal.JournalRecords.Table;
+
+/**A Repository for the {@link LedgerEntry} objects implemented by the {@link JournalStore}.
+ * The balance of each account is summed up while the entries are committed.
+ */
+@Service
+@Profile("journal")
+public class JournalLedgerRepository implements LedgerRepository {
+
+    private final JournalStore store;
+
+    @Autowired
+    public JournalLedgerRepository(final JournalStore store) {
+        this.store = store;
+    }
+
+    public void deleteAll(){store.clear(Table.LEDGER);}
+
+    @Override
+    public void append(final LedgerEntry... entries) {
+        store.appendLedgerEntries(entries);
+    }
+
+    @Override
+    public List<LedgerEntry> findAllOf(final AccountNo accountNo) {
+        return store.findLedgerEntries(accountNo.toLong());
+    }
+
+    @Override
+    public Amount balanceOf(final AccountNo accountNo) {
+        return Amount.ofCents(store.ledgerCents(accountNo.toLong()));
+    }
+
+}
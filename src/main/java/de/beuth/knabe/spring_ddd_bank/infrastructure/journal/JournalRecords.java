@@ -0,0 +1,211 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure.journal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**The immutable records, by which the {@link JournalStore} keeps the committed state of the entities,
+ * and their binary encoding in the journal and in the snapshot.
+ * Each committed transaction is journaled as a list of records, which are applied in order on replay.
+ */
+final class JournalRecords {
+
+    private static final byte CLIENT = 1;
+    private static final byte ACCOUNT = 2;
+    private static final byte ACCESS = 3;
+    private static final byte LEDGER = 4;
+    private static final byte DELETION = 5;
+    private static final byte CLEARING = 6;
+
+    private JournalRecords() {
+    }
+
+    /**The kinds of entities, which the {@link JournalStore} keeps.*/
+    enum Table {
+        CLIENT, ACCOUNT, ACCESS, LEDGER
+    }
+
+    /**A change of the committed state, which can be journaled.*/
+    interface Change {
+        void writeTo(DataOutput out) throws IOException;
+    }
+
+    /**The state of a {@link de.beuth.knabe.spring_ddd_bank.domain.Client}, inserted or replacing the former state.*/
+    static final class ClientRecord implements Change {
+        final long id;
+        final String username;
+        final LocalDate birthDate;
+
+        ClientRecord(final long id, final String username, final LocalDate birthDate) {
+            this.id = id;
+            this.username = username;
+            this.birthDate = birthDate;
+        }
+
+        @Override
+        public void writeTo(final DataOutput out) throws IOException {
+            out.writeByte(CLIENT);
+            out.writeLong(id);
+            _writeString(out, username);
+            out.writeBoolean(birthDate != null);
+            if (birthDate != null) {
+                out.writeLong(birthDate.toEpochDay());
+            }
+        }
+    }
+
+    /**The state of an {@link de.beuth.knabe.spring_ddd_bank.domain.Account}, inserted or replacing the former state.*/
+    static final class AccountRecord implements Change {
+        final long id;
+        final String name;
+        final long cents;
+        final long version;
+
+        AccountRecord(final long id, final String name, final long cents, final long version) {
+            this.id = id;
+            this.name = name;
+            this.cents = cents;
+            this.version = version;
+        }
+
+        @Override
+        public void writeTo(final DataOutput out) throws IOException {
+            out.writeByte(ACCOUNT);
+            out.writeLong(id);
+            _writeString(out, name);
+            out.writeLong(cents);
+            out.writeLong(version);
+        }
+    }
+
+    /**The state of an {@link de.beuth.knabe.spring_ddd_bank.domain.AccountAccess}, inserted or replacing the former state.*/
+    static final class AccessRecord implements Change {
+        final long id;
+        final long clientId;
+        final long accountId;
+        final boolean isOwner;
+
+        AccessRecord(final long id, final long clientId, final long accountId, final boolean isOwner) {
+            this.id = id;
+            this.clientId = clientId;
+            this.accountId = accountId;
+            this.isOwner = isOwner;
+        }
+
+        @Override
+        public void writeTo(final DataOutput out) throws IOException {
+            out.writeByte(ACCESS);
+            out.writeLong(id);
+            out.writeLong(clientId);
+            out.writeLong(accountId);
+            out.writeBoolean(isOwner);
+        }
+    }
+
+    /**An appended {@link de.beuth.knabe.spring_ddd_bank.domain.LedgerEntry}.*/
+    static final class LedgerRecord implements Change {
+        final long id;
+        final long accountNo;
+        /**0, if there is no counter account.*/
+        final long counterAccountNo;
+        final long cents;
+        final Instant bookedAt;
+
+        LedgerRecord(final long id, final long accountNo, final long counterAccountNo, final long cents,
+                final Instant bookedAt) {
+            this.id = id;
+            this.accountNo = accountNo;
+            this.counterAccountNo = counterAccountNo;
+            this.cents = cents;
+            this.bookedAt = bookedAt;
+        }
+
+        @Override
+        public void writeTo(final DataOutput out) throws IOException {
+            out.writeByte(LEDGER);
+            out.writeLong(id);
+            out.writeLong(accountNo);
+            out.writeLong(counterAccountNo);
+            out.writeLong(cents);
+            out.writeLong(bookedAt.getEpochSecond());
+            out.writeInt(bookedAt.getNano());
+        }
+    }
+
+    /**The deletion of an entity by its ID.*/
+    static final class Deletion implements Change {
+        final Table table;
+        final long id;
+
+        Deletion(final Table table, final long id) {
+            this.table = table;
+            this.id = id;
+        }
+
+        @Override
+        public void writeTo(final DataOutput out) throws IOException {
+            out.writeByte(DELETION);
+            out.writeByte(table.ordinal());
+            out.writeLong(id);
+        }
+    }
+
+    /**The deletion of all entities of a kind.*/
+    static final class Clearing implements Change {
+        final Table table;
+
+        Clearing(final Table table) {
+            this.table = table;
+        }
+
+        @Override
+        public void writeTo(final DataOutput out) throws IOException {
+            out.writeByte(CLEARING);
+            out.writeByte(table.ordinal());
+        }
+    }
+
+    /**Reads a change, as it was written by its method <code>writeTo</code>.
+     * @param in the input positioned at the start of the change
+     * @return the read change
+     * @throws IOException the input is not readable, or does not contain a change
+     */
+    static Change read(final DataInput in) throws IOException {
+        final byte kind = in.readByte();
+        switch (kind) {
+        case CLIENT: {
+            final long id = in.readLong();
+            final String username = _readString(in);
+            final LocalDate birthDate = in.readBoolean() ? LocalDate.ofEpochDay(in.readLong()) : null;
+            return new ClientRecord(id, username, birthDate);
+        }
+        case ACCOUNT:
+            return new AccountRecord(in.readLong(), _readString(in), in.readLong(), in.readLong());
+        case ACCESS:
+            return new AccessRecord(in.readLong(), in.readLong(), in.readLong(), in.readBoolean());
+        case LEDGER:
+            return new LedgerRecord(in.readLong(), in.readLong(), in.readLong(), in.readLong(),
+                    Instant.ofEpochSecond(in.readLong(), in.readInt()));
+        case DELETION:
+            return new Deletion(Table.values()[in.readByte()], in.readLong());
+        case CLEARING:
+            return new Clearing(Table.values()[in.readByte()]);
+        default:
+            throw new IOException("Unknown journal record kind " + kind);
+        }
+    }
+
+    private static void _writeString(final DataOutput out, final String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String _readString(final DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+}
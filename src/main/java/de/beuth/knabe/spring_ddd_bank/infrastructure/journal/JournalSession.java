@@ -0,0 +1,53 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure.journal;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Account;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountAccess;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.LedgerEntry;
+
+/**The unit of work of one transaction on the {@link JournalStore}, similar to a JPA persistence context.
+ * It maps each identity to one entity object, and collects the saved and deleted entities until the commit.
+ * It is used by one thread only.
+ */
+final class JournalSession {
+
+    /**True, if bound to a Spring-managed transaction, false, if committed after each repository call.*/
+    final boolean transactional;
+
+    //Entity objects read or saved in this session by their identity:
+    final Map<Long, Client> clients = new HashMap<>();
+    final Map<Long, Account> accounts = new HashMap<>();
+    final Map<Long, AccountAccess> accesses = new HashMap<>();
+
+    //Changes to be committed:
+    final Map<Long, Client> savedClients = new LinkedHashMap<>();
+    final Set<Long> deletedClients = new HashSet<>();
+    final Map<Long, Account> savedAccounts = new LinkedHashMap<>();
+    /**The version of each saved account, as it was read. Null for a new account.*/
+    final Map<Long, Long> expectedVersions = new HashMap<>();
+    final Map<Long, AccountAccess> savedAccesses = new LinkedHashMap<>();
+    final Set<Long> deletedAccesses = new HashSet<>();
+    final List<LedgerEntry> appendedEntries = new ArrayList<>();
+
+    /**The identities of the accounts locked by this session in the order of locking, once per lock acquisition.
+     * Their locks are released by the {@link JournalStore} at the end of the transaction.*/
+    final List<Long> lockedAccountIds = new ArrayList<>();
+
+    JournalSession(final boolean transactional) {
+        this.transactional = transactional;
+    }
+
+    boolean hasChanges() {
+        return !savedClients.isEmpty() || !deletedClients.isEmpty() || !savedAccounts.isEmpty()
+                || !savedAccesses.isEmpty() || !deletedAccesses.isEmpty() || !appendedEntries.isEmpty();
+    }
+
+}
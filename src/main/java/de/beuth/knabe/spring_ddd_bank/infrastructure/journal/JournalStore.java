@@ -0,0 +1,1093 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure.journal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Account;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountAccess;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.LedgerEntry;
+import de.beuth.knabe.spring_ddd_bank.infrastructure.journal.JournalRecords.AccessRecord;
+import de.beuth.knabe.spring_ddd_bank.infrastructure.journal.JournalRecords.AccountRecord;
+import de.beuth.knabe.spring_ddd_bank.infrastructure.journal.JournalRecords.Change;
+import de.beuth.knabe.spring_ddd_bank.infrastructure.journal.JournalRecords.ClientRecord;
+import de.beuth.knabe.spring_ddd_bank.infrastructure.journal.JournalRecords.Clearing;
+import de.beuth.knabe.spring_ddd_bank.infrastructure.journal.JournalRecords.Deletion;
+import de.beuth.knabe.spring_ddd_bank.infrastructure.journal.JournalRecords.LedgerRecord;
+import de.beuth.knabe.spring_ddd_bank.infrastructure.journal.JournalRecords.Table;
+
+/**Keeps all entities in heap maps and persists each committed transaction as one frame into a {@link JournalFile}.
+ * On startup the state is recovered from the ledger segments, the last snapshot, and the journal frames written
+ * after them.
+ * <p>
+ * Each time the configured number of frames has been written, the following commits go into a new journal file,
+ * and a background thread takes a snapshot without holding up the commits. The ledger entries journaled since
+ * the former snapshot are written into a new ledger segment, which is never rewritten, so that the ledger history
+ * is written only once. The snapshot contains only the clients, accounts, and accesses. As it is read from the maps
+ * while commits go on, it can contain changes of later commits, which are replayed again from the new journal file
+ * on recovery. Only then the former journal files are deleted. A failed snapshot is only logged, and the journal
+ * files are kept until a later snapshot succeeds.
+ * <p>
+ * Within a Spring-managed transaction the repository calls work on a {@link JournalSession}, which is committed,
+ * when the transaction commits, and discarded, when it rolls back. Outside of a transaction each repository call
+ * is committed by itself. Commits are serialized, and are validated like by JPA: An account saved with an outdated
+ * version fails the commit with an {@link ObjectOptimisticLockingFailureException}.
+ * Unlike JPA, there is no dirty checking: A modified entity must be saved explicitly.
+ * <p>
+ * Readers do not lock. They see the state of the last commit, which has been applied completely to the
+ * entity concerned, but can see a commit in progress applied to some entities and not yet to others.
+ */
+@Component
+@Profile("journal")
+public class JournalStore implements DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(JournalStore.class);
+
+    private static final String JOURNAL_PREFIX = "journal-";
+    private static final String SEGMENT_PREFIX = "ledger-";
+
+    private final Path directoryPath;
+    private final Path snapshotPath;
+    private final int regionBytes;
+    private final boolean fsync;
+    private final int snapshotInterval;
+
+    /**Takes the snapshots in the background, one at a time.*/
+    private final ExecutorService snapshotExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        final Thread thread = new Thread(runnable, "journal-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**Serializes the commits, the start of the snapshots, and so all writes to the maps below.*/
+    private final ReentrantLock commitLock = new ReentrantLock();
+
+    private final ConcurrentSkipListMap<Long, ClientRecord> clients = new ConcurrentSkipListMap<>();
+    private final Map<String, Long> clientIdsByUsername = new ConcurrentHashMap<>();
+    private final Map<Long, AccountRecord> accounts = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListMap<Long, AccessRecord> accesses = new ConcurrentSkipListMap<>();
+    private final Map<Long, Set<Long>> accessIdsByClient = new ConcurrentHashMap<>();
+    private final Map<Long, LedgerAccount> ledgerAccounts = new ConcurrentHashMap<>();
+
+    /**The last identity given to a {@link Client}, {@link Account}, or {@link AccountAccess}, as they share one
+     * identity sequence like with JPA.*/
+    private final AtomicLong lastEntityId = new AtomicLong();
+    private final AtomicLong lastLedgerId = new AtomicLong();
+
+    //Guarded by commitLock, the journal is also read without it:
+    private volatile JournalFile journal;
+    private Path journalPath;
+    private long lastSequence;
+    private int framesSinceSnapshot;
+    private boolean snapshotRunning;
+    /**The ledger changes committed since the start of the last snapshot, which are not yet in a ledger segment.*/
+    private List<Change> unsegmentedLedger = new ArrayList<>();
+
+    /**The last commit, whose ledger changes are contained in the ledger segments. Only used by the recovery.*/
+    private long ledgerSequence;
+
+    //Only used by the snapshot in progress. A failed snapshot leaves them to the next one:
+    private final List<Change> carriedLedger = new ArrayList<>();
+    private final List<Path> retiredJournals = new ArrayList<>();
+
+    /**Locks for accounts, which are locked until the end of a transaction. A lock is only kept in the map,
+     * while a session holds or waits for it, so that the map does not grow with each account ever locked.*/
+    private final Map<Long, AccountLock> accountLocks = new ConcurrentHashMap<>();
+
+    /**The lock of one account along with the number of acquisitions, which are held or waited for.*/
+    @SuppressWarnings("serial")
+    private static final class AccountLock extends ReentrantLock {
+        /**Guarded by the map entry of the lock, i.e. only changed inside of a compute function on accountLocks.*/
+        private int users;
+    }
+
+    /**The ledger entries of one account in the order of their commits, along with their total.*/
+    private static final class LedgerAccount {
+        private final List<LedgerRecord> records = new ArrayList<>();
+        private volatile long cents;
+
+        synchronized void add(final LedgerRecord record) {
+            records.add(record);
+            cents += record.cents;
+        }
+
+        synchronized List<LedgerRecord> records() {
+            return new ArrayList<>(records);
+        }
+    }
+
+    /**Recovers the state from the given directory, creating it if necessary.
+     * @param directory where the journal files, the ledger segments, and the snapshot are stored
+     * @param regionBytes the size of each memory-mapped region of the journal
+     * @param fsync if true, a commit waits until its journal frame is on the disk
+     * @param snapshotInterval the number of commits after which a snapshot is taken
+     * @throws IOException the state could not be recovered
+     */
+    @Autowired
+    public JournalStore(@Value("${bank.journal.directory:spring-ddd-bank-journal}") final String directory,
+            @Value("${bank.journal.regionBytes:67108864}") final int regionBytes,
+            @Value("${bank.journal.fsync:true}") final boolean fsync,
+            @Value("${bank.journal.snapshotInterval:10000}") final int snapshotInterval) throws IOException {
+        if (snapshotInterval < 1) {
+            throw new IllegalArgumentException("snapshotInterval must be at least 1, but is " + snapshotInterval);
+        }
+        this.directoryPath = Paths.get(directory);
+        Files.createDirectories(directoryPath);
+        this.snapshotPath = directoryPath.resolve("snapshot.bin");
+        this.regionBytes = regionBytes;
+        this.fsync = fsync;
+        this.snapshotInterval = snapshotInterval;
+        for (final Path segment : _files(SEGMENT_PREFIX)) {
+            ledgerSequence = _readRecords(segment);
+        }
+        if (Files.exists(snapshotPath)) {
+            lastSequence = _readRecords(snapshotPath);
+        }
+        final List<Path> journalPaths = _files(JOURNAL_PREFIX);
+        //The former journal files remain, when a snapshot has failed, or the process ended before deleting them:
+        for (final Path retired : journalPaths.subList(0, Math.max(0, journalPaths.size() - 1))) {
+            JournalFile.replay(retired, this::_replayFrame);
+            retiredJournals.add(retired);
+        }
+        journalPath = journalPaths.isEmpty() ? _journalPath(lastSequence + 1)
+                : journalPaths.get(journalPaths.size() - 1);
+        journal = new JournalFile(journalPath, regionBytes, fsync, 0, this::_replayFrame);
+        log.info("Recovered {} clients, {} accounts, and {} ledger accounts from {} up to commit {}", clients.size(),
+                accounts.size(), ledgerAccounts.size(), directoryPath.toAbsolutePath(), lastSequence);
+    }
+
+    // Clients:
+
+    Client saveClient(final Client client) {
+        return _inSession(session -> {
+            @SuppressWarnings("deprecation")
+            Long id = client.getId();
+            if (id == null) {
+                id = lastEntityId.incrementAndGet();
+                EntityFields.setId(client, id);
+            }
+            session.deletedClients.remove(id);
+            session.savedClients.put(id, client);
+            session.clients.put(id, client);
+            return client;
+        });
+    }
+
+    void deleteClient(final Client client) {
+        _inSession(session -> {
+            @SuppressWarnings("deprecation")
+            final Long id = client.getId();
+            if (id != null) {
+                session.savedClients.remove(id);
+                session.clients.remove(id);
+                session.deletedClients.add(id);
+            }
+            return null;
+        });
+    }
+
+    Optional<Client> findClient(final long id) {
+        return _inSession(session -> Optional.ofNullable(_client(session, id)));
+    }
+
+    Optional<Client> findClient(final String username) {
+        return _inSession(session -> {
+            for (final Client saved : session.savedClients.values()) {
+                if (username.equals(saved.getUsername())) {
+                    return Optional.of(saved);
+                }
+            }
+            final Long id = clientIdsByUsername.get(username);
+            if (id == null || session.savedClients.containsKey(id)) {
+                return Optional.empty();
+            }
+            return Optional.ofNullable(_client(session, id));
+        });
+    }
+
+    /**@return all clients in ascending order of their identities*/
+    List<Client> findClients() {
+        return _inSession(session -> {
+            final List<Client> result = new ArrayList<>();
+            for (final Long id : clients.keySet()) {
+                if (!session.savedClients.containsKey(id)) {
+                    final Client client = _client(session, id);
+                    if (client != null) {
+                        result.add(client);
+                    }
+                }
+            }
+            result.addAll(session.savedClients.values());
+            return result;
+        });
+    }
+
+    /**@return at most limit clients with identities lower than beforeId in descending order of their identities*/
+    List<Client> findClientsBefore(final long beforeId, final int limit) {
+        return _inSession(session -> {
+            final NavigableSet<Long> ids = new TreeSet<>(Comparator.reverseOrder());
+            //Enough committed identities to fill the page, even if the session has deleted some of them:
+            final Iterator<Long> committedIds = clients.headMap(beforeId, false).descendingKeySet().iterator();
+            for (int i = 0; i < limit + session.deletedClients.size() && committedIds.hasNext(); i++) {
+                ids.add(committedIds.next());
+            }
+            for (final Long id : session.savedClients.keySet()) {
+                if (id < beforeId) {
+                    ids.add(id);
+                }
+            }
+            final List<Client> result = new ArrayList<>(Math.min(limit, ids.size()));
+            for (final Long id : ids) {
+                if (result.size() == limit) {
+                    break;
+                }
+                final Client client = _client(session, id);
+                if (client != null) {
+                    result.add(client);
+                }
+            }
+            return result;
+        });
+    }
+
+    private Client _client(final JournalSession session, final long id) {
+        if (session.deletedClients.contains(id)) {
+            return null;
+        }
+        final Client managed = session.clients.get(id);
+        if (managed != null) {
+            return managed;
+        }
+        final ClientRecord record = clients.get(id);
+        if (record == null) {
+            return null;
+        }
+        final Client result = EntityFields.newClient(record.id, record.username, record.birthDate);
+        session.clients.put(id, result);
+        return result;
+    }
+
+    // Accounts:
+
+    Account saveAccount(final Account account) {
+        return _inSession(session -> {
+            @SuppressWarnings("deprecation")
+            Long id = account.getId();
+            if (id == null) {
+                id = lastEntityId.incrementAndGet();
+                EntityFields.setId(account, id);
+                session.expectedVersions.put(id, null);
+            } else if (!session.expectedVersions.containsKey(id)) {
+                session.expectedVersions.put(id, EntityFields.versionOf(account));
+            }
+            session.savedAccounts.put(id, account);
+            session.accounts.put(id, account);
+            return account;
+        });
+    }
+
+    Optional<Account> findAccount(final long id) {
+        return _inSession(session -> Optional.ofNullable(_account(session, id)));
+    }
+
+    /**@return the existing accounts with the given identities*/
+    List<Account> findAccounts(final long[] ids) {
+        return _inSession(session -> {
+            final List<Account> result = new ArrayList<>(ids.length);
+            for (final long id : ids) {
+                final Account account = _account(session, id);
+                if (account != null) {
+                    result.add(account);
+                }
+            }
+            return result;
+        });
+    }
+
+    Optional<Account> findAndLockAccount(final long id) {
+        return _inSession(session -> {
+            _lockAccount(session, id);
+            final Account managed = session.accounts.get(id);
+            if (managed != null) {
+                _refresh(session, managed);
+                return Optional.of(managed);
+            }
+            return Optional.ofNullable(_account(session, id));
+        });
+    }
+
+    Account lockAccount(final Account account) {
+        return _inSession(session -> {
+            @SuppressWarnings("deprecation")
+            final Long id = account.getId();
+            _lockAccount(session, id);
+            _refresh(session, account);
+            return account;
+        });
+    }
+
+    Account refreshAccount(final Account account) {
+        return _inSession(session -> {
+            @SuppressWarnings("deprecation")
+            final Long id = account.getId();
+            if (id != null && session.accounts.get(id) == account) {
+                _refresh(session, account);
+            }
+            return account;
+        });
+    }
+
+    private Account _account(final JournalSession session, final long id) {
+        final Account managed = session.accounts.get(id);
+        if (managed != null) {
+            return managed;
+        }
+        final AccountRecord record = accounts.get(id);
+        if (record == null) {
+            return null;
+        }
+        final Account result = EntityFields.newAccount(record.id, record.name, Amount.ofCents(record.cents),
+                record.version);
+        session.accounts.put(id, result);
+        return result;
+    }
+
+    /**Locks the account with the given identity until the end of the transaction of the session.*/
+    private void _lockAccount(final JournalSession session, final long id) {
+        if (!session.transactional) {
+            throw new IllegalTransactionStateException("Locking account " + id + " requires a transaction");
+        }
+        final AccountLock lock = accountLocks.compute(id, (key, existing) -> {
+            final AccountLock result = existing != null ? existing : new AccountLock();
+            result.users++;
+            return result;
+        });
+        lock.lock();
+        session.lockedAccountIds.add(id);
+    }
+
+    /**Releases the account locks of the session in the reverse order of locking, and removes each lock from
+     * the map, which is no longer held or waited for by any session.*/
+    private void _releaseLocks(final JournalSession session) {
+        for (int i = session.lockedAccountIds.size() - 1; i >= 0; i--) {
+            accountLocks.computeIfPresent(session.lockedAccountIds.get(i), (key, lock) -> {
+                lock.unlock();
+                return --lock.users == 0 ? null : lock;
+            });
+        }
+        session.lockedAccountIds.clear();
+    }
+
+    /**@return the number of account locks currently held or waited for*/
+    int accountLockCount() {
+        return accountLocks.size();
+    }
+
+    /**Overwrites the given account by its committed state, discarding unsaved modifications.*/
+    private void _refresh(final JournalSession session, final Account account) {
+        @SuppressWarnings("deprecation")
+        final Long id = account.getId();
+        final AccountRecord record = accounts.get(id);
+        if (record == null) {
+            return;
+        }
+        EntityFields.setState(account, record.name, Amount.ofCents(record.cents), record.version);
+        session.savedAccounts.remove(id);
+        session.expectedVersions.remove(id);
+        session.accounts.put(id, account);
+    }
+
+    // Account accesses:
+
+    AccountAccess saveAccess(final AccountAccess accountAccess) {
+        return _inSession(session -> {
+            @SuppressWarnings("deprecation")
+            final boolean linksUnsaved = accountAccess.getClient().getId() == null
+                    || accountAccess.getAccount().getId() == null;
+            if (linksUnsaved) {
+                throw new InvalidDataAccessApiUsageException(
+                        "Client and account must be saved before " + accountAccess);
+            }
+            @SuppressWarnings("deprecation")
+            Long id = accountAccess.getId();
+            if (id == null) {
+                id = lastEntityId.incrementAndGet();
+                EntityFields.setId(accountAccess, id);
+            }
+            session.deletedAccesses.remove(id);
+            session.savedAccesses.put(id, accountAccess);
+            session.accesses.put(id, accountAccess);
+            return accountAccess;
+        });
+    }
+
+    void deleteAccess(final AccountAccess accountAccess) {
+        _inSession(session -> {
+            @SuppressWarnings("deprecation")
+            final Long id = accountAccess.getId();
+            if (id != null) {
+                session.savedAccesses.remove(id);
+                session.accesses.remove(id);
+                session.deletedAccesses.add(id);
+            }
+            return null;
+        });
+    }
+
+    /**@return the accesses of the client with the given identity in ascending order of their identities*/
+    List<AccountAccess> findAccessesOf(final long clientId) {
+        return _inSession(session -> {
+            final Set<Long> committedIds = accessIdsByClient.get(clientId);
+            final List<AccountAccess> result = _accesses(session,
+                    committedIds == null ? List.of() : committedIds);
+            result.removeIf(access -> access.getClient() == null || _idOf(access.getClient()) != clientId);
+            return result;
+        });
+    }
+
+    /**@return all accesses in ascending order of their identities*/
+    List<AccountAccess> findAccesses() {
+        return _inSession(session -> _accesses(session, accesses.keySet()));
+    }
+
+    /**Returns the accesses with the given committed identities, and the accesses saved in the session.*/
+    @SuppressWarnings("deprecation")
+    private List<AccountAccess> _accesses(final JournalSession session, final Collection<Long> committedIds) {
+        final List<AccountAccess> result = new ArrayList<>();
+        for (final Long id : committedIds) {
+            if (!session.savedAccesses.containsKey(id)) {
+                final AccountAccess access = _access(session, id);
+                if (access != null) {
+                    result.add(access);
+                }
+            }
+        }
+        result.addAll(session.savedAccesses.values());
+        result.sort(Comparator.comparing(AccountAccess::getId));
+        return result;
+    }
+
+    private AccountAccess _access(final JournalSession session, final long id) {
+        if (session.deletedAccesses.contains(id)) {
+            return null;
+        }
+        final AccountAccess managed = session.accesses.get(id);
+        if (managed != null) {
+            return managed;
+        }
+        final AccessRecord record = accesses.get(id);
+        if (record == null) {
+            return null;
+        }
+        final AccountAccess result = EntityFields.newAccountAccess(record.id, _client(session, record.clientId),
+                record.isOwner, _account(session, record.accountId));
+        session.accesses.put(id, result);
+        return result;
+    }
+
+    // Ledger:
+
+    void appendLedgerEntries(final LedgerEntry... entries) {
+        _inSession(session -> {
+            for (final LedgerEntry entry : entries) {
+                if (EntityFields.idOf(entry) == null) {
+                    EntityFields.setId(entry, lastLedgerId.incrementAndGet());
+                }
+                session.appendedEntries.add(entry);
+            }
+            return null;
+        });
+    }
+
+    /**@return the ledger entries of the account in ascending order of their booking times and identities*/
+    List<LedgerEntry> findLedgerEntries(final long accountNo) {
+        return _inSession(session -> {
+            final List<LedgerEntry> result = new ArrayList<>();
+            final LedgerAccount ledgerAccount = ledgerAccounts.get(accountNo);
+            if (ledgerAccount != null) {
+                for (final LedgerRecord record : ledgerAccount.records()) {
+                    result.add(EntityFields.newLedgerEntry(record.id, record.accountNo,
+                            record.counterAccountNo == 0 ? null : record.counterAccountNo,
+                            Amount.ofCents(record.cents), record.bookedAt));
+                }
+            }
+            for (final LedgerEntry entry : session.appendedEntries) {
+                if (entry.accountNo().toLong() == accountNo) {
+                    result.add(entry);
+                }
+            }
+            result.sort(Comparator.comparing(LedgerEntry::getBookedAt).thenComparing(EntityFields::idOf));
+            return result;
+        });
+    }
+
+    /**@return the sum of the amounts of all ledger entries of the account in cents*/
+    long ledgerCents(final long accountNo) {
+        return _inSession(session -> {
+            final LedgerAccount ledgerAccount = ledgerAccounts.get(accountNo);
+            long result = ledgerAccount == null ? 0 : ledgerAccount.cents;
+            for (final LedgerEntry entry : session.appendedEntries) {
+                if (entry.accountNo().toLong() == accountNo) {
+                    result += entry.getAmount().getCents();
+                }
+            }
+            return result;
+        });
+    }
+
+    // Sessions and commits:
+
+    /**Deletes all entities of the given kind at once, regardless of a running transaction.
+     * Useful for test scenarios in order to start with an empty store.
+     */
+    void clear(final Table table) {
+        commitLock.lock();
+        final long position;
+        try {
+            position = _commit(List.of(new Clearing(table)));
+        } finally {
+            commitLock.unlock();
+        }
+        _awaitDurable(position);
+    }
+
+    /**Executes the work on the session of the current transaction, or, if there is none,
+     * on a new session, which is committed after the work.
+     */
+    private <T> T _inSession(final Function<JournalSession, T> work) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            return work.apply(_transactionSession());
+        }
+        final JournalSession session = new JournalSession(false);
+        final T result = work.apply(session);
+        _commit(session);
+        return result;
+    }
+
+    private JournalSession _transactionSession() {
+        final JournalSession bound = (JournalSession) TransactionSynchronizationManager.getResource(this);
+        if (bound != null) {
+            return bound;
+        }
+        final JournalSession result = new JournalSession(true);
+        TransactionSynchronizationManager.bindResource(this, result);
+        TransactionSynchronizationManager.registerSynchronization(new SessionSynchronization(result));
+        return result;
+    }
+
+    /**Commits the session of a transaction, when it commits, and ends it, when the transaction completes.*/
+    private final class SessionSynchronization extends TransactionSynchronizationAdapter {
+
+        private final JournalSession session;
+
+        SessionSynchronization(final JournalSession session) {
+            this.session = session;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResource(JournalStore.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(JournalStore.this, session);
+        }
+
+        @Override
+        public void beforeCommit(final boolean readOnly) {
+            _commit(session);
+        }
+
+        @Override
+        public void afterCompletion(final int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(JournalStore.this);
+            _releaseLocks(session);
+        }
+    }
+
+    /**Validates the changes of the session, journals them, and applies them to the committed state.
+     * @throws ObjectOptimisticLockingFailureException a saved account was modified by another commit since it was read
+     * @throws DataIntegrityViolationException a saved client has the username of another client
+     */
+    private void _commit(final JournalSession session) {
+        if (!session.hasChanges()) {
+            return;
+        }
+        final long position;
+        commitLock.lock();
+        try {
+            final List<Change> changes = new ArrayList<>();
+            for (final Client client : session.savedClients.values()) {
+                changes.add(_validatedRecordOf(client));
+            }
+            final List<Long> newVersions = new ArrayList<>();
+            for (final Account account : session.savedAccounts.values()) {
+                final AccountRecord record = _validatedRecordOf(account, session);
+                changes.add(record);
+                newVersions.add(record.version);
+            }
+            for (final AccountAccess access : session.savedAccesses.values()) {
+                changes.add(new AccessRecord(_idOf(access), _idOf(access.getClient()), _idOf(access.getAccount()),
+                        access.isOwner()));
+            }
+            for (final LedgerEntry entry : session.appendedEntries) {
+                changes.add(new LedgerRecord(EntityFields.idOf(entry), entry.accountNo().toLong(),
+                        entry.counterAccountNo().map(accountNo -> accountNo.toLong()).orElse(0L),
+                        entry.getAmount().getCents(), entry.getBookedAt()));
+            }
+            for (final Long id : session.deletedAccesses) {
+                changes.add(new Deletion(Table.ACCESS, id));
+            }
+            for (final Long id : session.deletedClients) {
+                changes.add(new Deletion(Table.CLIENT, id));
+            }
+            position = _commit(changes);
+            int i = 0;
+            for (final Account account : session.savedAccounts.values()) {
+                EntityFields.setVersion(account, newVersions.get(i++));
+            }
+        } finally {
+            commitLock.unlock();
+        }
+        session.savedClients.clear();
+        session.deletedClients.clear();
+        session.savedAccounts.clear();
+        session.expectedVersions.clear();
+        session.savedAccesses.clear();
+        session.deletedAccesses.clear();
+        session.appendedEntries.clear();
+        _awaitDurable(position);
+    }
+
+    private ClientRecord _validatedRecordOf(final Client client) {
+        final long id = _idOf(client);
+        final Long owner = client.getUsername() == null ? null : clientIdsByUsername.get(client.getUsername());
+        if (owner != null && owner != id) {
+            throw new DataIntegrityViolationException(
+                    "Username " + client.getUsername() + " is already used by client " + owner);
+        }
+        return new ClientRecord(id, client.getUsername(), client.getBirthDate());
+    }
+
+    private AccountRecord _validatedRecordOf(final Account account, final JournalSession session) {
+        final long id = _idOf(account);
+        final Long expectedVersion = session.expectedVersions.get(id);
+        final AccountRecord current = accounts.get(id);
+        final boolean outdated = expectedVersion == null ? current != null
+                : current == null || current.version != expectedVersion;
+        if (outdated) {
+            throw new ObjectOptimisticLockingFailureException(Account.class, id);
+        }
+        return new AccountRecord(id, account.getName(), account.getBalance().getCents(),
+                expectedVersion == null ? 0 : expectedVersion + 1);
+    }
+
+    @SuppressWarnings("deprecation")
+    private static long _idOf(final de.beuth.knabe.spring_ddd_bank.domain.base.EntityBase<?> entity) {
+        return entity.getId();
+    }
+
+    /**Journals the changes as one frame and applies them. Must be called with the commitLock held.
+     * @return the journal position, after which the changes are durable
+     */
+    private long _commit(final List<Change> changes) {
+        final long position;
+        try {
+            position = journal.append(_encode(lastSequence + 1, changes));
+        } catch (final IOException ex) {
+            throw new DataAccessResourceFailureException("Cannot write journal", ex);
+        }
+        lastSequence++;
+        for (final Change change : changes) {
+            _apply(change);
+            if (_isLedger(change)) {
+                unsegmentedLedger.add(change);
+            }
+        }
+        if (++framesSinceSnapshot >= snapshotInterval) {
+            final Runnable snapshot = _startSnapshot();
+            if (snapshot != null) {
+                try {
+                    snapshotExecutor.execute(snapshot);
+                } catch (final RejectedExecutionException ex) {
+                    //Shutting down, so nobody waits for this commit any longer
+                    snapshot.run();
+                }
+            }
+        }
+        return position;
+    }
+
+    private void _awaitDurable(final long position) {
+        try {
+            journal.awaitDurable(position);
+        } catch (final IOException ex) {
+            throw new DataAccessResourceFailureException("Cannot force journal to disk", ex);
+        }
+    }
+
+    private void _apply(final Change change) {
+        if (change instanceof ClientRecord) {
+            final ClientRecord record = (ClientRecord) change;
+            final ClientRecord old = clients.put(record.id, record);
+            if (old != null && old.username != null) {
+                clientIdsByUsername.remove(old.username, old.id);
+            }
+            if (record.username != null) {
+                clientIdsByUsername.put(record.username, record.id);
+            }
+        } else if (change instanceof AccountRecord) {
+            final AccountRecord record = (AccountRecord) change;
+            accounts.put(record.id, record);
+        } else if (change instanceof AccessRecord) {
+            final AccessRecord record = (AccessRecord) change;
+            final AccessRecord old = accesses.put(record.id, record);
+            if (old != null && old.clientId != record.clientId) {
+                accessIdsByClient.get(old.clientId).remove(old.id);
+            }
+            accessIdsByClient.computeIfAbsent(record.clientId, key -> ConcurrentHashMap.newKeySet()).add(record.id);
+        } else if (change instanceof LedgerRecord) {
+            final LedgerRecord record = (LedgerRecord) change;
+            ledgerAccounts.computeIfAbsent(record.accountNo, key -> new LedgerAccount()).add(record);
+        } else if (change instanceof Deletion) {
+            _apply((Deletion) change);
+        } else {
+            _apply((Clearing) change);
+        }
+    }
+
+    private void _apply(final Deletion deletion) {
+        switch (deletion.table) {
+        case CLIENT:
+            final ClientRecord client = clients.remove(deletion.id);
+            if (client != null && client.username != null) {
+                clientIdsByUsername.remove(client.username, client.id);
+            }
+            break;
+        case ACCOUNT:
+            accounts.remove(deletion.id);
+            break;
+        case ACCESS:
+            final AccessRecord access = accesses.remove(deletion.id);
+            if (access != null) {
+                accessIdsByClient.get(access.clientId).remove(access.id);
+            }
+            break;
+        case LEDGER:
+            throw new IllegalStateException("Ledger entries cannot be deleted one by one.");
+        }
+    }
+
+    private void _apply(final Clearing clearing) {
+        switch (clearing.table) {
+        case CLIENT:
+            clients.clear();
+            clientIdsByUsername.clear();
+            break;
+        case ACCOUNT:
+            accounts.clear();
+            break;
+        case ACCESS:
+            accesses.clear();
+            accessIdsByClient.clear();
+            break;
+        case LEDGER:
+            ledgerAccounts.clear();
+            break;
+        }
+    }
+
+    // Encoding, replay, and snapshots:
+
+    /**Encodes a frame payload. It starts with the sequence number of the commit and the last given identities,
+     * followed by the number of changes and the changes.
+     */
+    private byte[] _encode(final long sequence, final Collection<? extends Change> changes) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * (changes.size() + 1));
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(sequence);
+        out.writeLong(lastEntityId.get());
+        out.writeLong(lastLedgerId.get());
+        out.writeInt(changes.size());
+        for (final Change change : changes) {
+            change.writeTo(out);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**Applies the changes of a frame payload, which are newer than the recovered state. Older entity changes are
+     * contained in the snapshot, older ledger changes in the ledger segments.
+     */
+    private void _replayFrame(final byte[] payload) throws IOException {
+        final DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        final long sequence = in.readLong();
+        final long entityId = in.readLong();
+        final long ledgerId = in.readLong();
+        final boolean newEntities = sequence > lastSequence;
+        final boolean newLedger = sequence > ledgerSequence;
+        if (!newEntities && !newLedger) {
+            return;
+        }
+        final int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            final Change change = JournalRecords.read(in);
+            if (!_isLedger(change)) {
+                if (newEntities) {
+                    _apply(change);
+                }
+            } else if (newLedger) {
+                _apply(change);
+                unsegmentedLedger.add(change);
+            }
+        }
+        lastSequence = Math.max(lastSequence, sequence);
+        lastEntityId.accumulateAndGet(entityId, Math::max);
+        lastLedgerId.accumulateAndGet(ledgerId, Math::max);
+    }
+
+    private static boolean _isLedger(final Change change) {
+        return change instanceof LedgerRecord
+                || change instanceof Clearing && ((Clearing) change).table == Table.LEDGER;
+    }
+
+    /**@return the files with the given prefix in the order of the sequence numbers in their names*/
+    private List<Path> _files(final String prefix) throws IOException {
+        final List<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directoryPath, prefix + "*.bin")) {
+            files.forEach(result::add);
+        }
+        //The sequence numbers have a fixed number of digits:
+        result.sort(Comparator.comparing(Path::toString));
+        return result;
+    }
+
+    private Path _journalPath(final long firstSequence) {
+        return directoryPath.resolve(String.format("%s%019d.bin", JOURNAL_PREFIX, firstSequence));
+    }
+
+    private Path _segmentPath(final long lastSequence) {
+        return directoryPath.resolve(String.format("%s%019d.bin", SEGMENT_PREFIX, lastSequence));
+    }
+
+    /**Reads and applies the records of a snapshot or a ledger segment.
+     * @return the sequence number of the last commit contained in the file
+     * @throws IOException the file cannot be read, or is corrupt
+     * @see #_writeRecords(Path, long, long, long, Iterator)
+     */
+    private long _readRecords(final Path path) throws IOException {
+        try (CheckedInputStream checked = new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(path), 1 << 16), new CRC32())) {
+            final DataInputStream in = new DataInputStream(checked);
+            final long sequence = in.readLong();
+            lastEntityId.accumulateAndGet(in.readLong(), Math::max);
+            lastLedgerId.accumulateAndGet(in.readLong(), Math::max);
+            while (in.readBoolean()) {
+                _apply(JournalRecords.read(in));
+            }
+            final int checksum = (int) checked.getChecksum().getValue();
+            if (in.readInt() != checksum) {
+                throw new IOException("Corrupt file " + path);
+            }
+            return sequence;
+        }
+    }
+
+    /**Streams records into a temporary file for the given file, and forces it to the disk. The file starts with
+     * the sequence number of the last commit contained and the last given identities. Then each record follows
+     * preceded by true, and at the end false and the CRC32 checksum of all the bytes before.
+     * @return the temporary file. Pass it to {@link #_replace(Path, Path)}.
+     */
+    private static Path _writeRecords(final Path path, final long sequence, final long entityId, final long ledgerId,
+            final Iterator<? extends Change> records) throws IOException {
+        final Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), new CRC32());
+            final DataOutputStream out = new DataOutputStream(checked);
+            out.writeLong(sequence);
+            out.writeLong(entityId);
+            out.writeLong(ledgerId);
+            while (records.hasNext()) {
+                out.writeBoolean(true);
+                records.next().writeTo(out);
+            }
+            out.writeBoolean(false);
+            out.writeInt((int) checked.getChecksum().getValue());
+            out.flush();
+            channel.force(true);
+        }
+        return temporary;
+    }
+
+    /**Replaces the file by the written temporary file at once, so that the file is either complete or absent.*/
+    private static void _replace(final Path temporary, final Path path) throws IOException {
+        Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**Lets the following commits go into a new journal file, and captures, what the snapshot up to the last commit
+     * needs besides the maps. Must be called with the commitLock held. A failure is only logged, and a new snapshot
+     * is attempted after the next snapshot interval.
+     * @return the task, which takes the snapshot, or null, if a snapshot is still being taken,
+     *     or no new journal file could be started
+     */
+    private Runnable _startSnapshot() {
+        framesSinceSnapshot = 0;
+        if (snapshotRunning) {
+            return null;
+        }
+        final JournalFile formerJournal = journal;
+        final Path formerPath = journalPath;
+        final Path nextPath = _journalPath(lastSequence + 1);
+        try {
+            //So that the positions of the former journal file, which committers may still await, are durable:
+            final long position = formerJournal.position();
+            formerJournal.awaitDurable(position);
+            journal = new JournalFile(nextPath, regionBytes, fsync, position, payload -> {
+                throw new IOException("New journal file " + nextPath + " is not empty");
+            });
+        } catch (final IOException | RuntimeException ex) {
+            log.error("Cannot start a new journal file for a snapshot. Continuing with the journal.", ex);
+            return null;
+        }
+        journalPath = nextPath;
+        final List<Change> ledger = unsegmentedLedger;
+        unsegmentedLedger = new ArrayList<>();
+        snapshotRunning = true;
+        final long sequence = lastSequence;
+        final long entityId = lastEntityId.get();
+        final long ledgerId = lastLedgerId.get();
+        return () -> _takeSnapshot(sequence, entityId, ledgerId, ledger, formerJournal, formerPath);
+    }
+
+    /**Writes the ledger changes up to the given commit into a new ledger segment and the maps into a new snapshot,
+     * and then deletes the former journal files. Never throws, as nobody could handle it.
+     */
+    private void _takeSnapshot(final long sequence, final long entityId, final long ledgerId, final List<Change> ledger,
+            final JournalFile formerJournal, final Path formerPath) {
+        carriedLedger.addAll(ledger);
+        retiredJournals.add(formerPath);
+        try {
+            formerJournal.close();
+            if (!carriedLedger.isEmpty()) {
+                final boolean cleared = carriedLedger.stream().anyMatch(Clearing.class::isInstance);
+                final Path segment = _segmentPath(sequence);
+                _replace(_writeRecords(segment, sequence, entityId, ledgerId, carriedLedger.iterator()), segment);
+                carriedLedger.clear();
+                if (cleared) {
+                    for (final Path older : _files(SEGMENT_PREFIX)) {
+                        if (older.compareTo(segment) < 0) {
+                            Files.delete(older);
+                        }
+                    }
+                }
+            }
+            final Iterator<Change> state = Stream
+                    .<Collection<? extends Change>>of(clients.values(), accounts.values(), accesses.values())
+                    .<Change>flatMap(Collection::stream).iterator();
+            final Path temporary = _writeRecords(snapshotPath, sequence, entityId, ledgerId, state);
+            //The maps can contain changes of later commits. They must be durable, before the snapshot replaces the
+            //former one, as otherwise a commit could be recovered in part:
+            _awaitDurable(journal.position());
+            _replace(temporary, snapshotPath);
+            for (final Path retired : retiredJournals) {
+                Files.deleteIfExists(retired);
+            }
+            retiredJournals.clear();
+            log.debug("Took snapshot up to commit {}", sequence);
+        } catch (final IOException | RuntimeException ex) {
+            log.error("Cannot take snapshot. Continuing with the journal.", ex);
+        } finally {
+            commitLock.lock();
+            try {
+                snapshotRunning = false;
+            } finally {
+                commitLock.unlock();
+            }
+        }
+    }
+
+    /**Waits until the snapshot being taken, if any, has ended. For tests.*/
+    void awaitSnapshot() throws InterruptedException, ExecutionException {
+        snapshotExecutor.submit(() -> { }).get();
+    }
+
+    /**Takes a snapshot, so that the next startup need not replay the journal, and closes the journal.*/
+    @Override
+    public void destroy() throws IOException {
+        snapshotExecutor.shutdown();
+        try {
+            snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        commitLock.lock();
+        try {
+            if (framesSinceSnapshot > 0) {
+                final Runnable snapshot = _startSnapshot();
+                if (snapshot != null) {
+                    snapshot.run();
+                }
+            }
+            journal.close();
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure.journal;
+
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.SmartTransactionObject;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**The transaction manager of the <code>journal</code> profile, under which there is neither a database
+ * nor a JPA provider. A transaction holds no resource of its own. It only demarcates the transaction
+ * synchronizations, by which the {@link JournalStore} commits or discards the {@link JournalSession}
+ * of the transaction and releases its account locks.
+ * <p>
+ * The running transaction of a thread is marked by a resource bound to this manager, so that a new transaction
+ * (PROPAGATION_REQUIRES_NEW) can suspend it, and a participating one can mark it as rollback-only.
+ */
+@Component("transactionManager")
+@Profile("journal")
+@SuppressWarnings("serial")
+public class JournalTransactionManager extends AbstractPlatformTransactionManager {
+
+    /**The state of a running transaction shared by all participants.*/
+    private static final class TransactionState {
+        private boolean rollbackOnly;
+    }
+
+    /**The transaction object of one participant.*/
+    private static final class JournalTransaction implements SmartTransactionObject {
+
+        private TransactionState state;
+
+        JournalTransaction(final TransactionState state) {
+            this.state = state;
+        }
+
+        @Override
+        public boolean isRollbackOnly() {
+            return state != null && state.rollbackOnly;
+        }
+
+        @Override
+        public void flush() {
+            //Changes are written by the commit of the JournalSession
+        }
+    }
+
+    @Override
+    protected Object doGetTransaction() {
+        return new JournalTransaction((TransactionState) TransactionSynchronizationManager.getResource(this));
+    }
+
+    @Override
+    protected boolean isExistingTransaction(final Object transaction) {
+        return ((JournalTransaction) transaction).state != null;
+    }
+
+    @Override
+    protected void doBegin(final Object transaction, final TransactionDefinition definition) {
+        final TransactionState state = new TransactionState();
+        TransactionSynchronizationManager.bindResource(this, state);
+        ((JournalTransaction) transaction).state = state;
+    }
+
+    @Override
+    protected Object doSuspend(final Object transaction) {
+        ((JournalTransaction) transaction).state = null;
+        return TransactionSynchronizationManager.unbindResource(this);
+    }
+
+    @Override
+    protected void doResume(final Object transaction, final Object suspendedResources) {
+        TransactionSynchronizationManager.bindResource(this, suspendedResources);
+    }
+
+    @Override
+    protected void doCommit(final DefaultTransactionStatus status) {
+        //The JournalStore has committed the session before by its transaction synchronization.
+    }
+
+    @Override
+    protected void doRollback(final DefaultTransactionStatus status) {
+        //The JournalStore discards the session after the completion by its transaction synchronization.
+    }
+
+    @Override
+    protected void doSetRollbackOnly(final DefaultTransactionStatus status) {
+        ((JournalTransaction) status.getTransaction()).state.rollbackOnly = true;
+    }
+
+    @Override
+    protected void doCleanupAfterCompletion(final Object transaction) {
+        TransactionSynchronizationManager.unbindResourceIfPossible(this);
+    }
+
+}
@@ -0,0 +1,5 @@
+/**Contains implementations of the repositories required by the domain, which keep all entities in the heap
+ * and persist each committed transaction into an append-only journal file. They are used instead of the
+ * JPA implementations, when the Spring profile <code>journal</code> is active.
+ */
+package de.beuth.knabe.spring_ddd_bank.infrastructure.journal;
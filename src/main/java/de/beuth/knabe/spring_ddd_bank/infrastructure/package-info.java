@@ -1,2 +1,6 @@
-/**Contains implementations for services required by other parts of the application.*/
-package de.beuth.knabe.spring_ddd_bank.infrastructure;
\ No newline at end of file
+/**Contains implementations for services required by other parts of the application.
+ * Defines the generator of the identities of the entities, which are mapped to the database.*/
+@GenericGenerator(name = EntityIdGenerator.NAME, strategy = "de.beuth.knabe.spring_ddd_bank.infrastructure.EntityIdGenerator")
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import org.hibernate.annotations.GenericGenerator;
@@ -1,16 +1,34 @@
 package de.beuth.knabe.spring_ddd_bank.rest_interface;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
 import io.swagger.annotations.Authorization;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.http.HttpMethod;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -21,12 +39,13 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.context.request.WebRequest;
 
-import de.beuth.knabe.spring_ddd_bank.domain.Account;
 import de.beuth.knabe.spring_ddd_bank.domain.AccountAccess;
 import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
 import de.beuth.knabe.spring_ddd_bank.domain.Amount;
 import de.beuth.knabe.spring_ddd_bank.domain.BankService;
 import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
+import de.beuth.knabe.spring_ddd_bank.domain.TransferOrder;
 import multex.Exc;
 import static multex.MultexUtil.create;
 
@@ -37,6 +56,9 @@ import static multex.MultexUtil.create;
 @RestController
 // Made transactional according to the answer of Rogério at
 // https://stackoverflow.com/questions/23118789/why-we-shouldnt-make-a-spring-mvc-controller-transactional
+// The queries are marked @Transactional(readOnly = true): Hibernate then neither keeps snapshots of the loaded
+// entities for dirty checking nor flushes (FlushMode.MANUAL), and the ReadRoutingDataSource, if configured, sends
+// them to the read data source.
 @Transactional
 // If you want to make this REST service accessible by another site or port, you
 // must allow Cross-Origin Resource Sharing (CORS).
@@ -47,15 +69,39 @@ import static multex.MultexUtil.create;
 // @CrossOrigin
 public class ApplicationController {
 
+	private static final Logger log = LoggerFactory.getLogger(ApplicationController.class);
+
 	private final BankService bankService;
 
-	private final String className = getClass().getSimpleName();
+	private final TransactionRetryTemplate transactionRetryTemplate;
+
+	private final DepositPipeline depositPipeline;
+
+	/** Writes streamed resources. */
+	private final ObjectMapper objectMapper;
+
+	/** Reads the transfer commands of a bulk transfer one by one from the request body. */
+	private final ObjectReader transferCommandReader;
+
+	/**
+	 * Maximum number of transfers of a bulk transfer done in one transaction, so
+	 * that a transaction locks and logs a bounded amount. 0 means unlimited.
+	 */
+	private final int bulkTransferChunkSize;
 
 	private final Converter converter = new Converter();
 
 	@Autowired
-	public ApplicationController(final BankService bankService) {
+	public ApplicationController(final BankService bankService,
+			final TransactionRetryTemplate transactionRetryTemplate, final DepositPipeline depositPipeline,
+			final ObjectMapper objectMapper,
+			@Value("${bank.bulkTransfer.chunkSize:500}") final int bulkTransferChunkSize) {
 		this.bankService = bankService;
+		this.transactionRetryTemplate = transactionRetryTemplate;
+		this.depositPipeline = depositPipeline;
+		this.objectMapper = objectMapper;
+		this.transferCommandReader = objectMapper.readerFor(TransferCommand.class);
+		this.bulkTransferChunkSize = bulkTransferChunkSize;
 	}
 	/*
 	 * A good resource for the design of REST URIs is
@@ -71,8 +117,7 @@ public class ApplicationController {
 	// For everyone (guests):
 
 	@GetMapping(path = "/")
-	public ResponseEntity<String> home(final HttpMethod method, final WebRequest request) {
-		_print(method, request);
+	public ResponseEntity<String> home() {
 		final String htmlContent = "<!DOCTYPE html><html><body>"
 				+ "<h1>Welcome to the Spring DDD Bank REST Webservice.</h1>"
 				+ "<p style='font-size: large;'>Click here for <a href='swagger-ui.html'>REST API documentation</a> powered by <a href='https://swagger.io/'>Swagger</a></p>"
@@ -92,18 +137,16 @@ public class ApplicationController {
 			+ "and for checking, if the transaction rollback mechanism works.", authorizations = {
 					@Authorization(value = "basicAuth") })
 	@PostMapping("/bank/pair")
-	public ResponseEntity<ClientResource[]> create2Clients(@ApiParam(hidden = true) final HttpMethod method,
-			final WebRequest request) {
-		_print(method, request);
+	public ResponseEntity<ClientResource[]> create2Clients() {
 		final long now = System.currentTimeMillis();
 		final long number = now % 100;
 		final Client client1 = bankService.createClient("hans" + number, _randomClientBirthDate());
-		System.out.printf("Client %s created.\n", client1);
+		log.debug("Client {} created.", client1);
 		if (number % 3 == 0) {
 			throw new Exc("Exception after creating {0}. Should have been rolled back.", client1);
 		}
 		final Client client2 = bankService.createClient("jana" + number, _randomClientBirthDate());
-		System.out.printf("Client %s created.\n", client2);
+		log.debug("Client {} created.", client2);
 		final List<Client> clients = bankService.findAllClients();
 		return converter.clientsToResources(clients);
 	}
@@ -111,9 +154,7 @@ public class ApplicationController {
 	@ApiOperation(value = "Create a client from the passed client resource.", code = 201, authorizations = {
 			@Authorization(value = "basicAuth") })
 	@PostMapping("/bank/client")
-	public ResponseEntity<ClientResource> createClient(@RequestBody final ClientResource clientResource,
-			@ApiParam(hidden = true) final HttpMethod method, final WebRequest request) {
-		_print(method, request);
+	public ResponseEntity<ClientResource> createClient(@RequestBody final ClientResource clientResource) {
 		if (clientResource.id != null) {
 			throw create(ClientCreateWithIdExc.class, clientResource.username, clientResource.id);
 		}
@@ -132,41 +173,166 @@ public class ApplicationController {
 	@ApiOperation(value = "Delete the client with the given username.", authorizations = {
 			@Authorization(value = "basicAuth") })
 	@DeleteMapping("/bank/client/{username}")
-	public ResponseEntity<String> deleteClient(@PathVariable @ApiParam("username of client") final String username,
-			@ApiParam(hidden = true) final HttpMethod method, final WebRequest request) {
-		_print(method, request);
+	public ResponseEntity<String> deleteClient(@PathVariable @ApiParam("username of client") final String username) {
 		final Client client = bankService.findClient(username);
 		bankService.deleteClient(client);
 		return new ResponseEntity<>(HttpStatus.NO_CONTENT);
 	}
 
-	@ApiOperation(value = "Find clients. Omit Parameters to retrieve all clients.", authorizations = {
+	/** Number of clients on a page, if only afterId is given. */
+	private static final int DEFAULT_PAGE_LIMIT = 100;
+
+	@ApiOperation(value = "Find clients. Omit Parameters to retrieve all clients. "
+			+ "Pass limit and/or afterId to retrieve all clients page by page. "
+			+ "Pass minBalance and limit to retrieve the limit richest clients.", authorizations = {
 			@Authorization(value = "basicAuth") })
 	@GetMapping(path = "/bank/client")
+	@Transactional(readOnly = true)
 	public ResponseEntity<ClientResource[]> findClients(
 			@ApiParam("Returns all clients born at fromBirth or later.") @RequestParam(name = "fromBirth", defaultValue = "") final String fromBirth,
-			@ApiParam("Returns all clients with an account with a balance of minBalance or more.") @RequestParam(name = "minBalance", defaultValue = "") final String minBalance,
-			@ApiParam(hidden = true) final HttpMethod method, final WebRequest request) {
-		_print(method, request);
-		final List<Client> clients;
-		if ("".equals(fromBirth) && "".equals(minBalance)) {
-			clients = bankService.findAllClients();
-		} else if ("".equals(minBalance)) { // only fromBirth given
+			@ApiParam("Together with fromBirth returns only the clients born at toBirth or earlier.") @RequestParam(name = "toBirth", defaultValue = "") final String toBirth,
+			@ApiParam("Returns all clients with an account with a balance of minBalance or more, ordered by their highest balance.") @RequestParam(name = "minBalance", required = false) final Double minBalance,
+			@ApiParam("Returns the clients following the client with the ID afterId, which is the last ID of the previous page.") @RequestParam(name = "afterId", required = false) final Long afterId,
+			@ApiParam("Returns at most limit clients, ordered by descending IDs. Default is " + DEFAULT_PAGE_LIMIT + ", if afterId is given. "
+					+ "With minBalance returns the limit clients with the highest balances.") @RequestParam(name = "limit", required = false) final Integer limit) {
+		if (!"".equals(toBirth) && !(minBalance == null && afterId == null && limit == null && !"".equals(fromBirth))) {
+			throw create(FindClientsToBirthExc.class, toBirth);
+		}
+		if (minBalance != null && "".equals(fromBirth) && afterId == null) { // only minBalance, maybe a limit
+			// Amount checks the range of minBalance, and the BankService checks, that limit is at least 1:
+			final Amount minBalanceAmount = new Amount(minBalance);
+			final int limitInt = limit == null ? Integer.MAX_VALUE : limit;
+			try (Stream<ClientSummary> richClients = bankService.streamRichClientSummaries(minBalanceAmount, limitInt)) {
+				return converter.summariesToResources(richClients.collect(Collectors.toList()));
+			}
+		}
+		final List<ClientSummary> clients;
+		final boolean paged = afterId != null || limit != null;
+		if (paged && !("".equals(fromBirth) && minBalance == null)) {
+			throw create(FindClientsPagedWithConstraintExc.class, afterId, limit);
+		}
+		if (paged) {
+			// The limit is checked against 1..BankService.MAX_PAGE_LIMIT by the BankService:
+			clients = bankService.findClientSummaries(afterId, limit == null ? DEFAULT_PAGE_LIMIT : limit);
+		} else if ("".equals(fromBirth) && minBalance == null) {
+			clients = bankService.findAllClientSummaries();
+		} else if (minBalance == null && "".equals(toBirth)) { // only fromBirth given
 			final LocalDate fromBirthLocalDate = converter.toLocaldate(fromBirth);
-			clients = bankService.findYoungClients(fromBirthLocalDate);
-		} else if (fromBirth.equals("")) { // only minBalance given
-			final double minBalanceDouble = Double.parseDouble(minBalance);
-			final Amount minBalanceAmount = new Amount(minBalanceDouble);
-			clients = bankService.findRichClients(minBalanceAmount);
+			clients = bankService.findYoungClientSummaries(fromBirthLocalDate);
+		} else if (minBalance == null) { // fromBirth and toBirth given
+			clients = bankService.findClientSummariesBornBetween(converter.toLocaldate(fromBirth),
+					converter.toLocaldate(toBirth));
 		} else {
 			throw create(FindClientsBothConstraintsExc.class, fromBirth, minBalance);
 		}
-		return converter.clientsToResources(clients);
+		return converter.summariesToResources(clients);
 	}
 
 	/** Must not provide both parameters: fromBirth=$1 and minBalance=$2!*/
 	public static class FindClientsBothConstraintsExc extends Exc {}
 
+	/** Paging by afterId={0} and limit={1} is possible only without the parameters fromBirth and minBalance, except a limit only together with minBalance. */
+	@SuppressWarnings("serial")
+	public static class FindClientsPagedWithConstraintExc extends Exc {
+	}
+
+	/** The parameter toBirth={0} is possible only together with fromBirth, and without the other parameters. */
+	@SuppressWarnings("serial")
+	public static class FindClientsToBirthExc extends Exc {
+	}
+
+	/** Number of clients found by a search, if no limit is given. */
+	private static final int DEFAULT_SEARCH_LIMIT = 10;
+
+	@ApiOperation(value = "Searches the clients, whose usernames start with the given prefix, ordered by username. "
+			+ "Suited for a type-ahead search.", authorizations = { @Authorization(value = "basicAuth") })
+	@GetMapping(path = "/bank/client/search")
+	@Transactional(readOnly = true)
+	public ResponseEntity<ClientResource[]> searchClients(
+			@ApiParam("The case-sensitive start of the usernames. Empty for all.") @RequestParam(name = "prefix", defaultValue = "") final String prefix,
+			@ApiParam("Returns at most limit clients.") @RequestParam(name = "limit", defaultValue = "" + DEFAULT_SEARCH_LIMIT) final int limit) {
+		return converter.summariesToResources(bankService.findClientSummariesByUsernamePrefix(prefix, limit));
+	}
+
+	@ApiOperation(value = "Returns all clients ordered by descending IDs as a JSON array, which is written incrementally "
+			+ "while the clients are read from the database. So the memory needed does not grow with the number of clients.", authorizations = {
+					@Authorization(value = "basicAuth") })
+	@GetMapping(path = "/bank/client", params = "stream=true")
+	@Transactional(readOnly = true)
+	public void streamClients(
+			@ApiParam("Streams only the clients with an account with a balance of minBalance or more, ordered by their highest balance.") @RequestParam(name = "minBalance", required = false) final Double minBalance,
+			@ApiParam(hidden = true) final HttpServletResponse response) throws IOException {
+		if (minBalance != null) {
+			final Amount minBalanceAmount = new Amount(minBalance);
+			try (Stream<ClientSummary> richClients = bankService.streamRichClientSummaries(minBalanceAmount,
+					Integer.MAX_VALUE)) {
+				_writeJsonArray(richClients.map(converter::toClientResource), response);
+			}
+			return;
+		}
+		try (Stream<Client> clients = bankService.streamAllClients()) {
+			_writeJsonArray(clients.map(converter::toClientResource), response);
+		}
+	}
+
+	/** Writes the resources incrementally as a JSON array into the response. */
+	private void _writeJsonArray(final Stream<ClientResource> resources, final HttpServletResponse response)
+			throws IOException {
+		response.setStatus(HttpStatus.OK.value());
+		response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+		try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+			generator.writeStartArray();
+			for (final ClientResource resource : (Iterable<ClientResource>) resources::iterator) {
+				generator.writeObject(resource);
+			}
+			generator.writeEndArray();
+		}
+	}
+
+	@ApiOperation(value = "Returns a report of the contended account locks with columns lock number, acquisitions, contended acquisitions, and total wait milliseconds", authorizations = {
+			@Authorization(value = "basicAuth") })
+	@GetMapping("/bank/accountLocks")
+	public ResponseEntity<String> accountLocksReport() {
+		final String result = bankService.reportAccountLockContention();
+		return new ResponseEntity<>(result, HttpStatus.OK);
+	}
+
+	@ApiOperation(value = "Returns a report of the cache for finding clients with columns hits, misses, evictions, and cached clients. Empty, if there is no such cache.", authorizations = {
+			@Authorization(value = "basicAuth") })
+	@GetMapping("/bank/clientCache")
+	public ResponseEntity<String> clientCacheReport() {
+		final String result = bankService.reportClientCache();
+		return new ResponseEntity<>(result, HttpStatus.OK);
+	}
+
+	@ApiOperation(value = "Checks the in-memory index of the clients by birth date against the database, and returns a report "
+			+ "with columns indexed clients, clients with a birth date in the database, missing, superfluous, and differing clients. "
+			+ "An inconsistent index is rebuilt by the next query. Empty, if there is no such index.", authorizations = {
+					@Authorization(value = "basicAuth") })
+	@GetMapping("/bank/clientIndex/birthDate")
+	public ResponseEntity<String> clientBirthDateIndexCheck() {
+		final String result = bankService.checkClientBirthDateIndex();
+		return new ResponseEntity<>(result, HttpStatus.OK);
+	}
+
+	@ApiOperation(value = "Checks the in-memory index of the clients by username against the database, and returns a report "
+			+ "with columns indexed clients, clients in the database, missing, superfluous, and differing clients. "
+			+ "An inconsistent index is rebuilt by the next search. Empty, if there is no such index.", authorizations = {
+					@Authorization(value = "basicAuth") })
+	@GetMapping("/bank/clientIndex/username")
+	public ResponseEntity<String> clientUsernameIndexCheck() {
+		final String result = bankService.checkClientUsernameIndex();
+		return new ResponseEntity<>(result, HttpStatus.OK);
+	}
+
+	@ApiOperation(value = "Returns the durations and failures of the domain operations in the text format of Prometheus for scraping", authorizations = {
+			@Authorization(value = "basicAuth") })
+	@GetMapping(path = "/bank/metrics", produces = "text/plain; version=0.0.4; charset=utf-8")
+	public ResponseEntity<String> operationMetrics() {
+		final String result = bankService.reportOperationMetrics();
+		return new ResponseEntity<>(result, HttpStatus.OK);
+	}
+
 	// For the client role all URIs under /client:
 
 	@ApiOperation(value = "Creates a new account for the authenticated client with his userName. "
@@ -174,8 +340,7 @@ public class ApplicationController {
 					@Authorization(value = "basicAuth") })
 	@PostMapping("/client/account")
 	public ResponseEntity<AccountAccessResource> createAccount(@RequestBody final String accountName,
-			@ApiParam(hidden = true) final HttpMethod method, final WebRequest request) {
-		_print(method, request);
+			final WebRequest request) {
 		final Client client = _findClient(request);
 		final AccountAccess r = client.createAccount(accountName);
 		final AccountAccessResource result = new AccountAccessResource(r);
@@ -188,16 +353,25 @@ public class ApplicationController {
 	 * modeling
 	 */
 	@ApiOperation(value = "Deposits the given amount of money to the account with the given accountNo. "
-			+ "This is executed as the authenticated client with his username.", authorizations = {
+			+ "This is executed as the authenticated client with his username. "
+			+ "If the deposit pipeline is enabled, it is committed together with other deposits.", authorizations = {
 					@Authorization(value = "basicAuth") })
 	@PostMapping("/client/deposit")
+	// The transaction is managed by the transactionRetryTemplate in order to retry it on concurrent modifications:
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
 	public ResponseEntity<Void> deposit(@RequestBody final DepositCommand command,
-			@ApiParam(hidden = true) final HttpMethod method, final WebRequest request) {
-		_print(method, request);
-		final Client client = _findClient(request);
-		final Amount amount = new Amount(command.amount);
-		client.deposit(new AccountNo(command.accountNo), amount);
-		return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+			final WebRequest request) {
+		if (depositPipeline.isEnabled()) {
+			depositPipeline.deposit(request.getRemoteUser(), new AccountNo(command.accountNo),
+					new Amount(command.amount));
+			return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+		}
+		return transactionRetryTemplate.execute(() -> {
+			final Client client = _findClient(request);
+			final Amount amount = new Amount(command.amount);
+			client.deposit(new AccountNo(command.accountNo), amount);
+			return new ResponseEntity<>(HttpStatus.NO_CONTENT);
+		});
 	}
 
 	/*
@@ -209,15 +383,106 @@ public class ApplicationController {
 			+ "the account with the given destinationAccountNo. Requires, that the current user is the owner "
 			+ "of the given source account.", authorizations = { @Authorization(value = "basicAuth") })
 	@PostMapping("/client/transfer")
+	// The transaction is managed by the transactionRetryTemplate in order to retry it on concurrent modifications:
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
 	public ResponseEntity<AccountResource> transfer(@RequestBody final TransferCommand command,
-			@ApiParam(hidden = true) final HttpMethod method, final WebRequest request) {
-		_print(method, request);
-		final Client client = _findClient(request);
-		final Account sourceAccount = client.findMyAccount(new AccountNo(command.sourceAccountNo));
-		final Amount amount = new Amount(command.amount);
-		client.transfer(sourceAccount, new AccountNo(command.destinationAccountNo), amount);
-		final AccountResource result = new AccountResource(sourceAccount);
-		return new ResponseEntity<>(result, HttpStatus.NO_CONTENT);
+			final WebRequest request) {
+		return transactionRetryTemplate.execute(() -> {
+			final Client client = _findClient(request);
+			final AccountAccess sourceAccess = client.findMyAccess(new AccountNo(command.sourceAccountNo));
+			final Amount amount = new Amount(command.amount);
+			client.transfer(sourceAccess, new AccountNo(command.destinationAccountNo), amount);
+			final AccountResource result = new AccountResource(sourceAccess.getAccount());
+			return new ResponseEntity<>(result, HttpStatus.NO_CONTENT);
+		});
+	}
+
+	@ApiOperation(value = "Transfers money from accounts of the current user to many destination accounts. "
+			+ "The request body is a JSON array of transfer commands. All of them are read and checked before the "
+			+ "first transfer is done, so a malformed command rejects the whole request without moving money. "
+			+ "Consecutive transfers from the same source account are done in one transaction, all or none, "
+			+ "with the minimum balance checked against their total amount. The number of transfers per "
+			+ "transaction can be limited by the property bank.bulkTransfer.chunkSize. "
+			+ "Returns the result of each transfer and the processed transfers per second.", authorizations = {
+					@Authorization(value = "basicAuth") })
+	@PostMapping("/client/transfers")
+	// The transactions are managed by the transactionRetryTemplate, one for each chunk of transfers:
+	@Transactional(propagation = Propagation.NOT_SUPPORTED)
+	public ResponseEntity<BulkTransferResultResource> transferAll(@ApiParam(hidden = true) final InputStream body,
+			@ApiParam(hidden = true) final Locale locale, final WebRequest request) {
+		final long start = System.nanoTime();
+		final List<AccountNo> sources = new ArrayList<>();
+		final List<TransferOrder> orders = new ArrayList<>();
+		_readTransfers(body, sources, orders);
+		final BulkTransferResultResource result = new BulkTransferResultResource();
+		int from = 0;
+		for (int i = 1; i <= orders.size(); i++) {
+			if (i == orders.size() || i - from == bulkTransferChunkSize || !sources.get(i).equals(sources.get(from))) {
+				_transferChunk(sources.get(from), orders.subList(from, i), result, locale, request);
+				from = i;
+			}
+		}
+		result.rowsPerSecond = result.items.size() / ((System.nanoTime() - start) / 1e9);
+		log.debug("{}", result);
+		return new ResponseEntity<>(result, HttpStatus.OK);
+	}
+
+	/**
+	 * Reads and converts all transfer commands of the body, before any of them is
+	 * executed. So a malformed command cannot fail the request after earlier
+	 * commands have already been committed.
+	 *
+	 * @param body    the JSON array of {@link TransferCommand}s
+	 * @param sources where to add the source account number of each command
+	 * @param orders  where to add the destination and amount of each command
+	 * @throws TransferCommandExc a command cannot be read or contains an illegal
+	 *                            value
+	 */
+	private void _readTransfers(final InputStream body, final List<AccountNo> sources,
+			final List<TransferOrder> orders) {
+		try (MappingIterator<TransferCommand> commands = transferCommandReader.readValues(body)) {
+			while (commands.hasNext()) {
+				final TransferCommand command = commands.next();
+				sources.add(new AccountNo(command.sourceAccountNo));
+				orders.add(new TransferOrder(new AccountNo(command.destinationAccountNo), new Amount(command.amount)));
+			}
+		} catch (final IOException | RuntimeException ex) {
+			throw create(TransferCommandExc.class, ex, orders.size() + 1);
+		}
+	}
+
+	/** The transfer command number {0} cannot be read or is illegal. No transfer has been done. */
+	@SuppressWarnings("serial")
+	public static class TransferCommandExc extends Exc {
+	}
+
+	/**
+	 * Does the given transfers from the same source account in one transaction and
+	 * adds their results to the given result. Only a rejection by a business rule
+	 * fails the transfers of this transaction alone. Any other exception, e.g. a
+	 * {@link multex.Failure} or an unavailable database, ends the whole request,
+	 * so that it is logged and reported with a server error status by the
+	 * {@link ExceptionAdvice}.
+	 *
+	 * @param source  the number of the source account of the transfers
+	 * @param orders  the destinations and amounts of the transfers
+	 * @param result  where to add the result of each transfer
+	 * @param locale  the Locale for the messages of a failed transaction
+	 * @param request the current {@link WebRequest}
+	 */
+	private void _transferChunk(final AccountNo source, final List<TransferOrder> orders,
+			final BulkTransferResultResource result, final Locale locale, final WebRequest request) {
+		try {
+			transactionRetryTemplate.execute(() -> {
+				final Client client = _findClient(request);
+				client.transferAll(client.findMyAccess(source), orders);
+				return null;
+			});
+		} catch (final Exc ex) {
+			result.addAll(orders.size(), ExceptionAdvice.clientMessages(ex, locale));
+			return;
+		}
+		result.addAll(orders.size(), null);
 	}
 
 	/*
@@ -230,36 +495,42 @@ public class ApplicationController {
 					@Authorization(value = "basicAuth") })
 	@PostMapping("/client/manager")
 	public ResponseEntity<AccountAccessResource> addAccountManager(@RequestBody final AddAccountManagerCommand command,
-			@ApiParam(hidden = true) final HttpMethod method, final WebRequest request) {
-		_print(method, request);
+			final WebRequest request) {
 		final Client client = _findClient(request);
-		final Account account = client.findMyAccount(new AccountNo(command.accountNo));
+		final AccountAccess ownerAccess = client.findMyAccess(new AccountNo(command.accountNo));
 		final Client manager = bankService.findClient(command.username);
-		final AccountAccessResource result = new AccountAccessResource(client.addAccountManager(account, manager));
+		final AccountAccessResource result = new AccountAccessResource(client.addAccountManager(ownerAccess, manager));
 		return new ResponseEntity<>(result, HttpStatus.CREATED);
 	}
 
 	@ApiOperation(value = "Returns a report of all accounts the current user manages with columns access right (isOwner|manages), the balance, and the name of the account", authorizations = {
 			@Authorization(value = "basicAuth") })
 	@GetMapping("/client/account")
-	public ResponseEntity<String> accountsReport(@ApiParam(hidden = true) final HttpMethod method,
-			final WebRequest request) {
-		_print(method, request);
+	@Transactional(readOnly = true)
+	public void accountsReport(final WebRequest request,
+			@ApiParam(hidden = true) final HttpServletResponse response) throws IOException {
 		final Client client = _findClient(request);
-		final String result = client.accountsReport();
-		return new ResponseEntity<>(result, HttpStatus.OK);
+		response.setStatus(HttpStatus.OK.value());
+		// The same content type as for a String returned by a ResponseEntity:
+		response.setContentType(ACCOUNTS_REPORT_CONTENT_TYPE);
+		client.writeAccountsReport(response.getWriter());
 	}
 
-	/**
-	 * Prints a message containing the current class name, the HTTP method, and
-	 * infos about the current request.
-	 * 
-	 * @param method  the HTTP method (GET, PUT, POST, DELETE, ...) used in a web
-	 *                request
-	 * @param request the web request as seen by Spring
-	 */
-	private void _print(final HttpMethod method, final WebRequest request) {
-		System.out.printf("%s %s %s\n", className, method, request);
+	private static final String ACCOUNTS_REPORT_CONTENT_TYPE = MediaType.TEXT_PLAIN_VALUE + ";charset=UTF-8";
+
+	@ApiOperation(value = "Searches the accounts the current user manages, whose names contain all words of the query, "
+			+ "ordered by ascending accountNo. The words are compared case-insensitively.", authorizations = {
+					@Authorization(value = "basicAuth") })
+	@GetMapping("/client/account/search")
+	@Transactional(readOnly = true)
+	public ResponseEntity<AccountAccessResource[]> searchAccounts(
+			@ApiParam("Words of the account names separated by blanks or punctuation.") @RequestParam(name = "q") final String query,
+			@ApiParam("Returns at most limit accounts.") @RequestParam(name = "limit", defaultValue = "" + DEFAULT_SEARCH_LIMIT) final int limit,
+			final WebRequest request) {
+		final Client client = _findClient(request);
+		final AccountAccessResource[] result = client.searchMyAccounts(query, limit).stream()
+				.map(AccountAccessResource::new).toArray(AccountAccessResource[]::new);
+		return new ResponseEntity<>(result, HttpStatus.OK);
 	}
 
 	/**
@@ -291,9 +562,7 @@ public class ApplicationController {
 	 *                                       this web request.
 	 */
 	private Client _findClient(final WebRequest request) {
-		final String username = request.getRemoteUser();
-		System.out.printf("ApplicationController._findClient(username=%s)\n", username);
-		return bankService.findClient(username);
+		return bankService.findClient(request.getRemoteUser());
 	}
 
 }
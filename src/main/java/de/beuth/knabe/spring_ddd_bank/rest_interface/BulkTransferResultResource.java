@@ -0,0 +1,67 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/** Result of a bulk transfer with a result for each transfer. Usable as Data Transfer Object. */
+public class BulkTransferResultResource {
+
+	/** Number of committed transfers. */
+	public int transferred;
+
+	/** Number of transfers, which failed along with the other transfers of their transaction. */
+	public int failed;
+
+	/** Transfers processed per second, committed or failed. */
+	public double rowsPerSecond;
+
+	/** The result of each transfer in the order of the request. */
+	public List<Item> items = new ArrayList<>();
+
+	/** The result of one transfer of a bulk transfer. */
+	public static class Item {
+
+		/** Position of the transfer in the request, starting with 0. */
+		public int index;
+
+		/**
+		 * Null, if the transfer was committed, otherwise the messages of the exception,
+		 * by which its transaction failed.
+		 */
+		public String error;
+
+		/** Necessary for Jackson */
+		public Item() {
+		}
+
+		public Item(final int index, final String error) {
+			this.index = index;
+			this.error = error;
+		}
+	}
+
+	/**
+	 * Adds the results of the given number of transfers done in one transaction.
+	 *
+	 * @param count the number of transfers
+	 * @param error null, if the transaction was committed, otherwise the messages
+	 *              of the exception, by which it failed
+	 */
+	void addAll(final int count, final String error) {
+		for (int i = 0; i < count; i++) {
+			items.add(new Item(items.size(), error));
+		}
+		if (error == null) {
+			transferred += count;
+		} else {
+			failed += count;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return String.format("BulkTransferResult{transferred=%d, failed=%d, rowsPerSecond=%.1f}", transferred, failed,
+				rowsPerSecond);
+	}
+
+}
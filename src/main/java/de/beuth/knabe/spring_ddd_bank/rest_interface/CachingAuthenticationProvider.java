@@ -0,0 +1,114 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+
+import de.beuth.knabe.spring_ddd_bank.domain.base.BoundedCache;
+
+/**
+ * Remembers successful verifications of a username and password by another
+ * {@link AuthenticationProvider} for a short time, so that a client repeating
+ * HTTP Basic requests does not pay for the deliberately slow password hashing
+ * on each request. The cache key is an HMAC of the username and password with
+ * a random key, which exists only in this JVM, so the cache does not reveal the
+ * passwords. Failed verifications are not cached. A user disabled or with a
+ * changed password is accepted until its cache entry has expired. Concurrent
+ * requests look up the cache without locking, see {@link BoundedCache}.
+ */
+public class CachingAuthenticationProvider implements AuthenticationProvider {
+
+	private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+	private final AuthenticationProvider delegate;
+	private final boolean enabled;
+	private final SecretKeySpec key;
+	private final ThreadLocal<Mac> macs;
+
+	/** Verified authentications by the HMAC of their credentials. */
+	private final BoundedCache<String, Authentication> cache;
+
+	/**
+	 * Constructs the provider.
+	 *
+	 * @param delegate
+	 *            verifies the credentials, which are not in the cache
+	 * @param enabled
+	 *            if false, all credentials are verified by the delegate.
+	 * @param maxSize
+	 *            the maximum number of remembered verifications. If exceeded,
+	 *            about the least recently used one is forgotten.
+	 * @param ttlSeconds
+	 *            how long a successful verification is remembered
+	 */
+	public CachingAuthenticationProvider(final AuthenticationProvider delegate, final boolean enabled,
+			final int maxSize, final long ttlSeconds) {
+		this.delegate = delegate;
+		this.enabled = enabled;
+		this.cache = new BoundedCache<>(maxSize, ttlSeconds);
+		final byte[] keyBytes = new byte[32];
+		new SecureRandom().nextBytes(keyBytes);
+		this.key = new SecretKeySpec(keyBytes, HMAC_ALGORITHM);
+		this.macs = ThreadLocal.withInitial(this::_newMac);
+	}
+
+	@Override
+	public Authentication authenticate(final Authentication authentication) throws AuthenticationException {
+		if (!enabled || authentication.getCredentials() == null) {
+			return delegate.authenticate(authentication);
+		}
+		final String cacheKey = _hmac(authentication.getName(), authentication.getCredentials().toString());
+		final Authentication cached = cache.get(cacheKey);
+		if (cached != null) {
+			final UsernamePasswordAuthenticationToken result = new UsernamePasswordAuthenticationToken(
+					cached.getPrincipal(), null, cached.getAuthorities());
+			result.setDetails(authentication.getDetails());
+			return result;
+		}
+		final Authentication result = delegate.authenticate(authentication);
+		if (result != null && result.isAuthenticated()) {
+			cache.put(cacheKey, result);
+		}
+		return result;
+	}
+
+	@Override
+	public boolean supports(final Class<?> authentication) {
+		return delegate.supports(authentication);
+	}
+
+	/** @return the number of remembered verifications */
+	int size() {
+		return cache.size();
+	}
+
+	private String _hmac(final String username, final String password) {
+		final Mac mac = macs.get();
+		final byte[] usernameBytes = username.getBytes(StandardCharsets.UTF_8);
+		// The length makes the key unambiguous, even if the username contains a colon:
+		mac.update(ByteBuffer.allocate(Integer.BYTES).putInt(usernameBytes.length).array());
+		mac.update(usernameBytes);
+		return Base64.getEncoder().encodeToString(mac.doFinal(password.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private Mac _newMac() {
+		try {
+			final Mac result = Mac.getInstance(HMAC_ALGORITHM);
+			result.init(key);
+			return result;
+		} catch (final GeneralSecurityException ex) {
+			throw new IllegalStateException(HMAC_ALGORITHM + " is not available", ex);
+		}
+	}
+
+}
@@ -1,6 +1,7 @@
 package de.beuth.knabe.spring_ddd_bank.rest_interface;
 
 import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -40,4 +41,22 @@ public class Converter {
 		return new ResponseEntity<>(resultArray, HttpStatus.OK);
 	}
 
+	/**
+	 * Constructs a ClientResource with the data of the passed client summary.
+	 *
+	 * @param summary
+	 *            the summary to be converted
+	 */
+	public ClientResource toClientResource(final ClientSummary summary) {
+		return new ClientResource(summary.getId(), summary.getUsername(), toString(summary.getBirthDate()));
+	}
+
+	ResponseEntity<ClientResource[]> summariesToResources(final List<ClientSummary> summaries) {
+		final ClientResource[] resultArray = new ClientResource[summaries.size()];
+		for (int i = 0; i < resultArray.length; i++) {
+			resultArray[i] = toClientResource(summaries.get(i));
+		}
+		return new ResponseEntity<>(resultArray, HttpStatus.OK);
+	}
+
 }
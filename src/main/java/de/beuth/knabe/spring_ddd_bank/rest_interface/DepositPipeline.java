@@ -0,0 +1,291 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import static multex.MultexUtil.create;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.BankService;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+
+/**
+ * Applies deposits in micro-batches by a single writer thread, so that many
+ * small deposits share one transaction and one flush of the database log.
+ * Callers put their deposit into a bounded queue and wait for its own outcome.
+ * The writer takes up to batchSize deposits, waiting at most lingerMillis after
+ * the first one for further ones, and applies them in one transaction, while
+ * all their accounts are locked against concurrent transfers. A deposit failing
+ * by a business exception, e.g. an unknown destination account, fails only its
+ * own caller. If the transaction of a batch fails as a whole, each of its
+ * deposits is applied again in its own transaction.
+ */
+@Component
+public class DepositPipeline implements DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(DepositPipeline.class);
+
+	private final BankService bankService;
+
+	private final TransactionRetryTemplate transactionRetryTemplate;
+
+	private final int batchSize;
+
+	private final long lingerNanos;
+
+	private final BlockingQueue<Deposit> queue;
+
+	/** The single writer thread, or null, if the pipeline is disabled. */
+	private final Thread writer;
+
+	private volatile boolean running;
+
+	/** Number of batches committed in one transaction. */
+	private final AtomicLong batchCount = new AtomicLong();
+
+	/** A deposit waiting in the queue along with the outcome for its caller. */
+	private static final class Deposit {
+		final String username;
+		final AccountNo destination;
+		final Amount amount;
+		final CompletableFuture<Void> result = new CompletableFuture<>();
+
+		Deposit(final String username, final AccountNo destination, final Amount amount) {
+			this.username = username;
+			this.destination = destination;
+			this.amount = amount;
+		}
+	}
+
+	/**
+	 * Constructs the pipeline and starts its writer thread, if enabled.
+	 *
+	 * @param bankService              for finding the depositing clients
+	 * @param transactionRetryTemplate for the transactions of the batches
+	 * @param enabled                  if false, deposits are not passed through
+	 *                                 this pipeline.
+	 * @param capacity                 how many deposits can wait in the queue.
+	 *                                 Further callers wait for free space.
+	 * @param batchSize                the maximum number of deposits applied in
+	 *                                 one transaction
+	 * @param lingerMillis             how long the writer waits for further
+	 *                                 deposits after the first one of a batch
+	 */
+	@Autowired
+	public DepositPipeline(final BankService bankService, final TransactionRetryTemplate transactionRetryTemplate,
+			@Value("${bank.depositPipeline.enabled:false}") final boolean enabled,
+			@Value("${bank.depositPipeline.capacity:10000}") final int capacity,
+			@Value("${bank.depositPipeline.batchSize:100}") final int batchSize,
+			@Value("${bank.depositPipeline.lingerMillis:2}") final long lingerMillis) {
+		if (batchSize < 1 || capacity < batchSize) {
+			throw new IllegalArgumentException(String.format(
+					"batchSize must be at least 1 and at most capacity, but batchSize is %d and capacity is %d",
+					batchSize, capacity));
+		}
+		this.bankService = bankService;
+		this.transactionRetryTemplate = transactionRetryTemplate;
+		this.batchSize = batchSize;
+		this.lingerNanos = TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.running = enabled;
+		if (enabled) {
+			writer = new Thread(this::_write, "deposit-pipeline");
+			writer.setDaemon(true);
+			writer.start();
+		} else {
+			writer = null;
+		}
+	}
+
+	/** @return true, if deposits should be passed through this pipeline */
+	public boolean isEnabled() {
+		return writer != null;
+	}
+
+	/**
+	 * Deposits the given amount into the destination account as by
+	 * {@link Client#deposit(AccountNo, Amount)} of the client with the given
+	 * username. Waits until the batch containing the deposit has been committed.
+	 *
+	 * @param username    the username of the depositing client
+	 * @param destination number of the account where the amount will be deposited
+	 * @param amount      the amount to be deposited
+	 *
+	 * @throws Client.AmountExc                     Illegal amount (negative or
+	 *                                              zero)
+	 * @throws Client.DestinationAccountNotFoundExc No account with the given
+	 *                                              destination account number is
+	 *                                              found.
+	 * @throws BankService.ClientNotFoundExc        There is no client with the
+	 *                                              given username.
+	 * @throws Client.DepositFailure                another error when depositing
+	 *                                              money, e.g. the pipeline was
+	 *                                              shut down. If the waiting thread
+	 *                                              was interrupted, the deposit can
+	 *                                              nevertheless have been done.
+	 */
+	public void deposit(final String username, final AccountNo destination, final Amount amount) {
+		final Deposit deposit = new Deposit(username, destination, amount);
+		try {
+			if (!running) {
+				throw new IllegalStateException("The deposit pipeline is not running.");
+			}
+			queue.put(deposit);
+			if (!running && queue.remove(deposit)) { // missed by the writer shutting down
+				throw new IllegalStateException("The deposit pipeline is not running.");
+			}
+			deposit.result.get();
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw create(Client.DepositFailure.class, ex, amount, destination);
+		} catch (final IllegalStateException ex) {
+			throw create(Client.DepositFailure.class, ex, amount, destination);
+		} catch (final ExecutionException ex) {
+			// The writer completes deposits exceptionally only by RuntimeExceptions:
+			throw (RuntimeException) ex.getCause();
+		}
+	}
+
+	/** The loop of the writer thread. Fails all deposits left over at shutdown. */
+	private void _write() {
+		final List<Deposit> batch = new ArrayList<>(batchSize);
+		try {
+			while (running) {
+				_takeBatch(batch);
+				_apply(batch);
+				batch.clear();
+			}
+		} catch (final InterruptedException ex) {
+			// shut down
+		}
+		queue.drainTo(batch);
+		final IllegalStateException shutdown = new IllegalStateException("The deposit pipeline was shut down.");
+		for (final Deposit deposit : batch) {
+			deposit.result.completeExceptionally(
+					create(Client.DepositFailure.class, shutdown, deposit.amount, deposit.destination));
+		}
+	}
+
+	/**
+	 * Waits for the first deposit and adds it to the batch. Then adds further
+	 * deposits until the batch is full or the linger time is over.
+	 *
+	 * @param batch the empty list to be filled
+	 * @throws InterruptedException the writer thread was interrupted
+	 */
+	private void _takeBatch(final List<Deposit> batch) throws InterruptedException {
+		batch.add(queue.take());
+		final long deadline = System.nanoTime() + lingerNanos;
+		while (batch.size() < batchSize) {
+			if (queue.drainTo(batch, batchSize - batch.size()) > 0) {
+				continue;
+			}
+			final long remainingNanos = deadline - System.nanoTime();
+			if (remainingNanos <= 0) {
+				return;
+			}
+			final Deposit next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+			if (next == null) {
+				return;
+			}
+			batch.add(next);
+		}
+	}
+
+	/**
+	 * Applies the batch in one transaction and completes the deposits by their
+	 * outcome. If the transaction fails, each deposit is applied in its own
+	 * transaction.
+	 *
+	 * @param batch the deposits to be applied
+	 */
+	private void _apply(final List<Deposit> batch) {
+		final RuntimeException[] failures;
+		try {
+			failures = transactionRetryTemplate.execute(() -> _applyInOneTransaction(batch));
+		} catch (final RuntimeException ex) {
+			log.warn("Batch of {} deposits failed, applying them one by one: {}", batch.size(), ex.toString());
+			for (final Deposit deposit : batch) {
+				try {
+					transactionRetryTemplate.execute(() -> {
+						bankService.findClient(deposit.username).deposit(deposit.destination, deposit.amount);
+						return null;
+					});
+					deposit.result.complete(null);
+				} catch (final RuntimeException depositException) {
+					deposit.result.completeExceptionally(depositException);
+				}
+			}
+			return;
+		}
+		batchCount.incrementAndGet();
+		for (int i = 0; i < failures.length; i++) {
+			if (failures[i] == null) {
+				batch.get(i).result.complete(null);
+			} else {
+				batch.get(i).result.completeExceptionally(failures[i]);
+			}
+		}
+	}
+
+	/**
+	 * Applies the deposits of the batch in the current transaction. A deposit
+	 * failing by a business exception is skipped, as it has not modified anything.
+	 *
+	 * @param batch the deposits to be applied
+	 * @return for each deposit the business exception, by which it failed, or null
+	 */
+	private RuntimeException[] _applyInOneTransaction(final List<Deposit> batch) {
+		final RuntimeException[] failures = new RuntimeException[batch.size()];
+		final AccountNo[] destinations = batch.stream().map(deposit -> deposit.destination).toArray(AccountNo[]::new);
+		bankService.runLocked(() -> {
+			final Map<String, Client> clients = new HashMap<>();
+			for (int i = 0; i < failures.length; i++) {
+				final Deposit deposit = batch.get(i);
+				try {
+					final Client client = clients.computeIfAbsent(deposit.username, bankService::findClient);
+					client.deposit(deposit.destination, deposit.amount);
+				} catch (final Client.AmountExc | Client.DestinationAccountNotFoundExc
+						| BankService.ClientNotFoundExc ex) {
+					failures[i] = ex;
+				}
+			}
+		}, destinations);
+		return failures;
+	}
+
+	/** @return the number of batches committed in one transaction so far */
+	long batchCount() {
+		return batchCount.get();
+	}
+
+	/**
+	 * Stops the writer thread. Deposits not yet taken into a batch are failed.
+	 */
+	@Override
+	public void destroy() throws InterruptedException {
+		if (writer == null) {
+			return;
+		}
+		running = false;
+		writer.interrupt();
+		writer.join(TimeUnit.SECONDS.toMillis(10));
+	}
+
+}
@@ -7,17 +7,22 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.hateoas.VndErrors;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import de.beuth.knabe.spring_ddd_bank.domain.BankService;
 import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import multex.Exc;
 import multex.Failure;
 import multex.Msg;
 
+import static multex.MultexUtil.create;
+
 /**
  * Centralized Exception Reporting for all Controller classes.
  * 
@@ -37,6 +42,11 @@ public class ExceptionAdvice {
 
 	private static final Logger log = LoggerFactory.getLogger(ExceptionAdvice.class);
 
+	/** Constructs the advice and preloads the message texts for the default Locale. */
+	public ExceptionAdvice() {
+		MessageTexts.forLocale(Locale.getDefault());
+	}
+
 	@ResponseBody
 	@ExceptionHandler({ Exception.class })
 	/**
@@ -52,16 +62,14 @@ public class ExceptionAdvice {
 	VndErrors reportException(final Exception ex, final Locale requestLocale, final HttpServletResponse response) {
 		// prepare messages for REST client with the Locale of the request:
 		/** Message texts for exceptions. */
-		final ResourceBundle requestResourceBundle = ResourceBundle.getBundle(BASE_NAME, requestLocale);
-		final StringBuffer clientMessages = new StringBuffer();
-		multex.Msg.printMessages(clientMessages, ex, requestResourceBundle);
-		final String clientMesagesString = clientMessages.toString();
+		final ResourceBundle requestResourceBundle = MessageTexts.forLocale(requestLocale);
+		final String clientMesagesString = clientMessages(ex, requestLocale);
 
 		// prepare log report with messages and stack trace:
 		final StringBuffer serverMessages = new StringBuffer();
 		serverMessages.append("Processing REST request threw exception:\n");
 		final Locale defaultLocale = Locale.getDefault();
-		final ResourceBundle defaultResourceBundle = ResourceBundle.getBundle(BASE_NAME, defaultLocale);
+		final ResourceBundle defaultResourceBundle = MessageTexts.forLocale(defaultLocale);
 		if (!defaultResourceBundle.equals(requestResourceBundle)) {
 			serverMessages.append(clientMesagesString);
 			serverMessages.append("\n-----\n");
@@ -75,6 +83,42 @@ public class ExceptionAdvice {
 		return new VndErrors("error", clientMesagesString);
 	}
 
+	@ResponseBody
+	@ExceptionHandler({ MethodArgumentTypeMismatchException.class })
+	/**
+	 * Reports a request parameter, which cannot be converted to the type of its
+	 * handler method parameter, e.g. a limit, which is not a number, as a
+	 * {@link RequestParameterExc} like by
+	 * {@link #reportException(Exception, Locale, HttpServletResponse)}.
+	 */
+	VndErrors reportParameterTypeMismatch(final MethodArgumentTypeMismatchException ex, final Locale requestLocale,
+			final HttpServletResponse response) {
+		return reportException(create(RequestParameterExc.class, ex, ex.getName(), ex.getValue()), requestLocale,
+				response);
+	}
+
+	/** The request parameter {0}={1} has an illegal format. */
+	@SuppressWarnings("serial")
+	public static class RequestParameterExc extends Exc {
+	}
+
+	/**
+	 * Returns the messages of the given exception and of its causes, localized
+	 * according to the given Locale, as reported to the REST client.
+	 * 
+	 * @param ex
+	 *            the exception to be reported
+	 * @param locale
+	 *            the Locale of the web request
+	 * @return the messages separated by line breaks
+	 */
+	static String clientMessages(final Exception ex, final Locale locale) {
+		final ResourceBundle resourceBundle = MessageTexts.forLocale(locale);
+		final StringBuffer result = new StringBuffer();
+		multex.Msg.printMessages(result, ex, resourceBundle);
+		return result.toString();
+	}
+
 	final String restInterfacePackagePrefix = _computePackagePrefix(ApplicationController.ClientCreateWithIdExc.class);
 	final String domainPackagePrefix = _computePackagePrefix(Client.NotOwnerExc.class);
 
@@ -82,7 +126,8 @@ public class ExceptionAdvice {
 	 * Converts the given exception to the best suiting HTTP response status.
 	 * 
 	 * @return one of HttpStatus.NOT_FOUND, HttpStatus.FORBIDDEN,
-	 *         HttpStatus.BAD_REQUEST, HttpStatus.INTERNAL_SERVER_ERROR
+	 *         HttpStatus.CONFLICT, HttpStatus.BAD_REQUEST,
+	 *         HttpStatus.INTERNAL_SERVER_ERROR
 	 * @param exc
 	 *            the exception to be converted
 	 */
@@ -99,6 +144,10 @@ public class ExceptionAdvice {
 		if (exc instanceof Client.WithoutRightExc) {
 			return HttpStatus.FORBIDDEN;
 		}
+		if (exc instanceof ConcurrencyFailureException) {
+			// All retries of the transaction failed by concurrent modifications:
+			return HttpStatus.CONFLICT;
+		}
 		if (isRuleViolation(exc)) {
 			return HttpStatus.BAD_REQUEST;
 		}
@@ -0,0 +1,115 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ResourceBundle;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The exception message texts of the resource bundle
+ * {@link ExceptionAdvice#BASE_NAME} per Locale, flattened into one hash table
+ * each. {@link ResourceBundle#getBundle(String, Locale)} searches its candidate
+ * bundles on each call and the found bundle searches its parent chain on each
+ * missing key. Here both are done once per Locale. Locales resolving to the same
+ * bundle share one table, so that comparing two tables by
+ * {@link Object#equals(Object)} tells the same as comparing the resolved
+ * bundles. The texts are the same as those of the resolved bundle, so the
+ * formatted messages are, too.
+ * <p>
+ * The Locale comes from the Accept-Language header of a request, so any client
+ * can ask for arbitrary many Locales. Only the first {@value #MAX_LOCALES}
+ * Locales are therefore cached. The tables of further Locales are found via the
+ * resolved bundle, whose number is limited by the bundle files.
+ */
+final class MessageTexts {
+
+	/** The maximum number of Locales in {@link #byLocale}. */
+	static final int MAX_LOCALES = 100;
+
+	/** Flattened tables by the Locale asked for. */
+	private static final Map<Locale, ResourceBundle> byLocale = new ConcurrentHashMap<>();
+
+	/** Flattened tables by the identity of the resolved bundle. Guarded by itself. */
+	private static final Map<ResourceBundle, ResourceBundle> byBundle = new IdentityHashMap<>();
+
+	/**
+	 * The default Locale, for which {@link #byLocale} is valid. The default Locale
+	 * is a fallback in resolving a bundle.
+	 */
+	private static volatile Locale defaultLocale = Locale.getDefault();
+
+	private MessageTexts() {
+	}
+
+	/**
+	 * Returns the message texts for the given Locale, resolved as by
+	 * {@link ResourceBundle#getBundle(String, Locale)}.
+	 *
+	 * @param locale
+	 *            the Locale of the messages
+	 * @return the flattened message texts
+	 */
+	static ResourceBundle forLocale(final Locale locale) {
+		final Locale currentDefault = Locale.getDefault();
+		if (!currentDefault.equals(defaultLocale)) {
+			byLocale.clear();
+			defaultLocale = currentDefault;
+		}
+		final ResourceBundle cached = byLocale.get(locale);
+		if (cached != null) {
+			return cached;
+		}
+		final ResourceBundle result = _flatten(locale);
+		if (byLocale.size() < MAX_LOCALES) {
+			byLocale.put(locale, result);
+		}
+		return result;
+	}
+
+	/** @return the number of cached Locales */
+	static int cachedLocales() {
+		return byLocale.size();
+	}
+
+	private static ResourceBundle _flatten(final Locale locale) {
+		final ResourceBundle resolved = ResourceBundle.getBundle(ExceptionAdvice.BASE_NAME, locale);
+		synchronized (byBundle) {
+			return byBundle.computeIfAbsent(resolved, FlatBundle::new);
+		}
+	}
+
+	/** A resource bundle with all texts of another one including its parents. */
+	private static final class FlatBundle extends ResourceBundle {
+
+		private final Map<String, Object> texts = new HashMap<>();
+		private final Locale locale;
+
+		FlatBundle(final ResourceBundle resolved) {
+			for (final String key : resolved.keySet()) {
+				texts.put(key, resolved.getObject(key));
+			}
+			this.locale = resolved.getLocale();
+		}
+
+		@Override
+		protected Object handleGetObject(final String key) {
+			return texts.get(key);
+		}
+
+		@Override
+		public Enumeration<String> getKeys() {
+			return Collections.enumeration(texts.keySet());
+		}
+
+		@Override
+		public Locale getLocale() {
+			return locale;
+		}
+
+	}
+
+}
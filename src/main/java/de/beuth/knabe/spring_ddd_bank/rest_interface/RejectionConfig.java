@@ -0,0 +1,35 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+
+import de.beuth.knabe.spring_ddd_bank.domain.base.RejectionExc;
+
+/**
+ * Configures the JVM-wide mode of the business rejections ({@link RejectionExc})
+ * from the property <code>bank.exceptions.stackless</code>. This is the only
+ * place setting the mode in the application.
+ */
+@Configuration
+public class RejectionConfig {
+
+	private final boolean stackless;
+
+	/**
+	 * @param stackless
+	 *            if true, business rejections are created without stack trace,
+	 *            and are logged without it.
+	 */
+	public RejectionConfig(@Value("${bank.exceptions.stackless:false}") final boolean stackless) {
+		this.stackless = stackless;
+	}
+
+	/** Sets the configured mode for all rejections created afterwards. */
+	@PostConstruct
+	public void applyStackless() {
+		RejectionExc.setStackless(stackless);
+	}
+
+}
@@ -0,0 +1,246 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+/**
+ * Traces a sample of the HTTP requests as structured log events with the
+ * endpoint, the user, the latency, and the outcome. The request threads only
+ * put an event into a lock-free {@link TraceRingBuffer} and never wait. A
+ * single writer thread formats and logs the events by the logger of this class.
+ * If the buffer is full, events are dropped and counted. Requests, which are
+ * not sampled, cost one random number. The filter runs before Spring Security,
+ * so the latency includes the authentication, and the user is the one claimed
+ * by the HTTP Basic authorization header. Rejected credentials show as
+ * outcome 401. As the user and the URI are not verified, they are escaped in
+ * the log event.
+ */
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+public class RequestTracingFilter extends OncePerRequestFilter {
+
+	private static final Logger log = LoggerFactory.getLogger(RequestTracingFilter.class);
+
+	private static final String BASIC_PREFIX = "Basic ";
+
+	/** Fraction of the requests to be traced, 0 for none, 1 for all. */
+	private final double sampleRate;
+
+	private final TraceRingBuffer<RequestTrace> buffer;
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	private final Thread writer;
+
+	private volatile boolean running = true;
+
+	/** One traced request. */
+	static class RequestTrace {
+		final String method;
+		final String endpoint;
+		final String username;
+		final long latencyNanos;
+		final int status;
+		final String exception;
+
+		RequestTrace(final String method, final String endpoint, final String username, final long latencyNanos,
+				final int status, final String exception) {
+			this.method = method;
+			this.endpoint = endpoint;
+			this.username = username;
+			this.latencyNanos = latencyNanos;
+			this.status = status;
+			this.exception = exception;
+		}
+
+		@Override
+		public String toString() {
+			final String outcome = exception != null ? exception
+					: status >= 500 ? "SERVER_ERROR" : status >= 400 ? "CLIENT_ERROR" : "OK";
+			return String.format("endpoint=\"%s\" user=%s latencyMicros=%d status=%d outcome=%s",
+					_escape(method + " " + endpoint), _token(username), TimeUnit.NANOSECONDS.toMicros(latencyNanos),
+					status, _token(outcome));
+		}
+	}
+
+	/**
+	 * Returns the given value from the request as it is, if it consists of
+	 * letters, digits, and the characters <code>.@_-</code> only, and otherwise
+	 * quoted and escaped, so that it cannot forge further fields or lines of the
+	 * log event.
+	 */
+	private static String _token(final String value) {
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			if (!(c < 128 && Character.isLetterOrDigit(c) || c == '.' || c == '@' || c == '_' || c == '-')) {
+				return '"' + _escape(value) + '"';
+			}
+		}
+		return value.isEmpty() ? "\"\"" : value;
+	}
+
+	/**
+	 * Escapes backslashes, double quotes, and control characters of the given value
+	 * for logging it between double quotes.
+	 */
+	private static String _escape(final String value) {
+		final StringBuilder result = new StringBuilder(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			final char c = value.charAt(i);
+			switch (c) {
+			case '\\':
+			case '"':
+				result.append('\\').append(c);
+				break;
+			case '\n':
+				result.append("\\n");
+				break;
+			case '\r':
+				result.append("\\r");
+				break;
+			case '\t':
+				result.append("\\t");
+				break;
+			default:
+				if (Character.isISOControl(c) || c == '\u2028' || c == '\u2029') {
+					result.append(String.format("\\u%04x", (int) c));
+				} else {
+					result.append(c);
+				}
+			}
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Constructs the filter and starts its writer thread.
+	 *
+	 * @param sampleRate the fraction of the requests to be traced, 0 for none, 1
+	 *                   for all
+	 * @param bufferSize the maximum number of events waiting for the writer
+	 */
+	@Autowired
+	public RequestTracingFilter(@Value("${bank.requestTracing.sampleRate:0}") final double sampleRate,
+			@Value("${bank.requestTracing.bufferSize:8192}") final int bufferSize) {
+		if (sampleRate < 0 || sampleRate > 1) {
+			throw new IllegalArgumentException("sampleRate must be between 0 and 1, but is " + sampleRate);
+		}
+		this.sampleRate = sampleRate;
+		this.buffer = new TraceRingBuffer<>(bufferSize);
+		this.writer = new Thread(this::_write, "request-trace-writer");
+		writer.setDaemon(true);
+		if (sampleRate > 0) {
+			writer.start();
+		}
+	}
+
+	@Override
+	protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response,
+			final FilterChain filterChain) throws ServletException, IOException {
+		if (sampleRate == 0 || (sampleRate < 1 && ThreadLocalRandom.current().nextDouble() >= sampleRate)) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		final long start = System.nanoTime();
+		String exception = null;
+		try {
+			filterChain.doFilter(request, response);
+		} catch (IOException | ServletException | RuntimeException ex) {
+			exception = ex.getClass().getSimpleName();
+			throw ex;
+		} finally {
+			final long latencyNanos = System.nanoTime() - start;
+			final Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+			final String endpoint = pattern != null ? pattern.toString() : request.getRequestURI();
+			final int status = exception != null ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : response.getStatus();
+			if (!buffer.offer(new RequestTrace(request.getMethod(), endpoint, _claimedUsername(request), latencyNanos,
+					status, exception))) {
+				dropped.incrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Returns the username of the HTTP Basic authorization header of the request
+	 * without verifying the password.
+	 *
+	 * @return the username, or "-" if there is none
+	 */
+	private static String _claimedUsername(final HttpServletRequest request) {
+		final String authorization = request.getHeader("Authorization");
+		if (authorization == null || !authorization.startsWith(BASIC_PREFIX)) {
+			return "-";
+		}
+		try {
+			final String credentials = new String(
+					Base64.getDecoder().decode(authorization.substring(BASIC_PREFIX.length()).trim()),
+					StandardCharsets.UTF_8);
+			final int colon = credentials.indexOf(':');
+			return colon < 0 ? "-" : credentials.substring(0, colon);
+		} catch (IllegalArgumentException ex) {
+			return "-";
+		}
+	}
+
+	/**
+	 * Loop of the writer thread: Logs the traced requests until the filter is
+	 * destroyed and the buffer is empty.
+	 */
+	private void _write() {
+		long reportedDropped = 0;
+		while (true) {
+			final RequestTrace trace = buffer.poll();
+			if (trace != null) {
+				log.info("{}", trace);
+				continue;
+			}
+			final long droppedNow = dropped.get();
+			if (droppedNow != reportedDropped) {
+				log.warn("{} request traces dropped, as the buffer of {} was full.", droppedNow - reportedDropped,
+						buffer.capacity());
+				reportedDropped = droppedNow;
+			}
+			if (!running) {
+				return;
+			}
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+		}
+	}
+
+	/** @return the number of traced requests, which were dropped as the buffer was full */
+	long droppedCount() {
+		return dropped.get();
+	}
+
+	/** Stops the writer thread after it has logged the waiting events. */
+	@Override
+	public void destroy() {
+		running = false;
+		try {
+			writer.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
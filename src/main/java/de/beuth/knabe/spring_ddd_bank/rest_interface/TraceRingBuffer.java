@@ -0,0 +1,96 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded, lock-free ring buffer for many producer threads and one consumer
+ * thread. Each slot carries a sequence number telling, whether it is free for
+ * the producer of a position, or filled for the consumer. Producers claim a
+ * position by compare-and-set and never wait: if the buffer is full,
+ * {@link #offer(Object)} fails at once. After Dmitry Vyukov's bounded MPMC
+ * queue.
+ *
+ * @param <T> the type of the elements
+ */
+class TraceRingBuffer<T> {
+
+	private final int mask;
+	private final AtomicReferenceArray<T> elements;
+	private final AtomicLongArray sequences;
+
+	/** The next position to be claimed by a producer. */
+	private final AtomicLong tail = new AtomicLong();
+
+	/** The next position to be taken by the consumer. Only accessed by the consumer thread. */
+	private long head;
+
+	/**
+	 * Constructs an empty ring buffer.
+	 *
+	 * @param capacity
+	 *            the maximum number of elements. It is rounded up to a power of
+	 *            two.
+	 */
+	TraceRingBuffer(final int capacity) {
+		if (capacity < 1 || capacity > 1 << 30) {
+			throw new IllegalArgumentException("capacity must be between 1 and 2^30, but is " + capacity);
+		}
+		final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		mask = size - 1;
+		elements = new AtomicReferenceArray<>(size);
+		sequences = new AtomicLongArray(size);
+		for (int i = 0; i < size; i++) {
+			sequences.set(i, i);
+		}
+	}
+
+	/** @return the maximum number of elements */
+	int capacity() {
+		return mask + 1;
+	}
+
+	/**
+	 * Adds the element without waiting. May be called by any thread.
+	 *
+	 * @return false, if the buffer is full
+	 */
+	boolean offer(final T element) {
+		long position = tail.get();
+		while (true) {
+			final int index = (int) position & mask;
+			final long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					elements.set(index, element);
+					sequences.set(index, position + 1);
+					return true;
+				}
+				position = tail.get();
+			} else if (difference < 0) {
+				return false;
+			} else {
+				position = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * Takes the oldest element. Must be called by the consumer thread only.
+	 *
+	 * @return the oldest element, or null if the buffer is empty
+	 */
+	T poll() {
+		final int index = (int) head & mask;
+		if (sequences.get(index) != head + 1) {
+			return null;
+		}
+		final T result = elements.get(index);
+		elements.set(index, null);
+		sequences.set(index, head + mask + 1);
+		head++;
+		return result;
+	}
+
+}
@@ -0,0 +1,121 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Executes a unit of work in its own transaction and retries it a bounded
+ * number of times, if it fails by a concurrent modification of the same data,
+ * e.g. when two transfers from the same account detect by the
+ * {@link de.beuth.knabe.spring_ddd_bank.domain.Account} version, that they
+ * have computed a balance from an outdated state. Between the attempts the
+ * thread waits by an exponentially growing, randomized backoff.
+ */
+@Component
+public class TransactionRetryTemplate {
+
+	private static final Logger log = LoggerFactory.getLogger(TransactionRetryTemplate.class);
+
+	private final TransactionTemplate transactionTemplate;
+
+	private final int maxAttempts;
+
+	private final long backoffMillis;
+
+	/**
+	 * Constructs the template.
+	 *
+	 * @param transactionManager the manager for the transactions of the units of
+	 *                           work
+	 * @param maxAttempts        how often a unit of work is tried at most. 1 means
+	 *                           no retry.
+	 * @param backoffMillis      the wait time before the first retry. It is doubled
+	 *                           before each further retry.
+	 */
+	@Autowired
+	public TransactionRetryTemplate(final PlatformTransactionManager transactionManager,
+			@Value("${bank.transaction.retry.maxAttempts:5}") final int maxAttempts,
+			@Value("${bank.transaction.retry.backoffMillis:10}") final long backoffMillis) {
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("maxAttempts must be at least 1, but is " + maxAttempts);
+		}
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		this.maxAttempts = maxAttempts;
+		this.backoffMillis = backoffMillis;
+	}
+
+	/**
+	 * Executes the given unit of work in a new transaction. If it fails by a
+	 * concurrent modification, it is rolled back and executed again in a new
+	 * transaction, until it succeeds or the maximum number of attempts is reached.
+	 * Other exceptions are passed through after the rollback.
+	 *
+	 * @param <T>        the result type of the unit of work
+	 * @param unitOfWork the work to be done. It must read all data it modifies by
+	 *                   itself, as it can be executed repeatedly.
+	 * @return the result of the unit of work
+	 * @throws ConcurrencyFailureException the last attempt failed by a concurrent
+	 *                                     modification.
+	 */
+	public <T> T execute(final Supplier<T> unitOfWork) {
+		for (int attempt = 1;; attempt++) {
+			try {
+				return transactionTemplate.execute(status -> unitOfWork.get());
+			} catch (final RuntimeException ex) {
+				if (attempt >= maxAttempts || !isConcurrencyFailure(ex)) {
+					throw ex;
+				}
+				log.debug("Attempt {} of {} failed by a concurrent modification: {}", attempt, maxAttempts, ex.toString());
+				_backoff(attempt);
+			}
+		}
+	}
+
+	/**
+	 * Informs, whether the given exception or one of its causes reports a
+	 * concurrent modification. Causes are considered, as a domain command can wrap
+	 * the exception reported by a repository.
+	 *
+	 * @param exception the exception to be examined
+	 * @return true, if retrying the transaction can succeed
+	 */
+	boolean isConcurrencyFailure(final Throwable exception) {
+		for (Throwable t = exception; t != null; t = t.getCause()) {
+			if (t instanceof ConcurrencyFailureException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Waits before the next attempt. The wait time doubles with each attempt and is
+	 * randomized, so that conflicting threads do not collide again.
+	 *
+	 * @param attempt the number of the failed attempt, starting with 1
+	 */
+	private void _backoff(final int attempt) {
+		final long maxWait = backoffMillis << Math.min(attempt - 1, 16);
+		if (maxWait <= 0) {
+			return;
+		}
+		try {
+			Thread.sleep(ThreadLocalRandom.current().nextLong(maxWait / 2, maxWait + 1));
+		} catch (final InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new ConcurrencyFailureException("Interrupted while waiting for retry", ex);
+		}
+	}
+
+}
@@ -2,16 +2,25 @@ package de.beuth.knabe.spring_ddd_bank.rest_interface;
 
 
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Properties;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.DefaultResourceLoader;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.factory.PasswordEncoderFactories;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 
@@ -54,19 +63,61 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
             ;
     }
 	
+	@Value("${bank.users.location:}")
+	private String usersLocation;
+
+	@Value("${bank.authCache.enabled:true}")
+	private boolean authCacheEnabled;
+
+	@Value("${bank.authCache.maxSize:10000}")
+	private int authCacheMaxSize;
+
+	@Value("${bank.authCache.ttlSeconds:30}")
+	private long authCacheTtlSeconds;
+
+	/**Verifies the credentials of a user, if they are not in the cache of recent verifications.*/
+	@Override
+	protected void configure(AuthenticationManagerBuilder auth) throws Exception {
+		final DaoAuthenticationProvider verifier = new DaoAuthenticationProvider();
+		verifier.setUserDetailsService(userDetailsService());
+		verifier.setPasswordEncoder(passwordEncoder());
+		auth.authenticationProvider(
+				new CachingAuthenticationProvider(verifier, authCacheEnabled, authCacheMaxSize, authCacheTtlSeconds));
+	}
+
 	private static final List<String> predefinedUsernames = Arrays.asList("bank", "hans", "nina", "fritz", "lisa");
 
-	/**Configures the {@link #predefinedUsernames} as known users with their password equal to the user name.
+	/**Hashes passwords by bcrypt. Stored passwords name their hashing algorithm as prefix, e.g. <code>{bcrypt}</code>.*/
+	@Bean
+	public PasswordEncoder passwordEncoder() {
+		return PasswordEncoderFactories.createDelegatingPasswordEncoder();
+	}
+
+	/**Configures the known users. If the property <code>bank.users.location</code> names a Spring resource,
+	 * e.g. <code>file:users.properties</code>, the users are read from it. Each line has the format
+	 * <code>username=password,ROLE_CLIENT</code> with the password prefixed by the name of its hashing algorithm,
+	 * e.g. <code>{bcrypt}</code>, and the role <code>ROLE_BANK</code> or <code>ROLE_CLIENT</code>.
+	 * Otherwise the {@link #predefinedUsernames} are the known users with their password equal to the user name.
 	 * Approach taken from 
 	 * @see <a href="https://docs.spring.io/spring-security/reference/servlet/configuration/java.html#_hello_web_security_java_configuration">
 	 * Spring Hello Web Security Java Configuration</a>
 	 */
 	@Bean
 	public UserDetailsService userDetailsService() {
+		if (!usersLocation.isEmpty()) {
+			final Properties users = new Properties();
+			try (InputStream in = new DefaultResourceLoader().getResource(usersLocation).getInputStream()) {
+				users.load(in);
+			} catch (IOException ex) {
+				throw new IllegalStateException("Cannot read the users from " + usersLocation, ex);
+			}
+			return new InMemoryUserDetailsManager(users);
+		}
+		final PasswordEncoder encoder = passwordEncoder();
 		final InMemoryUserDetailsManager manager = new InMemoryUserDetailsManager();
         for(final String username: predefinedUsernames) {
         	final String role = username.equalsIgnoreCase(BANK_ROLE) ? BANK_ROLE : CLIENT_ROLE;
-			manager.createUser(User.withDefaultPasswordEncoder().username(username).password(username).roles(role).build());
+			manager.createUser(User.withUsername(username).password(encoder.encode(username)).roles(role).build());
         }
 		return manager;
 	}
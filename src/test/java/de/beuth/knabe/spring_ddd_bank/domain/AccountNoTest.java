@@ -72,6 +72,16 @@ public class AccountNoTest {
 			fail("AccountNo.IllegalExc expected");
 		} catch (AccountNo.IllegalExc expected) {
 		}
+		try {
+			new AccountNo("9223372036854775808"); // Long.MAX_VALUE + 1
+			fail("AccountNo.IllegalExc expected");
+		} catch (AccountNo.IllegalExc expected) {
+		}
+		try {
+			new AccountNo("12345678901234567890");
+			fail("AccountNo.IllegalExc expected");
+		} catch (AccountNo.IllegalExc expected) {
+		}
 	}
 
 	@Test
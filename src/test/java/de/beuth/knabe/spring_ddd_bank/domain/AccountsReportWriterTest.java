@@ -0,0 +1,71 @@
+package de.beuth.knabe.spring_ddd_bank.domain;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+/**
+ * Test driver for the {@link AccountsReportWriter}, comparing it with the
+ * String.format it replaces.
+ */
+public class AccountsReportWriterTest {
+
+	private static final Locale[] LOCALES = { Locale.GERMANY, Locale.US, Locale.ROOT, Locale.FRANCE,
+			Locale.forLanguageTag("ar-EG"), Locale.forLanguageTag("hi-IN-u-nu-deva") };
+
+	private static final long[] CENTS = { 0, 1, -1, 9, 10, 99, 100, 101, 999, 1000, -1000, 99999, 100000, -100000,
+			99999999999L, (1L << 46) - 1, -(1L << 46) + 1, 1L << 46, -(1L << 46), (1L << 53) + 1,
+			9_000_000_000_000_000L, -9_000_000_000_000_000L };
+
+	private final Locale defaultFormatLocale = Locale.getDefault(Locale.Category.FORMAT);
+
+	@After
+	public void restoreLocale() {
+		Locale.setDefault(Locale.Category.FORMAT, defaultFormatLocale);
+	}
+
+	@Test
+	public void headerAsByFormat() throws IOException {
+		final StringWriter out = new StringWriter();
+		new AccountsReportWriter(out).writeHeader("jack");
+		assertEquals(String.format("Accounts of client: %s\n", "jack"), out.toString());
+	}
+
+	@Test
+	public void linesAsByFormat() throws IOException {
+		for (final Locale locale : LOCALES) {
+			Locale.setDefault(Locale.Category.FORMAT, locale);
+			for (final long cents : CENTS) {
+				_assertLineAsByFormat(new ManagedAccountSummary(4711, cents % 2 == 0, cents, "Jack's Giro"));
+			}
+			_assertLineAsByFormat(new ManagedAccountSummary(Long.MAX_VALUE, false, 12345, null));
+		}
+	}
+
+	@Test
+	public void randomBalancesAsByFormat() throws IOException {
+		final Random random = new Random(4711);
+		for (final Locale locale : new Locale[] { Locale.GERMANY, Locale.US }) {
+			Locale.setDefault(Locale.Category.FORMAT, locale);
+			for (int i = 0; i < 10_000; i++) {
+				final long cents = random.nextLong() >> random.nextInt(64);
+				_assertLineAsByFormat(new ManagedAccountSummary(i, true, cents, "Savings " + i));
+			}
+		}
+	}
+
+	private void _assertLineAsByFormat(final ManagedAccountSummary account) throws IOException {
+		final String expected = String.format("%s\t%s\t%5.2f\t%s\n", new AccountNo(account.getAccountNo()),
+				account.isOwner() ? "isOwner" : "manages", account.getBalanceCents() / 100.0, account.getAccountName());
+		final StringWriter out = new StringWriter();
+		new AccountsReportWriter(out).writeLine(account);
+		assertEquals(expected, out.toString());
+	}
+
+}
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.math.RoundingMode;
 import java.util.Locale;
 
 import org.junit.Before;
@@ -196,6 +197,47 @@ public class AmountTest {
         }
     }
 
+    @Test
+    public void plusMinusAreExactOnCents(){
+        // 0.10 is not exactly representable as double, but as cents:
+        final Amount tenCents = new Amount(0, 10);
+        Amount sum = Amount.ZERO;
+        for(int i=0; i<10; i++){
+            sum = sum.plus(tenCents);
+        }
+        assertEquals(new Amount(1, 0), sum);
+        assertEquals(100, sum.getCents());
+        final Amount huge = new Amount(Amount.maxValue());
+        final Amount result = huge.minus(new Amount(0, 1)).plus(new Amount(0, 1));
+        assertEquals(huge, result);
+        assertEquals(Amount.ZERO, huge.minus(huge));
+    }
+
+    @Test
+    public void timesRoundsHalfUp(){
+        assertEquals(RoundingMode.HALF_UP, Amount.ROUNDING_MODE);
+        // 0.05 * 0.5 = 0.025, rounded half up to 0.03
+        assertEquals(new Amount(0, 3), new Amount(0, 5).times(0.5));
+        assertEquals(new Amount(0, -3), new Amount(0, -5).times(0.5));
+        // 0.01 * 0.4 = 0.004, rounded to 0.00
+        assertEquals(Amount.ZERO, new Amount(0, 1).times(0.4));
+        // 19.99 * 1.1 = 21.989, rounded to 21.99, which would not be exact as double
+        assertEquals(new Amount(21, 99), new Amount(19, 99).times(1.1));
+        try{
+            new Amount(0, 1).times(Double.NaN);
+            fail("Amount.RangeExc expected");
+        }catch(Amount.RangeExc expected){}
+    }
+
+    @Test
+    public void commonValuesAreShared(){
+        assertTrue(Amount.ZERO == new Amount(0, 5).minus(new Amount(0, 5)));
+        assertTrue(Account.getMinimumBalance() == Account.getMinimumBalance());
+        final Amount amount = new Amount(12, 34);
+        assertTrue(amount == amount.plus(Amount.ZERO));
+        assertTrue(amount == amount.minus(Amount.ZERO));
+    }
+
     @Test
     public void compareTo(){
         final Amount testAmount = new Amount(999999999,99);
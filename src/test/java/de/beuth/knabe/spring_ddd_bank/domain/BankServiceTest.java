@@ -5,6 +5,9 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.fail;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.After;
 import org.junit.Before;
@@ -211,6 +214,34 @@ public class BankServiceTest {
 		}
 	}
 
+	@Test
+	public void findRichClientsTopK() {
+		final Client kim = bankService.createClient("kim", LocalDate.parse("1994-05-21"));
+		final Client chloe = bankService.createClient("chloe", LocalDate.parse("1992-12-01"));
+		final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		final AccountNo kimsGiro = kim.createAccount("Kim's Giro").getAccount().accountNo();
+		final AccountNo kimsSavings = kim.createAccount("Kim's Savings").getAccount().accountNo();
+		final AccountNo chloesGiro = chloe.createAccount("Chloe's Giro").getAccount().accountNo();
+		final AccountNo jacksGiro = jack.createAccount("Jack's Giro").getAccount().accountNo();
+		kim.deposit(kimsGiro, new Amount(100, 0));
+		kim.deposit(kimsSavings, new Amount(300, 0));
+		chloe.deposit(chloesGiro, new Amount(200, 0));
+		jack.deposit(jacksGiro, new Amount(50, 0));
+		// Kim is only listed once, though both of her accounts qualify:
+		assertEquals("1994-05-21 kim, 1992-12-01 chloe", stringize(bankService.findRichClients(new Amount(100, 0), 5)));
+		assertEquals("1994-05-21 kim, 1992-12-01 chloe", stringize(bankService.findRichClients(new Amount(1, 0), 2)));
+		assertEquals("1994-05-21 kim", stringize(bankService.findRichClients(new Amount(1, 0), 1)));
+		try (Stream<ClientSummary> summaries = bankService.streamRichClientSummaries(new Amount(1, 0), 3)) {
+			assertEquals(Arrays.asList("kim", "chloe", "jack"),
+					summaries.map(ClientSummary::getUsername).collect(Collectors.toList()));
+		}
+		try {
+			bankService.findRichClients(Amount.ZERO, 0);
+			fail("BankService.PageLimitExc expected");
+		} catch (BankService.PageLimitExc expected) {
+		}
+	}
+
 	/**
 	 * Makes a String representation of all passed clients, separated by commas. 
 	 * @param clients a collection of {@link Client}s
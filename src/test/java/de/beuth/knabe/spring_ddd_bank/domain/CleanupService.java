@@ -6,6 +6,7 @@ import org.springframework.stereotype.Service;
 import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountAccessRepository;
 import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountRepository;
 import de.beuth.knabe.spring_ddd_bank.domain.imports.ClientRepository;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.LedgerRepository;
 
 /**This is a domain test scope service for cleaning the database.
  * @author Christoph Knabe
@@ -20,20 +21,25 @@ public class CleanupService {
 
     private final AccountAccessRepository accountAccessRepository;
 
+    private final LedgerRepository ledgerRepository;
+
     /**Constructs the cleanup service using the passed required repositories as by Ports and Adapters Pattern.
      * @param clientRepository the {@link ClientRepository} to be cleaned up
      * @param accountRepository the {@link AccountRepository} to be cleaned up
      * @param accountAccessRepository the {@link AccountAccessRepository} to be cleaned up
+     * @param ledgerRepository the {@link LedgerRepository} to be cleaned up
      * */
     @Autowired
-    public CleanupService(final ClientRepository clientRepository, final AccountRepository accountRepository, final AccountAccessRepository accountAccessRepository) {
+    public CleanupService(final ClientRepository clientRepository, final AccountRepository accountRepository, final AccountAccessRepository accountAccessRepository, final LedgerRepository ledgerRepository) {
         this.clientRepository = clientRepository;
         this.accountRepository = accountRepository;
         this.accountAccessRepository = accountAccessRepository;
+        this.ledgerRepository = ledgerRepository;
     }
 
     /**Deletes all entities from all used repositories.*/
     public void deleteAll(){
+        ledgerRepository.deleteAll();
         accountAccessRepository.deleteAll();
         accountRepository.deleteAll();
         clientRepository.deleteAll();
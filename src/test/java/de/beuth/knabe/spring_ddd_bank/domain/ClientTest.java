@@ -21,9 +21,11 @@ import static org.mockito.Mockito.when;
 
 import java.time.LocalDate;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 
 import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountAccessRepository;
 import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountRepository;
@@ -277,6 +279,105 @@ public class ClientTest {
 				+ jacksGiroAccountNo + "\tisOwner\t-" + maximumTransferAmountString + "\tJack's Giro\n", report);
 	}
 
+	@Test
+	public void depositAndTransferAreBookedInLedger() {
+		final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		final Account jacksGiro = jack.createAccount("Jack's Giro").getAccount();
+		final AccountNo jacksGiroAccountNo = jacksGiro.accountNo();
+		final AccountNo jacksSavingsAccountNo = jack.createAccount("Jack's Savings").getAccount().accountNo();
+		jack.deposit(jacksGiroAccountNo, new Amount(100, 0));
+		jack.transfer(jack.findMyAccount(jacksGiroAccountNo), jacksSavingsAccountNo, new Amount(30, 50));
+
+		final List<LedgerEntry> giroEntries = jack.findLedgerEntries(jacksGiroAccountNo);
+		assertEquals(2, giroEntries.size());
+		assertEquals(new Amount(100, 0), giroEntries.get(0).getAmount());
+		assertEquals(Optional.empty(), giroEntries.get(0).counterAccountNo());
+		assertEquals(new Amount(-30, -50), giroEntries.get(1).getAmount());
+		assertEquals(Optional.of(jacksSavingsAccountNo), giroEntries.get(1).counterAccountNo());
+
+		final List<LedgerEntry> savingsEntries = jack.findLedgerEntries(jacksSavingsAccountNo);
+		assertEquals(1, savingsEntries.size());
+		assertEquals(new Amount(30, 50), savingsEntries.get(0).getAmount());
+		assertEquals(jacksSavingsAccountNo, savingsEntries.get(0).accountNo());
+		assertEquals(Optional.of(jacksGiroAccountNo), savingsEntries.get(0).counterAccountNo());
+
+		// The stored balances are the sums of the ledger entries:
+		assertEquals(new Amount(69, 50), jack.findMyAccount(jacksGiroAccountNo).getBalance());
+		assertEquals(new Amount(30, 50), jack.findMyAccount(jacksSavingsAccountNo).getBalance());
+	}
+
+	@Test
+	public void whenTransferFails_thenNothingIsBookedInLedger() {
+		final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		final Account jacksGiro = jack.createAccount("Jack's Giro").getAccount();
+		final AccountNo jacksSavingsAccountNo = jack.createAccount("Jack's Savings").getAccount().accountNo();
+		try {
+			jack.transfer(jacksGiro, jacksSavingsAccountNo, new Amount(1000, 1));
+			fail("Client.MinimumBalanceExc expected");
+		} catch (Client.MinimumBalanceExc expected) {
+		}
+		assertEquals(0, jack.findLedgerEntries(jacksGiro.accountNo()).size());
+		assertEquals(0, jack.findLedgerEntries(jacksSavingsAccountNo).size());
+	}
+
+	@Test
+	public void transferAll() {
+		final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		final Account jacksGiro = jack.createAccount("Jack's Giro").getAccount();
+		final AccountNo jacksSavingsAccountNo = jack.createAccount("Jack's Savings").getAccount().accountNo();
+		final Client anna = bankService.createClient("anna", LocalDate.parse("1977-01-01"));
+		final AccountNo annasGiroAccountNo = anna.createAccount("Anna's Giro").getAccount().accountNo();
+		jack.deposit(jacksGiro.accountNo(), new Amount(100, 0));
+
+		jack.transferAll(jack.findMyAccount(jacksGiro.accountNo()),
+				Arrays.asList(new TransferOrder(jacksSavingsAccountNo, new Amount(10, 0)),
+						new TransferOrder(annasGiroAccountNo, new Amount(20, 0)),
+						new TransferOrder(jacksSavingsAccountNo, new Amount(0, 50))));
+
+		assertEquals(new Amount(69, 50), jack.findMyAccount(jacksGiro.accountNo()).getBalance());
+		assertEquals(new Amount(10, 50), jack.findMyAccount(jacksSavingsAccountNo).getBalance());
+		assertEquals(new Amount(20, 0), anna.findMyAccount(annasGiroAccountNo).getBalance());
+		assertEquals(4, jack.findLedgerEntries(jacksGiro.accountNo()).size());
+		assertEquals(2, jack.findLedgerEntries(jacksSavingsAccountNo).size());
+	}
+
+	@Test
+	public void whenTransferAllFails_thenNothingIsTransferred() {
+		final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		final Account jacksGiro = jack.createAccount("Jack's Giro").getAccount();
+		final AccountNo jacksSavingsAccountNo = jack.createAccount("Jack's Savings").getAccount().accountNo();
+		final Amount halfMaximum = new Amount(500, 0);
+		// Each amount is allowed on its own, but not their sum:
+		try {
+			jack.transferAll(jacksGiro, Arrays.asList(new TransferOrder(jacksSavingsAccountNo, halfMaximum),
+					new TransferOrder(jacksSavingsAccountNo, halfMaximum.plus(new Amount(0, 1)))));
+			fail("Client.MinimumBalanceExc expected");
+		} catch (Client.MinimumBalanceExc expected) {
+		}
+		final AccountNo missingAccountNo = new AccountNo(jacksSavingsAccountNo.toLong() + 1000);
+		try {
+			jack.transferAll(jacksGiro, Arrays.asList(new TransferOrder(jacksSavingsAccountNo, halfMaximum),
+					new TransferOrder(missingAccountNo, new Amount(1, 0))));
+			fail("Client.DestinationAccountNotFoundExc expected");
+		} catch (Client.DestinationAccountNotFoundExc expected) {
+		}
+		try {
+			jack.transferAll(jacksGiro, Arrays.asList(new TransferOrder(jacksSavingsAccountNo, halfMaximum),
+					new TransferOrder(jacksSavingsAccountNo, Amount.ZERO)));
+			fail("Client.AmountExc expected");
+		} catch (Client.AmountExc expected) {
+		}
+		final Client chloe = bankService.createClient("chloe", LocalDate.parse("1992-12-01"));
+		try {
+			chloe.transferAll(jacksGiro, Arrays.asList(new TransferOrder(jacksSavingsAccountNo, halfMaximum)));
+			fail("Client.WithoutRightExc expected");
+		} catch (Client.WithoutRightExc expected) {
+		}
+		assertEquals(Amount.ZERO, jack.findMyAccount(jacksGiro.accountNo()).getBalance());
+		assertEquals(Amount.ZERO, jack.findMyAccount(jacksSavingsAccountNo).getBalance());
+		assertEquals(0, jack.findLedgerEntries(jacksGiro.accountNo()).size());
+	}
+
 	@Test
 	public void transferExc() {
 		final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
@@ -358,6 +459,75 @@ public class ClientTest {
 		}
 	}
 
+	@Test
+	public void searchMyAccounts() {
+		// GIVEN:
+		final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		final AccountNo jacksGiro = jack.createAccount("Jack's Giro").getAccount().accountNo();
+		final AccountNo jacksSavings = jack.createAccount("Jack's Savings").getAccount().accountNo();
+		final Client chloe = bankService.createClient("chloe", LocalDate.parse("1992-12-01"));
+		final AccountNo chloesSavings = chloe.createAccount("Chloe's Savings").getAccount().accountNo();
+		jack.addAccountManager(jack.findMyAccess(jacksSavings), chloe);
+
+		// THEN: Each client finds only the accounts, which she owns or manages:
+		assertEquals(Arrays.asList(jacksSavings), _accountNos(jack.searchMyAccounts("savings", 10)));
+		assertEquals(Arrays.asList(jacksGiro, jacksSavings), _accountNos(jack.searchMyAccounts("JACK", 10)));
+		assertEquals(Arrays.asList(jacksSavings, chloesSavings), _accountNos(chloe.searchMyAccounts("savings", 10)));
+		assertEquals(Arrays.asList(jacksSavings), _accountNos(chloe.searchMyAccounts("savings", 1)));
+		assertFalse(chloe.searchMyAccounts("jack savings", 10).get(0).isOwner());
+		assertEquals(Arrays.asList(), _accountNos(chloe.searchMyAccounts("giro", 10)));
+		assertEquals(Arrays.asList(), _accountNos(chloe.searchMyAccounts("", 10)));
+		try {
+			jack.searchMyAccounts("giro", 0);
+			fail("BankService.PageLimitExc expected");
+		} catch (BankService.PageLimitExc expected) {
+		}
+	}
+
+	private static List<AccountNo> _accountNos(final List<AccountAccess> accesses) {
+		return accesses.stream().map(access -> access.getAccount().accountNo()).collect(Collectors.toList());
+	}
+
+	@Test
+	public void transferWithFoundAccess() {
+		// GIVEN:
+		final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		final AccountNo jacksGiro = jack.createAccount("Jack's Giro").getAccount().accountNo();
+		final AccountNo jacksSavings = jack.createAccount("Jack's Savings").getAccount().accountNo();
+		final Client chloe = bankService.createClient("chloe", LocalDate.parse("1992-12-01"));
+		final AccountAccess jacksGiroAccess = jack.findMyAccess(jacksGiro);
+		assertEquals(jacksGiro, jacksGiroAccess.getAccount().accountNo());
+		assertTrue(jacksGiroAccess.isOwner());
+
+		// An access found for another client is no right to transfer or to add a manager:
+		try {
+			chloe.transfer(jacksGiroAccess, jacksSavings, new Amount(0, 01));
+			fail("Client.WithoutRightExc expected");
+		} catch (Client.WithoutRightExc expected) {
+		}
+		try {
+			chloe.addAccountManager(jacksGiroAccess, chloe);
+			fail("Client.NotOwnerExc expected");
+		} catch (Client.NotOwnerExc expected) {
+		}
+		// An access, which was not found in the repository, is no right either:
+		try {
+			jack.transfer(new AccountAccess(jack, true, jacksGiroAccess.getAccount()), jacksSavings, new Amount(0, 01));
+			fail("Client.WithoutRightExc expected");
+		} catch (Client.WithoutRightExc expected) {
+		}
+
+		// WHEN:
+		jack.transfer(jacksGiroAccess, jacksSavings, new Amount(1, 0));
+		jack.transferAll(jack.findMyAccess(jacksGiro), Arrays.asList(new TransferOrder(jacksSavings, new Amount(2, 0))));
+		jack.addAccountManager(jacksGiroAccess, chloe);
+
+		// THEN:
+		assertEquals(new Amount(-3, 0), jack.findMyAccount(jacksGiro).getBalance());
+		assertEquals(new Amount(3, 0), jack.findMyAccount(jacksSavings).getBalance());
+		assertFalse(chloe.findMyAccess(jacksGiro).isOwner());
+	}
+
 	/**
 	 * Makes a String representation of all passed clients, separated by commas.
 	 * 
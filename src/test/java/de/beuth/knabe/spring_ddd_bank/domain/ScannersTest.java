@@ -0,0 +1,64 @@
+package de.beuth.knabe.spring_ddd_bank.domain;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/** Test driver for the {@link Scanners}, comparing them with the regular expressions they replace. */
+public class ScannersTest {
+
+	private static final Pattern USERNAME = Pattern.compile("[a-z_A-Z][a-z_A-Z0-9]{0,30}");
+	private static final Pattern DIGITS = Pattern.compile("\\d+");
+
+	private static final List<String> SAMPLES = Arrays.asList("", "a", "Z", "_", "0", "9", "jack", "jack_2",
+			"_jack", "2jack", "ja ck", "jäck", "jack-2", "a234567890123456789012345678901",
+			"a2345678901234567890123456789012", "0815", "007", "-1", "+1", "1.5", "1e3", " 1", "1 ", "٣",
+			"9223372036854775807", "9223372036854775808", "09223372036854775807", "99999999999999999999");
+
+	@Test
+	public void usernamesAsByRegex() {
+		for (final String sample : SAMPLES) {
+			assertEquals(sample, USERNAME.matcher(sample).matches(), Scanners.isUsername(sample));
+		}
+	}
+
+	@Test
+	public void accountNumbersAsByParseLong() {
+		for (final String sample : SAMPLES) {
+			assertEquals(sample, _expectedAccountNumber(sample), Scanners.accountNumber(sample));
+		}
+	}
+
+	@Test
+	public void randomStringsAsByRegex() {
+		final Random random = new Random(4711);
+		final String alphabet = "aZ_09.- ä";
+		for (int n = 0; n < 10_000; n++) {
+			final char[] chars = new char[random.nextInt(35)];
+			for (int i = 0; i < chars.length; i++) {
+				chars[i] = alphabet.charAt(random.nextInt(alphabet.length()));
+			}
+			final String sample = new String(chars);
+			assertEquals(sample, USERNAME.matcher(sample).matches(), Scanners.isUsername(sample));
+			assertEquals(sample, _expectedAccountNumber(sample), Scanners.accountNumber(sample));
+		}
+	}
+
+	/** The former parsing, with an overflow as illegal instead of a NumberFormatException. */
+	private static long _expectedAccountNumber(final String sample) {
+		if (!DIGITS.matcher(sample).matches()) {
+			return Scanners.ILLEGAL;
+		}
+		try {
+			return Long.parseLong(sample);
+		} catch (NumberFormatException overflow) {
+			return Scanners.ILLEGAL;
+		}
+	}
+
+}
@@ -0,0 +1,72 @@
+package de.beuth.knabe.spring_ddd_bank.domain.base;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+/** Test driver for the {@link BoundedCache} */
+public class BoundedCacheTest {
+
+	private final List<String> evicted = new ArrayList<>();
+
+	@Test
+	public void leastRecentlyUsedEntryIsEvicted() {
+		final BoundedCache<String, Integer> testee = new BoundedCache<>(2, 60, (key, value) -> evicted.add(key));
+		testee.put("jack", 1);
+		testee.put("anna", 2);
+		assertEquals(Integer.valueOf(1), testee.get("jack"));
+		testee.put("chloe", 3);
+		assertEquals(2, testee.size());
+		assertNull(testee.get("anna"));
+		assertEquals(List.of("anna"), evicted);
+		assertEquals(1, testee.hits());
+		assertEquals(1, testee.misses());
+		assertEquals(1, testee.evictions());
+	}
+
+	@Test
+	public void expiredEntryIsEvictedWhenRead() {
+		final BoundedCache<String, Integer> testee = new BoundedCache<>(2, 0, (key, value) -> evicted.add(key));
+		testee.put("jack", 1);
+		assertNull(testee.get("jack"));
+		assertEquals(0, testee.size());
+		assertEquals(List.of("jack"), evicted);
+	}
+
+	@Test
+	public void removedEntryIsNotReportedAsEvicted() {
+		final BoundedCache<String, Integer> testee = new BoundedCache<>(2, 60, (key, value) -> evicted.add(key));
+		testee.put("jack", 1);
+		assertEquals(Integer.valueOf(1), testee.remove("jack"));
+		assertNull(testee.remove("jack"));
+		assertTrue(evicted.isEmpty());
+		assertEquals(0, testee.evictions());
+	}
+
+	/** Beyond the sample size the eviction is approximate, but keeps entries, which are read often. */
+	@Test
+	public void frequentlyReadEntriesSurviveSampledEviction() {
+		final BoundedCache<Integer, Integer> testee = new BoundedCache<>(1000, 60);
+		for (int i = 0; i < 100; i++) {
+			testee.put(i, i);
+		}
+		for (int i = 100; i < 20_000; i++) {
+			testee.put(i, i);
+			if (i % 10 == 0) {
+				for (int hot = 0; hot < 100; hot++) {
+					if (testee.get(hot) == null) {
+						testee.put(hot, hot);
+					}
+				}
+			}
+		}
+		assertEquals(1000, testee.size());
+		assertTrue("hits: " + testee.hits() + ", misses: " + testee.misses(), testee.misses() * 100 < testee.hits());
+	}
+
+}
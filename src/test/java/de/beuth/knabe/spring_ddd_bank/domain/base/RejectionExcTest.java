@@ -0,0 +1,56 @@
+package de.beuth.knabe.spring_ddd_bank.domain.base;
+
+import static multex.MultexUtil.create;
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Test;
+
+import de.beuth.knabe.spring_ddd_bank.domain.BankService;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.rest_interface.ExceptionAdvice;
+import de.beuth.knabe.spring_ddd_bank.rest_interface.RejectionConfig;
+
+/** Test driver for the stackless mode of the {@link RejectionExc}. */
+public class RejectionExcTest {
+
+	@After
+	public void cleanUp() {
+		RejectionExc.setStackless(false);
+	}
+
+	@Test
+	public void stackTraceByDefault() {
+		assertFalse(RejectionExc.isStackless());
+		final Client.MinimumBalanceExc exc = create(Client.MinimumBalanceExc.class, "1.00", "2.00");
+		assertTrue(exc.getStackTrace().length > 0);
+	}
+
+	@Test
+	public void noStackTraceInStacklessMode() {
+		RejectionExc.setStackless(true);
+		final BankService.DuplicateUsernameExc exc = create(BankService.DuplicateUsernameExc.class, "jack", 1L);
+		assertEquals(0, exc.getStackTrace().length);
+		assertEquals(2, exc.getParameters().length);
+
+		RejectionExc.setStackless(false);
+		assertTrue(create(BankService.DuplicateUsernameExc.class, "jack", 1L).getStackTrace().length > 0);
+	}
+
+	@Test
+	public void failuresKeepStackTrace() {
+		RejectionExc.setStackless(true);
+		assertTrue(new multex.Failure().getStackTrace().length > 0);
+	}
+
+	@Test
+	public void modeSetOnlyByConfiguration() {
+		new RejectionConfig(true).applyStackless();
+		assertTrue(RejectionExc.isStackless());
+		new ExceptionAdvice();
+		assertTrue(RejectionExc.isStackless());
+		new RejectionConfig(false).applyStackless();
+		assertFalse(RejectionExc.isStackless());
+	}
+
+}
@@ -0,0 +1,106 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import de.beuth.knabe.spring_ddd_bank.domain.AccountAccess;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.BankService;
+import de.beuth.knabe.spring_ddd_bank.domain.CleanupService;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+
+/**Counts the SQL statements of access checked account lookups and transfers by the {@link QueryCounter}.*/
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class AccessCheckedQueryCountTest {
+
+    /** Only for use in the cleanUp methods! */
+    @Autowired
+    private CleanupService cleanupService;
+
+    @Autowired
+    private BankService bankService;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Before
+    public void cleanUpBefore() {
+        cleanupService.deleteAll();
+        Locale.setDefault(Locale.GERMANY);
+    }
+
+    @After
+    public void cleanUpAfter() {
+        cleanupService.deleteAll();
+    }
+
+    @Test
+    @Transactional
+    public void findMyAccessIsOneQuery() {
+        final AccountNo giro = _createJacksAccount("Jack's Giro");
+        final Client jack = bankService.findClient("jack");
+        QueryCounter.reset();
+        final AccountAccess access = jack.findMyAccess(giro);
+        assertEquals(_queries().toString(), 1, _queries().size());
+        assertEquals(giro, access.getAccount().accountNo());
+    }
+
+    @Test
+    @Transactional
+    public void transferWithFoundAccessDoesNotQueryTheAccessAgain() {
+        final AccountNo giro = _createJacksAccount("Jack's Giro");
+        final AccountNo savings = _createJacksAccount("Jack's Savings");
+        final Client jack = bankService.findClient("jack");
+        QueryCounter.reset();
+        jack.transfer(jack.findMyAccess(giro), savings, new Amount(1, 0));
+        final List<String> statements = _queries();
+        // The access with the source account, the refreshed source account, and the destination account:
+        assertEquals(statements.toString(), 3, statements.size());
+        assertEquals(statements.toString(), 1, _accessQueries(statements));
+
+        // Passing the account instead of its access costs a second access query:
+        QueryCounter.reset();
+        jack.transfer(jack.findMyAccount(giro), savings, new Amount(1, 0));
+        assertEquals(_queries().toString(), 2, _accessQueries(_queries()));
+    }
+
+    /** Creates an account for client jack, and clears the persistence context, so that nothing is cached. */
+    private AccountNo _createJacksAccount(final String accountName) {
+        final Client jack = bankService.findAllClients().isEmpty()
+                ? bankService.createClient("jack", LocalDate.parse("1966-12-31"))
+                : bankService.findClient("jack");
+        final AccountNo result = jack.createAccount(accountName).getAccount().accountNo();
+        entityManager.flush();
+        entityManager.clear();
+        return result;
+    }
+
+    /** @return the select statements recorded by the {@link QueryCounter}, without e.g. fetching sequence values */
+    private List<String> _queries() {
+        return QueryCounter.statements().stream().filter(sql -> sql.toLowerCase().startsWith("select"))
+                .collect(Collectors.toList());
+    }
+
+    private long _accessQueries(final List<String> statements) {
+        return statements.stream().filter(sql -> sql.toLowerCase().contains("from account_access")).count();
+    }
+
+}
@@ -3,8 +3,12 @@ package de.beuth.knabe.spring_ddd_bank.infrastructure;
 import static org.junit.Assert.*;
 
 import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -12,10 +16,16 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import de.beuth.knabe.spring_ddd_bank.domain.Account;
 import de.beuth.knabe.spring_ddd_bank.domain.AccountAccess;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
 import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
+import de.beuth.knabe.spring_ddd_bank.domain.ManagedAccountSummary;
 import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountAccessRepository;
 import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountRepository;
 import de.beuth.knabe.spring_ddd_bank.domain.imports.ClientRepository;
@@ -32,6 +42,8 @@ public class AccountAccessJpaRepositoryTest {
     private AccountRepository accountRepository;
     @Autowired
     private AccountAccessRepository accountAccessRepository;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     @Before
     public void cleanUp(){
@@ -40,10 +52,15 @@ public class AccountAccessJpaRepositoryTest {
     	clientRepository.deleteAll();
         Locale.setDefault(Locale.GERMANY);
     }
-    
+
+    /**@return the class implementing the tested repository. Subclasses running against another implementation override it.*/
+    protected Class<?> expectedImplementation() {
+        return AccountAccessJpaRepository.class;
+    }
+
     @Test
     public void isJpaRepositoryImplementation() {
-    	assertEquals(AccountAccessJpaRepository.class.getName(), accountAccessRepository.getClass().getName()); 
+    	assertEquals(expectedImplementation().getName(), accountAccessRepository.getClass().getName()); 
     }
 
     @Test
@@ -79,6 +96,80 @@ public class AccountAccessJpaRepositoryTest {
         	final Optional<AccountAccess> accountOptional = accountAccessRepository.find(anna, jacksAccount);
             assertEquals("Jack's account found by Anna", false, accountOptional.isPresent());
         }
+
+        //Find by account number including the account:
+        final Optional<AccountAccess> jacksAccessOptional = accountAccessRepository.find(jack, jacksAccount.accountNo());
+        assertEquals("Jack's account found by number", true, jacksAccessOptional.isPresent());
+        assertEquals(jacksAccount.accountNo(), jacksAccessOptional.get().getAccount().accountNo());
+        assertEquals(false, accountAccessRepository.find(jack, annasAccount.accountNo()).isPresent());
+        assertEquals(false, accountAccessRepository.find(anna, new AccountNo(jacksAccount.accountNo().toLong() + 1000)).isPresent());
     }
     
+    @Test
+    public void streamManagedAccountSummaries(){
+        final Client jack = clientRepository.save(new Client("jack", LocalDate.parse("1966-12-31")));
+        final Client anna = clientRepository.save(new Client("anna", LocalDate.parse("1977-01-01")));
+        final Account jacksGiro = accountRepository.save(new Account("Jack's Giro"));
+        final Account annasGiro = accountRepository.save(new Account("Anna's Giro"));
+        final Account jacksSavings = accountRepository.save(new Account("Jack's Savings"));
+        accountAccessRepository.save(new AccountAccess(jack, true, jacksGiro));
+        accountAccessRepository.save(new AccountAccess(anna, true, annasGiro));
+        accountAccessRepository.save(new AccountAccess(jack, false, annasGiro));
+        accountAccessRepository.save(new AccountAccess(jack, true, jacksSavings));
+        final List<String> expected = Arrays.asList(
+                jacksSavings.accountNo() + " true 0 Jack's Savings",
+                annasGiro.accountNo() + " false 0 Anna's Giro",
+                jacksGiro.accountNo() + " true 0 Jack's Giro");
+        //Outside of a transaction:
+        assertEquals(expected, _summaries(jack));
+        //Streamed within a transaction:
+        final TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        assertEquals(expected, readOnly.execute(status -> _summaries(jack)));
+    }
+
+    @Test
+    public void findRichClientsDistinctAndLimited(){
+        final Client jack = clientRepository.save(new Client("jack", LocalDate.parse("1966-12-31")));
+        final Client anna = clientRepository.save(new Client("anna", LocalDate.parse("1977-01-01")));
+        final Client kim = clientRepository.save(new Client("kim", LocalDate.parse("1994-05-21")));
+        final Account jacksGiro = accountRepository.save(new Account("Jack's Giro"));
+        final Account jacksSavings = accountRepository.save(new Account("Jack's Savings"));
+        final Account annasGiro = accountRepository.save(new Account("Anna's Giro"));
+        accountAccessRepository.save(new AccountAccess(jack, true, jacksGiro));
+        accountAccessRepository.save(new AccountAccess(jack, true, jacksSavings));
+        accountAccessRepository.save(new AccountAccess(anna, true, annasGiro));
+        accountAccessRepository.save(new AccountAccess(jack, false, annasGiro));
+        //Kim has no account at all.
+
+        //Each client only once, equally rich ones by descending ID:
+        assertEquals(Arrays.asList("anna", "jack"), _usernames(accountAccessRepository.findRichClients(Amount.ZERO, Integer.MAX_VALUE)));
+        assertEquals(Arrays.asList("anna"), _usernames(accountAccessRepository.findRichClients(Amount.ZERO, 1)));
+        assertEquals(Arrays.asList(), _usernames(accountAccessRepository.findRichClients(new Amount(0, 1), Integer.MAX_VALUE)));
+        assertFalse(_usernames(accountAccessRepository.findRichClients(Amount.ZERO, 3)).contains(kim.getUsername()));
+
+        //Streamed outside and within a transaction:
+        assertEquals(Arrays.asList("anna 1977-01-01", "jack 1966-12-31"), _richSummaries(Integer.MAX_VALUE));
+        final TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        assertEquals(Arrays.asList("anna 1977-01-01"), readOnly.execute(status -> _richSummaries(1)));
+    }
+
+    private List<String> _usernames(final List<Client> clients){
+        return clients.stream().map(Client::getUsername).collect(Collectors.toList());
+    }
+
+    private List<String> _richSummaries(final int limit){
+        try (Stream<ClientSummary> summaries = accountAccessRepository.streamRichClientSummaries(Amount.ZERO, limit)) {
+            return summaries.map(summary -> summary.getUsername() + " " + summary.getBirthDate()).collect(Collectors.toList());
+        }
+    }
+
+    private List<String> _summaries(final Client client){
+        try (Stream<ManagedAccountSummary> summaries = accountAccessRepository.streamManagedAccountSummariesOf(client)) {
+            return summaries.map(summary -> summary.getAccountNo() + " " + summary.isOwner() + " "
+                    + summary.getBalanceCents() + " " + summary.getAccountName()).collect(Collectors.toList());
+        }
+    }
+
 }
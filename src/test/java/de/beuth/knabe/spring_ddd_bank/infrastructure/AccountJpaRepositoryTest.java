@@ -3,7 +3,10 @@ package de.beuth.knabe.spring_ddd_bank.infrastructure;
 import static org.hamcrest.Matchers.greaterThan;
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
+import java.util.stream.Collectors;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -13,6 +16,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import de.beuth.knabe.spring_ddd_bank.domain.Account;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
 import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountRepository;
 
 /**Test driver for the {@link ClientJpaRepository}*/
@@ -29,10 +33,15 @@ public class AccountJpaRepositoryTest {
     	testee.deleteAll();
         Locale.setDefault(Locale.GERMANY);
     }
-    
+
+    /**@return the class implementing the tested repository. Subclasses running against another implementation override it.*/
+    protected Class<?> expectedImplementation() {
+        return AccountJpaRepository.class;
+    }
+
     @Test
     public void isJpaRepositoryImplementation() {
-    	assertEquals(AccountJpaRepository.class.getName(), testee.getClass().getName()); 
+    	assertEquals(expectedImplementation().getName(), testee.getClass().getName()); 
     }
 
     @Test
@@ -56,4 +65,40 @@ public class AccountJpaRepositoryTest {
 		assertEquals(jacksAccountId.longValue(), jacksAccount.accountNo().toLong());
     }
 
+    @Test
+    public void findAllLeavesOutMissingAccounts(){
+        final AccountNo jacks = testee.save(new Account("jack's")).accountNo();
+        final AccountNo annas = testee.save(new Account("anna's")).accountNo();
+        final AccountNo missing = new AccountNo(annas.toLong() + 1000);
+        final List<Account> found = testee.findAll(Arrays.asList(annas, missing, jacks, annas));
+        final List<AccountNo> foundNos = found.stream().map(Account::accountNo).sorted(
+                (a, b) -> Long.compare(a.toLong(), b.toLong())).collect(Collectors.toList());
+        assertEquals(Arrays.asList(jacks, annas), foundNos);
+    }
+
+    @Test
+    public void searchByNameFindsAllWordsAmongGivenAccounts(){
+        final AccountNo giro = testee.save(new Account("Jack's Giro")).accountNo();
+        final AccountNo savings = testee.save(new Account("Jack's Savings, 2019")).accountNo();
+        final AccountNo holidays = testee.save(new Account("SAVINGS for holidays")).accountNo();
+        final AccountNo foreign = testee.save(new Account("Anna's savings")).accountNo();
+        final List<AccountNo> among = Arrays.asList(giro, savings, holidays);
+        assertEquals(Arrays.asList(savings, holidays), testee.searchByName("savings", among, 10));
+        assertEquals(Arrays.asList(savings), testee.searchByName("savings", among, 1));
+        assertEquals(Arrays.asList(savings), testee.searchByName("jack SAVINGS", among, 10));
+        assertEquals(Arrays.asList(savings), testee.searchByName("2019", among, 10));
+        assertEquals(Arrays.asList(), testee.searchByName("sav", among, 10));
+        assertEquals(Arrays.asList(), testee.searchByName("anna", among, 10));
+        assertEquals(Arrays.asList(), testee.searchByName(" ,. ", among, 10));
+        assertEquals(Arrays.asList(foreign), testee.searchByName("savings", Arrays.asList(foreign), 10));
+
+        //A new account is found at once:
+        final AccountNo newGiro = testee.save(new Account("Giro")).accountNo();
+        assertEquals(Arrays.asList(giro, newGiro), testee.searchByName("giro", Arrays.asList(giro, newGiro), 10));
+
+        //After deleting all accounts nothing is found:
+        testee.deleteAll();
+        assertEquals(Arrays.asList(), testee.searchByName("giro", Arrays.asList(giro, newGiro), 10));
+    }
+
 }
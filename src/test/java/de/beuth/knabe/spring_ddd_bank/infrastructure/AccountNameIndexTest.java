@@ -0,0 +1,150 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Account;
+import de.beuth.knabe.spring_ddd_bank.domain.base.EntityBase;
+
+/**Test driver for the {@link AccountNameIndex} against a map of account names, which plays the database.*/
+public class AccountNameIndexTest {
+
+    private final Map<Long, String> database = new TreeMap<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private final AccountNameIndex testee = new AccountNameIndex(true, consumer -> {
+        loads.incrementAndGet();
+        database.forEach(consumer);
+    });
+
+    @Test
+    public void wordsAreRunsOfLettersAndDigitsInLowerCase() {
+        assertEquals(Arrays.asList("jack", "s", "giro", "2019", "über"),
+                new ArrayList<>(AccountNameIndex.words("Jack's GIRO, 2019 giro-Über")));
+        assertEquals(Arrays.asList(), new ArrayList<>(AccountNameIndex.words(" .,- ")));
+        assertEquals(Arrays.asList(), new ArrayList<>(AccountNameIndex.words(null)));
+    }
+
+    @Test
+    public void loadedOnceByFirstSearch() {
+        database.put(1L, "Jack's Giro");
+        database.put(2L, "Jack's Savings");
+        database.put(3L, "Anna's Savings");
+        assertEquals(0, loads.get());
+        final long[] all = {1, 2, 3};
+        assertEquals(Arrays.asList(2L, 3L), testee.search("savings", all, 10));
+        assertEquals(Arrays.asList(2L), testee.search("Savings JACK", all, 10));
+        assertEquals(Arrays.asList(3L), testee.search("savings", new long[] {1, 3}, 10));
+        assertEquals(Arrays.asList(1L, 2L), testee.search("jack", all, 2));
+        assertEquals(Arrays.asList(1L), testee.search("jack", all, 1));
+        assertEquals(Arrays.asList(), testee.search("jack giro savings", all, 10));
+        assertEquals(Arrays.asList(), testee.search("unknown", all, 10));
+        assertEquals(Arrays.asList(), testee.search("jack", new long[0], 10));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void newAccountsAreAddedInAnyOrder() {
+        testee.search("giro", new long[] {1}, 10);
+        testee.add(_account(7L, "Giro"));
+        testee.add(_account(3L, "Giro"));
+        testee.add(_account(5L, "Giro savings"));
+        testee.add(_account(5L, "Giro savings"));
+        assertEquals(Arrays.asList(3L, 5L, 7L), testee.search("giro", new long[] {1, 3, 4, 5, 7, 8}, 10));
+        assertEquals(Arrays.asList(5L), testee.search("savings", new long[] {1, 3, 4, 5, 7, 8}, 10));
+    }
+
+    @Test
+    public void clearReloads() {
+        database.put(1L, "Giro");
+        assertEquals(Arrays.asList(1L), testee.search("giro", new long[] {1, 2}, 10));
+        database.put(2L, "Giro");
+        testee.clear();
+        assertEquals(Arrays.asList(1L, 2L), testee.search("giro", new long[] {1, 2}, 10));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void manyRandomAccountsAsByBruteForce() {
+        final Random random = new Random(4711);
+        final String[] vocabulary = {"giro", "savings", "jack", "anna", "holidays", "car", "house", "2019"};
+        //Several thousand accounts make posting lists of many blocks, with gaps of several bytes:
+        long id = 0;
+        for (int i = 0; i < 5000; i++) {
+            id += 1 + random.nextInt(i % 100 == 0 ? 100_000 : 20);
+            final StringBuilder name = new StringBuilder();
+            final int wordCount = 1 + random.nextInt(3);
+            for (int w = 0; w < wordCount; w++) {
+                name.append(vocabulary[random.nextInt(vocabulary.length)]).append(' ');
+            }
+            database.put(id, name.toString());
+        }
+        //The last accounts are added after loading, some of them out of order:
+        final List<Long> ids = new ArrayList<>(database.keySet());
+        final Map<Long, String> loaded = new TreeMap<>(database);
+        for (final Long late : ids.subList(ids.size() - 300, ids.size())) {
+            if (random.nextBoolean()) {
+                loaded.remove(late);
+            }
+        }
+        final Map<Long, String> all = new TreeMap<>(database);
+        database.clear();
+        database.putAll(loaded);
+        testee.search("giro", new long[] {1}, 1);
+        for (final Long late : ids.subList(ids.size() - 300, ids.size())) {
+            if (!loaded.containsKey(late) && random.nextInt(4) != 0) {
+                testee.add(_account(late, all.get(late)));
+            }
+        }
+        for (final Long late : ids.subList(ids.size() - 300, ids.size())) {
+            if (!loaded.containsKey(late)) {
+                testee.add(_account(late, all.get(late)));
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            final String query = vocabulary[random.nextInt(vocabulary.length)] + " "
+                    + (random.nextBoolean() ? vocabulary[random.nextInt(vocabulary.length)] : "");
+            final long[] among = ids.stream().filter(candidate -> random.nextInt(10) < 3).mapToLong(Long::longValue).toArray();
+            final int limit = 1 + random.nextInt(2000);
+            final Set<String> words = AccountNameIndex.words(query);
+            final List<Long> expected = Arrays.stream(among).boxed()
+                    .filter(candidate -> AccountNameIndex.words(all.get(candidate)).containsAll(words))
+                    .limit(limit).collect(Collectors.toList());
+            assertEquals(query, expected, testee.search(query, among, limit));
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void disabledIndexIgnoresNewAccounts() {
+        final AccountNameIndex disabled = new AccountNameIndex(false, consumer -> database.forEach(consumer));
+        disabled.add(_account(1L, "Giro"));
+        disabled.clear();
+        assertEquals(false, disabled.isEnabled());
+    }
+
+    private static Account _account(final Long id, final String name) {
+        final Account result = new Account(name);
+        try {
+            final Field idField = EntityBase.class.getDeclaredField("id");
+            idField.setAccessible(true);
+            idField.set(result, id);
+        } catch (final ReflectiveOperationException ex) {
+            throw new AssertionError(ex);
+        }
+        return result;
+    }
+
+}
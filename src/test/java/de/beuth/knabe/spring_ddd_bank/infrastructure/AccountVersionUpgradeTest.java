@@ -0,0 +1,59 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import de.beuth.knabe.spring_ddd_bank.Application;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.BankService;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountRepository;
+
+/**Starts the application twice on an own database in order to test, how the {@link AccountVersionUpgrade} treats accounts from before the version column.*/
+public class AccountVersionUpgradeTest {
+
+    private static final String DATABASE_URL = "jdbc:derby:memory:account-version-upgrade-db;create=true";
+
+    @Test
+    public void accountWithoutVersionCanBeSavedAfterUpgrade() {
+        try (ConfigurableApplicationContext first = _start()) {
+            //Simulates accounts, which existed before the version column was added by the schema update:
+            final JdbcTemplate jdbc = first.getBean(JdbcTemplate.class);
+            jdbc.execute("alter table account alter column version default null");
+            jdbc.update("insert into account (id, name, cents, version) values (4711, 'old', 100, null)");
+            jdbc.update("insert into account (id, name, cents) values (4712, 'older', 200)");
+            assertEquals(2, _countWithoutVersion(jdbc));
+        }
+        try (ConfigurableApplicationContext second = _start()) {
+            final JdbcTemplate jdbc = second.getBean(JdbcTemplate.class);
+            assertEquals(0, _countWithoutVersion(jdbc));
+            final Client jack = second.getBean(BankService.class).createClient("jack", LocalDate.parse("1966-12-31"));
+            jack.deposit(new AccountNo(4711L), new Amount(2, 0));
+            assertEquals(new Amount(3, 0),
+                    second.getBean(AccountRepository.class).find(new AccountNo(4711L)).get().getBalance());
+            assertEquals(Long.valueOf(1),
+                    jdbc.queryForObject("select version from account where id = 4711", Long.class));
+            //An account inserted without a version, e.g. by a node of the former release, gets the default:
+            jdbc.update("insert into account (id, name, cents) values (4713, 'new', 0)");
+            assertEquals(0, _countWithoutVersion(jdbc));
+        }
+    }
+
+    private static int _countWithoutVersion(final JdbcTemplate jdbc) {
+        return jdbc.queryForObject("select count(*) from account where version is null", Integer.class);
+    }
+
+    private static ConfigurableApplicationContext _start() {
+        return new SpringApplicationBuilder(Application.class).properties(
+                "server.port=0",
+                "spring.datasource.url=" + DATABASE_URL).run();
+    }
+
+}
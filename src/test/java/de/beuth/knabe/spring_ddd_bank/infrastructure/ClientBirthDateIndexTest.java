@@ -0,0 +1,185 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
+import de.beuth.knabe.spring_ddd_bank.domain.base.EntityBase;
+
+/**Test driver for the {@link ClientBirthDateIndex} against a list of summaries, which plays the database.*/
+public class ClientBirthDateIndexTest {
+
+    private final List<ClientSummary> database = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private Runnable afterFetch = () -> {};
+
+    private final ClientBirthDateIndex testee = new ClientBirthDateIndex(true, () -> {
+        loads.incrementAndGet();
+        final List<ClientSummary> fetched = new ArrayList<>(database);
+        afterFetch.run();
+        return fetched;
+    });
+
+    @Test
+    public void loadedOnceByFirstQuery() {
+        database.add(_summary(1L, "jack", "1966-12-31"));
+        database.add(_summary(2L, "anna", "1977-01-01"));
+        database.add(_summary(3L, "chloe", "1977-01-01"));
+        database.add(new ClientSummary(4L, "kim", null));
+        assertEquals(0, loads.get());
+        assertEquals(Arrays.asList(database.get(2), database.get(1), database.get(0)),
+                testee.findBornBetween(LocalDate.parse("1966-12-31"), LocalDate.MAX));
+        assertEquals(Arrays.asList(database.get(2), database.get(1)),
+                testee.findBornBetween(LocalDate.parse("1977-01-01"), LocalDate.parse("1977-01-01")));
+        assertEquals(Arrays.asList(), testee.findBornBetween(LocalDate.parse("1977-01-02"), LocalDate.MAX));
+        assertEquals(Arrays.asList(database.get(0)),
+                testee.findBornBetween(LocalDate.MIN, LocalDate.parse("1976-12-31")));
+        assertEquals(1, loads.get());
+        assertEquals(3, testee.size());
+    }
+
+    @Test
+    public void changesWithoutTransactionAreAppliedAtOnce() {
+        final Client jack = _client(1L, "jack", "1966-12-31");
+        final Client anna = _client(2L, "anna", "1977-01-01");
+        testee.findBornBetween(LocalDate.MIN, LocalDate.MAX);
+        testee.put(jack);
+        testee.put(anna);
+        testee.put(anna);
+        assertEquals(Arrays.asList(_summary(2L, "anna", "1977-01-01"), _summary(1L, "jack", "1966-12-31")),
+                testee.findBornBetween(LocalDate.MIN, LocalDate.MAX));
+        testee.remove(anna);
+        testee.remove(anna);
+        assertEquals(Arrays.asList(_summary(1L, "jack", "1966-12-31")), testee.findBornBetween(LocalDate.MIN, LocalDate.MAX));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void changesBeforeLoadingAreSeenByLoader() {
+        testee.put(_client(1L, "jack", "1966-12-31"));
+        database.add(_summary(2L, "anna", "1977-01-01"));
+        assertEquals(Arrays.asList(_summary(2L, "anna", "1977-01-01")), testee.findBornBetween(LocalDate.MIN, LocalDate.MAX));
+    }
+
+    @Test
+    public void changesCommittedWhileFetchingAreApplied() {
+        final Client jack = _client(1L, "jack", "1966-12-31");
+        final Client anna = _client(2L, "anna", "1977-01-01");
+        database.add(_summary(jack));
+        afterFetch = () -> {
+            //Committed by other transactions after the fetch has read the database:
+            database.add(_summary(anna));
+            testee.put(anna);
+            database.remove(0);
+            testee.remove(jack);
+        };
+        assertEquals(Arrays.asList(_summary(anna)), testee.findBornBetween(LocalDate.MIN, LocalDate.MAX));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void readWriteTransactionQueriesDatabaseInsteadOfLoading() {
+        database.add(_summary(1L, "jack", "1966-12-31"));
+        final List<ClientSummary> byDatabase = Arrays.asList(_summary(2L, "anna", "1977-01-01"));
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertEquals(byDatabase, testee.findBornBetween(LocalDate.MIN, LocalDate.MAX, () -> byDatabase));
+            assertEquals(0, loads.get());
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+            assertEquals(Arrays.asList(database.get(0)),
+                    testee.findBornBetween(LocalDate.MIN, LocalDate.MAX, () -> byDatabase));
+            assertEquals(1, loads.get());
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+            //Once loaded, the index answers in any transaction:
+            assertEquals(Arrays.asList(database.get(0)),
+                    testee.findBornBetween(LocalDate.MIN, LocalDate.MAX, () -> byDatabase));
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+    }
+
+    @Test
+    public void manyRandomChangesAsByDatabase() {
+        final Random random = new Random(4711);
+        testee.findBornBetween(LocalDate.MIN, LocalDate.MAX);
+        for (long id = 1; id <= 2000; id++) {
+            final Client client = _client(id, "user" + id, LocalDate.ofEpochDay(random.nextInt(1000)).toString());
+            testee.put(client);
+            database.add(_summary(client));
+            if (random.nextInt(3) == 0) {
+                final int index = random.nextInt(database.size());
+                final ClientSummary removed = database.remove(index);
+                testee.remove(_client(removed.getId(), removed.getUsername(), removed.getBirthDate().toString()));
+            }
+        }
+        for (int i = 0; i < 100; i++) {
+            final LocalDate minDate = LocalDate.ofEpochDay(random.nextInt(1100) - 50);
+            final LocalDate maxDate = minDate.plusDays(random.nextInt(200));
+            final List<ClientSummary> expected = database.stream()
+                    .filter(summary -> !summary.getBirthDate().isBefore(minDate) && !summary.getBirthDate().isAfter(maxDate))
+                    .sorted(Comparator.comparing(ClientSummary::getBirthDate).thenComparing(ClientSummary::getId).reversed())
+                    .collect(Collectors.toList());
+            assertEquals(expected, testee.findBornBetween(minDate, maxDate));
+        }
+        assertEquals(String.format("%d\t%d\t0\t0\t0\n", database.size(), database.size()), testee.check(() -> database));
+    }
+
+    @Test
+    public void checkFindsDifferencesAndReloads() {
+        database.add(_summary(1L, "jack", "1966-12-31"));
+        database.add(_summary(2L, "anna", "1977-01-01"));
+        assertEquals("2\t2\t0\t0\t0\n", testee.check(() -> database));
+        //Changed behind the back of the index:
+        database.remove(0);
+        database.add(_summary(3L, "chloe", "1988-08-08"));
+        database.add(_summary(4L, "kim", "1994-05-21"));
+        assertEquals("2\t3\t2\t1\t0\n", testee.check(() -> database));
+        assertEquals(3, testee.findBornBetween(LocalDate.MIN, LocalDate.MAX).size());
+        assertEquals(2, loads.get());
+        assertEquals("3\t3\t0\t0\t0\n", testee.check(() -> database));
+    }
+
+    @Test
+    public void disabledIndexReportsNothing() {
+        final ClientBirthDateIndex disabled = new ClientBirthDateIndex(false, () -> database);
+        disabled.put(_client(1L, "jack", "1966-12-31"));
+        assertEquals("", disabled.check(() -> database));
+        assertEquals(0, disabled.size());
+    }
+
+    private static ClientSummary _summary(final Long id, final String username, final String birthDate) {
+        return new ClientSummary(id, username, LocalDate.parse(birthDate));
+    }
+
+    @SuppressWarnings("deprecation")
+    private static ClientSummary _summary(final Client client) {
+        return new ClientSummary(client.getId(), client.getUsername(), client.getBirthDate());
+    }
+
+    private static Client _client(final Long id, final String username, final String birthDate) {
+        final Client result = new Client(username, LocalDate.parse(birthDate));
+        try {
+            final Field idField = EntityBase.class.getDeclaredField("id");
+            idField.setAccessible(true);
+            idField.set(result, id);
+        } catch (final ReflectiveOperationException ex) {
+            throw new AssertionError(ex);
+        }
+        return result;
+    }
+
+}
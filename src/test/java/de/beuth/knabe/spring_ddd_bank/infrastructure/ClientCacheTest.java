@@ -0,0 +1,136 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.base.EntityBase;
+
+/**Test driver for the {@link ClientCache}*/
+public class ClientCacheTest {
+
+    private final ClientCache testee = new ClientCache(true, 2, 60);
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    public void foundClientIsLoadedOnceByUsernameAndId() {
+        final Client jack = _client(1L, "jack");
+        assertSame(jack, testee.find("jack", () -> _load(jack)).get());
+        assertEquals(jack, testee.find("jack", () -> _load(jack)).get());
+        assertEquals(jack, testee.find(1L, id -> _load(jack)).get());
+        assertEquals(1, loads.get());
+        assertEquals("2\t1\t0\t1\n", testee.report());
+    }
+
+    /** A client gets its repositories provided per request, so no two lookups may share one. */
+    @Test
+    public void eachHitReturnsNewClient() {
+        final Client jack = _client(1L, "jack");
+        testee.find("jack", () -> _load(jack));
+        final Client first = testee.find("jack", () -> _load(jack)).get();
+        final Client second = testee.find(1L, id -> _load(jack)).get();
+        assertNotSame(jack, first);
+        assertNotSame(first, second);
+        for (final Client hit : Arrays.asList(first, second)) {
+            assertEquals(jack, hit);
+            assertEquals("jack", hit.getUsername());
+            assertEquals(LocalDate.parse("1966-12-31"), hit.getBirthDate());
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void missingClientIsNotCached() {
+        assertFalse(testee.find("jack", () -> _load(null)).isPresent());
+        final Client jack = _client(1L, "jack");
+        assertSame(jack, testee.find("jack", () -> _load(jack)).get());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void leastRecentlyUsedClientIsEvicted() {
+        final Client jack = _client(1L, "jack");
+        final Client anna = _client(2L, "anna");
+        final Client chloe = _client(3L, "chloe");
+        testee.find("jack", () -> _load(jack));
+        testee.find("anna", () -> _load(anna));
+        testee.find("jack", () -> _load(jack));
+        testee.find("chloe", () -> _load(chloe));
+        assertEquals(3, loads.get());
+        assertEquals(2, testee.size());
+        // anna was evicted by its username and by its ID:
+        testee.find(2L, id -> _load(anna));
+        assertEquals(4, loads.get());
+        assertEquals("1\t4\t2\t2\n", testee.report());
+    }
+
+    @Test
+    public void expiredClientIsLoadedAgain() {
+        final ClientCache expiring = new ClientCache(true, 2, 0);
+        final Client jack = _client(1L, "jack");
+        expiring.find("jack", () -> _load(jack));
+        expiring.find("jack", () -> _load(jack));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void invalidatedClientIsLoadedAgain() {
+        final Client jack = _client(1L, "jack");
+        testee.find(1L, id -> _load(jack));
+        testee.invalidate(jack);
+        assertEquals(0, testee.size());
+        testee.find("jack", () -> _load(jack));
+        assertEquals(2, loads.get());
+    }
+
+    /** A client read before a concurrent invalidation may be outdated, so it must not be cached. */
+    @Test
+    public void clientLoadedDuringInvalidationIsNotCached() {
+        final Client jack = _client(1L, "jack");
+        testee.find("jack", () -> {
+            testee.invalidate(jack);
+            return _load(jack);
+        });
+        assertEquals(0, testee.size());
+    }
+
+    @Test
+    public void disabledCacheAlwaysLoads() {
+        final ClientCache disabled = new ClientCache(false, 2, 60);
+        final Client jack = _client(1L, "jack");
+        disabled.find("jack", () -> _load(jack));
+        disabled.find(1L, id -> _load(jack));
+        assertEquals(2, loads.get());
+        assertEquals(0, disabled.size());
+    }
+
+    private Optional<Client> _load(final Client client) {
+        loads.incrementAndGet();
+        return Optional.ofNullable(client);
+    }
+
+    /** Creates a client with the given ID as if it had been saved. */
+    private static Client _client(final Long id, final String username) {
+        final Client result = new Client(username, LocalDate.parse("1966-12-31"));
+        try {
+            final Field idField = EntityBase.class.getDeclaredField("id");
+            idField.setAccessible(true);
+            idField.set(result, id);
+        } catch (final ReflectiveOperationException ex) {
+            throw new AssertionError(ex);
+        }
+        return result;
+    }
+
+}
@@ -9,6 +9,8 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -16,8 +18,11 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
 
 import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.ClientDiagnostics;
 import de.beuth.knabe.spring_ddd_bank.domain.imports.ClientRepository;
 
 /**Test driver for the {@link ClientJpaRepository}*/
@@ -29,15 +34,34 @@ public class ClientJpaRepositoryTest {
     @Autowired
     private ClientRepository testee;
 
+    /**The diagnostics of the tested repository, empty if it has none.*/
+    @Autowired
+    private Optional<ClientDiagnostics> diagnostics;
+
     @Before
     public void cleanUp(){
     	testee.deleteAll();
         Locale.setDefault(Locale.GERMANY);
     }
-    
+
+    /**@return the class implementing the tested repository. Subclasses running against another implementation override it.*/
+    protected Class<?> expectedImplementation() {
+        return ClientJpaRepository.class;
+    }
+
+    /**@return the report of a consistent index by birth date with the given number of clients. Empty, as the tested repository has no such index.*/
+    protected String expectedBirthDateIndexReport(final int clients) {
+        return "";
+    }
+
+    /**@return the report of a consistent index by username with the given number of clients. Empty, as the tested repository has no such index.*/
+    protected String expectedUsernameIndexReport(final int clients) {
+        return "";
+    }
+
     @Test
     public void isJpaRepositoryImplementation() {
-    	assertEquals(ClientJpaRepository.class.getName(), testee.getClass().getName()); 
+    	assertEquals(expectedImplementation().getName(), testee.getClass().getName()); 
     }
 
     @Test
@@ -123,6 +147,80 @@ public class ClientJpaRepositoryTest {
         }
     }
 
+    @Test
+    public void findPageContinuesAfterLastClientOfPreviousPage(){
+        final Client jack = testee.save(new Client("jack", LocalDate.parse("1966-12-31")));
+        final Client anna = testee.save(new Client("anna", LocalDate.parse("1977-01-01")));
+        final Client chloe = testee.save(new Client("chloe", LocalDate.parse("1988-08-08")));
+        final List<Client> firstPage = testee.findPage(null, 2);
+        assertEquals(Arrays.asList(chloe, anna), firstPage);
+        final List<Client> secondPage = testee.findPage(anna.getId(), 2);
+        assertEquals(Arrays.asList(jack), secondPage);
+        assertEquals(Collections.emptyList(), testee.findPage(jack.getId(), 2));
+    }
+
+    @Test
+    public void summariesAsClients(){
+        final Client jack = testee.save(new Client("jack", LocalDate.parse("1966-12-31")));
+        final Client anna = testee.save(new Client("anna", LocalDate.parse("1977-01-01")));
+        final Client chloe = testee.save(new Client("chloe", LocalDate.parse("1988-08-08")));
+        assertEquals(_summaries(testee.findAll()), testee.findAllSummaries());
+        assertEquals(_summaries(Arrays.asList(chloe, anna, jack)), testee.findAllSummaries());
+        assertEquals(_summaries(testee.findPage(null, 2)), testee.findSummaryPage(null, 2));
+        assertEquals(_summaries(testee.findPage(anna.getId(), 2)), testee.findSummaryPage(anna.getId(), 2));
+        final LocalDate annaBirthDate = LocalDate.parse("1977-01-01");
+        assertEquals(_summaries(testee.findAllBornFrom(annaBirthDate)), testee.findSummariesBornFrom(annaBirthDate));
+        assertEquals(2, testee.findSummariesBornFrom(annaBirthDate).size());
+    }
+
+    @Test
+    public void findSummariesBornBetween(){
+        final Client jack = testee.save(new Client("jack", LocalDate.parse("1966-12-31")));
+        final Client anna = testee.save(new Client("anna", LocalDate.parse("1977-01-01")));
+        final Client chloe = testee.save(new Client("chloe", LocalDate.parse("1977-01-01")));
+        final Client kim = testee.save(new Client("kim", LocalDate.parse("1994-05-21")));
+        assertEquals(_summaries(Arrays.asList(chloe, anna, jack)),
+                testee.findSummariesBornBetween(LocalDate.parse("1966-12-31"), LocalDate.parse("1977-01-01")));
+        assertEquals(_summaries(Arrays.asList(kim)),
+                testee.findSummariesBornBetween(LocalDate.parse("1977-01-02"), LocalDate.parse("2000-01-01")));
+        testee.delete(chloe);
+        assertEquals(_summaries(Arrays.asList(kim, anna)), testee.findSummariesBornFrom(LocalDate.parse("1977-01-01")));
+        assertEquals(expectedBirthDateIndexReport(3), diagnostics.map(ClientDiagnostics::checkBirthDateIndex).orElse(""));
+    }
+
+    @Test
+    public void findByUsernamePrefix(){
+        final Client jack = testee.save(new Client("jack", LocalDate.parse("1966-12-31")));
+        final Client jackie = testee.save(new Client("jackie", LocalDate.parse("1977-01-01")));
+        final Client jUnderscore = testee.save(new Client("j_ack", LocalDate.parse("1988-08-08")));
+        final Client anna = testee.save(new Client("anna", LocalDate.parse("1994-05-21")));
+        assertEquals(_summaries(Arrays.asList(jack, jackie)), testee.findByUsernamePrefix("jack", 10));
+        assertEquals(_summaries(Arrays.asList(jUnderscore, jack)), testee.findByUsernamePrefix("j", 2));
+        //The underscore is no wildcard:
+        assertEquals(_summaries(Arrays.asList(jUnderscore)), testee.findByUsernamePrefix("j_", 10));
+        assertEquals(_summaries(Arrays.asList()), testee.findByUsernamePrefix("j%", 10));
+        assertEquals(_summaries(Arrays.asList(anna, jUnderscore, jack, jackie)), testee.findByUsernamePrefix("", 10));
+        testee.delete(jack);
+        assertEquals(_summaries(Arrays.asList(jackie)), testee.findByUsernamePrefix("jack", 10));
+        assertEquals(expectedUsernameIndexReport(3), diagnostics.map(ClientDiagnostics::checkUsernameIndex).orElse(""));
+    }
+
+    @SuppressWarnings("deprecation")
+    private static List<ClientSummary> _summaries(final List<Client> clients){
+        return clients.stream().map(client -> new ClientSummary(client.getId(), client.getUsername(), client.getBirthDate()))
+                .collect(Collectors.toList());
+    }
+
+    @Test
+    @Transactional
+    public void streamAllInDescendingIds(){
+        final Client jack = testee.save(new Client("jack", LocalDate.parse("1966-12-31")));
+        final Client anna = testee.save(new Client("anna", LocalDate.parse("1977-01-01")));
+        try (Stream<Client> clients = testee.streamAll()) {
+            assertEquals(Arrays.asList(anna, jack), clients.collect(Collectors.toList()));
+        }
+    }
+
     @Test
     public void findAllBornFrom(){
         final LocalDate jackBirthDate = LocalDate.parse("1966-12-31");
@@ -0,0 +1,112 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import de.beuth.knabe.spring_ddd_bank.domain.ClientSummary;
+
+/**Test driver for the {@link ClientUsernameTrie}, comparing it with a sorted map of the usernames.*/
+public class ClientUsernameTrieTest {
+
+    private final List<ClientSummary> database = new ArrayList<>();
+
+    private final ClientUsernameTrie testee = new ClientUsernameTrie(true, () -> new ArrayList<>(database));
+
+    @Test
+    public void findByPrefixInOrderOfUsernames() {
+        database.add(_summary(1L, "jack"));
+        database.add(_summary(2L, "jackie"));
+        database.add(_summary(3L, "Jack"));
+        database.add(_summary(4L, "jacob"));
+        database.add(_summary(5L, "ja"));
+        database.add(_summary(6L, "j_ack"));
+        database.add(_summary(7L, "anna"));
+        assertEquals(Arrays.asList("ja", "jack", "jackie", "jacob"), _usernames(testee.findByPrefix("ja", 10)));
+        assertEquals(Arrays.asList("ja", "jack"), _usernames(testee.findByPrefix("ja", 2)));
+        assertEquals(Arrays.asList("jack", "jackie"), _usernames(testee.findByPrefix("jac", 2)));
+        assertEquals(Arrays.asList("jackie"), _usernames(testee.findByPrefix("jacki", 10)));
+        assertEquals(Arrays.asList("jackie"), _usernames(testee.findByPrefix("jackie", 10)));
+        assertEquals(Arrays.asList(), _usernames(testee.findByPrefix("jackies", 10)));
+        assertEquals(Arrays.asList(), _usernames(testee.findByPrefix("jax", 10)));
+        assertEquals(Arrays.asList("j_ack"), _usernames(testee.findByPrefix("j_", 10)));
+        assertEquals(Arrays.asList("Jack", "anna", "j_ack"), _usernames(testee.findByPrefix("", 3)));
+        assertEquals(_summary(2L, "jackie"), testee.findByPrefix("jacki", 1).get(0));
+        assertEquals(7, testee.size());
+    }
+
+    @Test
+    public void deleteMergesNodes() {
+        testee.findByPrefix("", 1);
+        testee.insert(_summary(1L, "jack"));
+        testee.insert(_summary(2L, "jackie"));
+        testee.insert(_summary(3L, "jacob"));
+        testee.delete(_summary(1L, "jack"));
+        testee.delete(_summary(1L, "jack"));
+        assertEquals(Arrays.asList("jackie", "jacob"), _usernames(testee.findByPrefix("jac", 10)));
+        testee.delete(_summary(3L, "jacob"));
+        assertEquals(Arrays.asList("jackie"), _usernames(testee.findByPrefix("j", 10)));
+        //Only the client with the ID is deleted, not another one with its username:
+        testee.delete(_summary(9L, "jackie"));
+        assertEquals(1, testee.size());
+        testee.delete(_summary(2L, "jackie"));
+        assertEquals(Arrays.asList(), _usernames(testee.findByPrefix("", 10)));
+        assertEquals(0, testee.size());
+    }
+
+    @Test
+    public void manyRandomChangesAsBySortedMap() {
+        final Random random = new Random(4711);
+        final TreeMap<String, ClientSummary> expected = new TreeMap<>();
+        testee.findByPrefix("", 1);
+        for (long id = 1; id <= 5000; id++) {
+            final String username = _randomUsername(random);
+            if (expected.containsKey(username)) {
+                testee.delete(expected.remove(username));
+            } else {
+                final ClientSummary client = _summary(id, username);
+                expected.put(username, client);
+                testee.insert(client);
+            }
+        }
+        for (int i = 0; i < 200; i++) {
+            final String username = _randomUsername(random);
+            final String prefix = username.substring(0, random.nextInt(username.length() + 1));
+            final int limit = 1 + random.nextInt(50);
+            final List<ClientSummary> expectedFound = expected.subMap(prefix, prefix + Character.MAX_VALUE).values()
+                    .stream().limit(limit).collect(Collectors.toList());
+            assertEquals(prefix, expectedFound, testee.findByPrefix(prefix, limit));
+        }
+        assertEquals(new ArrayList<>(expected.values()), testee.entries());
+        database.addAll(expected.values());
+        assertEquals(String.format("%d\t%d\t0\t0\t0\n", expected.size(), expected.size()), testee.check(() -> database));
+    }
+
+    /**@return a username of 1 to 6 characters from a small alphabet, so that many usernames share prefixes.*/
+    private static String _randomUsername(final Random random) {
+        final String alphabet = "abcAB_1";
+        final StringBuilder result = new StringBuilder();
+        result.append(alphabet.charAt(random.nextInt(6)));
+        for (int length = random.nextInt(6); length > 0; length--) {
+            result.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return result.toString();
+    }
+
+    private static ClientSummary _summary(final Long id, final String username) {
+        return new ClientSummary(id, username, LocalDate.parse("1966-12-31"));
+    }
+
+    private static List<String> _usernames(final List<ClientSummary> clients) {
+        return clients.stream().map(ClientSummary::getUsername).collect(Collectors.toList());
+    }
+
+}
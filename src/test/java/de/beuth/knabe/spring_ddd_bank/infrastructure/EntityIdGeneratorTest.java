@@ -0,0 +1,88 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import de.beuth.knabe.spring_ddd_bank.domain.AccountAccess;
+import de.beuth.knabe.spring_ddd_bank.domain.BankService;
+import de.beuth.knabe.spring_ddd_bank.domain.CleanupService;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+
+/**Test driver for the {@link EntityIdGenerator} with the default sequence mode.*/
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class EntityIdGeneratorTest {
+
+    /** Only for use in the cleanUp methods! */
+    @Autowired
+    private CleanupService cleanupService;
+
+    @Autowired
+    private BankService bankService;
+
+    @Before
+    public void cleanUpBefore() {
+        cleanupService.deleteAll();
+        Locale.setDefault(Locale.GERMANY);
+    }
+
+    @After
+    public void cleanUpAfter() {
+        cleanupService.deleteAll();
+    }
+
+    /**@return the lowest identity, which the tested mode may generate*/
+    protected long expectedLowestId() {
+        return 1;
+    }
+
+    /**@return the identity after the highest one, which the tested mode may generate in this test*/
+    protected long expectedIdsBelow() {
+        return 1_000_000_000_000L;
+    }
+
+    @Test
+    @Transactional
+    @SuppressWarnings("deprecation")
+    public void idsAreAllocatedWithoutRoundTripPerInsert() {
+        QueryCounter.reset();
+        final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+        final List<AccountAccess> accesses = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            accesses.add(jack.createAccount("Jack's account " + i));
+        }
+        // At most one round trip for each of the tables client, account, and account_access:
+        final List<String> allocations = QueryCounter.statements().stream()
+                .filter(sql -> sql.toLowerCase().contains("next value for") || sql.toLowerCase().contains("max(id)"))
+                .collect(Collectors.toList());
+        assertTrue(allocations.toString(), allocations.size() <= 3);
+
+        // The account numbers are the identities of the accounts and ascend in the order of creation:
+        long previous = expectedLowestId() - 1;
+        for (final AccountAccess access : accesses) {
+            final long accountNo = access.getAccount().accountNo().toLong();
+            assertEquals(access.getAccount().getId().longValue(), accountNo);
+            assertTrue(previous + " < " + accountNo, previous < accountNo);
+            previous = accountNo;
+            assertTrue(access.getId() >= expectedLowestId() && access.getId() < expectedIdsBelow());
+        }
+        assertTrue(previous < expectedIdsBelow());
+        assertTrue(jack.getId() >= expectedLowestId() && jack.getId() < expectedIdsBelow());
+    }
+
+}
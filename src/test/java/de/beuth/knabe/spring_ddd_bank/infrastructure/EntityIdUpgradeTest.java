@@ -0,0 +1,62 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.hibernate.MappingException;
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import de.beuth.knabe.spring_ddd_bank.Application;
+import de.beuth.knabe.spring_ddd_bank.domain.Account;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.AccountRepository;
+
+/**Starts the application twice on an own database in order to test, how the {@link EntityIdGenerator} treats an existing database.*/
+public class EntityIdUpgradeTest {
+
+    private static final String DATABASE_URL = "jdbc:derby:memory:entity-id-upgrade-db;create=true";
+
+    @Test
+    public void missingSequenceStartsAboveExistingIdentities() {
+        try (ConfigurableApplicationContext first = _start(1000)) {
+            //Simulates a database, whose accounts got their identities from the former shared hibernate_sequence:
+            final JdbcTemplate jdbc = first.getBean(JdbcTemplate.class);
+            jdbc.update("insert into account (id, name, cents, version) values (4711, 'old', 0, 0)");
+            jdbc.execute("drop sequence account_seq restrict");
+        }
+        try (ConfigurableApplicationContext second = _start(1000)) {
+            final Account account = second.getBean(AccountRepository.class).save(new Account("new"));
+            assertThat(account.accountNo().toLong(), greaterThan(4711L));
+        }
+    }
+
+    @Test
+    public void changedAllocationSizeIsRejected() {
+        _start(1000).close();
+        try {
+            _start(50).close();
+            fail("MappingException expected");
+        } catch (RuntimeException expected) {
+            //The innermost cause is the MappingException of the EntityIdGenerator:
+            Throwable cause = expected;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            assertEquals(MappingException.class, cause.getClass());
+            assertTrue(cause.getMessage(), cause.getMessage().contains("increments by 1000"));
+        }
+    }
+
+    private static ConfigurableApplicationContext _start(final int allocationSize) {
+        return new SpringApplicationBuilder(Application.class).properties(
+                "server.port=0",
+                "spring.datasource.url=" + DATABASE_URL,
+                "spring.jpa.properties.bank.id.allocationSize=" + allocationSize).run();
+    }
+
+}
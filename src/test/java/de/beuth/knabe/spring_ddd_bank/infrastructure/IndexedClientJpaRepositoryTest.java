@@ -0,0 +1,14 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**Runs the tests of the {@link ClientJpaRepositoryTest} with the queries by birth date answered by the {@link ClientBirthDateIndex}.*/
+@TestPropertySource(properties = "bank.clientIndex.birthDate=true")
+public class IndexedClientJpaRepositoryTest extends ClientJpaRepositoryTest {
+
+    @Override
+    protected String expectedBirthDateIndexReport(final int clients) {
+        return String.format("%d\t%d\t0\t0\t0\n", clients, clients);
+    }
+
+}
@@ -0,0 +1,9 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**Runs the tests of the {@link AccountJpaRepositoryTest} with the search by account name done by the {@link AccountNameIndex} instead of by reading the accounts.*/
+@TestPropertySource(properties = "bank.accountSearch.index=true")
+public class IndexedSearchAccountJpaRepositoryTest extends AccountJpaRepositoryTest {
+
+}
@@ -0,0 +1,77 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import static org.junit.Assert.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.BankService;
+import de.beuth.knabe.spring_ddd_bank.domain.CleanupService;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.LedgerEntry;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.LedgerRepository;
+
+/**Test driver for the {@link LedgerJpaRepository}*/
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class LedgerJpaRepositoryTest {
+
+    @Autowired
+    private LedgerRepository testee;
+
+    @Autowired
+    private BankService bankService;
+
+    /** Only for use in the cleanUp method! */
+    @Autowired
+    private CleanupService cleanupService;
+
+    @Before
+    public void cleanUp(){
+        cleanupService.deleteAll();
+        Locale.setDefault(Locale.GERMANY);
+    }
+
+    /**@return the class implementing the tested repository. Subclasses running against another implementation override it.*/
+    protected Class<?> expectedImplementation() {
+        return LedgerJpaRepository.class;
+    }
+
+    @Test
+    public void isJpaRepositoryImplementation() {
+        assertEquals(expectedImplementation().getName(), testee.getClass().getName());
+    }
+
+    @Test
+    public void balanceOfSumsAllEntriesOfTheAccount(){
+        final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+        final AccountNo giro = jack.createAccount("Jack's Giro").getAccount().accountNo();
+        final AccountNo savings = jack.createAccount("Jack's Savings").getAccount().accountNo();
+        assertEquals(Amount.ZERO, testee.balanceOf(giro));
+        for(int i=1; i<=60; i++){ //more than the JDBC batch size
+            jack.deposit(giro, new Amount(i, 0));
+        }
+        jack.transfer(jack.findMyAccount(giro), savings, new Amount(0, 1));
+        assertEquals(new Amount(1829, 99), testee.balanceOf(giro));
+        assertEquals(new Amount(0, 1), testee.balanceOf(savings));
+        assertEquals(jack.findMyAccount(giro).getBalance(), testee.balanceOf(giro));
+
+        final List<LedgerEntry> entries = testee.findAllOf(giro);
+        assertEquals(61, entries.size());
+        for(int i=0; i<60; i++){
+            assertEquals("Entries must be in booking order", new Amount(i+1, 0), entries.get(i).getAmount());
+        }
+        assertEquals(new Amount(0, -1), entries.get(60).getAmount());
+    }
+
+}
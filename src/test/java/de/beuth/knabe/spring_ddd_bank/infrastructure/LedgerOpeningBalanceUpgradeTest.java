@@ -0,0 +1,66 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import org.junit.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import de.beuth.knabe.spring_ddd_bank.Application;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.BankService;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.LedgerEntry;
+import de.beuth.knabe.spring_ddd_bank.domain.imports.LedgerRepository;
+
+/**Starts the application twice on an own database in order to test, how the {@link LedgerOpeningBalanceUpgrade} treats accounts from before the ledger.*/
+public class LedgerOpeningBalanceUpgradeTest {
+
+    private static final String DATABASE_URL = "jdbc:derby:memory:ledger-opening-balance-upgrade-db;create=true";
+
+    @Test
+    public void openingBalancesAreBookedOnceOnUpgrade() {
+        final AccountNo giro;
+        try (ConfigurableApplicationContext first = _start()) {
+            assertTrue(first.getBean(LedgerOpeningBalanceUpgrade.class).findUnbookedBalances().isEmpty());
+            final Client jack = first.getBean(BankService.class).createClient("jack", LocalDate.parse("1966-12-31"));
+            giro = jack.createAccount("Jack's Giro").getAccount().accountNo();
+            jack.deposit(giro, new Amount(5, 0));
+            //Simulates accounts, which existed before the ledger, or were changed by a node of the former release:
+            final JdbcTemplate jdbc = first.getBean(JdbcTemplate.class);
+            jdbc.update("insert into account (id, name, cents, version) values (4711, 'old', 100, 0)");
+            jdbc.update("insert into account (id, name, cents, version) values (4712, 'overdrawn', -250, 0)");
+            jdbc.update("update account set cents = cents + 300 where id = ?", giro.toLong());
+            assertFalse(first.getBean(LedgerOpeningBalanceUpgrade.class).findUnbookedBalances().isEmpty());
+        }
+        try (ConfigurableApplicationContext second = _start()) {
+            assertTrue(second.getBean(LedgerOpeningBalanceUpgrade.class).findUnbookedBalances().isEmpty());
+            final LedgerRepository ledger = second.getBean(LedgerRepository.class);
+            assertEquals(new Amount(1, 0), ledger.balanceOf(new AccountNo(4711L)));
+            assertEquals(new Amount(-2, -50), ledger.balanceOf(new AccountNo(4712L)));
+            assertEquals(new Amount(8, 0), ledger.balanceOf(giro));
+            final List<LedgerEntry> entries = ledger.findAllOf(giro);
+            assertEquals(2, entries.size());
+            assertEquals(new Amount(3, 0), entries.get(1).getAmount());
+            assertFalse(entries.get(1).counterAccountNo().isPresent());
+        }
+        try (ConfigurableApplicationContext third = _start()) {
+            assertEquals(2, third.getBean(LedgerRepository.class).findAllOf(giro).size());
+            assertEquals(1, third.getBean(LedgerRepository.class).findAllOf(new AccountNo(4711L)).size());
+        }
+    }
+
+    private static ConfigurableApplicationContext _start() {
+        return new SpringApplicationBuilder(Application.class).properties(
+                "server.port=0",
+                "spring.datasource.url=" + DATABASE_URL).run();
+    }
+
+}
@@ -0,0 +1,19 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**Runs the tests of the {@link EntityIdGeneratorTest} with identities from the range of node 3.*/
+@TestPropertySource(properties = {"spring.jpa.properties.bank.id.generator=node", "spring.jpa.properties.bank.id.node=3"})
+public class NodeRangeEntityIdGeneratorTest extends EntityIdGeneratorTest {
+
+    @Override
+    protected long expectedLowestId() {
+        return 3_000_000_000_000L;
+    }
+
+    @Override
+    protected long expectedIdsBelow() {
+        return 4_000_000_000_000L;
+    }
+
+}
@@ -0,0 +1,95 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Locale;
+
+import org.junit.Test;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+
+/**Test driver for the {@link PrometheusOperationMetrics} and its {@link LatencyHistogram}*/
+public class PrometheusOperationMetricsTest {
+
+    private final PrometheusOperationMetrics testee = new PrometheusOperationMetrics(true);
+
+    @Test
+    public void smallDurationsAreExact() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long nanos = 1; nanos <= 10; nanos++) {
+            histogram.record(nanos);
+        }
+        assertArrayEquals(new long[] { 10, 5, 10, 10 }, histogram.snapshot(0.5, 0.99, 0.999));
+        assertEquals(55, histogram.sumNanos());
+    }
+
+    @Test
+    public void largeDurationsHaveRelativePrecision() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 999; i++) {
+            histogram.record(1_000_000);
+        }
+        histogram.record(3_000_000_000L);
+        final long[] snapshot = histogram.snapshot(0.5, 0.999, 1);
+        assertEquals(1000, snapshot[0]);
+        for (final int q : new int[] { 1, 2 }) {
+            assertTrue("p" + q + " was " + snapshot[q], snapshot[q] >= 1_000_000 && snapshot[q] < 1_032_000);
+        }
+        assertTrue("max was " + snapshot[3], snapshot[3] >= 3_000_000_000L && snapshot[3] < 3_100_000_000L);
+        assertEquals(999L * 1_000_000 + 3_000_000_000L, histogram.sumNanos());
+    }
+
+    @Test
+    public void emptyHistogram() {
+        assertArrayEquals(new long[] { 0, 0 }, new LatencyHistogram().snapshot(0.5));
+    }
+
+    @Test
+    public void measureReturnsResultAndCountsFailures() {
+        assertEquals("done", testee.measure("transfer", () -> "done"));
+        try {
+            testee.measure("transfer", () -> {
+                throw new Client.MinimumBalanceExc();
+            });
+            fail("MinimumBalanceExc expected");
+        } catch (Client.MinimumBalanceExc expected) {
+        }
+        final String report = testee.report();
+        assertTrue(report, report.contains("bank_operation_duration_seconds{operation=\"transfer\",quantile=\"0.5\"} "));
+        assertTrue(report, report.contains("bank_operation_duration_seconds_count{operation=\"transfer\"} 2\n"));
+        assertTrue(report, report.contains(
+                "bank_operation_failures_total{operation=\"transfer\",exception=\"MinimumBalanceExc\"} 1\n"));
+    }
+
+    @Test
+    public void reportDoesNotDependOnTheDefaultLocale() {
+        final Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("th-TH-u-nu-thai"));
+        try {
+            for (int i = 0; i < 12; i++) {
+                testee.measure("deposit", () -> "done");
+            }
+            final String report = testee.report();
+            assertTrue(report, report.contains("bank_operation_duration_seconds_count{operation=\"deposit\"} 12\n"));
+            assertTrue(report,
+                    report.contains("bank_operation_duration_seconds{operation=\"deposit\",quantile=\"0.5\"} "));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+    @Test
+    public void disabledMetricsOnlyExecute() {
+        final PrometheusOperationMetrics disabled = new PrometheusOperationMetrics(false);
+        final int[] executions = new int[1];
+        disabled.measure("deposit", () -> {
+            executions[0]++;
+        });
+        assertEquals(1, executions[0]);
+        assertTrue(disabled.report(), !disabled.report().contains("deposit"));
+    }
+
+}
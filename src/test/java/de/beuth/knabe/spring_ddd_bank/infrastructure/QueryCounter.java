@@ -0,0 +1,35 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/**
+ * Records the SQL statements prepared by Hibernate in the current thread, so
+ * that tests can assert the number of database round trips of an operation.
+ * Registered by the property
+ * <code>spring.jpa.properties.hibernate.session_factory.statement_inspector</code>.
+ */
+@SuppressWarnings("serial")
+public class QueryCounter implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> statements = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(final String sql) {
+        statements.get().add(sql);
+        return sql;
+    }
+
+    /** Forgets the statements recorded so far in the current thread. */
+    public static void reset() {
+        statements.get().clear();
+    }
+
+    /** @return the statements recorded in the current thread since the last {@link #reset()} */
+    public static List<String> statements() {
+        return new ArrayList<>(statements.get());
+    }
+
+}
@@ -0,0 +1,104 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import javax.sql.DataSource;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Test driver for the {@link ReadRoutingDataSource} with two in-memory Derby
+ * databases, which tell by a marker row, which of them is used.
+ */
+public class ReadRoutingDataSourceTest {
+
+    private static DataSource primary;
+    private static DataSource read;
+
+    private final DataSource testee = ReadRoutingDataSource.lazy(primary, read);
+    private final JdbcTemplate jdbcTemplate = new JdbcTemplate(testee);
+    private final DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(testee);
+
+    @BeforeClass
+    public static void createDatabases() {
+        primary = _markedDatabase("primary");
+        read = _markedDatabase("read");
+    }
+
+    private static DataSource _markedDatabase(final String name) {
+        final DataSource result = new DriverManagerDataSource("jdbc:derby:memory:read-routing-" + name + ";create=true");
+        final JdbcTemplate jdbcTemplate = new JdbcTemplate(result);
+        jdbcTemplate.execute("CREATE TABLE marker (name VARCHAR(20))");
+        jdbcTemplate.update("INSERT INTO marker VALUES (?)", name);
+        return result;
+    }
+
+    private String _usedDatabase() {
+        return jdbcTemplate.queryForObject("SELECT name FROM marker", String.class);
+    }
+
+    @Test
+    public void readOnlyTransactionUsesReadDatabase() {
+        final TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        assertEquals("read", readOnly.execute(status -> _usedDatabase()));
+    }
+
+    @Test
+    public void otherWorkUsesPrimaryDatabase() {
+        assertEquals("primary", new TransactionTemplate(transactionManager).execute(status -> _usedDatabase()));
+        assertEquals("primary", _usedDatabase());
+    }
+
+    @Test
+    public void readOnlyTransactionInsideOfReadWriteTransactionUsesItsConnection() {
+        final TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        final String used = new TransactionTemplate(transactionManager).execute(status -> {
+            _usedDatabase();
+            return readOnly.execute(innerStatus -> _usedDatabase());
+        });
+        assertEquals("primary", used);
+    }
+
+    @Test
+    public void primaryTransactionUsesPrimaryDatabaseInsideOfReadOnlyTransaction() {
+        final TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        final PrimaryTransaction primaryTransaction = new PrimaryTransaction(transactionManager);
+        assertEquals("primary", readOnly.execute(status -> primaryTransaction.execute(this::_usedDatabase)));
+        assertEquals("primary", new TransactionTemplate(transactionManager)
+                .execute(status -> primaryTransaction.execute(this::_usedDatabase)));
+        assertEquals("primary", primaryTransaction.execute(this::_usedDatabase));
+        // The read-only transaction afterwards is routed as usual:
+        assertEquals("read", readOnly.execute(status -> _usedDatabase()));
+    }
+
+    @Test
+    public void primaryTransactionIsSeparateAndReadOnly() {
+        final PrimaryTransaction primaryTransaction = new PrimaryTransaction(transactionManager);
+        new TransactionTemplate(transactionManager).execute(status -> {
+            _usedDatabase();
+            final Object outerConnection = TransactionSynchronizationManager.getResource(testee);
+            primaryTransaction.execute(() -> {
+                assertTrue(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+                assertNotSame(outerConnection, TransactionSynchronizationManager.getResource(testee));
+                return null;
+            });
+            assertFalse(TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+            assertSame(outerConnection, TransactionSynchronizationManager.getResource(testee));
+            return null;
+        });
+    }
+
+}
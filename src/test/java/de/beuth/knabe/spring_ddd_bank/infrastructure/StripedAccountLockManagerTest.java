@@ -0,0 +1,222 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+
+/**Test driver for the {@link StripedAccountLockManager}*/
+public class StripedAccountLockManagerTest {
+
+    private final StripedAccountLockManager testee = new StripedAccountLockManager(true, 100, false, 50);
+
+    @Test
+    public void stripeCountIsRoundedUpToPowerOfTwo() {
+        assertEquals(128, testee.stripeCount());
+        assertEquals(1, new StripedAccountLockManager(true, 1, false, 50).stripeCount());
+        assertEquals(256, new StripedAccountLockManager(true, 256, false, 50).stripeCount());
+    }
+
+    @Test
+    public void sameAccountTwiceIsLockedOnce() {
+        final AccountNo accountNo = new AccountNo(42L);
+        final int stripe = testee.stripeOf(accountNo);
+        testee.runLocked(() -> {
+        }, accountNo, accountNo);
+        assertEquals(1, testee.acquisitions(stripe));
+        assertEquals(0, testee.contentions(stripe));
+        assertEquals("", testee.contentionReport());
+    }
+
+    /**
+     * Many threads increment an unsynchronized counter under the lock of the same
+     * account pair, given in alternating order. No increment may get lost, there
+     * must be no deadlock, and the waiting must be reported.
+     */
+    @Test
+    public void actionsOnSameAccountsAreSerialized() throws Exception {
+        final AccountNo a = new AccountNo(1L);
+        final AccountNo b = new AccountNo(2L);
+        final int threadCount = 8;
+        final int actionsPerThread = 1000;
+        final long[] counter = new long[1];
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            final boolean reversed = t % 2 == 1;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int n = 0; n < actionsPerThread; n++) {
+                    testee.runLocked(() -> {
+                        final long value = counter[0];
+                        Thread.yield();
+                        counter[0] = value + 1;
+                    }, reversed ? new AccountNo[] { b, a } : new AccountNo[] { a, b });
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue("Deadlock or timeout", executor.awaitTermination(1, TimeUnit.MINUTES));
+        assertEquals(threadCount * actionsPerThread, counter[0]);
+        assertEquals(threadCount * actionsPerThread, testee.acquisitions(testee.stripeOf(a)));
+        assertTrue(testee.contentions(testee.stripeOf(a)) > 0);
+        assertTrue(testee.contentionReport().startsWith(testee.stripeOf(a) + "\t")
+                || testee.contentionReport().startsWith(testee.stripeOf(b) + "\t"));
+    }
+
+    /**
+     * Runs the work like in a transaction: the locks acquired by it are released
+     * after its completion by the registered transaction synchronizations.
+     */
+    private static void _inTransaction(final Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+        } finally {
+            final List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager
+                    .getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            synchronizations.forEach(synchronization -> synchronization
+                    .afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        }
+    }
+
+    /**
+     * A transaction holding a stripe with a higher number waits for a lower
+     * stripe held by another thread only until the timeout.
+     */
+    @Test
+    public void acquisitionAgainstOrderFailsAfterTimeout() throws Exception {
+        final AccountNo low = new AccountNo(1L);
+        final AccountNo high = new AccountNo(2L);
+        assertTrue(testee.stripeOf(low) < testee.stripeOf(high));
+        final CountDownLatch lowLocked = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final Future<?> holder = executor.submit(() -> testee.runLocked(() -> {
+            lowLocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }, low));
+        try {
+            assertTrue(lowLocked.await(1, TimeUnit.MINUTES));
+            _inTransaction(() -> {
+                testee.runLocked(() -> {
+                }, high);
+                try {
+                    testee.runLocked(() -> fail("Lock against the order acquired"), low);
+                    fail("CannotAcquireLockException expected");
+                } catch (CannotAcquireLockException expected) {
+                }
+            });
+        } finally {
+            release.countDown();
+            holder.get(1, TimeUnit.MINUTES);
+            executor.shutdown();
+        }
+        // After the release both stripes can be acquired in any order:
+        _inTransaction(() -> {
+            testee.runLocked(() -> {
+            }, high);
+            testee.runLocked(() -> {
+            }, low);
+        });
+    }
+
+    /**
+     * Transactions with two transfers each lock two pairs of accounts, half of
+     * them the higher pair first. Each transaction failing to acquire a stripe
+     * against the order is retried. There must be no deadlock, and no increment
+     * may get lost.
+     */
+    @Test
+    public void transactionsWithSeveralActionsDoNotDeadlock() throws Exception {
+        final AccountNo a = new AccountNo(1L);
+        final AccountNo b = new AccountNo(2L);
+        final AccountNo c = new AccountNo(3L);
+        final AccountNo d = new AccountNo(4L);
+        final int threadCount = 8;
+        final int transactionsPerThread = 300;
+        final long[] lowCounter = new long[1];
+        final long[] highCounter = new long[1];
+        final CountDownLatch start = new CountDownLatch(1);
+        final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            final boolean highFirst = t % 2 == 1;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int n = 0; n < transactionsPerThread; n++) {
+                    while (true) {
+                        final long[] increments = new long[2];
+                        try {
+                            _inTransaction(() -> {
+                                final Runnable low = () -> testee.runLocked(() -> {
+                                    increments[0] = lowCounter[0] + 1;
+                                    Thread.yield();
+                                }, b, a);
+                                final Runnable high = () -> testee.runLocked(() -> {
+                                    increments[1] = highCounter[0] + 1;
+                                    Thread.yield();
+                                }, d, c);
+                                if (highFirst) {
+                                    high.run();
+                                    low.run();
+                                } else {
+                                    low.run();
+                                    high.run();
+                                }
+                                // "Commit" while still holding all stripes:
+                                lowCounter[0] = increments[0];
+                                highCounter[0] = increments[1];
+                            });
+                            break;
+                        } catch (CannotAcquireLockException ex) {
+                            // Rolled back, so try again
+                        }
+                    }
+                }
+            });
+        }
+        start.countDown();
+        executor.shutdown();
+        assertTrue("Deadlock or timeout", executor.awaitTermination(2, TimeUnit.MINUTES));
+        assertEquals(threadCount * transactionsPerThread, lowCounter[0]);
+        assertEquals(threadCount * transactionsPerThread, highCounter[0]);
+    }
+
+    @Test
+    public void disabledManagerRunsWithoutLocking() {
+        final StripedAccountLockManager disabled = new StripedAccountLockManager(false, 16, false, 50);
+        final AccountNo accountNo = new AccountNo(7L);
+        final boolean[] ran = new boolean[1];
+        disabled.runLocked(() -> ran[0] = true, accountNo);
+        assertTrue(ran[0]);
+        assertEquals(0, disabled.acquisitions(disabled.stripeOf(accountNo)));
+    }
+
+}
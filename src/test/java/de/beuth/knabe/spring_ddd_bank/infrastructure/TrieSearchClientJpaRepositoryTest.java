@@ -0,0 +1,14 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure;
+
+import org.springframework.test.context.TestPropertySource;
+
+/**Runs the tests of the {@link ClientJpaRepositoryTest} with the search by username prefix done by the {@link ClientUsernameTrie} instead of by the database.*/
+@TestPropertySource(properties = "bank.clientIndex.username=true")
+public class TrieSearchClientJpaRepositoryTest extends ClientJpaRepositoryTest {
+
+    @Override
+    protected String expectedUsernameIndexReport(final int clients) {
+        return String.format("%d\t%d\t0\t0\t0\n", clients, clients);
+    }
+
+}
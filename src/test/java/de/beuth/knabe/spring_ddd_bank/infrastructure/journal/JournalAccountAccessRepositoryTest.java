@@ -0,0 +1,18 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure.journal;
+
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import de.beuth.knabe.spring_ddd_bank.infrastructure.AccountAccessJpaRepositoryTest;
+
+/**Runs the tests of the {@link AccountAccessJpaRepositoryTest} against the {@link JournalAccountAccessRepository}.*/
+@ActiveProfiles("journal")
+@TestPropertySource(properties = "bank.journal.directory=target/journal-test")
+public class JournalAccountAccessRepositoryTest extends AccountAccessJpaRepositoryTest {
+
+    @Override
+    protected Class<?> expectedImplementation() {
+        return JournalAccountAccessRepository.class;
+    }
+
+}
@@ -0,0 +1,38 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure.journal;
+
+import static org.junit.Assert.*;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import de.beuth.knabe.spring_ddd_bank.infrastructure.AccountJpaRepositoryTest;
+
+/**Runs the tests of the {@link AccountJpaRepositoryTest} against the {@link JournalAccountRepository}.*/
+@ActiveProfiles("journal")
+@TestPropertySource(properties = "bank.journal.directory=target/journal-test")
+public class JournalAccountRepositoryTest extends AccountJpaRepositoryTest {
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Override
+    protected Class<?> expectedImplementation() {
+        return JournalAccountRepository.class;
+    }
+
+    @Test
+    public void neitherDatabaseNorJpaIsConfigured() {
+        assertEquals(0, applicationContext.getBeanNamesForType(DataSource.class).length);
+        assertEquals(0, applicationContext.getBeanNamesForType(EntityManagerFactory.class).length);
+        assertEquals(JournalTransactionManager.class,
+                applicationContext.getBean(PlatformTransactionManager.class).getClass());
+    }
+
+}
@@ -0,0 +1,18 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure.journal;
+
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import de.beuth.knabe.spring_ddd_bank.infrastructure.ClientJpaRepositoryTest;
+
+/**Runs the tests of the {@link ClientJpaRepositoryTest} against the {@link JournalClientRepository}.*/
+@ActiveProfiles("journal")
+@TestPropertySource(properties = "bank.journal.directory=target/journal-test")
+public class JournalClientRepositoryTest extends ClientJpaRepositoryTest {
+
+    @Override
+    protected Class<?> expectedImplementation() {
+        return JournalClientRepository.class;
+    }
+
+}
@@ -0,0 +1,18 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure.journal;
+
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import de.beuth.knabe.spring_ddd_bank.infrastructure.LedgerJpaRepositoryTest;
+
+/**Runs the tests of the {@link LedgerJpaRepositoryTest} against the {@link JournalLedgerRepository}.*/
+@ActiveProfiles("journal")
+@TestPropertySource(properties = "bank.journal.directory=target/journal-test")
+public class JournalLedgerRepositoryTest extends LedgerJpaRepositoryTest {
+
+    @Override
+    protected Class<?> expectedImplementation() {
+        return JournalLedgerRepository.class;
+    }
+
+}
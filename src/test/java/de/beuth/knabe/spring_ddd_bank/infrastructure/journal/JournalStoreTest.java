@@ -0,0 +1,334 @@
+package de.beuth.knabe.spring_ddd_bank.infrastructure.journal;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.IllegalTransactionStateException;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.UnexpectedRollbackException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Account;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountAccess;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+
+/**Test driver for the {@link JournalStore}, especially for its recovery after a restart or a crash.*/
+public class JournalStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**Transactions without a resource, so that only the transaction synchronizations of the store take effect.*/
+    private final JournalTransactionManager transactionManager = new JournalTransactionManager();
+    private final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+    private JournalStore store;
+
+    @After
+    public void close() throws IOException {
+        if (store != null) {
+            store.destroy();
+        }
+    }
+
+    /**Opens a new store on the test folder. The former store is abandoned without closing it, as by a crash.*/
+    private JournalStore _open(final int snapshotInterval) throws IOException {
+        store = new JournalStore(folder.getRoot().getPath(), 256, true, snapshotInterval);
+        return store;
+    }
+
+    private Account _saveAccount(final JournalStore testee, final String name, final long cents) {
+        final Account account = testee.saveAccount(new Account(name));
+        EntityFields.setState(account, name, Amount.ofCents(cents), EntityFields.versionOf(account));
+        return testee.saveAccount(account);
+    }
+
+    @Test
+    public void committedStateIsRecoveredAfterCrash() throws IOException {
+        final JournalStore first = _open(1000);
+        final Client jack = first.saveClient(new Client("jack", LocalDate.parse("1966-12-31")));
+        final Account giro = _saveAccount(first, "Jack's Giro", 12345);
+        first.saveAccess(new AccountAccess(jack, true, giro));
+        @SuppressWarnings("deprecation")
+        final long giroId = giro.getId();
+
+        final JournalStore second = _open(1000);
+        final Client recoveredJack = second.findClient("jack").get();
+        assertEquals(LocalDate.parse("1966-12-31"), recoveredJack.getBirthDate());
+        final Account recoveredGiro = second.findAccount(giroId).get();
+        assertEquals("Jack's Giro", recoveredGiro.getName());
+        assertEquals(Amount.ofCents(12345), recoveredGiro.getBalance());
+        assertEquals(Long.valueOf(1), EntityFields.versionOf(recoveredGiro));
+        final List<AccountAccess> accesses = second.findAccessesOf(jack.getId());
+        assertEquals(1, accesses.size());
+        assertEquals(recoveredGiro.accountNo(), accesses.get(0).getAccount().accountNo());
+
+        //New identities continue after the recovered ones:
+        final Client chloe = second.saveClient(new Client("chloe", LocalDate.parse("1977-01-01")));
+        assertTrue(chloe.getId() > giroId);
+    }
+
+    @Test
+    public void tornFrameIsCutOff() throws IOException {
+        final JournalStore first = _open(1000);
+        first.saveClient(new Client("jack", LocalDate.parse("1966-12-31")));
+        first.saveClient(new Client("chloe", LocalDate.parse("1977-01-01")));
+        _corruptLastFrame(_files("journal-").get(0));
+
+        final JournalStore second = _open(1000);
+        assertTrue(second.findClient("jack").isPresent());
+        assertFalse(second.findClient("chloe").isPresent());
+        //The journal continues behind the last complete frame:
+        second.saveClient(new Client("anna", LocalDate.parse("1980-05-05")));
+        final JournalStore third = _open(1000);
+        assertEquals(2, third.findClients().size());
+        assertTrue(third.findClient("anna").isPresent());
+    }
+
+    private List<Path> _files(final String prefix) throws IOException {
+        final List<Path> result = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder.getRoot().toPath(), prefix + "*.bin")) {
+            files.forEach(result::add);
+        }
+        return result;
+    }
+
+    /**Flips the last byte of the last frame in the journal file.*/
+    private void _corruptLastFrame(final Path journalPath) throws IOException {
+        try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final ByteBuffer header = ByteBuffer.allocate(8);
+            long offset = 0;
+            long lastFrameEnd = -1;
+            while (true) {
+                header.clear();
+                channel.read(header, offset);
+                final int length = header.getInt(0);
+                if (length <= 0) {
+                    break;
+                }
+                offset += 8 + length;
+                lastFrameEnd = offset;
+            }
+            final ByteBuffer lastByte = ByteBuffer.allocate(1);
+            channel.read(lastByte, lastFrameEnd - 1);
+            lastByte.put(0, (byte) ~lastByte.get(0)).rewind();
+            channel.write(lastByte, lastFrameEnd - 1);
+        }
+    }
+
+    @Test
+    public void stateIsRecoveredFromSnapshotAndJournal()
+            throws IOException, InterruptedException, ExecutionException {
+        final JournalStore first = _open(3);
+        for (int i = 0; i < 10; i++) { //more than fit into one mapped region
+            first.saveClient(new Client("client" + i, LocalDate.parse("1990-01-01").plusDays(i)));
+        }
+        //Else the abandoned store could still be writing its snapshot:
+        first.awaitSnapshot();
+        final JournalStore second = _open(3);
+        assertEquals(10, second.findClients().size());
+        second.destroy();
+
+        final JournalStore third = _open(3);
+        assertEquals(10, third.findClients().size());
+        assertEquals(LocalDate.parse("1990-01-10"), third.findClient("client9").get().getBirthDate());
+    }
+
+    @Test
+    public void ledgerIsRecoveredOnceFromSegmentsAndJournal()
+            throws IOException, InterruptedException, ExecutionException {
+        final JournalStore first = _open(2);
+        for (int i = 1; i <= 7; i++) {
+            first.appendLedgerEntries(EntityFields.newLedgerEntry(i, 4711, null, Amount.ofCents(i),
+                    Instant.parse("2020-01-01T00:00:00Z").plusSeconds(i)));
+            first.awaitSnapshot();
+        }
+        assertEquals(3, _files("ledger-").size());
+        assertEquals(1, _files("journal-").size());
+
+        final JournalStore second = _open(2);
+        assertEquals(28, second.ledgerCents(4711));
+        assertEquals(7, second.findLedgerEntries(4711).size());
+        second.appendLedgerEntries(EntityFields.newLedgerEntry(8, 4711, null, Amount.ofCents(100),
+                Instant.parse("2020-01-02T00:00:00Z")));
+        second.destroy();
+
+        final JournalStore third = _open(2);
+        assertEquals(128, third.ledgerCents(4711));
+        assertEquals(8, third.findLedgerEntries(4711).size());
+    }
+
+    @Test
+    public void failedSnapshotFailsNoCommit()
+            throws IOException, InterruptedException, ExecutionException {
+        final JournalStore first = _open(2);
+        //A directory, where the snapshot is written first, lets each snapshot fail:
+        final Path blocker = Files.createDirectory(folder.getRoot().toPath().resolve("snapshot.bin.tmp"));
+        for (int i = 0; i < 5; i++) {
+            first.saveClient(new Client("client" + i, LocalDate.parse("1990-01-01").plusDays(i)));
+            first.awaitSnapshot();
+        }
+        assertFalse(Files.exists(folder.getRoot().toPath().resolve("snapshot.bin")));
+        assertTrue("Journal files are kept", _files("journal-").size() > 1);
+
+        final JournalStore second = _open(2);
+        assertEquals(5, second.findClients().size());
+        Files.delete(blocker);
+        second.saveClient(new Client("client5", LocalDate.parse("1990-01-06")));
+        second.saveClient(new Client("client6", LocalDate.parse("1990-01-07")));
+        second.awaitSnapshot();
+        assertTrue(Files.exists(folder.getRoot().toPath().resolve("snapshot.bin")));
+        assertEquals("Journal files deleted after the snapshot", 1, _files("journal-").size());
+
+        final JournalStore third = _open(2);
+        assertEquals(7, third.findClients().size());
+    }
+
+    @Test
+    public void journalContinuesInUnmappedRegions() throws IOException {
+        final JournalStore first = _open(1000);
+        for (int i = 0; i < 50; i++) { //many regions, each abandoned one is unmapped
+            first.saveClient(new Client("client" + i, LocalDate.parse("1990-01-01").plusDays(i)));
+        }
+        first.destroy();
+        final JournalStore second = _open(1000);
+        assertEquals(50, second.findClients().size());
+        assertEquals(LocalDate.parse("1990-02-19"), second.findClient("client49").get().getBirthDate());
+    }
+
+    @Test
+    public void savingOutdatedAccountFails() throws IOException {
+        final JournalStore testee = _open(1000);
+        @SuppressWarnings("deprecation")
+        final long id = _saveAccount(testee, "Jack's Giro", 100).getId();
+        final Account first = testee.findAccount(id).get();
+        final Account second = testee.findAccount(id).get();
+        assertNotSame(first, second);
+        testee.saveAccount(first);
+        try {
+            testee.saveAccount(second);
+            fail("ObjectOptimisticLockingFailureException expected");
+        } catch (ObjectOptimisticLockingFailureException expected) {
+        }
+    }
+
+    @Test
+    public void transactionIsCommittedAtItsEndAndRolledBackCompletely() throws IOException {
+        final JournalStore testee = _open(1000);
+        transactionTemplate.execute(status -> {
+            final Client jack = testee.saveClient(new Client("jack", LocalDate.parse("1966-12-31")));
+            assertSame("Same object within the transaction", jack, testee.findClient("jack").get());
+            return null;
+        });
+        assertTrue(testee.findClient("jack").isPresent());
+        try {
+            transactionTemplate.execute(status -> {
+                testee.saveClient(new Client("chloe", LocalDate.parse("1977-01-01")));
+                testee.deleteClient(testee.findClient("jack").get());
+                throw new IllegalStateException("rollback");
+            });
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+        }
+        assertTrue(testee.findClient("jack").isPresent());
+        assertFalse(testee.findClient("chloe").isPresent());
+    }
+
+    @Test
+    public void lockingRequiresTransaction() throws IOException {
+        final JournalStore testee = _open(1000);
+        @SuppressWarnings("deprecation")
+        final long id = _saveAccount(testee, "Jack's Giro", 100).getId();
+        try {
+            testee.findAndLockAccount(id);
+            fail("IllegalTransactionStateException expected");
+        } catch (IllegalTransactionStateException expected) {
+        }
+        final Account locked = transactionTemplate.execute(status -> testee.findAndLockAccount(id).get());
+        assertEquals(Amount.ofCents(100), locked.getBalance());
+    }
+
+    @Test
+    public void accountLocksAreForgottenAtEndOfTransaction() throws IOException {
+        final JournalStore testee = _open(1000);
+        @SuppressWarnings("deprecation")
+        final long giroId = _saveAccount(testee, "Jack's Giro", 100).getId();
+        @SuppressWarnings("deprecation")
+        final long savingsId = _saveAccount(testee, "Jack's Savings", 200).getId();
+        transactionTemplate.execute(status -> {
+            testee.findAndLockAccount(giroId);
+            testee.findAndLockAccount(savingsId);
+            testee.lockAccount(testee.findAccount(giroId).get());
+            assertEquals(2, testee.accountLockCount());
+            return null;
+        });
+        assertEquals(0, testee.accountLockCount());
+        try {
+            transactionTemplate.execute(status -> {
+                testee.findAndLockAccount(savingsId);
+                throw new IllegalStateException("rollback");
+            });
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+        }
+        assertEquals(0, testee.accountLockCount());
+    }
+
+    @Test
+    public void newTransactionIsCommittedIndependentlyOfSuspendedOne() throws IOException {
+        final JournalStore testee = _open(1000);
+        final TransactionTemplate requiresNew = new TransactionTemplate(transactionManager);
+        requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transactionTemplate.execute(status -> {
+                testee.saveClient(new Client("jack", LocalDate.parse("1966-12-31")));
+                requiresNew.execute(innerStatus -> testee.saveClient(new Client("chloe", LocalDate.parse("1977-01-01"))));
+                assertTrue("Own save still visible after the resume", testee.findClient("jack").isPresent());
+                throw new IllegalStateException("rollback");
+            });
+            fail("IllegalStateException expected");
+        } catch (IllegalStateException expected) {
+        }
+        assertFalse(testee.findClient("jack").isPresent());
+        assertTrue(testee.findClient("chloe").isPresent());
+    }
+
+    @Test
+    public void participantMarksTransactionRollbackOnly() throws IOException {
+        final JournalStore testee = _open(1000);
+        try {
+            transactionTemplate.execute(status -> {
+                testee.saveClient(new Client("jack", LocalDate.parse("1966-12-31")));
+                try {
+                    transactionTemplate.execute(innerStatus -> {
+                        throw new IllegalStateException("rollback");
+                    });
+                } catch (IllegalStateException expected) {
+                }
+                return null;
+            });
+            fail("UnexpectedRollbackException expected");
+        } catch (UnexpectedRollbackException expected) {
+        }
+        assertFalse(testee.findClient("jack").isPresent());
+    }
+
+}
@@ -1,5 +1,7 @@
 package de.beuth.knabe.spring_ddd_bank.rest_interface;
 
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
 import de.beuth.knabe.spring_ddd_bank.domain.BankService;
 import de.beuth.knabe.spring_ddd_bank.domain.CleanupService;
 import de.beuth.knabe.spring_ddd_bank.domain.Client;
@@ -19,6 +21,7 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import java.security.Principal;
 import java.time.LocalDate;
 import java.util.Locale;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 import static org.junit.Assert.assertThat;
@@ -166,6 +169,100 @@ public class ApplicationControllerTest extends AbstractRestControllerTest {
 		final var clients = super.mapFromJson(content, ClientResource[].class);
 	}
 
+	@Test
+	public void getBankClient_pageByPage() throws Exception {
+		//GIVEN
+		final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		final Client anna = bankService.createClient("anna", LocalDate.parse("1977-01-01"));
+		final Client chloe = bankService.createClient("chloe", LocalDate.parse("1988-08-08"));
+		//WHEN
+		final ClientResource[] firstPage = _getClients("/bank/client?limit=2");
+		final ClientResource[] secondPage = _getClients("/bank/client?limit=2&afterId=" + firstPage[1].id);
+		//THEN
+		assertEquals(2, firstPage.length);
+		assertEquals(chloe.getUsername(), firstPage[0].username);
+		assertEquals(anna.getUsername(), firstPage[1].username);
+		assertEquals(1, secondPage.length);
+		assertEquals(jack.getUsername(), secondPage[0].username);
+	}
+
+	@Test
+	public void getBankClient_illegalPage() throws Exception {
+		for (final String uri : new String[] { "/bank/client?afterId=x", "/bank/client?limit=ten",
+				"/bank/client?limit=0", "/bank/client?afterId=1&limit=" + (BankService.MAX_PAGE_LIMIT + 1) }) {
+			//WHEN
+			final MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders.get(uri).accept(MediaType.APPLICATION_JSON_VALUE)).andReturn();
+			//THEN
+			assertEquals(uri, HttpStatus.BAD_REQUEST.value(), mvcResult.getResponse().getStatus());
+		}
+	}
+
+	@Test
+	public void getBankClient_streamed() throws Exception {
+		//GIVEN
+		bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		bankService.createClient("anna", LocalDate.parse("1977-01-01"));
+		//WHEN
+		final ClientResource[] clients = _getClients("/bank/client?stream=true");
+		//THEN
+		assertEquals(2, clients.length);
+		assertEquals("anna", clients[0].username);
+		assertEquals("1977-01-01", clients[0].birthDate);
+		assertEquals("jack", clients[1].username);
+	}
+
+	@Test
+	public void getBankClient_bornBetween() throws Exception {
+		//GIVEN
+		bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		bankService.createClient("anna", LocalDate.parse("1977-01-01"));
+		bankService.createClient("chloe", LocalDate.parse("1988-08-08"));
+		//WHEN
+		final ClientResource[] clients = _getClients("/bank/client?fromBirth=1966-12-31&toBirth=1977-01-01");
+		final MvcResult withoutFromBirth = mvc.perform(MockMvcRequestBuilders.get("/bank/client?toBirth=1977-01-01")
+				.accept(MediaType.APPLICATION_JSON_VALUE)).andReturn();
+		//THEN
+		assertEquals(2, clients.length);
+		assertEquals("anna", clients[0].username);
+		assertEquals("jack", clients[1].username);
+		assertEquals(HttpStatus.BAD_REQUEST.value(), withoutFromBirth.getResponse().getStatus());
+	}
+
+	@Test
+	public void getBankClientSearch() throws Exception {
+		//GIVEN
+		bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		bankService.createClient("jackie", LocalDate.parse("1977-01-01"));
+		bankService.createClient("anna", LocalDate.parse("1988-08-08"));
+		//WHEN
+		final ClientResource[] clients = _getClients("/bank/client/search?prefix=ja");
+		final ClientResource[] first = _getClients("/bank/client/search?prefix=ja&limit=1");
+		//THEN
+		assertEquals(2, clients.length);
+		assertEquals("jack", clients[0].username);
+		assertEquals("1966-12-31", clients[0].birthDate);
+		assertEquals("jackie", clients[1].username);
+		assertEquals(1, first.length);
+		assertEquals("jack", first[0].username);
+	}
+
+	@Test
+	public void getBankClient_pagedWithConstraint() throws Exception {
+		//GIVEN
+		final String uri = "/bank/client?fromBirth=2000-01-01&limit=10";
+		//WHEN
+		final MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders.get(uri).accept(MediaType.APPLICATION_JSON_VALUE)).andReturn();
+		//THEN
+		assertEquals(HttpStatus.BAD_REQUEST.value(), mvcResult.getResponse().getStatus());
+	}
+
+	private ClientResource[] _getClients(final String uri) throws Exception {
+		final MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders.get(uri).accept(MediaType.APPLICATION_JSON_VALUE)).andReturn();
+		final MockHttpServletResponse response = mvcResult.getResponse();
+		assertSuccess("GET " + uri, response);
+		return super.mapFromJson(response.getContentAsString(), ClientResource[].class);
+	}
+
 	@Test
 	public void getBankClient_withFromBirth() throws Exception {
 		//GIVEN
@@ -194,6 +291,51 @@ public class ApplicationControllerTest extends AbstractRestControllerTest {
 		final var clients = super.mapFromJson(content, ClientResource[].class);
 	}
 
+	@Test
+	public void getBankClient_richestWithLimit() throws Exception {
+		//GIVEN
+		final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		final Client anna = bankService.createClient("anna", LocalDate.parse("1977-01-01"));
+		final Client chloe = bankService.createClient("chloe", LocalDate.parse("1988-08-08"));
+		jack.deposit(jack.createAccount("Jack's Giro").getAccount().accountNo(), new Amount(2000, 0));
+		jack.deposit(jack.createAccount("Jack's Savings").getAccount().accountNo(), new Amount(3000, 0));
+		anna.deposit(anna.createAccount("Anna's Giro").getAccount().accountNo(), new Amount(1500, 0));
+		chloe.deposit(chloe.createAccount("Chloe's Giro").getAccount().accountNo(), new Amount(999, 0));
+		//WHEN
+		final ClientResource[] topTwo = _getClients("/bank/client?minBalance=1000&limit=2");
+		final ClientResource[] streamed = _getClients("/bank/client?stream=true&minBalance=1000");
+		//THEN
+		assertEquals(2, topTwo.length);
+		assertEquals("jack", topTwo[0].username);
+		assertEquals("anna", topTwo[1].username);
+		assertEquals(2, streamed.length);
+		assertEquals("jack", streamed[0].username);
+		assertEquals("1966-12-31", streamed[0].birthDate);
+		assertEquals("anna", streamed[1].username);
+	}
+
+	@Test
+	public void getBankClient_illegalRichest() throws Exception {
+		for (final String uri : new String[] { "/bank/client?minBalance=much", "/bank/client?minBalance=1e30",
+				"/bank/client?minBalance=NaN", "/bank/client?minBalance=1000&limit=many",
+				"/bank/client?minBalance=1000&limit=0", "/bank/client?stream=true&minBalance=much" }) {
+			//WHEN
+			final MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders.get(uri).accept(MediaType.APPLICATION_JSON_VALUE)).andReturn();
+			//THEN
+			assertEquals(uri, HttpStatus.BAD_REQUEST.value(), mvcResult.getResponse().getStatus());
+		}
+	}
+
+	@Test
+	public void getBankClient_richestAfterId() throws Exception {
+		//GIVEN
+		final String uri = "/bank/client?minBalance=1000&afterId=1";
+		//WHEN
+		final MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders.get(uri).accept(MediaType.APPLICATION_JSON_VALUE)).andReturn();
+		//THEN
+		assertEquals(HttpStatus.BAD_REQUEST.value(), mvcResult.getResponse().getStatus());
+	}
+
 	@Test
 	public void getBankClient_withBothConstraints() throws Exception {
 		//GIVEN
@@ -207,6 +349,135 @@ public class ApplicationControllerTest extends AbstractRestControllerTest {
 		assertEquals(HttpStatus.BAD_REQUEST.value(), status);
 	}
 
+	@Test
+	public void postClientTransfers() throws Exception {
+		//GIVEN
+		final String uri = "/client/transfers";
+		final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		final AccountNo giro = jack.createAccount("Jack's Giro").getAccount().accountNo();
+		final AccountNo savings = jack.createAccount("Jack's Savings").getAccount().accountNo();
+		final AccountNo missing = new AccountNo(savings.toLong() + 1000);
+		final String commands = String.format("[%s, %s, %s]", _transferJson(giro, savings, 10.5),
+				_transferJson(savings, giro, 1), _transferJson(savings, missing, 2));
+		//WHEN
+		final MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders.post(uri).with(request -> {
+			request.setRemoteUser("jack");
+			return request;
+		}).contentType(MediaType.APPLICATION_JSON_VALUE).content(commands).accept(MediaType.APPLICATION_JSON_UTF8))
+				.andReturn();
+		//THEN
+		final MockHttpServletResponse response = mvcResult.getResponse();
+		assertSuccess("POST " + uri, response);
+		final BulkTransferResultResource result = super.mapFromJson(response.getContentAsString(),
+				BulkTransferResultResource.class);
+		assertEquals(1, result.transferred);
+		// The transfers from savings are done in one transaction, all or none:
+		assertEquals(2, result.failed);
+		assertEquals(3, result.items.size());
+		assertNull(result.items.get(0).error);
+		assertNotNull(result.items.get(1).error);
+		assertEquals(result.items.get(1).error, result.items.get(2).error);
+		assertTrue(result.rowsPerSecond > 0);
+		assertEquals(new Amount(-10, -50), jack.findMyAccount(giro).getBalance());
+		assertEquals(new Amount(10, 50), jack.findMyAccount(savings).getBalance());
+	}
+
+	@Test
+	public void postClientTransfers_malformedCommandMovesNoMoney() throws Exception {
+		//GIVEN
+		final String uri = "/client/transfers";
+		final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		final AccountNo giro = jack.createAccount("Jack's Giro").getAccount().accountNo();
+		final AccountNo savings = jack.createAccount("Jack's Savings").getAccount().accountNo();
+		//The third command is malformed after the first chunk could have been committed:
+		final String commands = String.format("[%s, %s, {\"sourceAccountNo\": \"x\"}]", _transferJson(giro, savings, 10.5),
+				_transferJson(savings, giro, 1));
+		//WHEN
+		final MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders.post(uri).with(request -> {
+			request.setRemoteUser("jack");
+			return request;
+		}).contentType(MediaType.APPLICATION_JSON_VALUE).content(commands).accept(MediaType.APPLICATION_JSON_UTF8))
+				.andReturn();
+		//THEN
+		assertEquals(HttpStatus.BAD_REQUEST.value(), mvcResult.getResponse().getStatus());
+		assertEquals(Amount.ZERO, jack.findMyAccount(giro).getBalance());
+		assertEquals(Amount.ZERO, jack.findMyAccount(savings).getBalance());
+	}
+
+	private String _transferJson(final AccountNo source, final AccountNo destination, final double amount) {
+		return String.format(Locale.ROOT, "{\"sourceAccountNo\": %d, \"destinationAccountNo\": %d, \"amount\": %.2f}",
+				source.toLong(), destination.toLong(), amount);
+	}
+
+	@Test
+	public void getBankMetrics() throws Exception {
+		//GIVEN
+		assertSuccess("GET /bank/client?minBalance=1000",
+				mvc.perform(MockMvcRequestBuilders.get("/bank/client?minBalance=1000")).andReturn().getResponse());
+		final String uri = "/bank/metrics";
+		//WHEN
+		final MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders.get(uri)).andReturn();
+		//THEN
+		final MockHttpServletResponse response = mvcResult.getResponse();
+		assertSuccess("GET " + uri, response);
+		final MediaType contentType = MediaType.parseMediaType(response.getContentType());
+		assertTrue(contentType.isCompatibleWith(MediaType.TEXT_PLAIN));
+		assertEquals("0.0.4", contentType.getParameter("version"));
+		final String content = response.getContentAsString();
+		assertThat(content, Matchers.containsString("# TYPE bank_operation_duration_seconds summary\n"));
+		assertThat(content, Matchers.containsString(
+				"bank_operation_duration_seconds{operation=\"findRichClients\",quantile=\"0.99\"} "));
+		assertThat(content, Matchers.containsString("bank_operation_duration_seconds_count{operation=\"findRichClients\"} "));
+	}
+
+	@Test
+	public void getClientAccount() throws Exception {
+		//GIVEN
+		final String uri = "/client/account";
+		final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		final AccountNo giro = jack.createAccount("Jack's Giro").getAccount().accountNo();
+		jack.createAccount("Jack's Savings");
+		jack.deposit(giro, new Amount(1234, 56));
+		//WHEN
+		final MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders.get(uri).with(request -> {
+			request.setRemoteUser("jack");
+			return request;
+		})).andReturn();
+		//THEN
+		final MockHttpServletResponse response = mvcResult.getResponse();
+		assertSuccess("GET " + uri, response);
+		assertEquals("text/plain;charset=UTF-8", response.getContentType());
+		assertEquals(jack.accountsReport(), response.getContentAsString());
+		assertThat(response.getContentAsString(), Matchers.containsString(giro + "\tisOwner\t1234,56\tJack's Giro\n"));
+	}
+
+	@Test
+	public void getClientAccountSearch() throws Exception {
+		//GIVEN
+		final String uri = "/client/account/search?q=savings";
+		final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		jack.createAccount("Jack's Giro");
+		final AccountNo savings = jack.createAccount("Jack's Savings").getAccount().accountNo();
+		jack.deposit(savings, new Amount(1234, 56));
+		final Client anna = bankService.createClient("anna", LocalDate.parse("1988-08-08"));
+		anna.createAccount("Anna's Savings");
+		//WHEN
+		final MvcResult mvcResult = mvc.perform(MockMvcRequestBuilders.get(uri).accept(MediaType.APPLICATION_JSON_VALUE).with(request -> {
+			request.setRemoteUser("jack");
+			return request;
+		})).andReturn();
+		//THEN
+		final MockHttpServletResponse response = mvcResult.getResponse();
+		assertSuccess("GET " + uri, response);
+		//An AccountAccessResource cannot be deserialized, as it has no default constructor:
+		final Map<?, ?>[] accounts = mapFromJson(response.getContentAsString(), Map[].class);
+		assertEquals(1, accounts.length);
+		assertEquals(savings.toLong(), ((Number) accounts[0].get("accountNo")).longValue());
+		assertEquals("Jack's Savings", accounts[0].get("accountName"));
+		assertEquals("jack", accounts[0].get("clientUsername"));
+		assertEquals(true, accounts[0].get("isOwner"));
+	}
+
 	@Test @Ignore("Still fails to pass a specific authenticated user to the POST request")
 	@WithMockUser(username = "susi")
 	public void postClientAccount() throws Exception {
@@ -0,0 +1,114 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import de.beuth.knabe.spring_ddd_bank.Application;
+
+/**
+ * Throughput benchmark of HTTP Basic authentication with and without the
+ * {@link CachingAuthenticationProvider}. For 1, 8, and 64 threads it sends
+ * authenticated requests for a cheap report to the running application, so that
+ * the bcrypt verification of the password dominates, and prints the requests
+ * per second. This is not a unit test, so it is not run by the Maven build. Run
+ * it from the IDE or by
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=de.beuth.knabe.spring_ddd_bank.rest_interface.AuthenticationCacheBenchmark
+ * </pre>
+ *
+ * The system property <code>requests</code> (requests per thread, default 100)
+ * modifies the workload.
+ */
+public class AuthenticationCacheBenchmark {
+
+	private static final int[] THREAD_COUNTS = { 1, 8, 64 };
+
+	public static void main(final String[] args) throws Exception {
+		final int requestsPerThread = Integer.getInteger("requests", 100);
+		final StringBuilder report = new StringBuilder();
+		report.append(String.format("%-10s %7s %11s%n", "authCache", "threads", "requests/s"));
+		for (final boolean cached : new boolean[] { false, true }) {
+			try (ConfigurableApplicationContext context = _startApplication(cached)) {
+				final URI uri = URI.create(
+						"http://localhost:" + context.getEnvironment().getProperty("local.server.port")
+								+ "/bank/clientCache");
+				final HttpClient httpClient = HttpClient.newHttpClient();
+				final HttpRequest request = HttpRequest.newBuilder(uri)
+						.header("Authorization", "Basic " + Base64.getEncoder()
+								.encodeToString("bank:bank".getBytes(StandardCharsets.UTF_8)))
+						.GET().build();
+				for (final int threadCount : THREAD_COUNTS) {
+					// Warm up JIT and connections:
+					_run(httpClient, request, threadCount, Math.max(1, requestsPerThread / 10));
+					final long elapsedNanos = _run(httpClient, request, threadCount, requestsPerThread);
+					report.append(String.format("%-10s %7d %11.1f%n", cached ? "on" : "off", threadCount,
+							(long) threadCount * requestsPerThread / (elapsedNanos / 1e9)));
+				}
+			}
+		}
+		System.out.print(report);
+	}
+
+	/**
+	 * Runs the given number of threads, each sending the request the given number
+	 * of times.
+	 *
+	 * @return the wall clock duration in nanoseconds
+	 */
+	private static long _run(final HttpClient httpClient, final HttpRequest request, final int threadCount,
+			final int requestsPerThread) throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		final List<Future<?>> futures = new ArrayList<>();
+		final long start = System.nanoTime();
+		for (int t = 0; t < threadCount; t++) {
+			futures.add(executor.submit(() -> {
+				for (int n = 0; n < requestsPerThread; n++) {
+					final HttpResponse<String> response = httpClient.send(request,
+							HttpResponse.BodyHandlers.ofString());
+					if (response.statusCode() != 200) {
+						throw new IllegalStateException("Status " + response.statusCode() + " for " + request);
+					}
+				}
+				return null;
+			}));
+		}
+		for (final Future<?> future : futures) {
+			future.get();
+		}
+		final long elapsedNanos = System.nanoTime() - start;
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+		return elapsedNanos;
+	}
+
+	/**
+	 * Starts the application on a random port with or without the cache of
+	 * password verifications.
+	 *
+	 * @param cached whether successful password verifications are cached
+	 * @return the running application context
+	 */
+	private static ConfigurableApplicationContext _startApplication(final boolean cached) {
+		return new SpringApplicationBuilder(Application.class)
+				.properties("bank.authCache.enabled=" + cached, "server.port=0",
+						"spring.datasource.url=jdbc:derby:memory:authentication-cache-benchmark;create=true",
+						"server.tomcat.max-threads=" + THREAD_COUNTS[THREAD_COUNTS.length - 1],
+						"logging.level.root=WARN")
+				.run();
+	}
+
+}
@@ -0,0 +1,101 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+/** Test driver for the {@link CachingAuthenticationProvider} */
+public class CachingAuthenticationProviderTest {
+
+	/** Counts the password verifications. */
+	private final AtomicInteger verifications = new AtomicInteger();
+
+	private DaoAuthenticationProvider _verifier() {
+		final InMemoryUserDetailsManager users = new InMemoryUserDetailsManager();
+		users.createUser(User.withUsername("hans").password("secret").roles("CLIENT").build());
+		users.createUser(User.withUsername("nina").password("other").roles("CLIENT").build());
+		final DaoAuthenticationProvider result = new DaoAuthenticationProvider();
+		result.setUserDetailsService(users);
+		// Plain text passwords, as the hashing costs are not to be tested:
+		result.setPasswordEncoder(new PasswordEncoder() {
+			@Override
+			public String encode(final CharSequence rawPassword) {
+				return rawPassword.toString();
+			}
+
+			@Override
+			public boolean matches(final CharSequence rawPassword, final String encodedPassword) {
+				verifications.incrementAndGet();
+				return rawPassword.toString().equals(encodedPassword);
+			}
+		});
+		return result;
+	}
+
+	private static Authentication _basic(final String username, final String password) {
+		return new UsernamePasswordAuthenticationToken(username, password);
+	}
+
+	@Test
+	public void repeatedCredentialsAreVerifiedOnce() {
+		final CachingAuthenticationProvider testee = new CachingAuthenticationProvider(_verifier(), true, 10, 60);
+		final Authentication first = testee.authenticate(_basic("hans", "secret"));
+		final Authentication second = testee.authenticate(_basic("hans", "secret"));
+		assertEquals(1, verifications.get());
+		assertTrue(second.isAuthenticated());
+		assertEquals(first.getName(), second.getName());
+		assertEquals(first.getAuthorities(), second.getAuthorities());
+		assertNull(second.getCredentials());
+	}
+
+	@Test
+	public void wrongPasswordIsNeverCached() {
+		final CachingAuthenticationProvider testee = new CachingAuthenticationProvider(_verifier(), true, 10, 60);
+		testee.authenticate(_basic("hans", "secret"));
+		for (int i = 0; i < 2; i++) {
+			try {
+				testee.authenticate(_basic("hans", "guessed"));
+				fail("BadCredentialsException expected");
+			} catch (BadCredentialsException expected) {
+			}
+		}
+		assertEquals(3, verifications.get());
+		assertEquals(1, testee.size());
+	}
+
+	@Test
+	public void leastRecentlyUsedCredentialsAreForgotten() {
+		final CachingAuthenticationProvider testee = new CachingAuthenticationProvider(_verifier(), true, 1, 60);
+		testee.authenticate(_basic("hans", "secret"));
+		testee.authenticate(_basic("nina", "other"));
+		testee.authenticate(_basic("hans", "secret"));
+		assertEquals(3, verifications.get());
+		assertEquals(1, testee.size());
+	}
+
+	@Test
+	public void expiredOrDisabledCacheVerifiesAgain() {
+		final CachingAuthenticationProvider expiring = new CachingAuthenticationProvider(_verifier(), true, 10, 0);
+		expiring.authenticate(_basic("hans", "secret"));
+		expiring.authenticate(_basic("hans", "secret"));
+		assertEquals(2, verifications.get());
+		final CachingAuthenticationProvider disabled = new CachingAuthenticationProvider(_verifier(), false, 10, 60);
+		disabled.authenticate(_basic("hans", "secret"));
+		disabled.authenticate(_basic("hans", "secret"));
+		assertEquals(4, verifications.get());
+		assertEquals(0, disabled.size());
+	}
+
+}
@@ -0,0 +1,132 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import de.beuth.knabe.spring_ddd_bank.Application;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.BankService;
+import de.beuth.knabe.spring_ddd_bank.domain.CleanupService;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+
+/**
+ * Throughput benchmark comparing deposits each in its own transaction with
+ * deposits through the {@link DepositPipeline}. For each variant and for 1, 8,
+ * and 64 threads it deposits small amounts to randomly chosen accounts on a
+ * Derby database in a directory, so that each commit flushes the database log,
+ * and prints the throughput and the average number of deposits per committed
+ * transaction. This is not a unit test, so it is not run by the Maven build.
+ * Run it from the IDE or by
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=de.beuth.knabe.spring_ddd_bank.rest_interface.DepositPipelineBenchmark
+ * </pre>
+ *
+ * The system properties <code>accounts</code> (default 100) and
+ * <code>deposits</code> (deposits per thread, default 200) modify the
+ * workload.
+ */
+public class DepositPipelineBenchmark {
+
+	private static final int[] THREAD_COUNTS = { 1, 8, 64 };
+
+	public static void main(final String[] args) throws Exception {
+		final int accountCount = Integer.getInteger("accounts", 100);
+		final int depositsPerThread = Integer.getInteger("deposits", 200);
+		final StringBuilder report = new StringBuilder();
+		report.append(String.format("%-10s %7s %11s %13s%n", "path", "threads", "deposits/s", "deposits/tx"));
+		for (final boolean pipelined : new boolean[] { false, true }) {
+			try (ConfigurableApplicationContext context = _startApplication(pipelined)) {
+				final BankService bankService = context.getBean(BankService.class);
+				final TransactionRetryTemplate retryTemplate = context.getBean(TransactionRetryTemplate.class);
+				final DepositPipeline pipeline = context.getBean(DepositPipeline.class);
+				final CleanupService cleanupService = context.getBean(CleanupService.class);
+				for (final int threadCount : THREAD_COUNTS) {
+					cleanupService.deleteAll();
+					final Client client = bankService.createClient("bench", LocalDate.parse("1966-12-31"));
+					final AccountNo[] accountNos = new AccountNo[accountCount];
+					for (int i = 0; i < accountCount; i++) {
+						accountNos[i] = client.createAccount("bench " + i).getAccount().accountNo();
+					}
+					final Runnable deposit = () -> {
+						final AccountNo destination = accountNos[ThreadLocalRandom.current().nextInt(accountCount)];
+						final Amount amount = new Amount(0, ThreadLocalRandom.current().nextInt(1, 100));
+						if (pipelined) {
+							pipeline.deposit("bench", destination, amount);
+						} else {
+							retryTemplate.execute(() -> {
+								bankService.findClient("bench").deposit(destination, amount);
+								return null;
+							});
+						}
+					};
+					// Warm up JIT and connection pool:
+					_run(threadCount, Math.max(1, depositsPerThread / 10), deposit);
+					final long batchesBefore = pipeline.batchCount();
+					final long elapsedNanos = _run(threadCount, depositsPerThread, deposit);
+					final long depositCount = (long) threadCount * depositsPerThread;
+					final long transactionCount = pipelined ? pipeline.batchCount() - batchesBefore : depositCount;
+					report.append(String.format("%-10s %7d %11.1f %13.1f%n", pipelined ? "pipeline" : "direct",
+							threadCount, depositCount / (elapsedNanos / 1e9),
+							(double) depositCount / transactionCount));
+				}
+				cleanupService.deleteAll();
+			}
+		}
+		System.out.println("Deposits to " + accountCount + " accounts:");
+		System.out.print(report);
+	}
+
+	/**
+	 * Runs the given number of threads, each doing the given number of deposits.
+	 *
+	 * @return the wall clock duration in nanoseconds
+	 */
+	private static long _run(final int threadCount, final int depositsPerThread, final Runnable deposit)
+			throws Exception {
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		final List<Future<?>> futures = new ArrayList<>();
+		final long start = System.nanoTime();
+		for (int t = 0; t < threadCount; t++) {
+			futures.add(executor.submit(() -> {
+				for (int n = 0; n < depositsPerThread; n++) {
+					deposit.run();
+				}
+			}));
+		}
+		for (final Future<?> future : futures) {
+			future.get();
+		}
+		final long elapsedNanos = System.nanoTime() - start;
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+		return elapsedNanos;
+	}
+
+	/**
+	 * Starts the application on a random port with or without the deposit
+	 * pipeline and a connection pool big enough for all threads.
+	 *
+	 * @param pipelined whether deposits go through the {@link DepositPipeline}
+	 * @return the running application context
+	 */
+	private static ConfigurableApplicationContext _startApplication(final boolean pipelined) {
+		return new SpringApplicationBuilder(Application.class)
+				.properties("bank.depositPipeline.enabled=" + pipelined, "server.port=0",
+						"spring.datasource.url=jdbc:derby:directory:target/deposit-pipeline-benchmark;create=true",
+						"spring.datasource.hikari.maximum-pool-size=" + (THREAD_COUNTS[THREAD_COUNTS.length - 1] + 1),
+						"logging.level.root=WARN")
+				.run();
+	}
+
+}
@@ -0,0 +1,130 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.BankService;
+import de.beuth.knabe.spring_ddd_bank.domain.CleanupService;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.LedgerEntry;
+
+/** Test driver for the {@link DepositPipeline} */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "bank.depositPipeline.enabled=true", "bank.depositPipeline.batchSize=20",
+		"bank.depositPipeline.lingerMillis=20" })
+public class DepositPipelineTest {
+
+	/** Only for use in the cleanUp methods! */
+	@Autowired
+	private CleanupService cleanupService;
+
+	@Autowired
+	private BankService bankService;
+
+	@Autowired
+	private DepositPipeline testee;
+
+	@Before
+	public void cleanUpBefore() {
+		cleanupService.deleteAll();
+		Locale.setDefault(Locale.GERMANY);
+	}
+
+	@After
+	public void cleanUpAfter() {
+		cleanupService.deleteAll();
+	}
+
+	@Test
+	public void parallelDepositsAreCommittedInBatches() throws Exception {
+		// Given:
+		final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		final AccountNo giro = jack.createAccount("Jack's Giro").getAccount().accountNo();
+		final AccountNo savings = jack.createAccount("Jack's Savings").getAccount().accountNo();
+		final int threadCount = 16;
+		final int depositsPerThread = 25;
+		final long batchesBefore = testee.batchCount();
+		// When:
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		final List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < threadCount; t++) {
+			final AccountNo destination = t % 2 == 0 ? giro : savings;
+			futures.add(executor.submit(() -> {
+				for (int n = 0; n < depositsPerThread; n++) {
+					testee.deposit("jack", destination, new Amount(1, 1));
+				}
+			}));
+		}
+		for (final Future<?> future : futures) {
+			future.get();
+		}
+		executor.shutdown();
+		// Then:
+		final long expectedCents = threadCount / 2 * depositsPerThread * 101;
+		for (final AccountNo accountNo : new AccountNo[] { giro, savings }) {
+			final Client client = bankService.findClient("jack");
+			assertEquals(expectedCents, client.findMyAccount(accountNo).getBalance().getCents());
+			assertEquals(expectedCents, client.findLedgerEntries(accountNo).stream().map(LedgerEntry::getAmount)
+					.reduce(Amount.ZERO, Amount::plus).getCents());
+		}
+		final long batches = testee.batchCount() - batchesBefore;
+		assertTrue("Deposits were not batched: " + batches, batches < threadCount * depositsPerThread);
+	}
+
+	@Test
+	public void failingDepositFailsOnlyItsCaller() throws Exception {
+		// Given:
+		final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		final AccountNo giro = jack.createAccount("Jack's Giro").getAccount().accountNo();
+		final AccountNo missing = new AccountNo(giro.toLong() + 1000);
+		final ExecutorService executor = Executors.newFixedThreadPool(4);
+		// When: The deposits are submitted at the same time, so that they probably share a batch.
+		final Future<?> good1 = executor.submit(() -> testee.deposit("jack", giro, new Amount(10, 0)));
+		final Future<?> notFound = executor.submit(() -> testee.deposit("jack", missing, new Amount(10, 0)));
+		final Future<?> zero = executor.submit(() -> testee.deposit("jack", giro, Amount.ZERO));
+		final Future<?> good2 = executor.submit(() -> testee.deposit("jack", giro, new Amount(5, 0)));
+		// Then:
+		good1.get();
+		good2.get();
+		_assertFailure(notFound, Client.DestinationAccountNotFoundExc.class);
+		_assertFailure(zero, Client.AmountExc.class);
+		executor.shutdown();
+		assertEquals(new Amount(15, 0), bankService.findClient("jack").findMyAccount(giro).getBalance());
+		try {
+			testee.deposit("nobody", giro, new Amount(1, 0));
+			fail("BankService.ClientNotFoundExc expected");
+		} catch (BankService.ClientNotFoundExc expected) {
+		}
+	}
+
+	private void _assertFailure(final Future<?> future, final Class<? extends Exception> expectedClass)
+			throws InterruptedException {
+		try {
+			future.get();
+			fail(expectedClass.getSimpleName() + " expected");
+		} catch (ExecutionException ex) {
+			assertEquals(expectedClass, ex.getCause().getClass());
+		}
+	}
+
+}
@@ -1,17 +1,21 @@
 package de.beuth.knabe.spring_ddd_bank.rest_interface;
 
+import static multex.MultexUtil.create;
 import static org.junit.Assert.*;
 
 import java.util.Locale;
+import java.util.ResourceBundle;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
 
 import de.beuth.knabe.spring_ddd_bank.domain.Amount;
 import de.beuth.knabe.spring_ddd_bank.domain.BankService;
 import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import multex.Msg;
 import de.beuth.knabe.spring_ddd_bank.rest_interface.ApplicationController.ClientCreateWithIdExc;
 
 /** Test driver for the {@link ExceptionAdvice} */
@@ -52,11 +56,52 @@ public class ExceptionAdviceTest {
 
 		// Rule violations in the rest-interface layer:
 		_assertStatus(HttpStatus.BAD_REQUEST, new ClientCreateWithIdExc());
+		_assertStatus(HttpStatus.BAD_REQUEST, new ExceptionAdvice.RequestParameterExc());
+
+		// Concurrent modifications, which could not be resolved by retrying:
+		_assertStatus(HttpStatus.CONFLICT, new ConcurrencyFailureException("conflict"));
 
 		// other errors:
 		_assertStatus(HttpStatus.INTERNAL_SERVER_ERROR, new IllegalAccessException());
 	}
 
+	@Test
+	public void clientMessagesAsByResourceBundle() {
+		final Exception[] excs = { create(Client.MinimumBalanceExc.class, "1.00", "2.00", "3.00"),
+				create(BankService.DuplicateUsernameExc.class, "jack", 4711L), new Client.WithoutRightExc(),
+				new IllegalStateException("broken"),
+				new multex.Failure("Processing {0} failed", new IllegalArgumentException("cause"), "request") };
+		for (final Locale locale : new Locale[] { Locale.GERMANY, Locale.US, Locale.ROOT, Locale.JAPAN }) {
+			for (final Exception exc : excs) {
+				final StringBuffer expected = new StringBuffer();
+				Msg.printMessages(expected, exc, ResourceBundle.getBundle(ExceptionAdvice.BASE_NAME, locale));
+				assertEquals(expected.toString(), ExceptionAdvice.clientMessages(exc, locale));
+			}
+		}
+	}
+
+	@Test
+	public void messageTextsSharedByResolvedBundle() {
+		final ResourceBundle german = MessageTexts.forLocale(Locale.GERMANY);
+		assertSame(german, MessageTexts.forLocale(Locale.GERMANY));
+		assertEquals(ResourceBundle.getBundle(ExceptionAdvice.BASE_NAME, Locale.GERMANY)
+				.equals(ResourceBundle.getBundle(ExceptionAdvice.BASE_NAME, Locale.US)),
+				german.equals(MessageTexts.forLocale(Locale.US)));
+		assertEquals(ResourceBundle.getBundle(ExceptionAdvice.BASE_NAME, Locale.GERMANY).keySet(), german.keySet());
+	}
+
+	@Test
+	public void messageTextsCacheBoundedForArbitraryLocales() {
+		final ResourceBundle root = MessageTexts.forLocale(Locale.ROOT);
+		for (int i = 0; i < 2 * MessageTexts.MAX_LOCALES; i++) {
+			final Locale probing = new Locale("x" + i, "ZZ");
+			// Unknown languages resolve to the bundle of the default Locale:
+			assertEquals(MessageTexts.forLocale(Locale.getDefault()), MessageTexts.forLocale(probing));
+		}
+		assertTrue(MessageTexts.cachedLocales() <= MessageTexts.MAX_LOCALES);
+		assertSame(root, MessageTexts.forLocale(Locale.ROOT));
+	}
+
 	/**
 	 * Asserts that the given exception will be converted to the given HTTP status.
 	 * 
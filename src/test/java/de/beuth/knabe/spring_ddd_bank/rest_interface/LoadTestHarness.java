@@ -0,0 +1,469 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import de.beuth.knabe.spring_ddd_bank.Application;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.BankService;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+
+/**
+ * End-to-end load test of the REST interface for sizing the nodes. It starts
+ * the application on a random port with a Derby database in a temporary
+ * directory, seeds clients with accounts by the {@link BankService}, and drives
+ * the endpoints deposit, transfer, accounts report, and find clients over HTTP
+ * by a configurable mix of operations. The accounts are chosen by a Zipf
+ * distribution, so that a few hot accounts get most of the requests, as in a
+ * real bank. After a warm-up it prints per endpoint the throughput, the error
+ * rate, and the latency percentiles.
+ * <p>
+ * Without a rate the test runs closed-loop: each thread sends its next request
+ * as soon as the previous one is answered. With a rate it runs open-loop: the
+ * requests are scheduled at fixed intervals, and their latency is measured from
+ * the scheduled time, not from the actual sending. So a stalled server is
+ * charged with the waiting time of all requests it delayed, which corrects the
+ * coordinated omission of closed-loop measuring. The threads limit the
+ * requests in flight, so there must be enough of them for the rate.
+ * <p>
+ * This is not a unit test, so it is not run by the Maven build. Run it from the
+ * IDE or by
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=de.beuth.knabe.spring_ddd_bank.rest_interface.LoadTestHarness
+ * </pre>
+ *
+ * The workload is modified by the system properties
+ * <ul>
+ * <li><code>clients</code> number of seeded clients, default 100</li>
+ * <li><code>accountsPerClient</code> default 2</li>
+ * <li><code>threads</code> number of sending threads, default 16</li>
+ * <li><code>rate</code> requests per second for open-loop, default 0 for
+ * closed-loop</li>
+ * <li><code>mix</code> relative weights of the operations, default
+ * <code>deposit:40,transfer:40,accountsReport:15,findClients:5</code></li>
+ * <li><code>zipf</code> exponent of the Zipf distribution of the accounts, 0
+ * for uniform, default 1.0</li>
+ * <li><code>warmupSeconds</code> default 5, and <code>durationSeconds</code>
+ * default 30</li>
+ * </ul>
+ */
+public class LoadTestHarness {
+
+	/** The driven endpoints. */
+	private enum Operation {
+		DEPOSIT("deposit", "POST /client/deposit"), TRANSFER("transfer", "POST /client/transfer"),
+		ACCOUNTS_REPORT("accountsReport", "GET /client/account"), FIND_CLIENTS("findClients", "GET /bank/client");
+
+		/** The name of the operation in the mix. */
+		final String key;
+		final String endpoint;
+
+		Operation(final String key, final String endpoint) {
+			this.key = key;
+			this.endpoint = endpoint;
+		}
+
+		static Operation of(final String key) {
+			for (final Operation operation : values()) {
+				if (operation.key.equals(key)) {
+					return operation;
+				}
+			}
+			throw new IllegalArgumentException("Unknown operation \"" + key + "\" in the mix");
+		}
+	}
+
+	private static final String BANK_USERNAME = "bank";
+	private static final double[] PERCENTILES = { 0.50, 0.90, 0.99, 0.999 };
+
+	private final HttpClient httpClient = HttpClient.newHttpClient();
+	private final URI baseUri;
+
+	/** The seeded account numbers. */
+	private final long[] accountNos;
+
+	/** The username of the owner of each account of {@link #accountNos}. */
+	private final String[] ownerOfAccount;
+
+	/** Cumulative probabilities of choosing the account of the same index. */
+	private final double[] accountDistribution;
+
+	/** The operations and their cumulative weights. */
+	private final Operation[] operations;
+	private final int[] cumulativeWeights;
+
+	/** Latencies and errors of one endpoint. */
+	private static class EndpointStats {
+		private long[] latencyNanos = new long[1024];
+		private int count;
+		private long errors;
+
+		synchronized void record(final long nanos, final boolean error) {
+			if (count == latencyNanos.length) {
+				latencyNanos = Arrays.copyOf(latencyNanos, 2 * count);
+			}
+			latencyNanos[count++] = nanos;
+			if (error) {
+				errors++;
+			}
+		}
+
+		synchronized String report(final String endpoint, final double elapsedSeconds) {
+			final long[] sorted = Arrays.copyOf(latencyNanos, count);
+			Arrays.sort(sorted);
+			final StringBuilder result = new StringBuilder(String.format(Locale.ROOT, "%-22s %9d %9.1f %7.2f",
+					endpoint, count, count / elapsedSeconds, count == 0 ? 0.0 : 100.0 * errors / count));
+			for (final double percentile : PERCENTILES) {
+				result.append(String.format(Locale.ROOT, " %9.2f", _valueAt(sorted, percentile) / 1e6));
+			}
+			result.append(String.format(Locale.ROOT, " %9.2f%n", count == 0 ? 0.0 : sorted[count - 1] / 1e6));
+			return result.toString();
+		}
+
+		private static long _valueAt(final long[] sorted, final double percentile) {
+			if (sorted.length == 0) {
+				return 0;
+			}
+			final int index = (int) Math.ceil(percentile * sorted.length) - 1;
+			return sorted[Math.max(0, index)];
+		}
+	}
+
+	public static void main(final String[] args) throws Exception {
+		final int clientCount = Integer.getInteger("clients", 100);
+		final int accountsPerClient = Integer.getInteger("accountsPerClient", 2);
+		final int threadCount = Integer.getInteger("threads", 16);
+		final double rate = Double.parseDouble(System.getProperty("rate", "0"));
+		final String mix = System.getProperty("mix", "deposit:40,transfer:40,accountsReport:15,findClients:5");
+		final double zipfExponent = Double.parseDouble(System.getProperty("zipf", "1.0"));
+		final int warmupSeconds = Integer.getInteger("warmupSeconds", 5);
+		final int durationSeconds = Integer.getInteger("durationSeconds", 30);
+		if (clientCount * accountsPerClient < 2) {
+			throw new IllegalArgumentException("At least 2 accounts are needed for transfers.");
+		}
+		final Path directory = Files.createTempDirectory("spring-ddd-bank-load-test");
+		try {
+			final Path usersFile = directory.resolve("users.properties");
+			_writeUsers(usersFile, clientCount);
+			try (ConfigurableApplicationContext context = _startApplication(directory, usersFile, threadCount)) {
+				final URI baseUri = URI
+						.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+				System.out.printf("Seeding %d clients with %d accounts each ...%n", clientCount, accountsPerClient);
+				final LoadTestHarness loadTest = new LoadTestHarness(baseUri, context.getBean(BankService.class), clientCount,
+						accountsPerClient, zipfExponent, mix);
+				System.out.printf("Warming up for %d s ...%n", warmupSeconds);
+				loadTest.run(threadCount, rate, warmupSeconds);
+				System.out.printf("Measuring for %d s with %d threads, %s, mix %s, zipf %.2f:%n", durationSeconds,
+						threadCount, rate > 0 ? "open-loop at " + rate + " requests/s" : "closed-loop", mix,
+						zipfExponent);
+				System.out.print(loadTest.run(threadCount, rate, durationSeconds));
+			}
+		} finally {
+			_delete(directory);
+		}
+	}
+
+	/**
+	 * Seeds the clients with their accounts, and prepares the choice of the
+	 * operations and accounts.
+	 *
+	 * @param baseUri           the URI of the running application
+	 * @param bankService       for creating the clients
+	 * @param clientCount       number of clients to be created
+	 * @param accountsPerClient number of accounts of each client
+	 * @param zipfExponent      the exponent of the Zipf distribution of the
+	 *                          accounts
+	 * @param mix               the weights of the operations, e.g.
+	 *                          <code>deposit:1,transfer:1</code>
+	 */
+	LoadTestHarness(final URI baseUri, final BankService bankService, final int clientCount, final int accountsPerClient,
+			final double zipfExponent, final String mix) {
+		this.baseUri = baseUri;
+		final List<Long> seededAccountNos = new ArrayList<>();
+		final List<String> seededOwners = new ArrayList<>();
+		final Amount initialBalance = new Amount(1_000_000, 0);
+		for (int c = 1; c <= clientCount; c++) {
+			final String username = _username(c);
+			final Client client = bankService.createClient(username, LocalDate.of(1950 + c % 50, 1 + c % 12, 1));
+			for (int a = 0; a < accountsPerClient; a++) {
+				final AccountNo accountNo = client.createAccount(username + "'s account " + a).getAccount()
+						.accountNo();
+				client.deposit(accountNo, initialBalance);
+				seededAccountNos.add(accountNo.toLong());
+				seededOwners.add(username);
+			}
+		}
+		// The hot accounts are spread over the clients at random, but the same for each run:
+		final List<Integer> ranks = new ArrayList<>();
+		for (int i = 0; i < seededAccountNos.size(); i++) {
+			ranks.add(i);
+		}
+		Collections.shuffle(ranks, new Random(42));
+		accountNos = new long[ranks.size()];
+		ownerOfAccount = new String[ranks.size()];
+		for (int i = 0; i < ranks.size(); i++) {
+			accountNos[i] = seededAccountNos.get(ranks.get(i));
+			ownerOfAccount[i] = seededOwners.get(ranks.get(i));
+		}
+		accountDistribution = _zipfDistribution(accountNos.length, zipfExponent);
+		final Map<Operation, Integer> weights = _parseMix(mix);
+		operations = weights.keySet().toArray(new Operation[weights.size()]);
+		cumulativeWeights = new int[operations.length];
+		int sum = 0;
+		for (int i = 0; i < operations.length; i++) {
+			sum += weights.get(operations[i]);
+			cumulativeWeights[i] = sum;
+		}
+	}
+
+	/**
+	 * Sends requests of the mixed operations by the given number of threads for
+	 * the given time.
+	 *
+	 * @param threadCount number of sending threads
+	 * @param rate        requests per second for open-loop, or 0 for closed-loop
+	 * @param seconds     how long requests are started
+	 * @return the report with a line for each endpoint and a line for all
+	 */
+	String run(final int threadCount, final double rate, final int seconds) throws Exception {
+		final Map<Operation, EndpointStats> stats = new EnumMap<>(Operation.class);
+		for (final Operation operation : Operation.values()) {
+			stats.put(operation, new EndpointStats());
+		}
+		final EndpointStats total = new EndpointStats();
+		final long intervalNanos = rate > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / rate) : 0;
+		final AtomicLong tickets = new AtomicLong();
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		final List<Future<?>> futures = new ArrayList<>();
+		final long start = System.nanoTime();
+		final long end = start + TimeUnit.SECONDS.toNanos(seconds);
+		for (int t = 0; t < threadCount; t++) {
+			futures.add(executor.submit(() -> {
+				while (true) {
+					final long scheduled;
+					if (intervalNanos > 0) {
+						scheduled = start + tickets.getAndIncrement() * intervalNanos;
+						if (scheduled - end >= 0) {
+							return null;
+						}
+						for (long wait = scheduled - System.nanoTime(); wait > 0; wait = scheduled
+								- System.nanoTime()) {
+							LockSupport.parkNanos(wait);
+						}
+					} else {
+						scheduled = System.nanoTime();
+						if (scheduled - end >= 0) {
+							return null;
+						}
+					}
+					final Operation operation = _nextOperation();
+					final boolean error = !_send(operation);
+					final long latencyNanos = System.nanoTime() - scheduled;
+					stats.get(operation).record(latencyNanos, error);
+					total.record(latencyNanos, error);
+				}
+			}));
+		}
+		for (final Future<?> future : futures) {
+			future.get();
+		}
+		final double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+		executor.shutdown();
+		final StringBuilder result = new StringBuilder(String.format(Locale.ROOT,
+				"%-22s %9s %9s %7s %9s %9s %9s %9s %9s%n", "endpoint", "requests", "req/s", "error%", "p50 ms",
+				"p90 ms", "p99 ms", "p99.9 ms", "max ms"));
+		for (final Operation operation : operations) {
+			result.append(stats.get(operation).report(operation.endpoint, elapsedSeconds));
+		}
+		result.append(total.report("all", elapsedSeconds));
+		return result.toString();
+	}
+
+	/**
+	 * Sends one request of the given operation with randomly chosen accounts.
+	 *
+	 * @return whether the request succeeded
+	 */
+	private boolean _send(final Operation operation) {
+		final int account = _nextAccount();
+		final HttpRequest request;
+		switch (operation) {
+		case DEPOSIT:
+			request = _post("/client/deposit", ownerOfAccount[account],
+					String.format(Locale.ROOT, "{\"accountNo\": %d, \"amount\": 1.00}", accountNos[account]));
+			break;
+		case TRANSFER:
+			int destination = _nextAccount();
+			while (destination == account) {
+				destination = _nextAccount();
+			}
+			request = _post("/client/transfer", ownerOfAccount[account],
+					String.format(Locale.ROOT, "{\"sourceAccountNo\": %d, \"destinationAccountNo\": %d, \"amount\": 0.01}",
+							accountNos[account], accountNos[destination]));
+			break;
+		case ACCOUNTS_REPORT:
+			request = _request("/client/account", ownerOfAccount[account]).GET().build();
+			break;
+		case FIND_CLIENTS:
+			request = _request("/bank/client?limit=50", BANK_USERNAME).GET().build();
+			break;
+		default:
+			throw new IllegalStateException(operation.toString());
+		}
+		try {
+			final HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+			return response.statusCode() < 400;
+		} catch (IOException ex) {
+			return false;
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private HttpRequest.Builder _request(final String path, final String username) {
+		final String credentials = username + ":" + username;
+		return HttpRequest.newBuilder(baseUri.resolve(path)).timeout(Duration.ofSeconds(30)).header("Authorization",
+				"Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	private HttpRequest _post(final String path, final String username, final String json) {
+		return _request(path, username).header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(json)).build();
+	}
+
+	private Operation _nextOperation() {
+		final int value = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+		for (int i = 0;; i++) {
+			if (value < cumulativeWeights[i]) {
+				return operations[i];
+			}
+		}
+	}
+
+	/** @return the index of a Zipf-distributed random account */
+	private int _nextAccount() {
+		final int index = Arrays.binarySearch(accountDistribution, ThreadLocalRandom.current().nextDouble());
+		return Math.min(index >= 0 ? index : -index - 1, accountDistribution.length - 1);
+	}
+
+	/**
+	 * Returns the cumulative probabilities of a Zipf distribution, where the
+	 * element of rank k has a probability proportional to 1/k^exponent.
+	 */
+	private static double[] _zipfDistribution(final int size, final double exponent) {
+		final double[] result = new double[size];
+		double sum = 0;
+		for (int k = 1; k <= size; k++) {
+			sum += 1 / Math.pow(k, exponent);
+			result[k - 1] = sum;
+		}
+		for (int i = 0; i < size; i++) {
+			result[i] /= sum;
+		}
+		return result;
+	}
+
+	/** Parses operation weights like <code>deposit:40,transfer:60</code>. */
+	private static Map<Operation, Integer> _parseMix(final String mix) {
+		final Map<Operation, Integer> result = new EnumMap<>(Operation.class);
+		for (final String part : mix.split(",")) {
+			final String[] nameAndWeight = part.trim().split(":");
+			if (nameAndWeight.length != 2) {
+				throw new IllegalArgumentException("Illegal mix part \"" + part + "\", expected operation:weight");
+			}
+			final int weight = Integer.parseInt(nameAndWeight[1].trim());
+			if (weight > 0) {
+				result.put(Operation.of(nameAndWeight[0].trim()), weight);
+			}
+		}
+		if (result.isEmpty()) {
+			throw new IllegalArgumentException("The mix \"" + mix + "\" contains no operation with a positive weight.");
+		}
+		return result;
+	}
+
+	private static String _username(final int clientNumber) {
+		return "load" + clientNumber;
+	}
+
+	/**
+	 * Writes the users file with the bank user and a user for each client. The
+	 * password of each user is its username, not hashed, so that the load test
+	 * does not measure bcrypt.
+	 */
+	private static void _writeUsers(final Path usersFile, final int clientCount) throws IOException {
+		final List<String> lines = new ArrayList<>();
+		lines.add(BANK_USERNAME + "={noop}" + BANK_USERNAME + ",ROLE_BANK");
+		for (int c = 1; c <= clientCount; c++) {
+			lines.add(_username(c) + "={noop}" + _username(c) + ",ROLE_CLIENT");
+		}
+		Files.write(usersFile, lines, StandardCharsets.ISO_8859_1);
+	}
+
+	/**
+	 * Starts the application on a random port with a Derby database in the given
+	 * directory, the users of the given file, and enough web server threads and
+	 * database connections for all sending threads.
+	 *
+	 * @return the running application context
+	 */
+	private static ConfigurableApplicationContext _startApplication(final Path directory, final Path usersFile,
+			final int threadCount) {
+		return new SpringApplicationBuilder(Application.class)
+				.properties("server.port=0",
+						"spring.datasource.url=jdbc:derby:" + directory.resolve("db").toAbsolutePath() + ";create=true",
+						"spring.datasource.hikari.maximum-pool-size=" + (threadCount + 1),
+						"server.tomcat.max-threads=" + Math.max(threadCount, 10),
+						"bank.users.location=" + usersFile.toUri(), "logging.level.root=WARN")
+				.run();
+	}
+
+	/** Deletes the given directory with all its content, as far as possible. */
+	private static void _delete(final Path directory) {
+		try (Stream<Path> paths = Files.walk(directory)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+				try {
+					Files.delete(path);
+				} catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			});
+		} catch (IOException | UncheckedIOException ex) {
+			System.err.println("Could not delete " + directory + ": " + ex);
+		}
+	}
+
+}
@@ -0,0 +1,192 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.springframework.dao.ConcurrencyFailureException;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Account;
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.BankService;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.LedgerEntry;
+
+/**
+ * Test workload: Many threads transfer random amounts between a few hot
+ * accounts of one client, each transfer in a transaction of the
+ * {@link TransactionRetryTemplate}. Records, which transfers succeeded, so
+ * that the resulting balances can be checked, and the latency of each
+ * transfer.
+ */
+class ParallelTransfers {
+
+	private final BankService bankService;
+	private final TransactionRetryTemplate transactionRetryTemplate;
+	private final String username;
+	private final AccountNo[] accountNos;
+	private final AtomicLongArray expectedCents;
+
+	/**
+	 * Creates a client with the given username and the given number of accounts,
+	 * each with the initial balance.
+	 *
+	 * @param bankService              for creating the client
+	 * @param transactionRetryTemplate for executing each transfer
+	 * @param username                 the username of the new client
+	 * @param accountCount             number of accounts to transfer between, at
+	 *                                 least 2
+	 * @param initialBalance           the initial balance of each account
+	 */
+	ParallelTransfers(final BankService bankService, final TransactionRetryTemplate transactionRetryTemplate,
+			final String username, final int accountCount, final Amount initialBalance) {
+		this.bankService = bankService;
+		this.transactionRetryTemplate = transactionRetryTemplate;
+		this.username = username;
+		final Client client = bankService.createClient(username, LocalDate.parse("1966-12-31"));
+		accountNos = new AccountNo[accountCount];
+		expectedCents = new AtomicLongArray(accountCount);
+		for (int i = 0; i < accountCount; i++) {
+			accountNos[i] = client.createAccount(username + "'s account " + i).getAccount().accountNo();
+			client.deposit(accountNos[i], initialBalance);
+			expectedCents.set(i, initialBalance.getCents());
+		}
+	}
+
+	/** Outcome of a {@link ParallelTransfers#run(int, int)}. */
+	static class Result {
+		/** Number of committed transfers. */
+		final int successes;
+		/** Number of transfers failed even after retries by concurrent modifications. */
+		final int conflicts;
+		/** Wall clock duration of the whole run in nanoseconds. */
+		final long elapsedNanos;
+		/** Ascendingly sorted latencies of all transfers in nanoseconds. */
+		final long[] sortedLatencyNanos;
+
+		Result(final int successes, final int conflicts, final long elapsedNanos, final long[] latencyNanos) {
+			this.successes = successes;
+			this.conflicts = conflicts;
+			this.elapsedNanos = elapsedNanos;
+			this.sortedLatencyNanos = latencyNanos.clone();
+			Arrays.sort(sortedLatencyNanos);
+		}
+
+		/**
+		 * Returns the latency below which the given fraction of transfers completed.
+		 *
+		 * @param fraction e.g. 0.99 for the 99th percentile
+		 * @return latency in milliseconds
+		 */
+		double percentileMillis(final double fraction) {
+			if (sortedLatencyNanos.length == 0) {
+				return 0;
+			}
+			final int index = (int) Math.ceil(fraction * sortedLatencyNanos.length) - 1;
+			return sortedLatencyNanos[Math.max(0, index)] / 1e6;
+		}
+
+		/** @return committed transfers per second */
+		double throughput() {
+			return successes / (elapsedNanos / 1e9);
+		}
+	}
+
+	/**
+	 * Runs the given number of threads, each doing the given number of transfers
+	 * between randomly chosen, different accounts.
+	 *
+	 * @param threadCount        number of parallel threads
+	 * @param transfersPerThread number of transfers by each thread
+	 * @return the outcome of all transfers
+	 * @throws Exception a transfer failed by an unexpected exception
+	 */
+	Result run(final int threadCount, final int transfersPerThread) throws Exception {
+		final int accountCount = accountNos.length;
+		final AtomicInteger successes = new AtomicInteger();
+		final AtomicInteger conflicts = new AtomicInteger();
+		final long[] latencyNanos = new long[threadCount * transfersPerThread];
+		final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		final List<Future<?>> futures = new ArrayList<>();
+		final long start = System.nanoTime();
+		for (int t = 0; t < threadCount; t++) {
+			final int firstIndex = t * transfersPerThread;
+			futures.add(executor.submit(() -> {
+				final ThreadLocalRandom random = ThreadLocalRandom.current();
+				for (int n = 0; n < transfersPerThread; n++) {
+					final int from = random.nextInt(accountCount);
+					final int to = (from + 1 + random.nextInt(accountCount - 1)) % accountCount;
+					final Amount amount = new Amount(random.nextInt(1, 10), random.nextInt(100));
+					final long transferStart = System.nanoTime();
+					try {
+						transactionRetryTemplate.execute(() -> {
+							final Client client = bankService.findClient(username);
+							final Account source = client.findMyAccount(accountNos[from]);
+							client.transfer(source, accountNos[to], amount);
+							return null;
+						});
+						expectedCents.addAndGet(from, -amount.getCents());
+						expectedCents.addAndGet(to, amount.getCents());
+						successes.incrementAndGet();
+					} catch (ConcurrencyFailureException retriesExhausted) {
+						conflicts.incrementAndGet();
+					}
+					latencyNanos[firstIndex + n] = System.nanoTime() - transferStart;
+				}
+			}));
+		}
+		for (final Future<?> future : futures) {
+			future.get();
+		}
+		final long elapsedNanos = System.nanoTime() - start;
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+		return new Result(successes.get(), conflicts.get(), elapsedNanos, latencyNanos);
+	}
+
+	/** @return number of the accounts transferred between */
+	int accountCount() {
+		return accountNos.length;
+	}
+
+	/**
+	 * Returns the balance the account should have after the successful transfers.
+	 *
+	 * @param index index of the account, starting with 0
+	 * @return the expected balance in cents
+	 */
+	long expectedCents(final int index) {
+		return expectedCents.get(index);
+	}
+
+	/**
+	 * Reads the current balance of the account from the database.
+	 *
+	 * @param index index of the account, starting with 0
+	 * @return the account as stored in the database
+	 */
+	Account findAccount(final int index) {
+		return bankService.findClient(username).findMyAccount(accountNos[index]);
+	}
+
+	/**
+	 * Computes the balance of the account from its ledger entries.
+	 *
+	 * @param index index of the account, starting with 0
+	 * @return the sum of the amounts of all ledger entries of the account
+	 */
+	Amount ledgerBalance(final int index) {
+		return bankService.findClient(username).findLedgerEntries(accountNos[index]).stream()
+				.map(LedgerEntry::getAmount).reduce(Amount.ZERO, Amount::plus);
+	}
+
+}
@@ -0,0 +1,89 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import de.beuth.knabe.spring_ddd_bank.domain.AccountNo;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.BankService;
+import de.beuth.knabe.spring_ddd_bank.domain.CleanupService;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+import de.beuth.knabe.spring_ddd_bank.domain.LockingMode;
+import de.beuth.knabe.spring_ddd_bank.domain.TransferOrder;
+
+/**
+ * Test driver for transfers in {@link LockingMode#PESSIMISTIC}. Retries are
+ * switched off, so that any concurrency conflict or deadlock would make a
+ * transfer fail.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = { "bank.transfer.locking=PESSIMISTIC", "bank.transaction.retry.maxAttempts=1" })
+public class PessimisticLockingTest {
+
+	/** Only for use in the cleanUp methods! */
+	@Autowired
+	private CleanupService cleanupService;
+
+	@Autowired
+	private BankService bankService;
+
+	@Autowired
+	private TransactionRetryTemplate transactionRetryTemplate;
+
+	@Before
+	public void cleanUpBefore() {
+		cleanupService.deleteAll();
+		Locale.setDefault(Locale.GERMANY);
+	}
+
+	@After
+	public void cleanUpAfter() {
+		cleanupService.deleteAll();
+	}
+
+	@Test
+	public void parallelTransfersNeitherConflictNorDeadlock() throws Exception {
+		// Given:
+		final Amount initialBalance = new Amount(1000, 0);
+		final ParallelTransfers transfers = new ParallelTransfers(bankService, transactionRetryTemplate, "jack", 3,
+				initialBalance);
+		// When:
+		final ParallelTransfers.Result result = transfers.run(8, 25);
+		// Then:
+		assertEquals(0, result.conflicts);
+		assertEquals(8 * 25, result.successes);
+		TransactionRetryTemplateTest.assertBalancesConserved(transfers, initialBalance);
+	}
+
+	@Test
+	public void transferAllLocksAllAccounts() {
+		// Given:
+		final Client jack = bankService.createClient("jack", LocalDate.parse("1966-12-31"));
+		final AccountNo giro = jack.createAccount("Jack's Giro").getAccount().accountNo();
+		final AccountNo savings = jack.createAccount("Jack's Savings").getAccount().accountNo();
+		final AccountNo depot = jack.createAccount("Jack's Depot").getAccount().accountNo();
+		// When: The source account is in the middle of the locking order.
+		transactionRetryTemplate.execute(() -> {
+			final Client client = bankService.findClient("jack");
+			client.transferAll(client.findMyAccount(savings), Arrays.asList(new TransferOrder(depot, new Amount(3, 0)),
+					new TransferOrder(giro, new Amount(2, 0)), new TransferOrder(savings, new Amount(1, 0))));
+			return null;
+		});
+		// Then:
+		assertEquals(new Amount(2, 0), jack.findMyAccount(giro).getBalance());
+		assertEquals(new Amount(-5, 0), jack.findMyAccount(savings).getBalance());
+		assertEquals(new Amount(3, 0), jack.findMyAccount(depot).getBalance());
+	}
+
+}
@@ -0,0 +1,92 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.ServletException;
+
+import org.junit.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/** Test driver for the {@link RequestTracingFilter} */
+public class RequestTracingFilterTest {
+
+	private MockHttpServletRequest _request(final String username) {
+		final MockHttpServletRequest result = new MockHttpServletRequest("GET", "/bank/client");
+		result.addHeader("Authorization", "Basic "
+				+ Base64.getEncoder().encodeToString((username + ":secret").getBytes(StandardCharsets.UTF_8)));
+		return result;
+	}
+
+	@Test
+	public void illegalSampleRate() {
+		try {
+			new RequestTracingFilter(1.5, 16);
+			fail("IllegalArgumentException expected");
+		} catch (IllegalArgumentException expected) {
+		}
+	}
+
+	@Test
+	public void requestsPassWithAndWithoutTracing() throws Exception {
+		for (final double sampleRate : new double[] { 0, 0.5, 1 }) {
+			final RequestTracingFilter filter = new RequestTracingFilter(sampleRate, 16);
+			try {
+				for (int i = 0; i < 10; i++) {
+					final MockFilterChain chain = new MockFilterChain();
+					filter.doFilter(_request("bank"), new MockHttpServletResponse(), chain);
+					assertNotNull("Request was not passed on with sampleRate " + sampleRate, chain.getRequest());
+				}
+			} finally {
+				filter.destroy();
+			}
+			assertEquals(0, filter.droppedCount());
+		}
+	}
+
+	@Test
+	public void exceptionIsPassedOn() throws Exception {
+		final RequestTracingFilter filter = new RequestTracingFilter(1, 16);
+		try {
+			filter.doFilter(_request("bank"), new MockHttpServletResponse(), (request, response) -> {
+				throw new ServletException("failed");
+			});
+			fail("ServletException expected");
+		} catch (ServletException expected) {
+			assertEquals("failed", expected.getMessage());
+		} finally {
+			filter.destroy();
+		}
+	}
+
+	@Test
+	public void traceFormat() {
+		assertEquals("endpoint=\"GET /bank/client\" user=bank latencyMicros=1500 status=200 outcome=OK",
+				new RequestTracingFilter.RequestTrace("GET", "/bank/client", "bank",
+						TimeUnit.MICROSECONDS.toNanos(1500), 200, null).toString());
+		assertEquals("endpoint=\"POST /client/transfer\" user=ulf latencyMicros=0 status=400 outcome=CLIENT_ERROR",
+				new RequestTracingFilter.RequestTrace("POST", "/client/transfer", "ulf", 0, 400, null).toString());
+		assertEquals("endpoint=\"GET /x\" user=- latencyMicros=0 status=500 outcome=IllegalStateException",
+				new RequestTracingFilter.RequestTrace("GET", "/x", "-", 0, 500, "IllegalStateException").toString());
+	}
+
+	@Test
+	public void requestValuesAreEscaped() {
+		assertEquals(
+				"endpoint=\"GET /x\\\" status=200\\n\" user=\"jack status=500\\r\\nfake=\\\"\\u0007\\\\\" latencyMicros=0 status=200 outcome=OK",
+				new RequestTracingFilter.RequestTrace("GET", "/x\" status=200\n", "jack status=500\r\nfake=\"\u0007\\", 0,
+						200, null).toString());
+		assertEquals("endpoint=\"GET /x\" user=\"\" latencyMicros=0 status=200 outcome=OK",
+				new RequestTracingFilter.RequestTrace("GET", "/x", "", 0, 200, null).toString());
+		assertEquals("endpoint=\"GET /x\" user=j.doe@bank.de latencyMicros=0 status=200 outcome=OK",
+				new RequestTracingFilter.RequestTrace("GET", "/x", "j.doe@bank.de", 0, 200, null).toString());
+	}
+
+}
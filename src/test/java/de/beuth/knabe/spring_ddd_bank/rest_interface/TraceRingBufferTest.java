@@ -0,0 +1,98 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+/** Test driver for the {@link TraceRingBuffer} */
+public class TraceRingBufferTest {
+
+	@Test
+	public void capacityIsRoundedUpToPowerOfTwo() {
+		assertEquals(1, new TraceRingBuffer<String>(1).capacity());
+		assertEquals(8, new TraceRingBuffer<String>(5).capacity());
+		assertEquals(8, new TraceRingBuffer<String>(8).capacity());
+	}
+
+	@Test
+	public void pollReturnsElementsInOfferedOrder() {
+		final TraceRingBuffer<String> buffer = new TraceRingBuffer<>(4);
+		assertNull(buffer.poll());
+		// Wraps around the ring several times:
+		for (int round = 0; round < 3; round++) {
+			assertTrue(buffer.offer("a" + round));
+			assertTrue(buffer.offer("b" + round));
+			assertTrue(buffer.offer("c" + round));
+			assertEquals("a" + round, buffer.poll());
+			assertEquals("b" + round, buffer.poll());
+			assertEquals("c" + round, buffer.poll());
+			assertNull(buffer.poll());
+		}
+	}
+
+	@Test
+	public void offerFailsWhenFull() {
+		final TraceRingBuffer<Integer> buffer = new TraceRingBuffer<>(2);
+		assertTrue(buffer.offer(1));
+		assertTrue(buffer.offer(2));
+		assertFalse(buffer.offer(3));
+		assertEquals(Integer.valueOf(1), buffer.poll());
+		assertTrue(buffer.offer(4));
+		assertEquals(Integer.valueOf(2), buffer.poll());
+		assertEquals(Integer.valueOf(4), buffer.poll());
+		assertNull(buffer.poll());
+	}
+
+	@Test
+	public void concurrentProducersLoseNothing() throws InterruptedException {
+		final int producerCount = 4;
+		final int perProducer = 10_000;
+		final TraceRingBuffer<int[]> buffer = new TraceRingBuffer<>(64);
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Thread> producers = new ArrayList<>();
+		for (int p = 0; p < producerCount; p++) {
+			final int producer = p;
+			final Thread thread = new Thread(() -> {
+				try {
+					start.await();
+				} catch (InterruptedException ex) {
+					return;
+				}
+				for (int n = 0; n < perProducer; n++) {
+					final int[] element = { producer, n };
+					while (!buffer.offer(element)) {
+						Thread.yield();
+					}
+				}
+			});
+			thread.start();
+			producers.add(thread);
+		}
+		start.countDown();
+		final int[] nextOfProducer = new int[producerCount];
+		int received = 0;
+		while (received < producerCount * perProducer) {
+			final int[] element = buffer.poll();
+			if (element == null) {
+				Thread.yield();
+				continue;
+			}
+			// Each producer's elements arrive complete and in order:
+			assertEquals(nextOfProducer[element[0]], element[1]);
+			nextOfProducer[element[0]]++;
+			received++;
+		}
+		for (final Thread thread : producers) {
+			thread.join();
+		}
+		assertNull(buffer.poll());
+	}
+
+}
@@ -0,0 +1,122 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import de.beuth.knabe.spring_ddd_bank.domain.Account;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.BankService;
+import de.beuth.knabe.spring_ddd_bank.domain.CleanupService;
+import de.beuth.knabe.spring_ddd_bank.domain.Client;
+
+/** Test driver for the {@link TransactionRetryTemplate} */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class TransactionRetryTemplateTest {
+
+	/** Only for use in the cleanUp methods! */
+	@Autowired
+	private CleanupService cleanupService;
+
+	@Autowired
+	private BankService bankService;
+
+	@Autowired
+	private TransactionRetryTemplate testee;
+
+	@Before
+	public void cleanUpBefore() {
+		cleanupService.deleteAll();
+		Locale.setDefault(Locale.GERMANY);
+	}
+
+	@After
+	public void cleanUpAfter() {
+		cleanupService.deleteAll();
+	}
+
+	@Test
+	public void concurrencyFailureIsRetriedUntilSuccess() {
+		final AtomicInteger attempts = new AtomicInteger();
+		final String result = testee.execute(() -> {
+			if (attempts.incrementAndGet() < 3) {
+				throw new OptimisticLockingFailureException("simulated conflict");
+			}
+			return "done";
+		});
+		assertEquals("done", result);
+		assertEquals(3, attempts.get());
+	}
+
+	@Test
+	public void otherExceptionIsNotRetried() {
+		final AtomicInteger attempts = new AtomicInteger();
+		try {
+			testee.execute(() -> {
+				attempts.incrementAndGet();
+				throw new Client.AmountExc();
+			});
+			fail("Client.AmountExc expected");
+		} catch (Client.AmountExc expected) {
+		}
+		assertEquals(1, attempts.get());
+	}
+
+	@Test
+	public void wrappedConcurrencyFailureIsRecognized() {
+		final ConcurrencyFailureException conflict = new OptimisticLockingFailureException("simulated conflict");
+		assertTrue(testee.isConcurrencyFailure(new RuntimeException(new RuntimeException(conflict))));
+		assertEquals(false, testee.isConcurrencyFailure(new RuntimeException("other")));
+	}
+
+	/**
+	 * Many threads transfer random amounts between a few accounts. No update may
+	 * get lost, so each balance must reflect exactly the successful transfers, and
+	 * the total of all balances must be conserved.
+	 */
+	@Test
+	public void parallelTransfersConserveTotalBalance() throws Exception {
+		// Given:
+		final Amount initialBalance = new Amount(1000, 0);
+		final ParallelTransfers transfers = new ParallelTransfers(bankService, testee, "jack", 4, initialBalance);
+		// When:
+		final ParallelTransfers.Result result = transfers.run(8, 25);
+		// Then:
+		assertBalancesConserved(transfers, initialBalance);
+		assertTrue("Too many exhausted retries: " + result.conflicts, result.successes > 0);
+	}
+
+	/**
+	 * Asserts, that each account of the given transfers has exactly the balance
+	 * resulting from the successful transfers, that it equals the sum of its
+	 * ledger entries, and that the total of all balances is unchanged.
+	 *
+	 * @param transfers      the finished transfers
+	 * @param initialBalance the initial balance of each account
+	 */
+	static void assertBalancesConserved(final ParallelTransfers transfers, final Amount initialBalance) {
+		long totalCents = 0;
+		for (int i = 0; i < transfers.accountCount(); i++) {
+			final Account account = transfers.findAccount(i);
+			assertEquals("Balance of " + account, transfers.expectedCents(i), account.getBalance().getCents());
+			assertEquals("Ledger of " + account, account.getBalance(), transfers.ledgerBalance(i));
+			totalCents += account.getBalance().getCents();
+		}
+		assertEquals(transfers.accountCount() * initialBalance.getCents(), totalCents);
+	}
+
+}
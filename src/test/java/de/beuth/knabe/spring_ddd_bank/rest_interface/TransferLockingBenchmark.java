@@ -0,0 +1,77 @@
+package de.beuth.knabe.spring_ddd_bank.rest_interface;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import de.beuth.knabe.spring_ddd_bank.Application;
+import de.beuth.knabe.spring_ddd_bank.domain.Amount;
+import de.beuth.knabe.spring_ddd_bank.domain.BankService;
+import de.beuth.knabe.spring_ddd_bank.domain.CleanupService;
+import de.beuth.knabe.spring_ddd_bank.domain.LockingMode;
+
+/**
+ * Contention benchmark comparing the {@link LockingMode}s of transfers. For each
+ * mode and for 1, 8, and 64 threads it runs {@link ParallelTransfers} between a
+ * small set of hot accounts on an in-memory Derby database and prints the
+ * throughput, the 50th and 99th latency percentiles, and the number of
+ * transfers failed by exhausted retries. This is not a unit test, so it is not
+ * run by the Maven build. Run it from the IDE or by
+ *
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=de.beuth.knabe.spring_ddd_bank.rest_interface.TransferLockingBenchmark
+ * </pre>
+ *
+ * The system properties <code>accounts</code> (default 4) and
+ * <code>transfers</code> (transfers per thread, default 200) modify the
+ * workload.
+ */
+public class TransferLockingBenchmark {
+
+	private static final int[] THREAD_COUNTS = { 1, 8, 64 };
+
+	public static void main(final String[] args) throws Exception {
+		final int accountCount = Integer.getInteger("accounts", 4);
+		final int transfersPerThread = Integer.getInteger("transfers", 200);
+		final StringBuilder report = new StringBuilder();
+		report.append(String.format("%-12s %7s %12s %9s %9s %9s%n", "mode", "threads", "transfers/s", "p50 ms",
+				"p99 ms", "failed"));
+		for (final LockingMode lockingMode : LockingMode.values()) {
+			try (ConfigurableApplicationContext context = _startApplication(lockingMode)) {
+				final BankService bankService = context.getBean(BankService.class);
+				final TransactionRetryTemplate retryTemplate = context.getBean(TransactionRetryTemplate.class);
+				final CleanupService cleanupService = context.getBean(CleanupService.class);
+				for (final int threadCount : THREAD_COUNTS) {
+					cleanupService.deleteAll();
+					final ParallelTransfers transfers = new ParallelTransfers(bankService, retryTemplate, "bench",
+							accountCount, new Amount(1_000_000, 0));
+					// Warm up JIT and connection pool:
+					transfers.run(threadCount, Math.max(1, transfersPerThread / 10));
+					final ParallelTransfers.Result result = transfers.run(threadCount, transfersPerThread);
+					report.append(String.format("%-12s %7d %12.1f %9.2f %9.2f %9d%n", lockingMode, threadCount,
+							result.throughput(), result.percentileMillis(0.50), result.percentileMillis(0.99),
+							result.conflicts));
+				}
+				cleanupService.deleteAll();
+			}
+		}
+		System.out.println("Transfers between " + accountCount + " hot accounts:");
+		System.out.print(report);
+	}
+
+	/**
+	 * Starts the application on a random port with the given locking mode and a
+	 * connection pool big enough for all threads.
+	 *
+	 * @param lockingMode the locking mode for transfers
+	 * @return the running application context
+	 */
+	private static ConfigurableApplicationContext _startApplication(final LockingMode lockingMode) {
+		return new SpringApplicationBuilder(Application.class)
+				.properties("bank.transfer.locking=" + lockingMode, "server.port=0",
+						"spring.datasource.url=jdbc:derby:memory:transfer-locking-benchmark;create=true",
+						"spring.datasource.hikari.maximum-pool-size=" + (THREAD_COUNTS[THREAD_COUNTS.length - 1] + 1),
+						"logging.level.root=WARN")
+				.run();
+	}
+
+}